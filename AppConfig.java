@@ -0,0 +1,326 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Configuración de la aplicación y ubicación de sus directorios de datos.
+ * 
+ * La configuración se lee de las propiedades del sistema y, para las que no
+ * estén definidas, del archivo indicado en {@code cs.config} (por defecto
+ * ~/Documents/cs/cs.properties). Las propiedades {@code cs.*} del archivo se
+ * copian a las del sistema al cargar esta clase, de modo que cualquier
+ * opción de la aplicación ({@code cs.durability}, {@code cs.restore.concurrency},
+ * etc.) se puede fijar en el archivo; por eso los puntos de entrada llaman a
+ * {@link #validate()} antes que a nada.
+ * 
+ * <p>Cada directorio de datos ({@link Root}) se puede colocar en un volumen
+ * distinto, por ejemplo el almacén de claves en un disco pequeño y los
+ * archivos cifrados y descifrados en discos rápidos separados, para que las
+ * escrituras de claves no compitan con la E/S masiva. Por defecto todos
+ * cuelgan de {@code cs.root} (~/Documents/cs). Se contabilizan los bytes
+ * leídos y escritos en cada directorio para mostrar su rendimiento junto al
+ * espacio libre de su volumen.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see LocalStorage
+ */
+public class AppConfig {
+
+    /**
+     * Directorios de datos configurables.
+     */
+    public enum Root {
+        /** Almacén de claves y usuarios */
+        KEYS("cs.root.keys", "data"),
+        /** Archivos cifrados públicamente */
+        PUBLIC("cs.root.public", "encriptado"),
+        /** Archivos cifrados privadamente (un subdirectorio por usuario) */
+        PRIVATE("cs.root.private", "encriptado_privado"),
+        /** Archivos públicos descifrados */
+        DECRYPTED("cs.root.decrypted", "desencriptado"),
+        /** Archivos privados descifrados (un subdirectorio por usuario) */
+        DECRYPTED_PRIVATE("cs.root.decryptedPrivate", "desencriptado_privado");
+
+        /** Propiedad que fija el directorio */
+        public final String property;
+
+        /** Nombre del directorio dentro de {@code cs.root} por defecto */
+        private final String defaultName;
+
+        Root(String property, String defaultName) {
+            this.property = property;
+            this.defaultName = defaultName;
+        }
+    }
+
+    /**
+     * Espacio y rendimiento de un directorio de datos.
+     */
+    public static class RootStats {
+        /** Directorio de datos */
+        public final Root root;
+        /** Ruta del directorio */
+        public final Path path;
+        /** Bytes libres utilizables en su volumen (-1 si no se pudo consultar) */
+        public final long usableBytes;
+        /** Tamaño de su volumen (-1 si no se pudo consultar) */
+        public final long totalBytes;
+        /** Bytes leídos desde el arranque */
+        public final long bytesRead;
+        /** Bytes escritos desde el arranque */
+        public final long bytesWritten;
+        /** Tiempo desde el arranque en nanosegundos */
+        public final long elapsedNanos;
+
+        RootStats(Root root, Path path, long usableBytes, long totalBytes, long bytesRead, long bytesWritten, long elapsedNanos) {
+            this.root = root;
+            this.path = path;
+            this.usableBytes = usableBytes;
+            this.totalBytes = totalBytes;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Calcula el rendimiento medio de lectura desde el arranque.
+         * 
+         * @return megabytes leídos por segundo
+         */
+        public double readMegabytesPerSecond() {
+            return elapsedNanos > 0 ? (bytesRead / 1_000_000.0) / (elapsedNanos / 1_000_000_000.0) : 0;
+        }
+
+        /**
+         * Calcula el rendimiento medio de escritura desde el arranque.
+         * 
+         * @return megabytes escritos por segundo
+         */
+        public double writeMegabytesPerSecond() {
+            return elapsedNanos > 0 ? (bytesWritten / 1_000_000.0) / (elapsedNanos / 1_000_000_000.0) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-17s %-45s libre %,d MiB de %,d MiB, leido %,d KiB (%.1f MB/s), escrito %,d KiB (%.1f MB/s)",
+                root, path, usableBytes >> 20, totalBytes >> 20, bytesRead >> 10, readMegabytesPerSecond(),
+                bytesWritten >> 10, writeMegabytesPerSecond());
+        }
+    }
+
+    /** Directorio base por defecto */
+    private static final String DEFAULT_BASE = System.getProperty("user.home") + File.separator + "Documents" + File.separator + "cs";
+
+    /** Archivo de configuración leído al cargar la clase (null si no existe) */
+    private static final Path CONFIG_FILE;
+
+    /** Directorios de datos */
+    private static final Map<Root, Path> ROOTS = new EnumMap<>(Root.class);
+
+    /** Bytes leídos por directorio */
+    private static final Map<Root, LongAdder> READ = new EnumMap<>(Root.class);
+
+    /** Bytes escritos por directorio */
+    private static final Map<Root, LongAdder> WRITTEN = new EnumMap<>(Root.class);
+
+    /** Instante de carga de la configuración */
+    private static final long START_NANOS = System.nanoTime();
+
+    static {
+        Path configFile = Paths.get(System.getProperty("cs.config", DEFAULT_BASE + File.separator + "cs.properties"));
+        if (Files.isRegularFile(configFile)) {
+            Properties file = new Properties();
+            try (InputStream in = Files.newInputStream(configFile)) {
+                file.load(in);
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo leer la configuracion " + configFile + ": " + e.getMessage(), e);
+            }
+            for (String name : file.stringPropertyNames()) {
+                if (name.startsWith("cs.") && System.getProperty(name) == null) {
+                    System.setProperty(name, file.getProperty(name).trim());
+                }
+            }
+            CONFIG_FILE = configFile;
+        } else {
+            CONFIG_FILE = null;
+        }
+
+        Path base = Paths.get(System.getProperty("cs.root", DEFAULT_BASE));
+        for (Root root : Root.values()) {
+            String configured = System.getProperty(root.property);
+            ROOTS.put(root, (configured != null ? Paths.get(configured) : base.resolve(root.defaultName)).toAbsolutePath().normalize());
+            READ.put(root, new LongAdder());
+            WRITTEN.put(root, new LongAdder());
+        }
+    }
+
+    private AppConfig() {
+    }
+
+    /**
+     * Obtiene un directorio de datos.
+     * 
+     * @param root directorio de datos
+     * @return ruta configurada (puede no existir todavía)
+     */
+    public static File directory(Root root) {
+        return ROOTS.get(root).toFile();
+    }
+
+    /**
+     * Obtiene el subdirectorio de un usuario dentro de un directorio de datos.
+     * 
+     * @param root {@link Root#PRIVATE} o {@link Root#DECRYPTED_PRIVATE}
+     * @param username nombre del usuario
+     * @return ruta del subdirectorio del usuario
+     */
+    public static File userDirectory(Root root, String username) {
+        return new File(directory(root), username);
+    }
+
+    /**
+     * Obtiene el directorio base del que cuelgan los directorios no configurados.
+     * 
+     * @return valor de {@code cs.root} o ~/Documents/cs
+     */
+    public static File baseDirectory() {
+        return new File(System.getProperty("cs.root", DEFAULT_BASE));
+    }
+
+    /**
+     * Obtiene el archivo de configuración leído.
+     * 
+     * @return archivo de configuración, o null si no había ninguno
+     */
+    public static Path getConfigFile() {
+        return CONFIG_FILE;
+    }
+
+    /**
+     * Comprueba los directorios de datos al arrancar: crea los que no
+     * existen y verifica que se puede escribir en ellos. Avisa si dos
+     * directorios configurados explícitamente comparten volumen.
+     * 
+     * @throws IllegalStateException si algún directorio no se puede crear o no admite escritura
+     */
+    public static void validate() {
+        List<String> problems = new ArrayList<>();
+        for (Root root : Root.values()) {
+            Path path = ROOTS.get(root);
+            try {
+                Files.createDirectories(path);
+                if (!Files.isWritable(path)) {
+                    problems.add(root + " (" + path + "): sin permiso de escritura");
+                }
+            } catch (IOException e) {
+                problems.add(root + " (" + path + "): " + e);
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Directorios de datos invalidos: " + String.join("; ", problems));
+        }
+
+        // Solo se consultan los volúmenes si se ha configurado alguna ubicación
+        Map<Root, FileStore> stores = new EnumMap<>(Root.class);
+        for (Root root : Root.values()) {
+            if (System.getProperty(root.property) == null) {
+                continue;
+            }
+            if (stores.isEmpty()) {
+                for (Root any : Root.values()) {
+                    try {
+                        stores.put(any, Files.getFileStore(ROOTS.get(any)));
+                    } catch (IOException e) {
+                        // Sin información del volumen no se puede avisar
+                    }
+                }
+            }
+            for (Root other : Root.values()) {
+                if (other.ordinal() < root.ordinal() && System.getProperty(other.property) != null
+                        && stores.containsKey(root) && stores.get(root).equals(stores.get(other))) {
+                    System.err.println("Aviso: " + root + " y " + other + " estan en el mismo volumen (" + stores.get(root) + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene el espacio libre y el rendimiento de cada directorio de datos.
+     * 
+     * @return estadísticas en el orden de {@link Root}
+     */
+    public static List<RootStats> stats() {
+        long elapsed = System.nanoTime() - START_NANOS;
+        List<RootStats> stats = new ArrayList<>();
+        for (Root root : Root.values()) {
+            Path path = ROOTS.get(root);
+            long usable = -1;
+            long total = -1;
+            try {
+                FileStore store = Files.getFileStore(path);
+                usable = store.getUsableSpace();
+                total = store.getTotalSpace();
+            } catch (IOException e) {
+                // El directorio aún no existe
+            }
+            stats.add(new RootStats(root, path, usable, total, READ.get(root).sum(), WRITTEN.get(root).sum(), elapsed));
+        }
+        return stats;
+    }
+
+    /**
+     * Anota bytes leídos de un archivo en el directorio de datos que lo contiene.
+     * 
+     * @param file archivo leído
+     * @param bytes bytes leídos
+     */
+    static void recordRead(Path file, long bytes) {
+        Root root = rootOf(file);
+        if (root != null) {
+            READ.get(root).add(bytes);
+        }
+    }
+
+    /**
+     * Anota bytes escritos en un archivo en el directorio de datos que lo contiene.
+     * 
+     * @param file archivo escrito
+     * @param bytes bytes escritos
+     */
+    static void recordWrite(Path file, long bytes) {
+        Root root = rootOf(file);
+        if (root != null) {
+            WRITTEN.get(root).add(bytes);
+        }
+    }
+
+    /**
+     * Busca el directorio de datos más específico que contiene un archivo.
+     * 
+     * @return directorio de datos, o null si el archivo está fuera de todos
+     */
+    private static Root rootOf(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        Root found = null;
+        for (Root root : Root.values()) {
+            Path candidate = ROOTS.get(root);
+            if (path.startsWith(candidate) && (found == null || candidate.getNameCount() > ROOTS.get(found).getNameCount())) {
+                found = root;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.File;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fachada asíncrona sobre {@link FileEncryptionUtil}.
+ * 
+ * Cada operación se ejecuta en el ejecutor de la instancia y devuelve un
+ * {@link CompletableFuture}, de modo que los servicios que integran la
+ * aplicación pueden encadenar operaciones sin bloquear sus hilos ni
+ * mantener sus propios grupos de hilos. Los errores de las operaciones
+ * llegan como finalización excepcional del futuro.
+ * 
+ * <p>Cancelar un futuro (o que expire con {@link CompletableFuture#orTimeout})
+ * interrumpe la operación en curso; los archivos a medio escribir se
+ * descartan sin publicarse, como en cualquier fallo.</p>
+ * 
+ * <p>El ejecutor por defecto usa hilos virtuales cuando la máquina virtual
+ * los ofrece (Java 21 o superior) y, si no, un grupo de hilos demonio que
+ * crece según la demanda. La propiedad {@code cs.async.threads=platform}
+ * fuerza el uso de hilos de plataforma.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionUtil
+ */
+public class AsyncFileEncryption {
+
+    /** Instancia compartida con el ejecutor por defecto */
+    private static final AsyncFileEncryption INSTANCE = new AsyncFileEncryption(defaultExecutor());
+
+    /** Ejecutor de las operaciones */
+    private final Executor executor;
+
+    /**
+     * Operación bloqueante de {@link FileEncryptionUtil}.
+     */
+    private interface Operation<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Crea una fachada que ejecuta las operaciones en el ejecutor indicado.
+     * 
+     * @param executor ejecutor de las operaciones (no se cierra desde esta clase)
+     */
+    public AsyncFileEncryption(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Obtiene la instancia compartida con el ejecutor por defecto.
+     * 
+     * @return fachada asíncrona de la aplicación
+     */
+    public static AsyncFileEncryption getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Genera una clave AES nueva.
+     * 
+     * @return futuro con la clave generada
+     * @see FileEncryptionUtil#generateKey()
+     */
+    public CompletableFuture<Key> generateKeyAsync() {
+        return submit(FileEncryptionUtil::generateKey);
+    }
+
+    /**
+     * Cifra la clave de un archivo con la clave pública del sistema y la guarda.
+     * 
+     * @param filename nombre del archivo al que se asocia la clave
+     * @param key clave AES del archivo
+     * @param publicKey clave pública RSA del sistema
+     * @return futuro que se completa cuando la clave está guardada
+     * @see FileEncryptionUtil#saveKey(String, Key, PublicKey)
+     */
+    public CompletableFuture<Void> saveKeyAsync(String filename, Key key, PublicKey publicKey) {
+        return submit(() -> {
+            FileEncryptionUtil.saveKey(filename, key, publicKey);
+            return null;
+        });
+    }
+
+    /**
+     * Guarda la clave de un archivo indexada por su identificador.
+     * 
+     * @param fileId identificador del archivo
+     * @param key clave AES del archivo
+     * @param publicKey clave pública RSA del sistema
+     * @return futuro que se completa cuando la clave está guardada
+     * @see FileEncryptionUtil#saveFileKey(String, Key, PublicKey)
+     */
+    public CompletableFuture<Void> saveFileKeyAsync(String fileId, Key key, PublicKey publicKey) {
+        return submit(() -> {
+            FileEncryptionUtil.saveFileKey(fileId, key, publicKey);
+            return null;
+        });
+    }
+
+    /**
+     * Recupera la clave de un archivo cifrado público por su identificador o su nombre.
+     * 
+     * @param inputFile archivo cifrado
+     * @param privateKey clave privada RSA del sistema
+     * @return futuro con la clave AES del archivo
+     * @see FileEncryptionUtil#getKey(File, PrivateKey)
+     */
+    public CompletableFuture<Key> getKeyAsync(File inputFile, PrivateKey privateKey) {
+        return submit(() -> FileEncryptionUtil.getKey(inputFile, privateKey));
+    }
+
+    /**
+     * Recupera la clave de un archivo público.
+     * 
+     * @param filename nombre del archivo (con o sin .enc)
+     * @param privateKey clave privada RSA del sistema
+     * @return futuro con la clave AES del archivo
+     * @see FileEncryptionUtil#getKey(String, PrivateKey)
+     */
+    public CompletableFuture<Key> getKeyAsync(String filename, PrivateKey privateKey) {
+        return submit(() -> FileEncryptionUtil.getKey(filename, privateKey));
+    }
+
+    /**
+     * Cifra un archivo con la clave indicada.
+     * 
+     * @param inputFile archivo a cifrar
+     * @param outputFile archivo cifrado de destino
+     * @param key clave AES del archivo
+     * @param options conservación del origen y durabilidad
+     * @return futuro con el archivo cifrado
+     * @see FileEncryptionUtil#encryptFile(File, File, Key, FileOperationOptions)
+     */
+    public CompletableFuture<File> encryptAsync(File inputFile, File outputFile, Key key, FileOperationOptions options) {
+        return encryptAsync(inputFile, outputFile, key, null, options);
+    }
+
+    /**
+     * Cifra un archivo guardando su identificador en la cabecera.
+     * 
+     * @param inputFile archivo a cifrar
+     * @param outputFile archivo cifrado de destino
+     * @param key clave AES del archivo
+     * @param fileId identificador con el que se guardó la clave (null si se guardó por nombre)
+     * @param options conservación del origen y durabilidad
+     * @return futuro con el archivo cifrado
+     * @see FileEncryptionUtil#encryptFile(File, File, Key, String, FileOperationOptions)
+     */
+    public CompletableFuture<File> encryptAsync(File inputFile, File outputFile, Key key, String fileId,
+            FileOperationOptions options) {
+        return submit(() -> {
+            FileEncryptionUtil.encryptFile(inputFile, outputFile, key, fileId, options);
+            return outputFile;
+        });
+    }
+
+    /**
+     * Crea la cabecera de un archivo público nuevo y guarda su clave según
+     * la ubicación de las opciones.
+     * 
+     * @param key clave AES del archivo
+     * @param publicKey clave pública RSA del sistema
+     * @param options ubicación de la clave y formato
+     * @return futuro con la cabecera, que se completa cuando la clave está guardada
+     * @see FileEncryptionUtil#newPublicHeader(Key, PublicKey, FileOperationOptions)
+     */
+    public CompletableFuture<ContainerHeader> newPublicHeaderAsync(Key key, PublicKey publicKey, FileOperationOptions options) {
+        return submit(() -> FileEncryptionUtil.newPublicHeader(key, publicKey, options));
+    }
+
+    /**
+     * Cifra un archivo con una cabecera ya preparada.
+     * 
+     * @param inputFile archivo a cifrar
+     * @param outputFile archivo cifrado de destino
+     * @param key clave AES del archivo
+     * @param header cabecera creada con {@link #newPublicHeaderAsync(Key, PublicKey, FileOperationOptions)}
+     * @param options conservación del origen y durabilidad
+     * @return futuro con el archivo cifrado
+     * @see FileEncryptionUtil#encryptFileWithHeader(File, File, Key, ContainerHeader, FileOperationOptions)
+     */
+    public CompletableFuture<File> encryptWithHeaderAsync(File inputFile, File outputFile, Key key, ContainerHeader header,
+            FileOperationOptions options) {
+        return submit(() -> {
+            FileEncryptionUtil.encryptFileWithHeader(inputFile, outputFile, key, header, options);
+            return outputFile;
+        });
+    }
+
+    /**
+     * Descifra un archivo público con la clave indicada.
+     * 
+     * @param inputFile archivo cifrado
+     * @param outputFile archivo de destino (solo se usa su nombre)
+     * @param key clave AES del archivo
+     * @param options conservación del origen y de la clave y durabilidad
+     * @return futuro con el archivo de destino
+     * @see FileEncryptionUtil#decryptFile(File, File, Key, FileOperationOptions)
+     */
+    public CompletableFuture<File> decryptAsync(File inputFile, File outputFile, Key key, FileOperationOptions options) {
+        return submit(() -> {
+            FileEncryptionUtil.decryptFile(inputFile, outputFile, key, options);
+            return outputFile;
+        });
+    }
+
+    /**
+     * Cifra un archivo público con una clave nueva: genera la clave, la
+     * guarda protegida con la clave del sistema según la ubicación de las
+     * opciones y cifra el archivo.
+     * 
+     * Cada paso es una etapa del futuro; la clave se guarda antes de cifrar,
+     * de modo que nunca queda un archivo cifrado sin su clave. Cancelar el
+     * futuro devuelto cancela la etapa que se esté ejecutando.
+     * 
+     * @param inputFile archivo a cifrar
+     * @param outputFile archivo cifrado de destino
+     * @param publicKey clave pública RSA del sistema
+     * @param options ubicación de la clave, conservación del origen y durabilidad
+     * @return futuro con el archivo cifrado
+     * @see FileEncryptionUtil#encryptFilePublic(File, File, PublicKey, FileOperationOptions)
+     */
+    public CompletableFuture<File> encryptWithNewKeyAsync(File inputFile, File outputFile, PublicKey publicKey,
+            FileOperationOptions options) {
+        Chain chain = new Chain();
+        chain.track(generateKeyAsync())
+            .thenCompose(key -> chain.track(newPublicHeaderAsync(key, publicKey, options))
+                .thenCompose(header -> chain.track(encryptWithHeaderAsync(inputFile, outputFile, key, header, options))))
+            .whenComplete(chain::finish);
+        return chain.result();
+    }
+
+    /**
+     * Descifra un archivo público recuperando antes su clave.
+     * 
+     * Cancelar el futuro devuelto cancela la etapa que se esté ejecutando.
+     * 
+     * @param inputFile archivo cifrado
+     * @param outputFile archivo de destino (solo se usa su nombre)
+     * @param privateKey clave privada RSA del sistema
+     * @param options conservación del origen y de la clave y durabilidad
+     * @return futuro con el archivo de destino
+     */
+    public CompletableFuture<File> decryptWithStoredKeyAsync(File inputFile, File outputFile, PrivateKey privateKey,
+            FileOperationOptions options) {
+        Chain chain = new Chain();
+        chain.track(getKeyAsync(inputFile, privateKey))
+            .thenCompose(key -> chain.track(decryptAsync(inputFile, outputFile, key, options)))
+            .whenComplete(chain::finish);
+        return chain.result();
+    }
+
+    /**
+     * Ejecuta una operación en el ejecutor. Si el futuro se cancela o expira
+     * antes de que termine, se interrumpe el hilo que la ejecuta.
+     */
+    private <T> CompletableFuture<T> submit(Operation<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                result.complete(operation.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+            return null;
+        });
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+        executor.execute(task);
+        return result;
+    }
+
+    /**
+     * Cadena de operaciones con un único futuro de resultado. Si el resultado
+     * se cancela o expira, se cancela la operación en curso y no se inician
+     * las siguientes.
+     */
+    private static final class Chain {
+        private final CompletableFuture<File> result = new CompletableFuture<>();
+        private final AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+
+        Chain() {
+            result.whenComplete((value, error) -> {
+                CompletableFuture<?> running = current.get();
+                if (error != null && running != null) {
+                    running.cancel(true);
+                }
+            });
+        }
+
+        /**
+         * Registra la operación que empieza a ejecutarse.
+         */
+        <T> CompletableFuture<T> track(CompletableFuture<T> stage) {
+            current.set(stage);
+            if (result.isCompletedExceptionally()) {
+                stage.cancel(true);
+            }
+            return stage;
+        }
+
+        /**
+         * Completa el resultado con el de la última operación.
+         */
+        void finish(File value, Throwable error) {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            } else {
+                result.complete(value);
+            }
+        }
+
+        CompletableFuture<File> result() {
+            return result;
+        }
+    }
+
+    /**
+     * Crea el ejecutor por defecto: hilos virtuales si están disponibles.
+     */
+    private static ExecutorService defaultExecutor() {
+        if (!"platform".equalsIgnoreCase(System.getProperty("cs.async.threads"))) {
+            try {
+                // Por reflexión para seguir compilando y ejecutando con Java 11
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Máquina virtual sin hilos virtuales
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "cs-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
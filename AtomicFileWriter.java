@@ -0,0 +1,246 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escritura de archivos a prueba de cortes.
+ * 
+ * El contenido se escribe en un archivo temporal del mismo directorio, se
+ * fuerza a disco si se pide y solo entonces se renombra de forma atómica
+ * sobre el destino. Así, ante un fallo en cualquier momento, el destino
+ * contiene la versión anterior completa o la nueva completa, nunca una
+ * mezcla. Los pasos están disponibles por separado para que las
+ * operaciones por lotes puedan agrupar los fsync.
+ * 
+ * <p>Se lleva la cuenta del número de fsync y del tiempo empleado en ellos
+ * para poder medir el coste de la durabilidad.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileOperationOptions.Durability
+ */
+public class AtomicFileWriter {
+
+    /**
+     * Productor del contenido de un archivo.
+     */
+    public interface Content {
+        /**
+         * Escribe el contenido completo en el flujo.
+         * 
+         * @param out flujo del archivo temporal
+         * @throws Exception si hay error al generar el contenido
+         */
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Productor del contenido de un archivo que escribe directamente en el canal.
+     */
+    public interface ChannelContent {
+        /**
+         * Escribe el contenido completo en el canal.
+         * 
+         * @param channel canal del archivo temporal (no debe cerrarse)
+         * @throws Exception si hay error al generar el contenido
+         */
+        void writeTo(FileChannel channel) throws Exception;
+    }
+
+    /** Tamaño del búfer de escritura del archivo temporal */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Número de fsync realizados */
+    private static final AtomicLong syncCount = new AtomicLong();
+
+    /** Tiempo total empleado en fsync en nanosegundos */
+    private static final AtomicLong syncNanos = new AtomicLong();
+
+    /**
+     * Escribe un archivo completo y lo publica de forma atómica.
+     * 
+     * @param target archivo de destino
+     * @param content productor del contenido
+     * @param sync true para forzar a disco el archivo y su directorio
+     * @throws Exception si hay error al escribir; el destino no se modifica
+     */
+    public static void write(Path target, Content content, boolean sync) throws Exception {
+        writeChannel(target, stream(content), sync);
+    }
+
+    /**
+     * Escribe un archivo completo a través de su canal y lo publica de forma atómica.
+     * 
+     * @param target archivo de destino
+     * @param content productor del contenido
+     * @param sync true para forzar a disco el archivo y su directorio
+     * @throws Exception si hay error al escribir; el destino no se modifica
+     */
+    public static void writeChannel(Path target, ChannelContent content, boolean sync) throws Exception {
+        Path temp = writeTempChannel(target, content, sync);
+        try {
+            commit(temp, target, sync);
+        } catch (IOException e) {
+            discard(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Escribe el contenido en un archivo temporal junto al destino.
+     * 
+     * @param target archivo de destino
+     * @param content productor del contenido
+     * @param sync true para forzar a disco el archivo temporal
+     * @return ruta del archivo temporal, pendiente de {@link #commit(Path, Path, boolean)}
+     * @throws Exception si hay error al escribir; el temporal se elimina
+     */
+    public static Path writeTemp(Path target, Content content, boolean sync) throws Exception {
+        return writeTempChannel(target, stream(content), sync);
+    }
+
+    /**
+     * Escribe el contenido a través del canal de un archivo temporal junto al destino.
+     * 
+     * @param target archivo de destino
+     * @param content productor del contenido
+     * @param sync true para forzar a disco el archivo temporal
+     * @return ruta del archivo temporal, pendiente de {@link #commit(Path, Path, boolean)}
+     * @throws Exception si hay error al escribir; el temporal se elimina
+     */
+    public static Path writeTempChannel(Path target, ChannelContent content, boolean sync) throws Exception {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "." + target.getFileName() + ".", ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            content.writeTo(channel);
+            AppConfig.recordWrite(target, channel.size());
+            if (sync) {
+                force(channel);
+            }
+        } catch (Exception e) {
+            discard(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * Fuerza a disco un archivo ya escrito.
+     * 
+     * @param file archivo a sincronizar
+     * @throws IOException si hay error en la sincronización
+     */
+    public static void sync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            force(channel);
+        }
+    }
+
+    /**
+     * Publica un archivo temporal renombrándolo sobre el destino.
+     * 
+     * @param temp archivo temporal creado con {@link #writeTemp(Path, Content, boolean)}
+     * @param target archivo de destino (se reemplaza si existe)
+     * @param sync true para forzar a disco el directorio tras el renombrado
+     * @throws IOException si hay error en el renombrado
+     */
+    public static void commit(Path temp, Path target, boolean sync) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (sync) {
+            syncDirectory(target.toAbsolutePath().getParent());
+        }
+    }
+
+    /**
+     * Fuerza a disco las entradas de un directorio (renombrados y borrados).
+     * 
+     * En sistemas que no permiten abrir directorios (Windows) no hace nada.
+     * 
+     * @param directory directorio a sincronizar
+     */
+    public static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            force(channel);
+        } catch (IOException e) {
+            // El sistema no admite sincronizar directorios
+        }
+    }
+
+    /**
+     * Elimina un archivo temporal que no se va a publicar.
+     * 
+     * @param temp archivo temporal
+     */
+    public static void discard(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar el temporal " + temp + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el número de fsync realizados desde el inicio o el último reinicio.
+     * 
+     * @return número de fsync
+     */
+    public static long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * Obtiene el tiempo empleado en fsync desde el inicio o el último reinicio.
+     * 
+     * @return milisegundos acumulados
+     */
+    public static long getSyncMillis() {
+        return syncNanos.get() / 1_000_000;
+    }
+
+    /**
+     * Reinicia las estadísticas de fsync.
+     */
+    public static void resetStatistics() {
+        syncCount.set(0);
+        syncNanos.set(0);
+    }
+
+    /**
+     * Adapta un productor de flujo a uno de canal con un búfer de escritura.
+     */
+    private static ChannelContent stream(Content content) {
+        return channel -> {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            content.writeTo(out);
+            out.flush();
+        };
+    }
+
+    /**
+     * Ejecuta el fsync de un canal y registra su coste.
+     * 
+     * @param channel canal abierto para escritura
+     * @throws IOException si hay error en la sincronización
+     */
+    static void force(FileChannel channel) throws IOException {
+        long start = System.nanoTime();
+        channel.force(true);
+        syncNanos.addAndGet(System.nanoTime() - start);
+        syncCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de autenticación con credenciales en memoria y limitación de intentos.
+ *
+ * Mantiene una copia en memoria de los hashes de contraseña de users.properties,
+ * que solo se vuelve a leer cuando cambia la fecha de modificación del archivo.
+ * Cada intento pasa primero por dos limitadores token bucket (uno global y otro
+ * por usuario), de forma que los intentos excesivos se descartan antes de
+ * tocar el disco o calcular ningún hash.
+ *
+ * <p>Los límites pueden ajustarse con propiedades del sistema:</p>
+ * <ul>
+ *   <li>{@code cs.auth.user.burst} / {@code cs.auth.user.perMinute} - por usuario (5 / 5)</li>
+ *   <li>{@code cs.auth.global.burst} / {@code cs.auth.global.perSecond} - global (20 / 10)</li>
+ * </ul>
+ *
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ *
+ * @see UserAuth
+ * @see TokenBucket
+ * @see PasswordHashing
+ */
+public class AuthenticationService {
+
+    /**
+     * Resultado de un intento de autenticación.
+     */
+    public enum Result {
+        /** Credenciales correctas */
+        SUCCESS,
+        /** Usuario inexistente o contraseña incorrecta */
+        INVALID,
+        /** Intento descartado por exceso de intentos */
+        THROTTLED
+    }
+
+    /** Número de usuarios con limitador a partir del cual se purgan los inactivos */
+    private static final int MAX_TRACKED_USERS = 10000;
+
+    /** Instancia compartida por la aplicación */
+    private static final AuthenticationService INSTANCE = new AuthenticationService();
+
+    /** Limitador global de intentos */
+    private final TokenBucket globalBucket;
+
+    /** Limitadores por nombre de usuario */
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+
+    /** Capacidad de ráfaga por usuario */
+    private final double userBurst;
+
+    /** Tasa de reposición por usuario en tokens por segundo */
+    private final double userRefillPerSecond;
+
+    /** Hashes de contraseña en memoria indexados por usuario */
+    private volatile Map<String, String> credentials;
+
+    /** Fecha de modificación de users.properties cuando se cargaron las credenciales */
+    private volatile long credentialsTimestamp = -1;
+
+    /** Hash de referencia para igualar el coste de los usuarios inexistentes */
+    private volatile String dummyHash;
+
+    /**
+     * Crea el servicio leyendo los límites de las propiedades del sistema.
+     */
+    AuthenticationService() {
+        this.userBurst = doubleProperty("cs.auth.user.burst", 5);
+        this.userRefillPerSecond = doubleProperty("cs.auth.user.perMinute", 5) / 60d;
+        this.globalBucket = new TokenBucket(
+            doubleProperty("cs.auth.global.burst", 20),
+            doubleProperty("cs.auth.global.perSecond", 10));
+    }
+
+    /**
+     * Obtiene la instancia compartida del servicio.
+     *
+     * @return servicio de autenticación de la aplicación
+     */
+    public static AuthenticationService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Autentica un usuario aplicando limitación de intentos.
+     *
+     * El orden de las comprobaciones es deliberado: primero los limitadores
+     * (solo memoria), después las credenciales en memoria y por último la
+     * verificación del hash. Para usuarios inexistentes se verifica contra un
+     * hash de referencia, de modo que el tiempo de respuesta no revela si el
+     * usuario existe.
+     *
+     * @param username nombre del usuario
+     * @param password contraseña en texto plano
+     * @return resultado del intento
+     */
+    public Result authenticate(String username, String password) {
+        if (username == null || password == null) {
+            return Result.INVALID;
+        }
+        if (!globalBucket.tryAcquire() || !userBucket(username).tryAcquire()) {
+            System.out.println("Intento de login descartado por limite de tasa: " + username);
+            return Result.THROTTLED;
+        }
+
+        String storedHash;
+        try {
+            storedHash = credentials().get(username);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Result.INVALID;
+        }
+
+        if (storedHash == null) {
+            PasswordHashing.verifyPassword(password, dummyHash());
+            return Result.INVALID;
+        }
+        if (!PasswordHashing.verifyPassword(password, storedHash)) {
+            return Result.INVALID;
+        }
+
+        if (PasswordHashing.needsRehash(storedHash)) {
+            try {
+                String newHash = PasswordHashing.hashPassword(password);
+                LocalStorage.updateUserPasswordHash(username, newHash);
+                System.out.println("Hash de contrasena actualizado para: " + username);
+            } catch (IOException e) {
+                System.err.println("Error actualizando hash de contrasena: " + e.getMessage());
+            }
+        }
+        return Result.SUCCESS;
+    }
+
+    /**
+     * Descarta las credenciales en memoria para forzar su recarga.
+     *
+     * Debe llamarse tras crear o modificar usuarios si se necesita que el
+     * cambio sea visible aunque el sistema de archivos tenga poca resolución
+     * en las fechas de modificación.
+     */
+    public void invalidate() {
+        credentialsTimestamp = -1;
+    }
+
+    /**
+     * Obtiene las credenciales en memoria, recargándolas si users.properties cambió.
+     *
+     * @return mapa de usuario a hash de contraseña
+     * @throws IOException si hay error al leer el archivo de usuarios
+     */
+    private Map<String, String> credentials() throws IOException {
+        long timestamp = LocalStorage.getUsersFileLastModified();
+        Map<String, String> current = credentials;
+        if (current == null || timestamp != credentialsTimestamp) {
+            synchronized (this) {
+                if (credentials == null || timestamp != credentialsTimestamp) {
+                    credentials = LocalStorage.getUserPasswordHashes();
+                    credentialsTimestamp = timestamp;
+                }
+                current = credentials;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Obtiene (o crea) el limitador asociado a un usuario.
+     *
+     * @param username nombre del usuario
+     * @return limitador del usuario
+     */
+    private TokenBucket userBucket(String username) {
+        if (userBuckets.size() > MAX_TRACKED_USERS) {
+            // Los cubos llenos equivalen a uno nuevo, se pueden descartar sin perder estado
+            Iterator<TokenBucket> it = userBuckets.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().isFull()) {
+                    it.remove();
+                }
+            }
+        }
+        return userBuckets.computeIfAbsent(username, u -> new TokenBucket(userBurst, userRefillPerSecond));
+    }
+
+    /**
+     * Obtiene el hash de referencia para usuarios inexistentes.
+     *
+     * @return hash PBKDF2 con el coste actual
+     */
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = PasswordHashing.hashPassword("usuario-inexistente");
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Lee una propiedad numérica del sistema con valor por defecto.
+     *
+     * @param name nombre de la propiedad
+     * @param defaultValue valor si la propiedad no existe o es inválida
+     * @return valor de la propiedad
+     */
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor invalido para " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+}
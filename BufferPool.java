@@ -0,0 +1,222 @@
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conjunto compartido de búferes directos para la entrada/salida cifrada.
+ * 
+ * Los búferes se agrupan en clases de tamaño (potencias de dos de 4 KiB a
+ * 16 MiB) y se reutilizan entre operaciones, de modo que cifrar o descifrar
+ * un archivo tras otro no reserva memoria nueva ni genera trabajo para el
+ * recolector. Cada clase tiene {@link #SLACK} bytes extra para que un bloque
+ * de texto plano y su versión cifrada con la etiqueta compartan clase.
+ * 
+ * <p>La memoria retenida sin usar está limitada por la propiedad
+ * {@code cs.bufferpool.maxBytes} (por defecto 64 MiB); los búferes que la
+ * superarían se descartan al liberarse. Con {@code cs.bufferpool.debug=true}
+ * se guarda dónde se pidió cada búfer para detectar los que no se devuelven
+ * o se devuelven dos veces, y al terminar el proceso se informa de las fugas.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see CryptoPipeline
+ */
+public class BufferPool {
+    /** Bytes extra de cada clase sobre su potencia de dos */
+    public static final int SLACK = 64;
+
+    /** Exponente de la clase más pequeña (4 KiB) */
+    private static final int MIN_SHIFT = 12;
+
+    /** Exponente de la clase más grande (16 MiB, el bloque máximo del contenedor) */
+    private static final int MAX_SHIFT = 24;
+
+    /** Memoria máxima retenida en búferes libres */
+    private static final long MAX_RETAINED_BYTES = Long.getLong("cs.bufferpool.maxBytes", 64L * 1024 * 1024);
+
+    /** Registro de búferes en uso para detectar fugas */
+    private static final boolean DEBUG = Boolean.getBoolean("cs.bufferpool.debug");
+
+    /** Búferes libres por clase de tamaño */
+    private static final List<Queue<ByteBuffer>> classes = new ArrayList<>();
+
+    /** Búferes en uso y dónde se pidieron (solo en modo depuración) */
+    private static final Map<ByteBuffer, Throwable> outstanding = new IdentityHashMap<>();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong retainedBytes = new AtomicLong();
+    private static final AtomicLong inUseBytes = new AtomicLong();
+    private static final AtomicLong peakInUseBytes = new AtomicLong();
+
+    static {
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            classes.add(new ConcurrentLinkedQueue<>());
+        }
+        if (DEBUG) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> reportLeaks(System.err), "cs-bufferpool-leaks"));
+        }
+    }
+
+    /**
+     * Obtiene un búfer directo con al menos la capacidad indicada.
+     * 
+     * El búfer se entrega vacío y con el límite en {@code capacity}. Debe
+     * devolverse con {@link #release(ByteBuffer)} cuando ya no se use.
+     * 
+     * @param capacity bytes necesarios
+     * @return búfer preparado para escritura
+     */
+    public static ByteBuffer acquire(int capacity) {
+        int index = classIndex(capacity);
+        ByteBuffer buffer = index >= 0 ? classes.get(index).poll() : null;
+        if (buffer != null) {
+            hits.incrementAndGet();
+            retainedBytes.addAndGet(-buffer.capacity());
+        } else {
+            misses.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(index >= 0 ? classCapacity(index) : capacity);
+        }
+        long inUse = inUseBytes.addAndGet(buffer.capacity());
+        peakInUseBytes.accumulateAndGet(inUse, Math::max);
+        if (DEBUG) {
+            synchronized (outstanding) {
+                outstanding.put(buffer, new Throwable("Buffer de " + buffer.capacity() + " bytes pedido aqui"));
+            }
+        }
+        buffer.clear().limit(capacity);
+        return buffer;
+    }
+
+    /**
+     * Devuelve un búfer al conjunto.
+     * 
+     * @param buffer búfer obtenido con {@link #acquire(int)} (se ignora si es null)
+     * @throws IllegalStateException en modo depuración, si el búfer ya se
+     *         había devuelto o no se obtuvo de este conjunto
+     */
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (DEBUG) {
+            synchronized (outstanding) {
+                if (outstanding.remove(buffer) == null) {
+                    throw new IllegalStateException("Buffer devuelto dos veces o ajeno al pool");
+                }
+            }
+        }
+        inUseBytes.addAndGet(-buffer.capacity());
+
+        int index = classIndex(buffer.capacity());
+        if (index < 0 || classCapacity(index) != buffer.capacity()) {
+            return;
+        }
+        if (retainedBytes.addAndGet(buffer.capacity()) > MAX_RETAINED_BYTES) {
+            retainedBytes.addAndGet(-buffer.capacity());
+            return;
+        }
+        classes.get(index).offer(buffer);
+    }
+
+    /**
+     * Obtiene el número de peticiones servidas con un búfer reutilizado.
+     * 
+     * @return aciertos desde el inicio o el último reinicio
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Obtiene el número de peticiones que tuvieron que reservar un búfer nuevo.
+     * 
+     * @return fallos desde el inicio o el último reinicio
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Obtiene la memoria ocupada por búferes en uso.
+     * 
+     * @return bytes entregados y aún no devueltos
+     */
+    public static long getInUseBytes() {
+        return inUseBytes.get();
+    }
+
+    /**
+     * Obtiene el máximo de memoria en uso a la vez.
+     * 
+     * @return bytes en uso en el momento de mayor ocupación
+     */
+    public static long getPeakInUseBytes() {
+        return peakInUseBytes.get();
+    }
+
+    /**
+     * Obtiene la memoria retenida en búferes libres.
+     * 
+     * @return bytes disponibles para reutilizar
+     */
+    public static long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * Reinicia los contadores de aciertos, fallos y pico de uso.
+     */
+    public static void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        peakInUseBytes.set(inUseBytes.get());
+    }
+
+    /**
+     * Muestra los búferes no devueltos y dónde se pidieron (solo en modo depuración).
+     * 
+     * @param out destino del informe
+     * @return número de búferes no devueltos
+     */
+    public static int reportLeaks(PrintStream out) {
+        List<Throwable> leaks;
+        synchronized (outstanding) {
+            leaks = new ArrayList<>(outstanding.values());
+        }
+        for (Throwable leak : leaks) {
+            out.println("Buffer no devuelto al pool:");
+            leak.printStackTrace(out);
+        }
+        return leaks.size();
+    }
+
+    /**
+     * Obtiene la clase de tamaño más pequeña que admite una capacidad.
+     * 
+     * @return índice de la clase, o -1 si la capacidad supera la clase más grande
+     */
+    private static int classIndex(int capacity) {
+        for (int index = 0; index < classes.size(); index++) {
+            if (classCapacity(index) >= capacity) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Capacidad de los búferes de una clase.
+     */
+    private static int classCapacity(int index) {
+        return (1 << (MIN_SHIFT + index)) + SLACK;
+    }
+}
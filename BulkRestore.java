@@ -0,0 +1,375 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Restauración masiva de carpetas cifradas completas.
+ * 
+ * Descifra en paralelo todos los archivos .enc y .encar de un árbol de
+ * directorios (la carpeta pública o la privada de un usuario) y reproduce
+ * su estructura en el destino. Las claves de cada árbol se resuelven en un
+ * solo lote, de modo que la clave privada de cada usuario se carga y se usa
+ * una sola vez, y todos los árboles comparten un único conjunto de hilos
+ * acotado (propiedad {@code cs.restore.concurrency}, por defecto el número
+ * de procesadores). Cada archivo se descifra con {@link CryptoPipeline}, que
+ * ya solapa lectura, cifrado y escritura.
+ * 
+ * <p>La restauración no elimina los archivos cifrados ni sus claves. Cada
+ * archivo restaurado se publica de forma atómica y después se anota en el
+ * archivo {@value #PROGRESS_FILE} del destino; si la restauración se
+ * interrumpe, la siguiente ejecución omite los archivos anotados. El archivo
+ * de progreso se elimina cuando un árbol se restaura sin errores. Sin
+ * durabilidad, un corte del sistema puede dejar anotado un archivo que no
+ * llegó a disco.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionUtil#getFileKeys(List, PrivateKey)
+ * @see FileEncryptionUtil#getPrivateFileKeys(String, List, PrivateKey)
+ */
+public class BulkRestore {
+
+    /** Nombre del archivo de progreso dentro del directorio de destino */
+    public static final String PROGRESS_FILE = ".restore-progress";
+
+    /**
+     * Resultado de la restauración de un árbol.
+     */
+    public static class Report {
+        /** Directorio cifrado de origen */
+        public final File source;
+        /** Directorio de destino */
+        public final File target;
+        /** Archivos cifrados encontrados */
+        public final int total;
+        /** Archivos omitidos por estar ya restaurados */
+        public final int skipped;
+        /** Archivos restaurados en esta ejecución */
+        public final int restored;
+        /** Bytes cifrados leídos en esta ejecución */
+        public final long bytes;
+        /** Archivos que no se pudieron restaurar, con el motivo */
+        public final Map<String, String> failures;
+        /** Tiempo total en nanosegundos */
+        public final long elapsedNanos;
+
+        Report(Tree tree, long elapsedNanos) {
+            this.source = tree.source;
+            this.target = tree.target;
+            this.total = tree.files.size() + tree.skipped;
+            this.skipped = tree.skipped;
+            this.restored = tree.restored.get();
+            this.bytes = tree.bytes.get();
+            this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(tree.failures));
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Indica si todos los archivos del árbol están restaurados.
+         * 
+         * @return true si no hubo errores
+         */
+        public boolean isComplete() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * Calcula el rendimiento de la restauración.
+         * 
+         * @return megabytes cifrados leídos por segundo
+         */
+        public double megabytesPerSecond() {
+            return elapsedNanos > 0 ? (bytes / 1_000_000.0) / (elapsedNanos / 1_000_000_000.0) : 0;
+        }
+
+        /**
+         * Muestra los errores y un resumen de la restauración.
+         * 
+         * @param out destino del informe
+         */
+        public void print(PrintStream out) {
+            for (Map.Entry<String, String> failure : failures.entrySet()) {
+                out.println("Error restaurando " + failure.getKey() + ": " + failure.getValue());
+            }
+            out.printf("%s -> %s: %d archivos, %d restaurados, %d ya restaurados, %d errores%n",
+                source, target, total, restored, skipped, failures.size());
+            out.printf("Total: %d bytes en %d ms (%.1f MB/s)%n", bytes, elapsedNanos / 1_000_000, megabytesPerSecond());
+        }
+    }
+
+    private BulkRestore() {
+    }
+
+    /**
+     * Obtiene el número de archivos restaurados a la vez configurado.
+     * 
+     * @return valor de {@code cs.restore.concurrency} o el número de procesadores
+     */
+    public static int defaultConcurrency() {
+        return Math.max(1, Integer.getInteger("cs.restore.concurrency", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Restaura un árbol de archivos cifrados públicamente.
+     * 
+     * @param source directorio con archivos .enc y .encar (se recorre recursivamente)
+     * @param target directorio de destino
+     * @param systemPrivateKey clave privada RSA del sistema
+     * @param concurrency número máximo de archivos restaurados a la vez
+     * @param sync true para forzar a disco cada archivo antes de anotarlo
+     * @return informe de la restauración
+     * @throws Exception si hay error al recorrer el árbol o al acceder a las claves
+     */
+    public static Report restorePublic(File source, File target, PrivateKey systemPrivateKey, int concurrency,
+            boolean sync) throws Exception {
+        Tree tree = Tree.load(source, target);
+        tree.keys = FileEncryptionUtil.getFileKeys(tree.files, systemPrivateKey);
+        return run(Collections.singletonList(tree), concurrency, sync).get(0);
+    }
+
+    /**
+     * Restaura un árbol de archivos cifrados privadamente por un usuario.
+     * 
+     * @param username usuario propietario de los archivos
+     * @param source directorio con archivos .enc del usuario (se recorre recursivamente)
+     * @param target directorio de destino
+     * @param userPrivateKey clave privada RSA o X25519 del usuario
+     * @param concurrency número máximo de archivos restaurados a la vez
+     * @param sync true para forzar a disco cada archivo antes de anotarlo
+     * @return informe de la restauración
+     * @throws Exception si hay error al recorrer el árbol o al acceder a las claves
+     */
+    public static Report restorePrivate(String username, File source, File target, PrivateKey userPrivateKey,
+            int concurrency, boolean sync) throws Exception {
+        Tree tree = Tree.load(source, target);
+        tree.keys = FileEncryptionUtil.getPrivateFileKeys(username, tree.files, userPrivateKey);
+        return run(Collections.singletonList(tree), concurrency, sync).get(0);
+    }
+
+    /**
+     * Restaura la carpeta pública y la carpeta privada de cada usuario en
+     * sus carpetas de descifrado, repartiendo todos los archivos en un único
+     * conjunto de hilos.
+     * 
+     * @param systemPrivateKey clave privada RSA del sistema
+     * @param concurrency número máximo de archivos restaurados a la vez
+     * @param sync true para forzar a disco cada archivo antes de anotarlo
+     * @return informe de cada árbol: la carpeta pública (si existe) y después la de cada usuario
+     * @throws Exception si hay error al recorrer los árboles o al acceder a las claves
+     */
+    public static List<Report> restoreAll(PrivateKey systemPrivateKey, int concurrency, boolean sync) throws Exception {
+        List<Tree> trees = new ArrayList<>();
+        File publicSource = AppConfig.directory(AppConfig.Root.PUBLIC);
+        if (publicSource.isDirectory()) {
+            Tree tree = Tree.load(publicSource, AppConfig.directory(AppConfig.Root.DECRYPTED));
+            tree.keys = FileEncryptionUtil.getFileKeys(tree.files, systemPrivateKey);
+            trees.add(tree);
+        }
+
+        for (String username : new TreeSet<>(LocalStorage.getUserPasswordHashes().keySet())) {
+            File source = AppConfig.userDirectory(AppConfig.Root.PRIVATE, username);
+            if (!source.isDirectory()) {
+                continue;
+            }
+            Tree tree = Tree.load(source, AppConfig.userDirectory(AppConfig.Root.DECRYPTED_PRIVATE, username));
+            String privateKeyBase64 = LocalStorage.getUserPrivateKey(username);
+            if (privateKeyBase64 == null) {
+                tree.keys = Collections.nCopies(tree.files.size(), null);
+            } else {
+                PrivateKey privateKey = KeyWrapping.base64ToPrivateKey(LocalStorage.getUserKeyAlgorithm(username), privateKeyBase64);
+                tree.keys = FileEncryptionUtil.getPrivateFileKeys(username, tree.files, privateKey);
+            }
+            trees.add(tree);
+        }
+        return run(trees, concurrency, sync);
+    }
+
+    /**
+     * Restaura los archivos pendientes de varios árboles con un único
+     * conjunto de hilos.
+     */
+    private static List<Report> run(List<Tree> trees, int concurrency, boolean sync) throws Exception {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Tree tree : trees) {
+                tree.openProgress();
+                for (int i = 0; i < tree.files.size(); i++) {
+                    File file = tree.files.get(i);
+                    String name = tree.relativeName(file);
+                    Key key = tree.keys.get(i);
+                    futures.add(executor.submit(() -> tree.restore(file, name, key, sync)));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            for (Tree tree : trees) {
+                tree.closeProgress(sync);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        List<Report> reports = new ArrayList<>(trees.size());
+        for (Tree tree : trees) {
+            reports.add(new Report(tree, elapsed));
+        }
+        return reports;
+    }
+
+    /**
+     * Árbol cifrado en restauración con sus claves y su progreso.
+     */
+    private static final class Tree {
+        final File source;
+        final File target;
+        /** Archivos pendientes (sin los ya anotados en el progreso) */
+        final List<File> files;
+        /** Archivos ya restaurados en una ejecución anterior */
+        final int skipped;
+        final Map<String, String> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        final AtomicInteger restored = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        /** Clave de cada archivo pendiente, en el mismo orden */
+        List<Key> keys;
+        FileChannel progress;
+
+        private Tree(File source, File target, List<File> files, int skipped) {
+            this.source = source;
+            this.target = target;
+            this.files = files;
+            this.skipped = skipped;
+        }
+
+        /**
+         * Recorre el árbol de origen y descarta los archivos anotados en el
+         * progreso del destino, antes de resolver ninguna clave.
+         */
+        static Tree load(File source, File target) throws IOException {
+            if (!source.isDirectory()) {
+                throw new IllegalArgumentException("No es un directorio: " + source);
+            }
+            List<File> files;
+            try (Stream<Path> walk = Files.walk(source.toPath())) {
+                files = walk.filter(Files::isRegularFile)
+                    .filter(path -> path.toString().endsWith(".enc") || path.toString().endsWith(EncryptedArchive.EXTENSION))
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+            }
+            Set<String> done = new HashSet<>();
+            try (BufferedReader reader = Files.newBufferedReader(new File(target, PROGRESS_FILE).toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        done.add(line);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // Restauración nueva
+            }
+            List<File> pending = new ArrayList<>();
+            for (File file : files) {
+                if (!done.contains(relativeName(source, file))) {
+                    pending.add(file);
+                }
+            }
+            return new Tree(source, target, pending, files.size() - pending.size());
+        }
+
+        /**
+         * Nombre del archivo relativo al origen, con '/' como separador.
+         */
+        String relativeName(File file) {
+            return relativeName(source, file);
+        }
+
+        static String relativeName(File source, File file) {
+            return source.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+        }
+
+        void openProgress() throws IOException {
+            Files.createDirectories(target.toPath());
+            progress = FileChannel.open(new File(target, PROGRESS_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        /**
+         * Cierra el archivo de progreso y lo elimina si el árbol está completo.
+         */
+        void closeProgress(boolean sync) throws IOException {
+            if (progress == null) {
+                return;
+            }
+            if (sync) {
+                AtomicFileWriter.force(progress);
+            }
+            progress.close();
+            progress = null;
+            if (failures.isEmpty()) {
+                Files.deleteIfExists(new File(target, PROGRESS_FILE).toPath());
+            }
+        }
+
+        /**
+         * Restaura un archivo y lo anota en el progreso.
+         */
+        void restore(File file, String name, Key key, boolean sync) {
+            if (key == null) {
+                failures.put(name, "No se encontro clave");
+                return;
+            }
+            try {
+                if (name.endsWith(EncryptedArchive.EXTENSION)) {
+                    File directory = new File(target, name.substring(0, name.length() - EncryptedArchive.EXTENSION.length()));
+                    EncryptedArchive.extract(file, key, directory, null, 1, sync);
+                } else {
+                    Path output = new File(target, name.endsWith(".enc") ? name.substring(0, name.length() - 4) : name).toPath();
+                    Files.createDirectories(output.getParent());
+                    AtomicFileWriter.writeChannel(output, out -> EncryptedContainer.decrypt(file, out, key), sync);
+                }
+                bytes.addAndGet(file.length());
+                restored.incrementAndGet();
+                byte[] line = (name + "\n").getBytes(StandardCharsets.UTF_8);
+                synchronized (this) {
+                    ByteBuffer buffer = ByteBuffer.wrap(line);
+                    while (buffer.hasRemaining()) {
+                        progress.write(buffer);
+                    }
+                }
+            } catch (Exception e) {
+                failures.put(name, String.valueOf(e.getMessage()));
+            }
+        }
+    }
+}
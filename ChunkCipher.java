@@ -0,0 +1,107 @@
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+
+/**
+ * Cifrado y descifrado autenticado de los bloques de un contenedor.
+ * 
+ * Cada bloque de texto plano se cifra con AES-GCM de forma independiente.
+ * El nonce de 12 bytes es el prefijo aleatorio de la cabecera seguido del
+ * índice del bloque, y los datos autenticados son el resumen de la cabecera
+ * más un indicador de último bloque. Así se detecta cualquier modificación,
+ * reordenación o truncado del archivo.
+ * 
+ * <p>Una instancia no es segura para hilos; los procesos que cifran bloques
+ * en paralelo deben crear una instancia por hilo.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see ContainerHeader
+ * @see EncryptedContainer
+ */
+public class ChunkCipher {
+    /** Longitud de la etiqueta de autenticación GCM en bytes */
+    public static final int TAG_LENGTH = 16;
+
+    /** Índice máximo de bloque (el índice ocupa 4 bytes del nonce) */
+    private static final long MAX_INDEX = 0xFFFFFFFFL;
+
+    /** Clave AES del archivo */
+    private final Key key;
+
+    /** Prefijo de nonce de la cabecera */
+    private final byte[] noncePrefix;
+
+    /** Resumen de la cabecera seguido del indicador de último bloque */
+    private final byte[] aad;
+
+    /** Cifrador reutilizado entre bloques */
+    private final Cipher cipher;
+
+    /**
+     * Prepara el cifrado de bloques para un archivo.
+     * 
+     * @param key clave AES del archivo
+     * @param header cabecera del archivo
+     * @throws GeneralSecurityException si AES-GCM no está disponible
+     */
+    public ChunkCipher(Key key, ContainerHeader header) throws GeneralSecurityException {
+        this.key = key;
+        this.noncePrefix = header.getNoncePrefix();
+        byte[] digest = header.digest();
+        this.aad = new byte[digest.length + 1];
+        System.arraycopy(digest, 0, aad, 0, digest.length);
+        this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    }
+
+    /**
+     * Cifra un bloque.
+     * 
+     * @param index posición del bloque dentro del archivo
+     * @param last true si es el último bloque del archivo
+     * @param plaintext texto plano (se consume desde su posición hasta el límite)
+     * @param ciphertext destino con espacio para el texto plano más {@link #TAG_LENGTH}
+     * @return bytes escritos en el destino
+     * @throws GeneralSecurityException si hay error en el cifrado
+     */
+    public int seal(long index, boolean last, ByteBuffer plaintext, ByteBuffer ciphertext) throws GeneralSecurityException {
+        init(Cipher.ENCRYPT_MODE, index, last);
+        return cipher.doFinal(plaintext, ciphertext);
+    }
+
+    /**
+     * Descifra y autentica un bloque.
+     * 
+     * @param index posición del bloque dentro del archivo
+     * @param last true si es el último bloque del archivo
+     * @param ciphertext bloque cifrado con su etiqueta
+     * @param plaintext destino con espacio para el bloque sin la etiqueta
+     * @return bytes de texto plano escritos en el destino
+     * @throws javax.crypto.AEADBadTagException si el bloque no es auténtico
+     * @throws GeneralSecurityException si hay error en el descifrado
+     */
+    public int open(long index, boolean last, ByteBuffer ciphertext, ByteBuffer plaintext) throws GeneralSecurityException {
+        init(Cipher.DECRYPT_MODE, index, last);
+        return cipher.doFinal(ciphertext, plaintext);
+    }
+
+    /**
+     * Inicializa el cifrador con el nonce y los datos autenticados del bloque.
+     */
+    private void init(int mode, long index, boolean last) throws GeneralSecurityException {
+        if (index < 0 || index > MAX_INDEX) {
+            throw new GeneralSecurityException("Indice de bloque fuera de rango: " + index);
+        }
+        byte[] nonce = new byte[noncePrefix.length + 4];
+        System.arraycopy(noncePrefix, 0, nonce, 0, noncePrefix.length);
+        ByteBuffer.wrap(nonce, noncePrefix.length, 4).putInt((int) index);
+        aad[aad.length - 1] = (byte) (last ? 1 : 0);
+
+        cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+        cipher.updateAAD(aad);
+    }
+}
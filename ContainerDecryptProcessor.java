@@ -0,0 +1,144 @@
+import javax.crypto.AEADBadTagException;
+import java.io.ByteArrayInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.security.Key;
+
+/**
+ * Procesador reactivo que descifra y autentica un contenedor recibido en fragmentos.
+ * 
+ * Acepta la salida de {@link ContainerEncryptProcessor} o el contenido de
+ * un archivo .enc en formato contenedor, troceado de cualquier forma. Cada
+ * bloque se autentica antes de emitir su texto plano; si un bloque ha sido
+ * modificado, reordenado o el contenido está truncado, el suscriptor recibe
+ * {@link AEADBadTagException} en {@code onError} y debe descartar lo recibido.
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see ContainerProcessor
+ */
+public class ContainerDecryptProcessor extends ContainerProcessor {
+
+    /** Longitud de la parte fija de la cabecera: firma, versión y longitud de los campos */
+    private static final int HEADER_PREFIX_LENGTH = ContainerHeader.MAGIC.length + 5;
+
+    /** Clave AES del contenido */
+    private final Key key;
+
+    /** Cabecera en lectura (primero la parte fija y después la completa) */
+    private ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_PREFIX_LENGTH);
+
+    /** Ya se conoce la longitud total de la cabecera */
+    private boolean headerLengthKnown;
+
+    /** Cifrador de bloques (null hasta leer la cabecera) */
+    private ChunkCipher chunkCipher;
+
+    /** Bloque cifrado en construcción */
+    private ByteBuffer record;
+
+    /** Índice del bloque en construcción */
+    private long index;
+
+    /** El último bloque ya se ha descifrado */
+    private boolean finished;
+
+    /**
+     * Crea un procesador de descifrado.
+     * 
+     * @param key clave AES del contenido
+     */
+    public ContainerDecryptProcessor(Key key) {
+        this.key = key;
+    }
+
+    @Override
+    protected ByteBuffer produce() throws Exception {
+        while (!finished) {
+            if (chunkCipher == null) {
+                if (!readHeader()) {
+                    return null;
+                }
+                continue;
+            }
+            fill(record);
+            if (isInputComplete()) {
+                finished = true;
+                ByteBuffer plain = open(true);
+                return plain.hasRemaining() ? plain : null;
+            }
+            if (record.hasRemaining() || input() == null) {
+                return null;
+            }
+            ByteBuffer plain = open(false);
+            if (plain.hasRemaining()) {
+                return plain;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Acumula la cabecera y, cuando está completa, prepara el descifrado.
+     * 
+     * @return true si la cabecera se ha leído
+     */
+    private boolean readHeader() throws Exception {
+        fill(headerBytes);
+        if (headerBytes.hasRemaining()) {
+            if (isInputComplete()) {
+                throw new StreamCorruptedException("Contenido truncado en la cabecera del contenedor");
+            }
+            return false;
+        }
+        if (!headerLengthKnown) {
+            if (!ContainerHeader.matches(headerBytes.array())) {
+                throw new StreamCorruptedException("El contenido no tiene formato contenedor");
+            }
+            int length = headerBytes.getInt(ContainerHeader.MAGIC.length + 1);
+            if (length < 0 || length > ContainerHeader.MAX_FIELDS_LENGTH) {
+                throw new StreamCorruptedException("Longitud de cabecera invalida: " + length);
+            }
+            ByteBuffer complete = ByteBuffer.allocate(HEADER_PREFIX_LENGTH + length);
+            headerBytes.flip();
+            complete.put(headerBytes);
+            headerBytes = complete;
+            headerLengthKnown = true;
+            return readHeader();
+        }
+
+        ContainerHeader header = ContainerHeader.read(new ByteArrayInputStream(headerBytes.array()));
+        if (IncrementalContainer.isIncremental(header)) {
+            throw new StreamCorruptedException("Los contenedores incrementales solo se descifran desde archivo");
+        }
+        if (SparseContainer.isSparse(header)) {
+            throw new StreamCorruptedException("Los contenedores dispersos solo se descifran desde archivo");
+        }
+        chunkCipher = new ChunkCipher(key, header);
+        record = ByteBuffer.allocate(header.getChunkSize() + ChunkCipher.TAG_LENGTH);
+        headerBytes = null;
+        return true;
+    }
+
+    /**
+     * Descifra el bloque en construcción y lo deja vacío para el siguiente.
+     */
+    private ByteBuffer open(boolean last) throws Exception {
+        record.flip();
+        if (record.remaining() < ChunkCipher.TAG_LENGTH) {
+            throw new AEADBadTagException("Contenedor truncado en el bloque " + index);
+        }
+        ByteBuffer plain = ByteBuffer.allocate(record.remaining() - ChunkCipher.TAG_LENGTH);
+        chunkCipher.open(index++, last, record, plain);
+        record.clear();
+        plain.flip();
+        return plain;
+    }
+}
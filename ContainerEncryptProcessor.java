@@ -0,0 +1,112 @@
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+
+/**
+ * Procesador reactivo que cifra un flujo de fragmentos en formato contenedor.
+ * 
+ * La salida es idéntica en formato a la de {@link EncryptedContainer}: el
+ * primer fragmento emitido es la cabecera y cada uno de los siguientes es
+ * un bloque cifrado y autenticado con AES-GCM. Se puede guardar tal cual
+ * como archivo .enc o descifrarse con {@link ContainerDecryptProcessor}.
+ * 
+ * <p>El último bloque solo se cierra cuando el publicador termina, de modo
+ * que el contenido puede llegar en fragmentos de cualquier tamaño.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see ContainerProcessor
+ */
+public class ContainerEncryptProcessor extends ContainerProcessor {
+
+    /** Cabecera del contenedor */
+    private final ContainerHeader header;
+
+    /** Cifrador de bloques */
+    private final ChunkCipher chunkCipher;
+
+    /** Bloque de texto plano en construcción */
+    private final ByteBuffer chunk;
+
+    /** Índice del bloque en construcción */
+    private long index;
+
+    /** La cabecera ya se ha emitido */
+    private boolean headerSent;
+
+    /** El último bloque ya se ha emitido */
+    private boolean finished;
+
+    /**
+     * Crea un procesador con el tamaño de bloque por defecto.
+     * 
+     * @param key clave AES del contenido
+     * @throws GeneralSecurityException si AES-GCM no está disponible
+     */
+    public ContainerEncryptProcessor(Key key) throws GeneralSecurityException {
+        this(key, EncryptedContainer.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Crea un procesador con el tamaño de bloque indicado.
+     * 
+     * @param key clave AES del contenido
+     * @param chunkSize bytes de texto plano por bloque
+     * @throws GeneralSecurityException si AES-GCM no está disponible
+     */
+    public ContainerEncryptProcessor(Key key, int chunkSize) throws GeneralSecurityException {
+        this.header = ContainerHeader.create(chunkSize);
+        this.chunkCipher = new ChunkCipher(key, header);
+        this.chunk = ByteBuffer.allocate(chunkSize);
+    }
+
+    /**
+     * Obtiene la cabecera del contenedor que se está generando.
+     * 
+     * @return cabecera emitida como primer fragmento
+     */
+    public ContainerHeader getHeader() {
+        return header;
+    }
+
+    @Override
+    protected ByteBuffer produce() throws Exception {
+        if (!headerSent) {
+            headerSent = true;
+            return ByteBuffer.wrap(header.encode());
+        }
+        if (finished) {
+            return null;
+        }
+        fill(chunk);
+        if (isInputComplete()) {
+            // Bloque final, que puede estar vacío si el contenido también lo está
+            finished = true;
+            return seal(true);
+        }
+        if (!chunk.hasRemaining() && input() != null) {
+            // Hay más contenido después de este bloque completo
+            return seal(false);
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Cifra el bloque en construcción y lo deja vacío para el siguiente.
+     */
+    private ByteBuffer seal(boolean last) throws GeneralSecurityException {
+        chunk.flip();
+        ByteBuffer sealed = ByteBuffer.allocate(chunk.remaining() + ChunkCipher.TAG_LENGTH);
+        chunkCipher.seal(index++, last, chunk, sealed);
+        chunk.clear();
+        sealed.flip();
+        return sealed;
+    }
+}
@@ -0,0 +1,469 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cabecera de un archivo .enc en formato contenedor.
+ * 
+ * La cabecera empieza con la firma {@code CSEC}, un byte de versión y la
+ * longitud de los campos, seguida de una lista de campos etiqueta-longitud-valor.
+ * Los campos desconocidos se conservan al leer, de modo que versiones
+ * posteriores pueden añadir información sin romper la compatibilidad.
+ * 
+ * <p>El resumen SHA-256 de la cabecera codificada forma parte de los datos
+ * autenticados de cada bloque cifrado, por lo que cualquier modificación de
+ * la cabecera hace fallar el descifrado. La única excepción son las claves
+ * envueltas ({@link #FIELD_WRAPPED_KEYS}): quedan fuera del resumen para
+ * poder volver a envolverlas con otra clave sin descifrar el contenido. Una
+ * clave envuelta alterada solo produce una clave incorrecta, que los bloques
+ * autenticados rechazan igualmente.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see EncryptedContainer
+ * @see ChunkCipher
+ */
+public class ContainerHeader {
+    /** Firma al inicio de todo archivo contenedor */
+    static final byte[] MAGIC = {'C', 'S', 'E', 'C'};
+
+    /** Versión actual del formato */
+    static final int VERSION = 1;
+
+    /** Longitud máxima de los campos de la cabecera */
+    static final int MAX_FIELDS_LENGTH = 64 * 1024 * 1024;
+
+    /** Tamaño de bloque máximo admitido al leer un archivo */
+    static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /** Campo: tamaño de bloque en bytes de texto plano (entero de 4 bytes) */
+    public static final int FIELD_CHUNK_SIZE = 1;
+
+    /** Campo: prefijo aleatorio de los nonces GCM (8 bytes) */
+    public static final int FIELD_NONCE_PREFIX = 2;
+
+    /** Campo: identificador aleatorio del archivo, con el que se indexa su clave (16 bytes) */
+    public static final int FIELD_FILE_ID = 3;
+
+    /**
+     * Campo: claves del archivo envueltas para cada destinatario, de modo que
+     * el archivo se puede descifrar sin consultar el almacén de claves
+     * (número de entradas de 2 bytes y, por entrada, nombre UTF-8 modificado,
+     * longitud de 4 bytes y clave envuelta)
+     */
+    public static final int FIELD_WRAPPED_KEYS = 4;
+
+    /**
+     * Campo: posición (8 bytes) y longitud (4 bytes) dentro del texto plano
+     * del índice cifrado de un archivo que agrupa varios archivos
+     */
+    public static final int FIELD_ARCHIVE_INDEX = 5;
+
+    /**
+     * Campo: versión del formato incremental (1 byte); los bloques no tienen
+     * tamaño fijo y se localizan mediante un manifiesto cifrado
+     */
+    public static final int FIELD_INCREMENTAL = 6;
+
+    /**
+     * Campo: identificador del lote (16 bytes) cuya clave maestra, junto con
+     * el identificador del archivo, deriva la clave del archivo con HKDF; la
+     * clave envuelta en la cabecera o en el almacén es la maestra del lote
+     */
+    public static final int FIELD_BATCH = 7;
+
+    /**
+     * Campo: versión del formato disperso (1 byte); solo se guardan los
+     * bloques con datos, seguidos de un mapa cifrado de sus extensiones
+     */
+    public static final int FIELD_SPARSE = 8;
+
+    /** Destinatario de la clave envuelta con la clave pública RSA del sistema */
+    public static final String SYSTEM_RECIPIENT = "system";
+
+    /** Longitud del identificador de archivo en bytes */
+    static final int FILE_ID_LENGTH = 16;
+
+    /** Longitud del prefijo de nonce en bytes */
+    static final int NONCE_PREFIX_LENGTH = 8;
+
+    /** Generador aleatorio compartido para los prefijos de nonce */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Campos de la cabecera en orden de escritura */
+    private final Map<Integer, byte[]> fields = new LinkedHashMap<>();
+
+    /** Cabecera codificada (null hasta que se escribe o se lee) */
+    private byte[] encoded;
+
+    /**
+     * Crea una cabecera nueva con un prefijo de nonce aleatorio.
+     * 
+     * @param chunkSize tamaño de bloque en bytes de texto plano
+     * @return cabecera lista para añadir campos y escribirse
+     */
+    public static ContainerHeader create(int chunkSize) {
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Tamano de bloque invalido: " + chunkSize);
+        }
+        byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+        RANDOM.nextBytes(prefix);
+
+        ContainerHeader header = new ContainerHeader();
+        header.put(FIELD_CHUNK_SIZE, ByteBuffer.allocate(4).putInt(chunkSize).array());
+        header.put(FIELD_NONCE_PREFIX, prefix);
+        return header;
+    }
+
+    /**
+     * Lee una cabecera desde el inicio de un flujo.
+     * 
+     * @param in flujo posicionado al inicio del archivo
+     * @return cabecera leída (el flujo queda posicionado en el primer bloque)
+     * @throws StreamCorruptedException si el flujo no contiene una cabecera válida
+     * @throws IOException si hay error de lectura
+     */
+    public static ContainerHeader read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new StreamCorruptedException("El archivo no tiene formato contenedor");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Version de contenedor no soportada: " + version);
+        }
+        int length = data.readInt();
+        if (length < 0 || length > MAX_FIELDS_LENGTH) {
+            throw new StreamCorruptedException("Longitud de cabecera invalida: " + length);
+        }
+        byte[] body = new byte[length];
+        data.readFully(body);
+
+        ContainerHeader header = new ContainerHeader();
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        try {
+            while (buffer.hasRemaining()) {
+                int tag = buffer.getShort() & 0xFFFF;
+                byte[] value = new byte[buffer.getInt()];
+                buffer.get(value);
+                header.fields.put(tag, value);
+            }
+        } catch (RuntimeException e) {
+            StreamCorruptedException corrupted = new StreamCorruptedException("Cabecera de contenedor corrupta");
+            corrupted.initCause(e);
+            throw corrupted;
+        }
+        int chunkSize = header.getChunkSize();
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE || header.getNoncePrefix().length != NONCE_PREFIX_LENGTH) {
+            throw new StreamCorruptedException("Cabecera de contenedor incompleta");
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(MAGIC.length + 5 + length);
+        DataOutputStream out = new DataOutputStream(raw);
+        out.write(MAGIC);
+        out.writeByte(version);
+        out.writeInt(length);
+        out.write(body);
+        header.encoded = raw.toByteArray();
+        return header;
+    }
+
+    /**
+     * Indica si los primeros bytes de un archivo corresponden a un contenedor.
+     * 
+     * @param prefix primeros bytes del archivo (al menos 5 para una respuesta positiva)
+     * @return true si empiezan por la firma y una versión soportada
+     */
+    public static boolean matches(byte[] prefix) {
+        if (prefix.length < MAGIC.length + 1) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (prefix[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return (prefix[MAGIC.length] & 0xFF) == VERSION;
+    }
+
+    /**
+     * Añade o reemplaza un campo. Solo puede hacerse antes de escribir la cabecera.
+     * 
+     * @param tag etiqueta del campo (0-65535)
+     * @param value contenido del campo
+     */
+    public void put(int tag, byte[] value) {
+        if (encoded != null) {
+            throw new IllegalStateException("La cabecera ya se ha escrito");
+        }
+        if (tag < 0 || tag > 0xFFFF) {
+            throw new IllegalArgumentException("Etiqueta de campo invalida: " + tag);
+        }
+        fields.put(tag, value.clone());
+    }
+
+    /**
+     * Obtiene el contenido de un campo.
+     * 
+     * @param tag etiqueta del campo
+     * @return copia del contenido o null si el campo no existe
+     */
+    public byte[] get(int tag) {
+        byte[] value = fields.get(tag);
+        return value != null ? value.clone() : null;
+    }
+
+    /**
+     * Indica si la cabecera contiene un campo.
+     * 
+     * @param tag etiqueta del campo
+     * @return true si el campo existe
+     */
+    public boolean has(int tag) {
+        return fields.containsKey(tag);
+    }
+
+    /**
+     * Obtiene el tamaño de bloque en bytes de texto plano.
+     * 
+     * @return tamaño de bloque, o -1 si el campo falta o es inválido
+     */
+    public int getChunkSize() {
+        byte[] value = fields.get(FIELD_CHUNK_SIZE);
+        return value != null && value.length == 4 ? ByteBuffer.wrap(value).getInt() : -1;
+    }
+
+    /**
+     * Obtiene el prefijo de los nonces GCM.
+     * 
+     * @return prefijo de nonce (vacío si el campo falta)
+     */
+    public byte[] getNoncePrefix() {
+        byte[] value = fields.get(FIELD_NONCE_PREFIX);
+        return value != null ? value.clone() : new byte[0];
+    }
+
+    /**
+     * Genera un identificador de archivo aleatorio.
+     * 
+     * @return identificador de 16 bytes en hexadecimal
+     */
+    public static String newFileId() {
+        byte[] id = new byte[FILE_ID_LENGTH];
+        RANDOM.nextBytes(id);
+        return toHex(id);
+    }
+
+    /**
+     * Guarda el identificador del archivo en la cabecera.
+     * 
+     * @param fileId identificador en hexadecimal (ver {@link #newFileId()})
+     */
+    public void setFileId(String fileId) {
+        if (fileId.length() != FILE_ID_LENGTH * 2) {
+            throw new IllegalArgumentException("Identificador de archivo invalido: " + fileId);
+        }
+        byte[] id = new byte[FILE_ID_LENGTH];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = (byte) Integer.parseInt(fileId.substring(i * 2, i * 2 + 2), 16);
+        }
+        put(FIELD_FILE_ID, id);
+    }
+
+    /**
+     * Obtiene el identificador del archivo.
+     * 
+     * @return identificador en hexadecimal, o null si el archivo no lo tiene
+     */
+    public String getFileId() {
+        byte[] id = fields.get(FIELD_FILE_ID);
+        if (id == null || id.length != FILE_ID_LENGTH) {
+            return null;
+        }
+        return toHex(id);
+    }
+
+    /**
+     * Guarda en la cabecera la clave del archivo envuelta para cada destinatario.
+     * 
+     * @param wrappedKeys clave envuelta por destinatario ({@link #SYSTEM_RECIPIENT}
+     *        o {@link #userRecipient(String)})
+     */
+    public void setWrappedKeys(Map<String, byte[]> wrappedKeys) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(raw);
+        try {
+            out.writeShort(wrappedKeys.size());
+            for (Map.Entry<String, byte[]> entry : wrappedKeys.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        put(FIELD_WRAPPED_KEYS, raw.toByteArray());
+    }
+
+    /**
+     * Obtiene el nombre de destinatario de la clave envuelta para un usuario.
+     * 
+     * @param username nombre de usuario
+     * @return destinatario {@code user:<usuario>}
+     */
+    public static String userRecipient(String username) {
+        return "user:" + username;
+    }
+
+    /**
+     * Obtiene las claves envueltas incluidas en la cabecera.
+     * 
+     * @return clave envuelta por destinatario (vacío si el archivo no las incluye)
+     * @throws StreamCorruptedException si el campo está mal formado
+     */
+    public Map<String, byte[]> getWrappedKeys() throws StreamCorruptedException {
+        Map<String, byte[]> wrappedKeys = new LinkedHashMap<>();
+        byte[] value = fields.get(FIELD_WRAPPED_KEYS);
+        if (value == null) {
+            return wrappedKeys;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                String recipient = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > value.length) {
+                    throw new StreamCorruptedException("Clave envuelta de longitud invalida: " + length);
+                }
+                byte[] wrapped = new byte[length];
+                in.readFully(wrapped);
+                wrappedKeys.put(recipient, wrapped);
+            }
+        } catch (StreamCorruptedException e) {
+            throw e;
+        } catch (IOException e) {
+            StreamCorruptedException corrupted = new StreamCorruptedException("Claves envueltas de la cabecera corruptas");
+            corrupted.initCause(e);
+            throw corrupted;
+        }
+        return wrappedKeys;
+    }
+
+    /**
+     * Crea una copia modificable de la cabecera con los mismos campos.
+     * 
+     * Sirve para reemplazar las claves envueltas de un archivo existente:
+     * mientras solo cambie ese campo, el resumen es el mismo y los bloques
+     * cifrados siguen siendo válidos.
+     * 
+     * @return copia sin congelar
+     */
+    public ContainerHeader copy() {
+        ContainerHeader copy = new ContainerHeader();
+        copy.fields.putAll(fields);
+        return copy;
+    }
+
+    /**
+     * Escribe la cabecera en el flujo y la congela.
+     * 
+     * @param out flujo de salida posicionado al inicio del archivo
+     * @throws IOException si hay error de escritura
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write(encode());
+    }
+
+    /**
+     * Codifica la cabecera. A partir de la primera llamada no se admiten más campos.
+     * 
+     * @return cabecera codificada
+     */
+    public byte[] encode() {
+        if (encoded == null) {
+            encoded = encodeFields(true);
+        }
+        return encoded.clone();
+    }
+
+    /**
+     * Obtiene la longitud de la cabecera codificada.
+     * 
+     * @return longitud en bytes (la posición del primer bloque dentro del archivo)
+     */
+    public int length() {
+        return encode().length;
+    }
+
+    /**
+     * Calcula el resumen SHA-256 de la cabecera codificada.
+     * 
+     * @return resumen de 32 bytes que se autentica en cada bloque
+     */
+    public byte[] digest() {
+        try {
+            byte[] authenticated = fields.containsKey(FIELD_WRAPPED_KEYS) ? encodeFields(false) : encode();
+            return MessageDigest.getInstance("SHA-256").digest(authenticated);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Codifica la cabecera con todos sus campos o sin las claves envueltas.
+     */
+    private byte[] encodeFields(boolean includeWrappedKeys) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream fieldsOut = new DataOutputStream(body);
+        try {
+            for (Map.Entry<Integer, byte[]> field : fields.entrySet()) {
+                if (!includeWrappedKeys && field.getKey() == FIELD_WRAPPED_KEYS) {
+                    continue;
+                }
+                fieldsOut.writeShort(field.getKey());
+                fieldsOut.writeInt(field.getValue().length);
+                fieldsOut.write(field.getValue());
+            }
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(MAGIC.length + 5 + body.size());
+            DataOutputStream out = new DataOutputStream(raw);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(body.size());
+            body.writeTo(out);
+            return raw.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Convierte bytes en hexadecimal en minúsculas.
+     * 
+     * @param bytes bytes a convertir
+     * @return cadena hexadecimal de longitud {@code 2 * bytes.length}
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
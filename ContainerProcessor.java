@@ -0,0 +1,238 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base de los procesadores reactivos que cifran o descifran contenedores.
+ * 
+ * Recibe fragmentos {@link ByteBuffer} de cualquier tamaño de un publicador
+ * y emite los fragmentos transformados a un único suscriptor, respetando
+ * la demanda de este: solo se pide un fragmento nuevo al publicador cuando
+ * el suscriptor puede recibir más datos y el fragmento anterior se ha
+ * consumido por completo. Así la memoria queda acotada a un fragmento de
+ * entrada y un bloque, sea cual sea el tamaño total del contenido.
+ * 
+ * <p>Las señales se procesan de una en una aunque lleguen desde hilos
+ * distintos. Los búferes emitidos pasan a ser propiedad del suscriptor.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see ContainerEncryptProcessor
+ * @see ContainerDecryptProcessor
+ */
+public abstract class ContainerProcessor implements Flow.Processor<ByteBuffer, ByteBuffer> {
+
+    /** Suscripción al publicador de entrada */
+    private volatile Flow.Subscription upstream;
+
+    /** Suscriptor de la salida */
+    private volatile Flow.Subscriber<? super ByteBuffer> downstream;
+
+    /** Fragmentos de salida pedidos y aún no entregados */
+    private final AtomicLong demand = new AtomicLong();
+
+    /** Peticiones de procesamiento pendientes (solo procesa quien la pasa de 0 a 1) */
+    private final AtomicInteger work = new AtomicInteger();
+
+    /** Fragmento de entrada en consumo (null si hay que pedir otro) */
+    private volatile ByteBuffer input;
+
+    /** Hay un fragmento pedido al publicador que aún no ha llegado */
+    private volatile boolean requested;
+
+    /** El publicador ha terminado de enviar fragmentos */
+    private volatile boolean inputComplete;
+
+    /** Error recibido del publicador o provocado por el suscriptor */
+    private volatile Throwable failure;
+
+    /** Se ha enviado la señal final al suscriptor o este ha cancelado */
+    private volatile boolean terminated;
+
+    /**
+     * Produce el siguiente fragmento de salida con la entrada disponible.
+     * 
+     * Se consume la entrada mediante {@link #input()} y se consulta si ha
+     * terminado con {@link #isInputComplete()}.
+     * 
+     * @return fragmento de salida, o null si hace falta más entrada o ya no queda nada
+     * @throws Exception si el contenido no puede transformarse
+     */
+    protected abstract ByteBuffer produce() throws Exception;
+
+    /**
+     * Indica si se ha emitido todo el contenido.
+     * 
+     * @return true cuando ya no se producirán más fragmentos
+     */
+    protected abstract boolean isFinished();
+
+    /**
+     * Obtiene el fragmento de entrada pendiente de consumir.
+     * 
+     * @return fragmento con datos restantes, o null si no hay ninguno
+     */
+    protected ByteBuffer input() {
+        ByteBuffer current = input;
+        if (current != null && !current.hasRemaining()) {
+            input = null;
+            return null;
+        }
+        return current;
+    }
+
+    /**
+     * Indica si el publicador ha terminado y no queda entrada por consumir.
+     * 
+     * @return true si no llegarán más datos
+     */
+    protected boolean isInputComplete() {
+        return inputComplete && input() == null;
+    }
+
+    /**
+     * Copia de la entrada al destino tantos bytes como quepan o haya disponibles.
+     * 
+     * @param target búfer de destino
+     * @return true si el destino se ha llenado
+     */
+    protected boolean fill(ByteBuffer target) {
+        ByteBuffer current;
+        while (target.hasRemaining() && (current = input()) != null) {
+            int length = Math.min(target.remaining(), current.remaining());
+            ByteBuffer slice = current.duplicate();
+            slice.limit(slice.position() + length);
+            target.put(slice);
+            current.position(current.position() + length);
+        }
+        return !target.hasRemaining();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (downstream != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("El procesador solo admite un suscriptor"));
+            return;
+        }
+        downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("Demanda no valida: " + n);
+                } else {
+                    demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                terminated = true;
+                Flow.Subscription subscription = upstream;
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        input = item;
+        requested = false;
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        failure = throwable;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        inputComplete = true;
+        drain();
+    }
+
+    /**
+     * Procesa las señales pendientes. Solo un hilo procesa a la vez; los
+     * demás dejan constancia y el que está procesando repite el ciclo.
+     */
+    private void drain() {
+        if (work.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            Flow.Subscriber<? super ByteBuffer> subscriber = downstream;
+            Flow.Subscription subscription = upstream;
+            if (!terminated && subscriber != null && subscription != null) {
+                emit(subscriber, subscription);
+            }
+        } while (work.decrementAndGet() != 0);
+    }
+
+    /**
+     * Entrega fragmentos mientras haya demanda y pide entrada cuando se agota.
+     */
+    private void emit(Flow.Subscriber<? super ByteBuffer> subscriber, Flow.Subscription subscription) {
+        while (!terminated) {
+            if (failure != null) {
+                terminated = true;
+                subscription.cancel();
+                subscriber.onError(failure);
+                return;
+            }
+            if (demand.get() == 0) {
+                return;
+            }
+            ByteBuffer output;
+            try {
+                output = produce();
+            } catch (Exception e) {
+                terminated = true;
+                subscription.cancel();
+                subscriber.onError(e);
+                return;
+            }
+            if (output != null) {
+                demand.decrementAndGet();
+                subscriber.onNext(output);
+            } else if (isFinished()) {
+                terminated = true;
+                subscriber.onComplete();
+                return;
+            } else {
+                if (!requested && !inputComplete && input() == null) {
+                    requested = true;
+                    subscription.request(1);
+                }
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+import javax.crypto.AEADBadTagException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cifrado y descifrado de contenedores en tres etapas solapadas.
+ * 
+ * Un hilo lee bloques del archivo de entrada, otro los cifra o descifra y
+ * el hilo que llama escribe el resultado. Las etapas se comunican mediante
+ * un anillo acotado de búferes directos reutilizables, de modo que mientras
+ * AES procesa un bloque el disco ya está leyendo el siguiente y escribiendo
+ * el anterior, y el rendimiento se acerca al de la etapa más lenta.
+ * 
+ * <p>La profundidad del anillo se configura con la propiedad
+ * {@code cs.pipeline.depth} (por defecto 4 bloques). Los archivos que caben
+ * en el anillo se procesan en el hilo que llama, sin cambios de hilo.
+ * Los búferes se toman de {@link BufferPool} y se devuelven al terminar,
+ * por lo que procesar muchos archivos seguidos no reserva memoria nueva.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see EncryptedContainer
+ * @see ChunkCipher
+ */
+public class CryptoPipeline {
+    /** Número de bloques en circulación por operación */
+    private static final int DEPTH = Math.max(3, Integer.getInteger("cs.pipeline.depth", 4));
+
+    /** Intervalo de comprobación de fallos en las otras etapas */
+    private static final long POLL_MILLIS = 50;
+
+    /** Hilos compartidos para las etapas de lectura y cifrado */
+    private static final ExecutorService STAGES = Executors.newCachedThreadPool(new java.util.concurrent.ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "cs-pipeline-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Cifra un archivo completo en formato contenedor.
+     * 
+     * @param in canal del texto plano (se lee desde su posición hasta el final)
+     * @param out canal de destino del contenedor
+     * @param key clave AES del archivo
+     * @param header cabecera nueva para este archivo
+     * @return bytes de texto plano cifrados
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     */
+    public static long encrypt(FileChannel in, WritableByteChannel out, Key key, ContainerHeader header) throws Exception {
+        writeFully(out, ByteBuffer.wrap(header.encode()));
+        ChunkCipher chunkCipher = new ChunkCipher(key, header);
+        int chunkSize = header.getChunkSize();
+
+        Run run = new Run(chunkSize, chunkSize + ChunkCipher.TAG_LENGTH,
+            slot -> chunkCipher.seal(slot.index, slot.last, slot.input, slot.output));
+        run.execute(in, out, in.size() - in.position());
+        return run.bytesRead;
+    }
+
+    /**
+     * Descifra y autentica un contenedor completo.
+     * 
+     * @param in canal posicionado al inicio de la cabecera
+     * @param out canal de destino del texto plano
+     * @param key clave AES del archivo
+     * @return bytes de texto plano descifrados
+     * @throws AEADBadTagException si algún bloque no es auténtico o el archivo está truncado
+     * @throws Exception si hay error de lectura o escritura
+     */
+    public static long decrypt(FileChannel in, WritableByteChannel out, Key key) throws Exception {
+        // El flujo no se cierra para no cerrar el canal; no lee más allá de la cabecera
+        InputStream headerStream = Channels.newInputStream(in);
+        ContainerHeader header = ContainerHeader.read(headerStream);
+        if (IncrementalContainer.isIncremental(header)) {
+            return IncrementalContainer.decrypt(in, header, out, key);
+        }
+        if (SparseContainer.isSparse(header)) {
+            return SparseContainer.decrypt(in, header, out, key);
+        }
+        ChunkCipher chunkCipher = new ChunkCipher(key, header);
+        int chunkSize = header.getChunkSize();
+
+        Run run = new Run(chunkSize + ChunkCipher.TAG_LENGTH, chunkSize, slot -> {
+            if (slot.input.remaining() < ChunkCipher.TAG_LENGTH) {
+                throw new AEADBadTagException("Contenedor truncado en el bloque " + slot.index);
+            }
+            chunkCipher.open(slot.index, slot.last, slot.input, slot.output);
+        });
+        run.execute(in, out, in.size() - in.position());
+        return run.bytesWritten;
+    }
+
+    /**
+     * Escribe un búfer completo en un canal.
+     */
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Transformación de un bloque (cifrado o descifrado).
+     */
+    private interface Transform {
+        /**
+         * Lee {@code slot.input} (ya preparado para lectura) y escribe en {@code slot.output}.
+         */
+        void apply(Slot slot) throws Exception;
+    }
+
+    /**
+     * Cuerpo de una etapa.
+     */
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * Búferes de un bloque en circulación por el anillo, tomados de {@link BufferPool}.
+     */
+    private static final class Slot {
+        final ByteBuffer input;
+        final ByteBuffer output;
+        long index;
+        boolean last;
+
+        Slot(int inputSize, int outputSize) {
+            this.input = BufferPool.acquire(inputSize);
+            this.output = BufferPool.acquire(outputSize);
+        }
+
+        /**
+         * Devuelve los búferes al conjunto compartido.
+         */
+        void release() {
+            BufferPool.release(input);
+            BufferPool.release(output);
+        }
+    }
+
+    /**
+     * Estado de una operación: el anillo de bloques y las colas entre etapas.
+     */
+    private static final class Run {
+        private final int inputSize;
+        private final Transform transform;
+        private final BlockingQueue<Slot> free = new ArrayBlockingQueue<>(DEPTH);
+        private final BlockingQueue<Slot> filled = new ArrayBlockingQueue<>(DEPTH);
+        private final BlockingQueue<Slot> transformed = new ArrayBlockingQueue<>(DEPTH);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final List<Slot> slots = new ArrayList<>(DEPTH);
+        private volatile long bytesRead;
+        private long bytesWritten;
+
+        /** Canal de salida cuando las etapas se ejecutan en el hilo actual (null si no) */
+        private WritableByteChannel inlineOut;
+
+        Run(int inputSize, int outputSize, Transform transform) {
+            this.inputSize = inputSize;
+            this.transform = transform;
+            for (int i = 0; i < DEPTH; i++) {
+                Slot slot = new Slot(inputSize, outputSize);
+                slots.add(slot);
+                free.add(slot);
+            }
+        }
+
+        /**
+         * Ejecuta las tres etapas y devuelve los búferes al terminar.
+         */
+        void execute(ReadableByteChannel in, WritableByteChannel out, long size) throws Exception {
+            try {
+                run(in, out, size);
+            } finally {
+                // Todas las etapas han terminado: ningún hilo conserva ya un bloque
+                for (Slot slot : slots) {
+                    slot.release();
+                }
+            }
+        }
+
+        /**
+         * Ejecuta las tres etapas. Si el contenido cabe en el anillo se
+         * ejecutan una tras otra en el hilo actual.
+         */
+        private void run(ReadableByteChannel in, WritableByteChannel out, long size) throws Exception {
+            if (size / inputSize + 2 <= DEPTH) {
+                inlineOut = out;
+                read(in);
+                transform();
+                write(out);
+                return;
+            }
+
+            Future<?> reader = STAGES.submit(() -> stage(() -> read(in)));
+            Future<?> cipher = STAGES.submit(() -> stage(this::transform));
+            stage(() -> write(out));
+            waitFor(reader);
+            waitFor(cipher);
+
+            Throwable error = failure.get();
+            if (error instanceof Exception) {
+                throw (Exception) error;
+            } else if (error != null) {
+                throw (Error) error;
+            }
+        }
+
+        /**
+         * Etapa de lectura: llena bloques y marca el último mirando si queda más contenido.
+         */
+        private void read(ReadableByteChannel in) throws Exception {
+            Slot pending = null;
+            for (long index = 0; ; index++) {
+                if (inlineOut != null && free.isEmpty()) {
+                    // El archivo ha crecido desde que se midió: vaciar el anillo en este hilo
+                    drain();
+                }
+                Slot slot = take(free);
+                // Los búferes del conjunto pueden ser mayores que el bloque
+                slot.input.clear().limit(inputSize);
+                while (slot.input.hasRemaining() && in.read(slot.input) >= 0) {
+                    // Leer hasta llenar el bloque o llegar al final
+                }
+                bytesRead += slot.input.position();
+
+                if (pending != null) {
+                    if (slot.input.position() == 0) {
+                        pending.last = true;
+                        give(filled, pending);
+                        free.put(slot);
+                        return;
+                    }
+                    give(filled, pending);
+                }
+                slot.index = index;
+                slot.last = slot.input.hasRemaining();
+                if (slot.last) {
+                    give(filled, slot);
+                    return;
+                }
+                pending = slot;
+            }
+        }
+
+        /**
+         * Etapa de cifrado: transforma cada bloque en el orden de lectura.
+         */
+        private void transform() throws Exception {
+            while (!transformOne(take(filled))) {
+                // Continuar hasta el último bloque
+            }
+        }
+
+        /**
+         * Transforma un bloque y lo pasa a la etapa de escritura.
+         * 
+         * @return true si era el último bloque
+         */
+        private boolean transformOne(Slot slot) throws Exception {
+            slot.input.flip();
+            slot.output.clear();
+            transform.apply(slot);
+            slot.output.flip();
+            // Tras entregarlo, el bloque puede volver al anillo y reutilizarse
+            boolean last = slot.last;
+            give(transformed, slot);
+            return last;
+        }
+
+        /**
+         * Etapa de escritura: escribe cada bloque y lo devuelve al anillo.
+         */
+        private void write(WritableByteChannel out) throws Exception {
+            while (!writeOne(take(transformed), out)) {
+                // Continuar hasta el último bloque
+            }
+        }
+
+        /**
+         * Escribe un bloque y lo devuelve al anillo.
+         * 
+         * @return true si era el último bloque
+         */
+        private boolean writeOne(Slot slot, WritableByteChannel out) throws Exception {
+            bytesWritten += slot.output.remaining();
+            writeFully(out, slot.output);
+            boolean last = slot.last;
+            free.put(slot);
+            return last;
+        }
+
+        /**
+         * Procesa en el hilo actual todos los bloques ya leídos.
+         */
+        private void drain() throws Exception {
+            Slot slot;
+            while ((slot = filled.poll()) != null) {
+                transformOne(slot);
+            }
+            while ((slot = transformed.poll()) != null) {
+                writeOne(slot, inlineOut);
+            }
+        }
+
+        /**
+         * Espera un bloque de la cola, abandonando si otra etapa ha fallado.
+         */
+        private Slot take(BlockingQueue<Slot> queue) throws InterruptedException {
+            while (true) {
+                Slot slot = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (slot != null) {
+                    return slot;
+                }
+                if (failure.get() != null) {
+                    throw new CancellationException("Otra etapa del proceso ha fallado");
+                }
+            }
+        }
+
+        /**
+         * Entrega un bloque a la siguiente etapa, abandonando si otra etapa ha fallado.
+         */
+        private void give(BlockingQueue<Slot> queue, Slot slot) throws InterruptedException {
+            while (!queue.offer(slot, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    throw new CancellationException("Otra etapa del proceso ha fallado");
+                }
+            }
+        }
+
+        /**
+         * Ejecuta una etapa registrando su primer fallo.
+         */
+        private void stage(Stage body) {
+            try {
+                body.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        /**
+         * Espera a que termine una etapa auxiliar.
+         */
+        private void waitFor(Future<?> stage) {
+            try {
+                stage.get();
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,565 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché en memoria del contenido descifrado de archivos pequeños.
+ * 
+ * Leer varias veces el mismo archivo cifrado cuesta cada vez recuperar su
+ * clave (una operación RSA o X25519) y descifrarlo completo. Esta caché
+ * guarda el texto plano de los archivos cifrados de hasta
+ * {@code cs.cache.maxFileBytes} bytes (256 KiB por defecto) cuyo texto plano
+ * tampoco supera ese tamaño (los contenedores dispersos e incrementales
+ * pueden ocupar mucho menos que su contenido) fuera del heap,
+ * en búferes directos que se sobrescriben con ceros al expulsarse, de modo
+ * que el contenido no queda en memoria ni pasa por el recolector.
+ * 
+ * <p>La caché está desactivada salvo que {@code cs.cache.maxBytes} sea
+ * mayor que 0. Cada entrada caduca {@code cs.cache.ttlSeconds} segundos
+ * después de guardarse (300 por defecto), se borra al pedirse o al guardar
+ * otra entrada, y deja de servirse si el archivo cifrado cambia
+ * de tamaño o de fecha de modificación.</p>
+ * 
+ * <p>Cada entrada guarda la huella de la clave privada con la que se
+ * descifró (SHA-256 con una sal aleatoria del proceso) y solo se sirve a
+ * quien presenta la misma clave privada. Las claves que no exponen su
+ * codificación no usan la caché.</p>
+ * 
+ * <p>La expulsión sigue la política W-TinyLFU: las entradas nuevas entran
+ * en una ventana LRU pequeña (1% de la capacidad) y, al salir de ella, solo
+ * pasan a la zona principal si se han pedido con más frecuencia que la
+ * entrada que desplazarían. La frecuencia se estima con un count-min sketch
+ * de contadores de 4 bits que se reducen a la mitad periódicamente, así que
+ * un recorrido puntual de muchos archivos no expulsa a los que se leen a
+ * menudo. La zona principal es una SLRU: las entradas leídas de nuevo pasan
+ * de prueba a protegidas (80% de la zona).</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionUtil#readFile(File, java.security.PrivateKey)
+ */
+public class DecryptedFileCache {
+
+    /** Zonas de la caché */
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    /**
+     * Contenido descifrado de un archivo.
+     */
+    private static class Entry {
+        final String key;
+        final byte[] owner;
+        final ByteBuffer data;
+        final long fileSize;
+        final long lastModified;
+        final long expiresAt;
+        Segment segment;
+
+        Entry(String key, byte[] owner, ByteBuffer data, long fileSize, long lastModified, long expiresAt) {
+            this.key = key;
+            this.owner = owner;
+            this.data = data;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        long weight() {
+            return data.capacity();
+        }
+    }
+
+    /**
+     * Estimación de la frecuencia de acceso con un count-min sketch.
+     * 
+     * Cuatro filas de contadores de 4 bits, dieciséis por {@code long}. Al
+     * llegar a diez veces el número de contadores por fila se reducen todos
+     * a la mitad para que la frecuencia refleje el uso reciente.
+     */
+    private static class FrequencySketch {
+        private static final long[] SEEDS = {0x97cb3127L, 0xb1a8e5f9L, 0x9e3779b9L, 0xc2b2ae35L};
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final long[][] rows = new long[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int counters) {
+            int width = Integer.highestOneBit(Math.max(16, counters - 1) << 1);
+            for (int row = 0; row < rows.length; row++) {
+                rows[row] = new long[width >>> 4];
+            }
+            mask = width - 1;
+            sampleSize = width * 10;
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = 15;
+            for (int row = 0; row < rows.length; row++) {
+                frequency = Math.min(frequency, counter(row, index(hash, row)));
+            }
+            return frequency;
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < rows.length; row++) {
+                int index = index(hash, row);
+                if (counter(row, index) < 15) {
+                    rows[row][index >>> 4] += 1L << ((index & 15) << 2);
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (long[] counters : rows) {
+                    for (int i = 0; i < counters.length; i++) {
+                        counters[i] = (counters[i] >>> 1) & HALF_MASK;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        private int counter(int row, int index) {
+            return (int) (rows[row][index >>> 4] >>> ((index & 15) << 2)) & 15;
+        }
+
+        private int index(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            hash ^= hash >>> 11;
+            hash *= 0xac4c1fe3;
+            return hash ^ (hash >>> 15);
+        }
+    }
+
+    /**
+     * Destino del texto plano de un archivo que se quiere guardar.
+     * 
+     * Escribe en un búfer directo del tamaño del archivo cifrado, que crece
+     * si hace falta hasta el máximo por archivo. Si el texto plano lo supera,
+     * lo escrito pasa al heap, el búfer se borra y el resto se acumula en
+     * {@link #overflow}: el contenido se devuelve sin guardarse en la caché
+     * y sin volver a descifrar el archivo.
+     */
+    private static final class PlainSink implements WritableByteChannel {
+        private final int maxBytes;
+        private ByteBuffer data;
+        private ByteArrayOutputStream overflow;
+
+        PlainSink(int initialCapacity, int maxBytes) {
+            this.maxBytes = maxBytes;
+            this.data = ByteBuffer.allocateDirect(Math.min(initialCapacity, maxBytes));
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            if (overflow == null && length > data.remaining()) {
+                long needed = (long) data.position() + length;
+                data.flip();
+                if (needed <= maxBytes) {
+                    ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(maxBytes, Math.max(needed, 2L * data.capacity())));
+                    grown.put(data.duplicate());
+                    wipe(data);
+                    data = grown;
+                } else {
+                    overflow = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, 2 * needed));
+                    byte[] head = copy(data.duplicate());
+                    overflow.write(head, 0, head.length);
+                    wipe(data);
+                    data = null;
+                }
+            }
+            if (overflow != null) {
+                byte[] chunk = copy(src);
+                overflow.write(chunk, 0, chunk.length);
+            } else {
+                data.put(src);
+            }
+            return length;
+        }
+
+        /**
+         * Borra el texto plano escrito hasta ahora tras un fallo.
+         */
+        void discard() {
+            if (data != null) {
+                wipe(data);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Bytes de ceros para borrar los búferes */
+    private static final byte[] ZEROS = new byte[8192];
+
+    /** Sal de las huellas de las claves privadas, distinta en cada proceso */
+    private static final byte[] OWNER_SALT = new byte[32];
+
+    static {
+        new SecureRandom().nextBytes(OWNER_SALT);
+    }
+
+    /** Instancia compartida configurada con las propiedades del sistema */
+    private static final DecryptedFileCache INSTANCE = new DecryptedFileCache(
+        Long.getLong("cs.cache.maxBytes", 0),
+        Integer.getInteger("cs.cache.maxFileBytes", 256 * 1024),
+        TimeUnit.SECONDS.toNanos(Long.getLong("cs.cache.ttlSeconds", 300)));
+
+    private final long maxBytes;
+    private final int maxFileBytes;
+    private final long ttlNanos;
+    private final long windowMaxBytes;
+    private final long protectedMaxBytes;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Segment, LinkedHashMap<String, Entry>> segments = new HashMap<>();
+    private final Map<Segment, Long> segmentBytes = new HashMap<>();
+    private final FrequencySketch sketch;
+
+    /** Última vez que se buscaron entradas caducadas */
+    private long lastSweep = System.nanoTime();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Crea una caché.
+     * 
+     * @param maxBytes memoria máxima fuera del heap (0 para desactivarla)
+     * @param maxFileBytes tamaño máximo del archivo cifrado y de su texto plano para guardarse
+     *        (se limita a la cuarta parte de {@code maxBytes})
+     * @param ttlNanos vida de cada entrada en nanosegundos
+     */
+    DecryptedFileCache(long maxBytes, int maxFileBytes, long ttlNanos) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxFileBytes = (int) Math.min(maxFileBytes, this.maxBytes / 4);
+        this.ttlNanos = ttlNanos;
+        this.windowMaxBytes = Math.max(this.maxBytes / 100, this.maxFileBytes);
+        this.protectedMaxBytes = (this.maxBytes - windowMaxBytes) * 8 / 10;
+        for (Segment segment : Segment.values()) {
+            segments.put(segment, new LinkedHashMap<>());
+            segmentBytes.put(segment, 0L);
+        }
+        // Un contador por cada entrada de tamaño medio que cabría (4 KiB)
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(16, this.maxBytes >>> 12)));
+    }
+
+    /**
+     * Obtiene la caché compartida por la aplicación.
+     * 
+     * @return caché configurada con {@code cs.cache.*}
+     */
+    public static DecryptedFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Indica si la caché guarda algo.
+     * 
+     * @return true si {@code cs.cache.maxBytes} es mayor que 0
+     */
+    public boolean isEnabled() {
+        return maxFileBytes > 0;
+    }
+
+    /**
+     * Lee el contenido descifrado de un archivo, desde la caché si está.
+     * 
+     * En caso de fallo la clave se pide a {@code keySource} y el archivo se
+     * descifra en memoria; si es pequeño se guarda para las lecturas
+     * siguientes. Dos lecturas simultáneas del mismo archivo ausente lo
+     * descifran ambas.
+     * 
+     * @param inputFile archivo cifrado
+     * @param scope quién lee (el sistema o un usuario)
+     * @param reader clave privada con la que {@code keySource} obtiene la
+     *        clave; solo se sirven las entradas guardadas con esta misma clave
+     * @param keySource obtiene la clave del archivo
+     * @return copia del texto plano
+     * @throws Exception si no hay clave o el archivo no es auténtico
+     */
+    public byte[] read(File inputFile, String scope, PrivateKey reader, Callable<Key> keySource) throws Exception {
+        String key = scope + File.pathSeparator + inputFile.toPath().toAbsolutePath().normalize();
+        long fileSize = inputFile.length();
+        long lastModified = inputFile.lastModified();
+        byte[] owner = isEnabled() ? fingerprint(reader) : null;
+
+        if (owner != null) {
+            byte[] cached = get(key, owner, fileSize, lastModified);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Key fileKey = keySource.call();
+        if (owner == null || fileSize > maxFileBytes) {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            EncryptedContainer.decrypt(inputFile, Channels.newChannel(plain), fileKey);
+            return plain.toByteArray();
+        }
+
+        // Los contenedores dispersos e incrementales pueden tener más texto plano que bytes cifrados
+        PlainSink sink = new PlainSink((int) Math.max(1, fileSize), maxFileBytes);
+        try {
+            EncryptedContainer.decrypt(inputFile, sink, fileKey);
+        } catch (Exception e) {
+            sink.discard();
+            throw e;
+        }
+        if (sink.overflow != null) {
+            return sink.overflow.toByteArray();
+        }
+        ByteBuffer data = sink.data;
+        data.flip();
+        byte[] plain = copy(data.duplicate());
+        put(new Entry(key, owner, data, fileSize, lastModified, System.nanoTime() + ttlNanos));
+        return plain;
+    }
+
+    /**
+     * Expulsa y borra todas las entradas.
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            wipe(entry.data);
+        }
+        entries.clear();
+        for (Segment segment : Segment.values()) {
+            segments.get(segment).clear();
+            segmentBytes.put(segment, 0L);
+        }
+    }
+
+    /**
+     * Memoria ocupada por las entradas.
+     * 
+     * @return bytes fuera del heap en uso
+     */
+    public synchronized long getUsedBytes() {
+        long used = 0;
+        for (long bytes : segmentBytes.values()) {
+            used += bytes;
+        }
+        return used;
+    }
+
+    /**
+     * Lecturas servidas desde la caché.
+     * 
+     * @return número de aciertos
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Lecturas que tuvieron que descifrar el archivo.
+     * 
+     * @return número de fallos
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Cache: %d aciertos, %d fallos, %d expulsadas, %d caducadas, %d entradas, %d de %d KiB",
+            hits, misses, evictions, expirations, entries.size(), getUsedBytes() >> 10, maxBytes >> 10);
+    }
+
+    /**
+     * Busca una entrada vigente y anota el acceso.
+     * 
+     * @param owner huella de la clave privada de quien lee
+     * @return copia del texto plano, o null si no está o se guardó con otra clave privada
+     */
+    private synchronized byte[] get(String key, byte[] owner, long fileSize, long lastModified) {
+        sketch.increment(key);
+        Entry entry = entries.get(key);
+        if (entry != null && (entry.expiresAt - System.nanoTime() <= 0
+                || entry.fileSize != fileSize || entry.lastModified != lastModified)) {
+            remove(entry);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null || !MessageDigest.isEqual(entry.owner, owner)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (entry.segment == Segment.PROBATION) {
+            move(entry, Segment.PROTECTED);
+            while (segmentBytes.get(Segment.PROTECTED) > protectedMaxBytes) {
+                move(eldest(Segment.PROTECTED), Segment.PROBATION);
+            }
+        } else {
+            move(entry, entry.segment);
+        }
+        return copy(entry.data.duplicate());
+    }
+
+    /**
+     * Guarda una entrada en la ventana y expulsa lo necesario para no superar la capacidad.
+     */
+    private synchronized void put(Entry entry) {
+        sweep();
+        Entry previous = entries.get(entry.key);
+        if (previous != null) {
+            remove(previous);
+        }
+        entries.put(entry.key, entry);
+        add(entry, Segment.WINDOW);
+
+        while (segmentBytes.get(Segment.WINDOW) > windowMaxBytes) {
+            Entry candidate = eldest(Segment.WINDOW);
+            move(candidate, Segment.PROBATION);
+            evict(candidate);
+        }
+    }
+
+    /**
+     * Expulsa entradas de la zona principal hasta no superar la capacidad.
+     * 
+     * Mientras el candidato que sale de la ventana siga en la zona de
+     * prueba, se compara su frecuencia con la de la víctima (la entrada más
+     * antigua de prueba, o de protegidas si prueba está vacía) y se expulsa
+     * la menos frecuente.
+     */
+    private void evict(Entry candidate) {
+        while (getUsedBytes() > maxBytes) {
+            Entry victim = eldest(Segment.PROBATION);
+            if (victim == null) {
+                victim = eldest(Segment.PROTECTED);
+            }
+            if (victim == null) {
+                victim = eldest(Segment.WINDOW);
+            }
+            if (candidate != null && victim != candidate && candidate.segment == Segment.PROBATION
+                    && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                victim = candidate;
+            }
+            if (victim == candidate) {
+                candidate = null;
+            }
+            remove(victim);
+            evictions++;
+        }
+    }
+
+    /**
+     * Expulsa las entradas caducadas que nadie ha vuelto a pedir, como mucho
+     * cuatro veces por periodo de vida.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        if (now - lastSweep < ttlNanos / 4) {
+            return;
+        }
+        lastSweep = now;
+        for (Entry entry : entries.values().toArray(new Entry[0])) {
+            if (entry.expiresAt - now <= 0) {
+                remove(entry);
+                expirations++;
+            }
+        }
+    }
+
+    private Entry eldest(Segment segment) {
+        Iterator<Entry> iterator = segments.get(segment).values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private void add(Entry entry, Segment segment) {
+        entry.segment = segment;
+        segments.get(segment).put(entry.key, entry);
+        segmentBytes.merge(segment, entry.weight(), Long::sum);
+    }
+
+    /**
+     * Calcula la huella de una clave privada.
+     * 
+     * @return SHA-256 de la sal del proceso y la codificación de la clave, o
+     *         null si la clave no expone su codificación
+     */
+    private static byte[] fingerprint(PrivateKey reader) throws Exception {
+        byte[] encoded = reader != null ? reader.getEncoded() : null;
+        if (encoded == null) {
+            return null;
+        }
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(OWNER_SALT);
+            return sha256.digest(encoded);
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    /**
+     * Pasa una entrada al final (más reciente) de una zona.
+     */
+    private void move(Entry entry, Segment segment) {
+        segments.get(entry.segment).remove(entry.key);
+        segmentBytes.merge(entry.segment, -entry.weight(), Long::sum);
+        add(entry, segment);
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        segments.get(entry.segment).remove(entry.key);
+        segmentBytes.merge(entry.segment, -entry.weight(), Long::sum);
+        wipe(entry.data);
+    }
+
+    private static byte[] copy(ByteBuffer data) {
+        byte[] plain = new byte[data.remaining()];
+        data.get(plain);
+        return plain;
+    }
+
+    /**
+     * Sobrescribe con ceros todo el búfer.
+     */
+    private static void wipe(ByteBuffer data) {
+        data.clear();
+        while (data.hasRemaining()) {
+            data.put(ZEROS, 0, Math.min(ZEROS.length, data.remaining()));
+        }
+        data.clear();
+    }
+}
@@ -17,7 +17,7 @@ public class DefaultSetup {
      * 
      * El usuario creado tiene las siguientes características:
      * - Nombre de usuario: "usuario"
-     * - Contraseña: "1234" (hasheada con SimpleHash)
+     * - Contraseña: "1234" (hasheada con PBKDF2)
      * - Par de claves RSA generadas automáticamente
      * 
      * @throws Exception si ocurre un error durante la generación de claves
@@ -25,7 +25,7 @@ public class DefaultSetup {
      * 
      * @see LocalStorage#userExists(String)
      * @see RSAUtil#generateKeyPair()
-     * @see SimpleHash#hashPassword(String)
+     * @see PasswordHashing#hashPassword(String)
      */
     public static void createDefaultUser() {
         try {
@@ -46,7 +46,7 @@ public class DefaultSetup {
 
             // Generar hash de la contrasena del usuario
             String userPassword = "1234";
-            String passwordHash = SimpleHash.hashPassword(userPassword);
+            String passwordHash = PasswordHashing.hashPassword(userPassword);
 
             // Guardar en almacenamiento local
             LocalStorage.saveUser("usuario", passwordHash, publicKeyBase64, privateKeyBase64);
@@ -0,0 +1,657 @@
+import javax.crypto.AEADBadTagException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Archivo cifrado que agrupa todos los archivos de un directorio en un único contenedor.
+ * 
+ * Cifrar miles de archivos pequeños por separado genera miles de archivos
+ * .enc, miles de claves envueltas y miles de escrituras del almacén de
+ * claves. Un archivo de este tipo usa una sola clave AES y una sola cabecera:
+ * el contenido de los miembros se concatena, seguido de un índice con el
+ * nombre, la posición, el tamaño y la fecha de cada uno, y todo se cifra en
+ * bloques AES-GCM exactamente igual que un contenedor normal.
+ * 
+ * <p>La posición y la longitud del índice se guardan en la cabecera
+ * ({@link ContainerHeader#FIELD_ARCHIVE_INDEX}), autenticada en cada bloque;
+ * el índice en sí va cifrado. Como cada bloque se cifra con un nonce derivado
+ * de su posición, cualquier miembro se puede extraer descifrando solo los
+ * bloques que ocupa, y tanto la creación como la extracción reparten los
+ * bloques o los miembros entre varios hilos (propiedad
+ * {@code cs.archive.concurrency}, por defecto el número de procesadores).</p>
+ * 
+ * <p>Los miembros se extraen de forma atómica con {@link AtomicFileWriter};
+ * los nombres que intentan salir del directorio de destino se rechazan.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see EncryptedContainer
+ * @see ChunkCipher
+ */
+public class EncryptedArchive {
+
+    /** Extensión de los archivos cifrados que agrupan un directorio */
+    public static final String EXTENSION = ".encar";
+
+    /** Longitud del campo de índice de la cabecera: posición (8 bytes) y longitud (4 bytes) */
+    private static final int INDEX_FIELD_LENGTH = 12;
+
+    /** Longitud máxima del índice cifrado */
+    private static final int MAX_INDEX_LENGTH = 256 * 1024 * 1024;
+
+    /** Bytes de miembros que se asignan a cada tarea de extracción como mínimo */
+    private static final long MIN_TASK_BYTES = 4L * EncryptedContainer.DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Miembro de un archivo agrupado.
+     */
+    public static class Entry {
+        /** Ruta relativa al directorio de origen, separada con '/' */
+        public final String name;
+
+        /** Posición del contenido dentro del texto plano del archivo */
+        public final long offset;
+
+        /** Tamaño del contenido en bytes */
+        public final long size;
+
+        /** Fecha de modificación en milisegundos */
+        public final long lastModified;
+
+        Entry(String name, long offset, long size, long lastModified) {
+            this.name = name;
+            this.offset = offset;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%12d  %s", size, name);
+        }
+    }
+
+    private EncryptedArchive() {
+    }
+
+    /**
+     * Obtiene el número de hilos configurado para crear y extraer archivos agrupados.
+     * 
+     * @return valor de {@code cs.archive.concurrency} o el número de procesadores
+     */
+    public static int defaultConcurrency() {
+        return Math.max(1, Integer.getInteger("cs.archive.concurrency", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Indica si un archivo es un contenedor que agrupa un directorio.
+     * 
+     * @param file archivo a comprobar
+     * @return true si su cabecera tiene índice de miembros
+     */
+    public static boolean isArchive(File file) {
+        ContainerHeader header = EncryptedContainer.readHeader(file);
+        return header != null && header.has(ContainerHeader.FIELD_ARCHIVE_INDEX);
+    }
+
+    /**
+     * Agrupa y cifra todos los archivos regulares de un directorio y sus subdirectorios.
+     * 
+     * La posición de cada miembro se calcula de antemano a partir de los
+     * tamaños, de modo que cada bloque se compone y se cifra de forma
+     * independiente y se escribe directamente en su posición del destino. Si
+     * un archivo cambia de tamaño mientras se agrupa, la operación falla.
+     * 
+     * @param directory directorio de origen
+     * @param out canal de destino (se escribe por posición desde el inicio)
+     * @param key clave AES del archivo
+     * @param header cabecera a escribir, a la que se añade el índice (no debe haberse usado)
+     * @param concurrency número de bloques cifrados a la vez
+     * @return miembros agrupados, ordenados por nombre
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     */
+    public static List<Entry> create(File directory, FileChannel out, Key key, ContainerHeader header, int concurrency) throws Exception {
+        Path root = directory.toPath();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        List<Entry> entries = new ArrayList<>(files.size());
+        long offset = 0;
+        for (Path file : files) {
+            String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+            long size = Files.size(file);
+            entries.add(new Entry(name, offset, size, Files.getLastModifiedTime(file).toMillis()));
+            offset += size;
+        }
+        byte[] index = encodeIndex(entries);
+        header.put(ContainerHeader.FIELD_ARCHIVE_INDEX, ByteBuffer.allocate(INDEX_FIELD_LENGTH)
+            .putLong(offset).putInt(index.length).array());
+
+        byte[] encodedHeader = header.encode();
+        writeFully(out, ByteBuffer.wrap(encodedHeader), 0);
+        Layout layout = new Layout(encodedHeader.length, header.getChunkSize(), offset + index.length);
+        Source source = new Source(files, entries, index, offset);
+
+        AtomicLong next = new AtomicLong();
+        runParallel(concurrency, (int) Math.min(concurrency, layout.chunks), () -> {
+            ChunkCipher chunkCipher = new ChunkCipher(key, header);
+            ByteBuffer plain = BufferPool.acquire(layout.chunkSize);
+            ByteBuffer sealed = BufferPool.acquire(layout.recordSize);
+            try {
+                long chunk;
+                while ((chunk = next.getAndIncrement()) < layout.chunks) {
+                    plain.clear();
+                    long start = chunk * layout.chunkSize;
+                    plain.limit((int) Math.min(layout.chunkSize, layout.plainLength - start));
+                    source.read(start, plain);
+                    plain.flip();
+                    sealed.clear();
+                    chunkCipher.seal(chunk, chunk == layout.chunks - 1, plain, sealed);
+                    sealed.flip();
+                    writeFully(out, sealed, layout.position(chunk));
+                }
+            } finally {
+                BufferPool.release(plain);
+                BufferPool.release(sealed);
+            }
+            return null;
+        });
+        return entries;
+    }
+
+    /**
+     * Lee el índice de miembros descifrando solo los bloques que ocupa.
+     * 
+     * @param archive archivo agrupado
+     * @param key clave AES del archivo
+     * @return miembros en el orden en que se agruparon
+     * @throws Exception si el archivo no es un archivo agrupado, no es auténtico o hay error de lectura
+     */
+    public static List<Entry> list(File archive, Key key) throws Exception {
+        try (Reader reader = new Reader(archive, key)) {
+            return reader.entries;
+        }
+    }
+
+    /**
+     * Extrae miembros de un archivo agrupado en un directorio.
+     * 
+     * Los miembros se reparten en tramos contiguos entre varios hilos; cada
+     * hilo descifra una sola vez los bloques que comparten varios miembros
+     * pequeños. Solo se descifran los bloques de los miembros pedidos.
+     * 
+     * @param archive archivo agrupado
+     * @param key clave AES del archivo
+     * @param directory directorio de destino (se crea si no existe)
+     * @param names miembros a extraer, o null para extraerlos todos
+     * @param concurrency número de hilos de extracción
+     * @param sync true para forzar a disco cada miembro antes de publicarlo
+     * @return miembros extraídos
+     * @throws IllegalArgumentException si algún miembro pedido no existe
+     * @throws Exception si el archivo no es auténtico o hay error de lectura o escritura
+     */
+    public static List<Entry> extract(File archive, Key key, File directory, Collection<String> names, int concurrency,
+            boolean sync) throws Exception {
+        Path root = directory.toPath().toAbsolutePath().normalize();
+        try (Reader reader = new Reader(archive, key)) {
+            List<Entry> selected = select(reader.entries, names);
+            for (Entry entry : selected) {
+                target(root, entry);
+            }
+
+            List<List<Entry>> tasks = split(selected, concurrency);
+            List<Entry> extracted = Collections.synchronizedList(new ArrayList<>(selected.size()));
+            java.util.Iterator<List<Entry>> pending = tasks.iterator();
+            runParallel(concurrency, Math.min(concurrency, tasks.size()), () -> {
+                Reader.Cursor cursor = reader.cursor();
+                try {
+                    List<Entry> task;
+                    while ((task = nextTask(pending)) != null) {
+                        for (Entry entry : task) {
+                            Path target = target(root, entry);
+                            AtomicFileWriter.writeChannel(target, channel -> cursor.copy(entry.offset, entry.size, channel), sync);
+                            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.lastModified));
+                            extracted.add(entry);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+                return null;
+            });
+            return extracted;
+        }
+    }
+
+    /**
+     * Obtiene la siguiente tarea pendiente de forma segura entre hilos.
+     */
+    private static List<Entry> nextTask(java.util.Iterator<List<Entry>> pending) {
+        synchronized (pending) {
+            return pending.hasNext() ? pending.next() : null;
+        }
+    }
+
+    /**
+     * Selecciona los miembros pedidos, ordenados por posición.
+     */
+    private static List<Entry> select(List<Entry> entries, Collection<String> names) {
+        List<Entry> selected = new ArrayList<>();
+        if (names == null) {
+            selected.addAll(entries);
+        } else {
+            Set<String> missing = new HashSet<>(names);
+            for (Entry entry : entries) {
+                if (missing.remove(entry.name)) {
+                    selected.add(entry);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Miembros no encontrados en el archivo: " + missing);
+            }
+        }
+        selected.sort(Comparator.comparingLong(entry -> entry.offset));
+        return selected;
+    }
+
+    /**
+     * Reparte los miembros en tramos contiguos de tamaño parecido, varios por
+     * hilo para equilibrar la carga.
+     */
+    private static List<List<Entry>> split(List<Entry> entries, int concurrency) {
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        long perTask = Math.max(MIN_TASK_BYTES, total / Math.max(1, concurrency * 4L));
+        List<List<Entry>> tasks = new ArrayList<>();
+        List<Entry> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (Entry entry : entries) {
+            current.add(entry);
+            currentBytes += entry.size;
+            if (currentBytes >= perTask) {
+                tasks.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            tasks.add(current);
+        }
+        return tasks;
+    }
+
+    /**
+     * Obtiene la ruta de destino de un miembro dentro del directorio.
+     * 
+     * @throws StreamCorruptedException si el nombre sale del directorio de destino
+     */
+    private static Path target(Path root, Entry entry) throws StreamCorruptedException {
+        Path target = root.resolve(entry.name).normalize();
+        if (entry.name.isEmpty() || !target.startsWith(root) || target.equals(root)) {
+            throw new StreamCorruptedException("Nombre de miembro no valido: " + entry.name);
+        }
+        return target;
+    }
+
+    /**
+     * Codifica el índice: número de miembros y, por miembro, nombre UTF-8
+     * modificado, tamaño y fecha de modificación (las posiciones se deducen).
+     */
+    private static byte[] encodeIndex(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(raw);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.name);
+            out.writeLong(entry.size);
+            out.writeLong(entry.lastModified);
+        }
+        out.flush();
+        return raw.toByteArray();
+    }
+
+    /**
+     * Decodifica el índice y comprueba que los miembros ocupan exactamente
+     * el contenido anterior al índice.
+     */
+    private static List<Entry> decodeIndex(byte[] index, long indexOffset) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+        int count = in.readInt();
+        if (count < 0 || count > index.length) {
+            throw new StreamCorruptedException("Numero de miembros invalido: " + count);
+        }
+        List<Entry> entries = new ArrayList<>(count);
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            if (size < 0 || size > indexOffset - offset) {
+                throw new StreamCorruptedException("Tamano de miembro invalido: " + name);
+            }
+            entries.add(new Entry(name, offset, size, lastModified));
+            offset += size;
+        }
+        if (offset != indexOffset) {
+            throw new StreamCorruptedException("El indice no coincide con el contenido del archivo");
+        }
+        return entries;
+    }
+
+    /**
+     * Ejecuta la misma tarea en varios hilos y espera a que terminen todos.
+     * Si alguna falla, se propaga su error.
+     */
+    private static void runParallel(int concurrency, int tasks, java.util.concurrent.Callable<Void> task) throws Exception {
+        if (tasks <= 1) {
+            task.call();
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, tasks));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Escribe un búfer completo en una posición del canal.
+     */
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    /**
+     * Posición de cada bloque dentro del archivo.
+     */
+    private static final class Layout {
+        /** Longitud de la cabecera (posición del primer bloque) */
+        final long headerLength;
+
+        /** Bytes de texto plano por bloque */
+        final int chunkSize;
+
+        /** Bytes de cada bloque cifrado completo */
+        final int recordSize;
+
+        /** Longitud total del texto plano */
+        final long plainLength;
+
+        /** Número de bloques (al menos uno, aunque el contenido esté vacío) */
+        final long chunks;
+
+        Layout(long headerLength, int chunkSize, long plainLength) {
+            this.headerLength = headerLength;
+            this.chunkSize = chunkSize;
+            this.recordSize = chunkSize + ChunkCipher.TAG_LENGTH;
+            this.plainLength = plainLength;
+            this.chunks = Math.max(1, (plainLength + chunkSize - 1) / chunkSize);
+        }
+
+        /**
+         * Calcula la longitud del texto plano a partir del tamaño del archivo.
+         */
+        static Layout of(long headerLength, int chunkSize, long fileLength) throws StreamCorruptedException {
+            long body = fileLength - headerLength;
+            long recordSize = chunkSize + ChunkCipher.TAG_LENGTH;
+            long chunks = (body + recordSize - 1) / recordSize;
+            long lastLength = body - (chunks - 1) * recordSize;
+            if (chunks < 1 || lastLength < ChunkCipher.TAG_LENGTH) {
+                throw new StreamCorruptedException("Archivo agrupado truncado");
+            }
+            return new Layout(headerLength, chunkSize, (chunks - 1) * chunkSize + lastLength - ChunkCipher.TAG_LENGTH);
+        }
+
+        /** Posición del bloque en el archivo */
+        long position(long chunk) {
+            return headerLength + chunk * recordSize;
+        }
+    }
+
+    /**
+     * Texto plano de un archivo agrupado en creación, leído de los archivos de origen.
+     */
+    private static final class Source {
+        final List<Path> files;
+        final List<Entry> entries;
+        final byte[] index;
+        final long indexOffset;
+
+        Source(List<Path> files, List<Entry> entries, byte[] index, long indexOffset) {
+            this.files = files;
+            this.entries = entries;
+            this.index = index;
+            this.indexOffset = indexOffset;
+        }
+
+        /**
+         * Llena el búfer con el texto plano a partir de la posición indicada.
+         */
+        void read(long position, ByteBuffer target) throws IOException {
+            int i = first(position);
+            while (target.hasRemaining() && position < indexOffset) {
+                Entry entry = entries.get(i);
+                long within = position - entry.offset;
+                if (within < entry.size) {
+                    int length = (int) Math.min(target.remaining(), entry.size - within);
+                    readMember(files.get(i), entry, within, target, length);
+                    position += length;
+                }
+                i++;
+            }
+            if (target.hasRemaining()) {
+                int from = (int) (position - indexOffset);
+                target.put(index, from, Math.min(target.remaining(), index.length - from));
+            }
+        }
+
+        /**
+         * Busca el primer miembro que contiene la posición (o el siguiente no vacío).
+         */
+        private int first(long position) {
+            int low = 0;
+            int high = entries.size() - 1;
+            int found = entries.size();
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                Entry entry = entries.get(mid);
+                if (entry.offset + entry.size > position) {
+                    found = mid;
+                    high = mid - 1;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Lee una parte de un miembro comprobando que no ha cambiado de tamaño.
+         */
+        private void readMember(Path file, Entry entry, long within, ByteBuffer target, int length) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (in.size() != entry.size) {
+                    throw new IOException("El archivo cambio durante el agrupado: " + entry.name);
+                }
+                int limit = target.limit();
+                target.limit(target.position() + length);
+                try {
+                    while (target.hasRemaining()) {
+                        if (in.read(target, within + length - target.remaining()) < 0) {
+                            throw new IOException("El archivo cambio durante el agrupado: " + entry.name);
+                        }
+                    }
+                } finally {
+                    target.limit(limit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lectura por posición de un archivo agrupado, compartida entre hilos.
+     */
+    private static final class Reader implements AutoCloseable {
+        final ContainerHeader header;
+        final FileChannel channel;
+        final Layout layout;
+        final Key key;
+        final List<Entry> entries;
+
+        Reader(File archive, Key key) throws Exception {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(archive), 4096)) {
+                this.header = ContainerHeader.read(in);
+            }
+            byte[] field = header.get(ContainerHeader.FIELD_ARCHIVE_INDEX);
+            if (field == null || field.length != INDEX_FIELD_LENGTH) {
+                throw new StreamCorruptedException("El archivo no es un archivo agrupado: " + archive.getName());
+            }
+            long indexOffset = ByteBuffer.wrap(field).getLong();
+            int indexLength = ByteBuffer.wrap(field).getInt(8);
+            this.key = key;
+            this.channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+            try {
+                this.layout = Layout.of(header.length(), header.getChunkSize(), channel.size());
+                if (indexOffset < 0 || indexLength < 0 || indexLength > MAX_INDEX_LENGTH
+                        || indexOffset + indexLength != layout.plainLength) {
+                    throw new StreamCorruptedException("Indice del archivo agrupado no valido");
+                }
+                ByteArrayOutputStream index = new ByteArrayOutputStream(indexLength);
+                try (Cursor cursor = cursor()) {
+                    cursor.copy(indexOffset, indexLength, Channels.newChannel(index));
+                }
+                this.entries = decodeIndex(index.toByteArray(), indexOffset);
+            } catch (Exception e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Crea un cursor para un hilo.
+         */
+        Cursor cursor() throws Exception {
+            return new Cursor();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Descifrado de tramos de un hilo, que conserva el último bloque
+         * descifrado para los miembros consecutivos que lo comparten.
+         */
+        final class Cursor implements AutoCloseable {
+            private final ChunkCipher chunkCipher = new ChunkCipher(key, header);
+            private final ByteBuffer record = BufferPool.acquire(layout.recordSize);
+            private final ByteBuffer plain = BufferPool.acquire(layout.chunkSize);
+            private long cached = -1;
+
+            Cursor() throws Exception {
+            }
+
+            /**
+             * Copia un tramo del texto plano al canal, descifrando y
+             * autenticando cada bloque que ocupa.
+             */
+            void copy(long offset, long length, WritableByteChannel out) throws Exception {
+                long end = offset + length;
+                while (offset < end) {
+                    long chunk = offset / layout.chunkSize;
+                    load(chunk);
+                    ByteBuffer slice = plain.duplicate();
+                    slice.position((int) (offset - chunk * layout.chunkSize));
+                    slice.limit((int) Math.min(slice.limit(), slice.position() + end - offset));
+                    offset += slice.remaining();
+                    while (slice.hasRemaining()) {
+                        out.write(slice);
+                    }
+                }
+            }
+
+            /**
+             * Descifra un bloque si no es el que ya está descifrado.
+             */
+            private void load(long chunk) throws Exception {
+                if (chunk == cached) {
+                    return;
+                }
+                cached = -1;
+                boolean last = chunk == layout.chunks - 1;
+                long length = last ? layout.plainLength - chunk * layout.chunkSize + ChunkCipher.TAG_LENGTH : layout.recordSize;
+                record.clear();
+                record.limit((int) length);
+                long position = layout.position(chunk);
+                while (record.hasRemaining()) {
+                    if (channel.read(record, position + record.position()) < 0) {
+                        throw new AEADBadTagException("Archivo agrupado truncado en el bloque " + chunk);
+                    }
+                }
+                record.flip();
+                plain.clear();
+                chunkCipher.open(chunk, last, record, plain);
+                plain.flip();
+                cached = chunk;
+            }
+
+            @Override
+            public void close() {
+                BufferPool.release(record);
+                BufferPool.release(plain);
+            }
+        }
+    }
+}
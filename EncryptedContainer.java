@@ -0,0 +1,408 @@
+import javax.crypto.Cipher;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+
+/**
+ * Cifrado y descifrado en flujo de archivos .enc en formato contenedor.
+ * 
+ * El contenedor está formado por una {@link ContainerHeader} seguida de
+ * bloques de tamaño fijo cifrados con {@link ChunkCipher} (el último puede
+ * ser más corto). Los archivos se procesan bloque a bloque, con memoria
+ * constante tomada de {@link BufferPool}, y cada bloque se autentica antes
+ * de entregar su contenido.
+ * 
+ * <p>Los archivos cifrados por versiones anteriores (AES sin cabecera) se
+ * siguen pudiendo descifrar, aunque sin comprobación de integridad más allá
+ * del relleno.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionUtil#encryptFile(File, File, Key)
+ * @see FileVerifier
+ */
+public class EncryptedContainer {
+    /** Tamaño de bloque por defecto (64 KiB de texto plano por bloque) */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /** Tamaño del búfer de lectura de los archivos en formato antiguo */
+    private static final int LEGACY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Cifra un flujo completo con una cabecera nueva y el tamaño de bloque por defecto.
+     * 
+     * @param in texto plano
+     * @param out destino del contenedor
+     * @param key clave AES del archivo
+     * @return bytes de texto plano cifrados
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     */
+    public static long encrypt(InputStream in, OutputStream out, Key key) throws Exception {
+        return encrypt(in, out, key, ContainerHeader.create(DEFAULT_CHUNK_SIZE));
+    }
+
+    /**
+     * Cifra un flujo completo con la cabecera indicada.
+     * 
+     * @param in texto plano
+     * @param out destino del contenedor
+     * @param key clave AES del archivo
+     * @param header cabecera a escribir (no debe haberse usado para otro archivo)
+     * @return bytes de texto plano cifrados
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     */
+    public static long encrypt(InputStream in, OutputStream out, Key key, ContainerHeader header) throws Exception {
+        header.write(out);
+        ChunkCipher chunkCipher = new ChunkCipher(key, header);
+        int chunkSize = header.getChunkSize();
+        ReadableByteChannel source = Channels.newChannel(in);
+        WritableByteChannel target = Channels.newChannel(out);
+
+        ByteBuffer current = BufferPool.acquire(chunkSize);
+        ByteBuffer next = BufferPool.acquire(chunkSize);
+        ByteBuffer sealed = BufferPool.acquire(chunkSize + ChunkCipher.TAG_LENGTH);
+        try {
+            int currentLength = fill(source, current);
+            long total = 0;
+            for (long index = 0; ; index++) {
+                // Se lee el bloque siguiente para saber si el actual es el último
+                next.clear().limit(chunkSize);
+                int nextLength = currentLength < chunkSize ? 0 : fill(source, next);
+                boolean last = nextLength == 0;
+
+                current.flip();
+                sealed.clear();
+                chunkCipher.seal(index, last, current, sealed);
+                sealed.flip();
+                writeFully(target, sealed);
+                total += currentLength;
+                if (last) {
+                    return total;
+                }
+
+                ByteBuffer swap = current;
+                current = next;
+                next = swap;
+                currentLength = nextLength;
+            }
+        } finally {
+            BufferPool.release(current);
+            BufferPool.release(next);
+            BufferPool.release(sealed);
+        }
+    }
+
+    /**
+     * Descifra y autentica un contenedor completo.
+     * 
+     * Los bloques se escriben en la salida a medida que se autentican; si el
+     * archivo está corrupto la salida puede contener la parte anterior al
+     * bloque dañado, por lo que el llamador debe descartarla al recibir el error.
+     * 
+     * @param in contenedor posicionado al inicio de la cabecera
+     * @param out destino del texto plano
+     * @param key clave AES del archivo
+     * @return bytes de texto plano descifrados
+     * @throws javax.crypto.AEADBadTagException si algún bloque no es auténtico o el archivo está truncado
+     * @throws Exception si hay error de lectura o escritura
+     */
+    public static long decrypt(InputStream in, OutputStream out, Key key) throws Exception {
+        ContainerHeader header = ContainerHeader.read(in);
+        if (IncrementalContainer.isIncremental(header)) {
+            throw new StreamCorruptedException("Los contenedores incrementales solo se descifran desde archivo");
+        }
+        if (SparseContainer.isSparse(header)) {
+            throw new StreamCorruptedException("Los contenedores dispersos solo se descifran desde archivo");
+        }
+        ChunkCipher chunkCipher = new ChunkCipher(key, header);
+        int recordSize = header.getChunkSize() + ChunkCipher.TAG_LENGTH;
+        ReadableByteChannel source = Channels.newChannel(in);
+        WritableByteChannel target = Channels.newChannel(out);
+
+        ByteBuffer current = BufferPool.acquire(recordSize);
+        ByteBuffer next = BufferPool.acquire(recordSize);
+        ByteBuffer plain = BufferPool.acquire(header.getChunkSize());
+        try {
+            int currentLength = fill(source, current);
+            long total = 0;
+            for (long index = 0; ; index++) {
+                if (currentLength < ChunkCipher.TAG_LENGTH) {
+                    throw new javax.crypto.AEADBadTagException("Contenedor truncado en el bloque " + index);
+                }
+                next.clear().limit(recordSize);
+                int nextLength = currentLength < recordSize ? 0 : fill(source, next);
+                boolean last = nextLength == 0;
+
+                current.flip();
+                plain.clear();
+                int plainLength = chunkCipher.open(index, last, current, plain);
+                plain.flip();
+                writeFully(target, plain);
+                total += plainLength;
+                if (last) {
+                    return total;
+                }
+
+                ByteBuffer swap = current;
+                current = next;
+                next = swap;
+                currentLength = nextLength;
+            }
+        } finally {
+            BufferPool.release(current);
+            BufferPool.release(next);
+            BufferPool.release(plain);
+        }
+    }
+
+    /**
+     * Descifra un archivo .enc en cualquiera de los dos formatos.
+     * 
+     * @param inputFile archivo cifrado (contenedor o formato antiguo)
+     * @param out destino del texto plano
+     * @param key clave AES del archivo
+     * @return bytes de texto plano descifrados
+     * @throws Exception si el archivo no es auténtico o hay error de lectura o escritura
+     */
+    public static long decrypt(File inputFile, OutputStream out, Key key) throws Exception {
+        try (FileInputStream in = new FileInputStream(inputFile)) {
+            byte[] prefix = new byte[ContainerHeader.MAGIC.length + 1];
+            int read = readFully(in, prefix, prefix.length);
+            in.getChannel().position(0);
+            if (read == prefix.length && ContainerHeader.matches(prefix)) {
+                return decrypt(in, out, key);
+            }
+            return decryptLegacy(in.getChannel(), Channels.newChannel(out), key);
+        }
+    }
+
+    /**
+     * Cifra un archivo en formato contenedor con lectura, cifrado y escritura solapados.
+     * 
+     * @param inputFile archivo de texto plano
+     * @param out canal de destino del contenedor
+     * @param key clave AES del archivo
+     * @return bytes de texto plano cifrados
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     * @see CryptoPipeline#encrypt(FileChannel, WritableByteChannel, Key, ContainerHeader)
+     */
+    public static long encrypt(File inputFile, FileChannel out, Key key) throws Exception {
+        return encrypt(inputFile, out, key, (String) null);
+    }
+
+    /**
+     * Cifra un archivo en formato contenedor guardando su identificador en la cabecera.
+     * 
+     * @param inputFile archivo de texto plano
+     * @param out canal de destino del contenedor
+     * @param key clave AES del archivo
+     * @param fileId identificador del archivo (null para no incluirlo)
+     * @return bytes de texto plano cifrados
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     * @see ContainerHeader#FIELD_FILE_ID
+     */
+    public static long encrypt(File inputFile, FileChannel out, Key key, String fileId) throws Exception {
+        ContainerHeader header = ContainerHeader.create(DEFAULT_CHUNK_SIZE);
+        if (fileId != null) {
+            header.setFileId(fileId);
+        }
+        return encrypt(inputFile, out, key, header);
+    }
+
+    /**
+     * Cifra un archivo en formato contenedor con la cabecera indicada.
+     * 
+     * @param inputFile archivo de texto plano
+     * @param out canal de destino del contenedor
+     * @param key clave AES del archivo
+     * @param header cabecera a escribir (no debe haberse usado para otro archivo)
+     * @return bytes de texto plano cifrados
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     */
+    public static long encrypt(File inputFile, FileChannel out, Key key, ContainerHeader header) throws Exception {
+        try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            long total = CryptoPipeline.encrypt(in, out, key, header);
+            AppConfig.recordRead(inputFile.toPath(), total);
+            return total;
+        }
+    }
+
+    /**
+     * Descifra un archivo .enc en cualquiera de los dos formatos hacia un canal.
+     * 
+     * Los contenedores se descifran con lectura, descifrado y escritura
+     * solapados; el formato antiguo se descifra en flujo.
+     * 
+     * @param inputFile archivo cifrado (contenedor o formato antiguo)
+     * @param out canal de destino del texto plano
+     * @param key clave AES del archivo
+     * @return bytes de texto plano descifrados
+     * @throws Exception si el archivo no es auténtico o hay error de lectura o escritura
+     * @see CryptoPipeline#decrypt(FileChannel, WritableByteChannel, Key)
+     */
+    public static long decrypt(File inputFile, WritableByteChannel out, Key key) throws Exception {
+        if (!isContainer(inputFile)) {
+            try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+                return decryptLegacy(in, out, key);
+            }
+        }
+        try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            long total = CryptoPipeline.decrypt(in, out, key);
+            AppConfig.recordRead(inputFile.toPath(), in.size());
+            return total;
+        }
+    }
+
+    /**
+     * Indica si un archivo está en formato contenedor.
+     * 
+     * @param file archivo a comprobar
+     * @return true si empieza por la firma del contenedor
+     * @throws IOException si hay error de lectura
+     */
+    public static boolean isContainer(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] prefix = new byte[ContainerHeader.MAGIC.length + 1];
+            return readFully(in, prefix, prefix.length) == prefix.length && ContainerHeader.matches(prefix);
+        }
+    }
+
+    /**
+     * Lee la cabecera de un archivo cifrado sin descifrar nada.
+     * 
+     * @param file archivo cifrado
+     * @return cabecera del archivo, o null si es de formato antiguo o no se puede leer
+     */
+    public static ContainerHeader readHeader(File file) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 4096)) {
+            in.mark(ContainerHeader.MAGIC.length + 1);
+            byte[] prefix = new byte[ContainerHeader.MAGIC.length + 1];
+            int read = readFully(in, prefix, prefix.length);
+            in.reset();
+            if (read != prefix.length || !ContainerHeader.matches(prefix)) {
+                return null;
+            }
+            return ContainerHeader.read(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lee el identificador guardado en la cabecera de un archivo cifrado.
+     * 
+     * Solo lee la cabecera, sin descifrar nada.
+     * 
+     * @param file archivo cifrado
+     * @return identificador del archivo, o null si es de formato antiguo, no
+     *         tiene identificador o no se puede leer
+     */
+    public static String readFileId(File file) {
+        ContainerHeader header = readHeader(file);
+        return header != null ? header.getFileId() : null;
+    }
+
+    /**
+     * Descifra en flujo un archivo en el formato antiguo (AES sin cabecera).
+     * 
+     * @param in canal del texto cifrado
+     * @param out canal de destino del texto plano
+     * @param key clave AES del archivo
+     * @return bytes de texto plano descifrados
+     * @throws GeneralSecurityException si el relleno no es válido
+     * @throws IOException si hay error de lectura o escritura
+     */
+    private static long decryptLegacy(ReadableByteChannel in, WritableByteChannel out, Key key)
+            throws GeneralSecurityException, IOException {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, key);
+
+        ByteBuffer buffer = BufferPool.acquire(LEGACY_BUFFER_SIZE);
+        // Con relleno la salida puede llevar un bloque retenido de la llamada anterior
+        ByteBuffer plain = BufferPool.acquire(cipher.getOutputSize(LEGACY_BUFFER_SIZE));
+        try {
+            long total = 0;
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                plain.clear();
+                cipher.update(buffer, plain);
+                buffer.clear().limit(LEGACY_BUFFER_SIZE);
+                plain.flip();
+                total += plain.remaining();
+                writeFully(out, plain);
+            }
+            buffer.limit(0);
+            plain.clear();
+            cipher.doFinal(buffer, plain);
+            plain.flip();
+            total += plain.remaining();
+            writeFully(out, plain);
+            return total;
+        } finally {
+            BufferPool.release(buffer);
+            BufferPool.release(plain);
+        }
+    }
+
+    /**
+     * Lee exactamente el número de bytes pedido o hasta el final del flujo.
+     * 
+     * @param in flujo de entrada
+     * @param buffer destino
+     * @param length número de bytes deseado
+     * @return bytes leídos (menos que length solo al final del flujo)
+     * @throws IOException si hay error de lectura
+     */
+    static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Lee de un canal hasta llenar el búfer o llegar al final.
+     * 
+     * @param in canal de entrada
+     * @param buffer destino (se llena desde su posición hasta el límite)
+     * @return bytes leídos (menos de los pedidos solo al final del canal)
+     * @throws IOException si hay error de lectura
+     */
+    private static int fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.position() - start;
+    }
+
+    /**
+     * Escribe en un canal todo el contenido restante de un búfer.
+     */
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,599 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interfaz de línea de comandos para el cifrado público de archivos.
+ * 
+ * Permite usar el cifrado híbrido RSA+AES desde scripts sin arrancar la
+ * interfaz gráfica. Los archivos se cifran y descifran con las claves del
+ * sistema, exactamente igual que el cifrado público de la aplicación.
+ * 
+ * <p>Comandos disponibles:</p>
+ * <ul>
+ *   <li>{@code encrypt [opciones] <archivo>...} - cifra en ~/Documents/cs/encriptado;
+ *       los archivos pequeños comparten una clave maestra por ejecución
+ *       (ver {@link FileEncryptionUtil#encryptFilesPublic(List, File, java.security.PublicKey, FileOperationOptions)})</li>
+ *   <li>{@code decrypt [opciones] <archivo.enc>...} - descifra en ~/Documents/cs/desencriptado</li>
+ *   <li>{@code update [--durability <modo>] <archivo>...} - actualiza el .enc
+ *       incremental de cada archivo en ~/Documents/cs/encriptado volviendo a
+ *       cifrar solo los bloques modificados, o lo crea si no existe; el
+ *       original se conserva (ver {@link IncrementalContainer})</li>
+ *   <li>{@code archive [opciones] <directorio>} - agrupa y cifra un directorio
+ *       completo en un único archivo .encar de ~/Documents/cs/encriptado</li>
+ *   <li>{@code extract [opciones] <archivo.encar> [miembro...]} - extrae todos
+ *       los miembros o solo los indicados en ~/Documents/cs/desencriptado/&lt;nombre&gt;</li>
+ *   <li>{@code list <archivo.encar>} - muestra los miembros de un archivo agrupado</li>
+ *   <li>{@code cat <archivo.enc>...} - escribe el contenido descifrado en la
+ *       salida estándar sin tocar el disco ni borrar nada; con
+ *       {@code cs.cache.maxBytes} los archivos pequeños repetidos se sirven
+ *       desde {@link DecryptedFileCache}</li>
+ *   <li>{@code restore [--user <usuario> | --all] [--concurrency <n>] [--durability <modo>]}
+ *       - descifra en paralelo la carpeta pública, la privada de un usuario o
+ *       todas, incluidos los subdirectorios, sin borrar archivos ni claves; si
+ *       se interrumpe, al repetirlo continúa donde se quedó (ver {@link BulkRestore})</li>
+ *   <li>{@code store put|get|ls|rm ...} - copia archivos cifrados al
+ *       almacenamiento configurado en {@code cs.storage} (directorio local o
+ *       servicio S3), los descarga en ~/Documents/cs/encriptado, los lista o
+ *       los elimina (ver {@link StorageBackend})</li>
+ *   <li>{@code verify [--user <usuario>] [--concurrency <n>] [directorio]} - comprueba
+ *       la integridad de los archivos .enc sin descifrarlos a disco ni borrar
+ *       nada; termina con código 1 si alguno está corrupto o no tiene clave</li>
+ *   <li>{@code rotate [--batch <n>] [--all]} - rota el par de claves del
+ *       sistema reescribiendo solo las claves de archivo, sin volver a cifrar
+ *       los archivos; si se interrumpe, la siguiente ejecución continúa
+ *       donde se quedó (ver {@link KeyRotation})</li>
+ *   <li>{@code config} - muestra el archivo de configuración y, para cada
+ *       directorio de datos, su ruta y el espacio libre de su volumen
+ *       (ver {@link AppConfig})</li>
+ *   <li>{@code train [--gui]} - ejecuta un ciclo completo de cifrado y descifrado
+ *       sobre un archivo temporal; se usa para generar el archivo CDS de clases
+ *       (ver scripts/build-cds.sh) y debe ejecutarse con un user.home temporal</li>
+ * </ul>
+ * 
+ * <p>Opciones de cifrado y descifrado: {@code --keep} conserva el archivo de
+ * origen y su clave, {@code --sparse} no cifra los bloques que solo
+ * contienen ceros (imágenes de disco, bases de datos preasignadas; ver
+ * {@link SparseContainer}), y {@code --durability NONE|PER_FILE|PER_BATCH}
+ * elige cuándo se fuerzan a disco los resultados.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionUtil
+ * @see SystemKeys
+ */
+public class EncryptionCli {
+
+    /**
+     * Punto de entrada de la línea de comandos.
+     * 
+     * @param args comando seguido de sus argumentos
+     */
+    public static void main(String[] args) {
+        StartupTimer.start();
+        if (args.length == 0) {
+            printUsage();
+            System.exit(2);
+        }
+        try {
+            AppConfig.validate();
+            switch (args[0]) {
+                case "config":
+                    printConfiguration();
+                    break;
+                case "encrypt":
+                    encrypt(args);
+                    break;
+                case "decrypt":
+                    decrypt(args);
+                    break;
+                case "update":
+                    update(args);
+                    break;
+                case "archive":
+                    archive(args);
+                    break;
+                case "extract":
+                    extract(args);
+                    break;
+                case "list":
+                    list(args);
+                    break;
+                case "cat":
+                    cat(args);
+                    break;
+                case "restore":
+                    restore(args);
+                    break;
+                case "store":
+                    store(args);
+                    break;
+                case "verify":
+                    verify(args);
+                    break;
+                case "train":
+                    train(args);
+                    break;
+                case "rotate":
+                    rotate(args);
+                    break;
+                default:
+                    printUsage();
+                    System.exit(2);
+            }
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Cifra públicamente los archivos indicados.
+     * 
+     * @param args comando seguido de las rutas de los archivos
+     * @throws Exception si ocurre un error durante el cifrado
+     */
+    private static void encrypt(String[] args) throws Exception {
+        List<File> inputFiles = new ArrayList<>();
+        FileOperationOptions options = parseOptions(args, inputFiles);
+        KeyPair systemKeys = SystemKeys.loadOrGenerate();
+        File publicDirectory = AppConfig.directory(AppConfig.Root.PUBLIC);
+        List<File> encrypted = FileEncryptionUtil.encryptFilesPublic(inputFiles, publicDirectory, systemKeys.getPublic(), options);
+        if (!encrypted.isEmpty()) {
+            StartupTimer.mark("Primer cifrado completado");
+        }
+        for (File inputFile : encrypted) {
+            System.out.println("Cifrado: " + new File(publicDirectory, inputFile.getName() + ".enc").getAbsolutePath());
+        }
+        printSyncStatistics(options);
+        if (encrypted.size() < inputFiles.size()) {
+            System.out.println("Cifrados: " + encrypted.size() + " de " + inputFiles.size());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Descifra los archivos cifrados públicamente indicados.
+     * 
+     * @param args comando seguido de las rutas de los archivos .enc
+     * @throws Exception si ocurre un error durante el descifrado
+     */
+    private static void decrypt(String[] args) throws Exception {
+        List<File> inputFiles = new ArrayList<>();
+        FileOperationOptions options = parseOptions(args, inputFiles);
+        KeyPair systemKeys = SystemKeys.loadOrGenerate();
+        int decrypted = FileEncryptionUtil.decryptFiles(inputFiles, systemKeys.getPrivate(), options);
+        System.out.println("Descifrados: " + decrypted + " de " + inputFiles.size());
+        printSyncStatistics(options);
+        if (decrypted < inputFiles.size()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Agrupa y cifra públicamente los directorios indicados, uno por archivo .encar.
+     * 
+     * @param args comando seguido de opciones y directorios
+     * @throws Exception si ocurre un error durante el cifrado
+     */
+    private static void archive(String[] args) throws Exception {
+        List<File> directories = new ArrayList<>();
+        FileOperationOptions options = parseOptions(args, directories);
+        KeyPair systemKeys = SystemKeys.loadOrGenerate();
+        File publicDirectory = AppConfig.directory(AppConfig.Root.PUBLIC);
+        for (File directory : directories) {
+            File outputFile = new File(publicDirectory, directory.getAbsoluteFile().getName() + EncryptedArchive.EXTENSION);
+            long start = System.nanoTime();
+            List<EncryptedArchive.Entry> entries = FileEncryptionUtil.encryptDirectory(directory, outputFile,
+                systemKeys.getPublic(), options);
+            System.out.println("Agrupados " + entries.size() + " archivos en " + outputFile.getAbsolutePath()
+                + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        }
+        printSyncStatistics(options);
+    }
+
+    /**
+     * Actualiza o crea el archivo incremental de cada archivo indicado.
+     * 
+     * @param args comando seguido de opciones y rutas de los archivos originales
+     * @throws Exception si ocurre un error durante el cifrado
+     */
+    private static void update(String[] args) throws Exception {
+        List<File> inputFiles = new ArrayList<>();
+        FileOperationOptions options = parseOptions(args, inputFiles).withKeepSource(true);
+        KeyPair systemKeys = SystemKeys.loadOrGenerate();
+        File publicDirectory = AppConfig.directory(AppConfig.Root.PUBLIC);
+        for (File inputFile : inputFiles) {
+            File outputFile = new File(publicDirectory, inputFile.getName() + ".enc");
+            long start = System.nanoTime();
+            IncrementalContainer.Result result;
+            if (outputFile.exists() && IncrementalContainer.isIncremental(outputFile)) {
+                result = FileEncryptionUtil.updateFile(inputFile, outputFile, systemKeys.getPrivate(), options);
+            } else {
+                result = FileEncryptionUtil.encryptFileIncremental(inputFile, outputFile, systemKeys.getPublic(), options);
+            }
+            System.out.println(outputFile.getAbsolutePath() + ": " + result
+                + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        }
+        printSyncStatistics(options);
+    }
+
+    /**
+     * Extrae un archivo agrupado completo o solo los miembros indicados.
+     * 
+     * @param args comando seguido de opciones, el archivo .encar y, opcionalmente, los miembros
+     * @throws Exception si ocurre un error durante la extracción
+     */
+    private static void extract(String[] args) throws Exception {
+        List<File> arguments = new ArrayList<>();
+        FileOperationOptions options = parseOptions(args, arguments);
+        if (arguments.isEmpty()) {
+            printUsage();
+            System.exit(2);
+        }
+        File archive = arguments.get(0);
+        List<String> names = null;
+        if (arguments.size() > 1) {
+            names = new ArrayList<>();
+            for (File member : arguments.subList(1, arguments.size())) {
+                names.add(member.getPath().replace(File.separatorChar, '/'));
+            }
+        }
+        String name = archive.getName().endsWith(EncryptedArchive.EXTENSION)
+            ? archive.getName().substring(0, archive.getName().length() - EncryptedArchive.EXTENSION.length())
+            : archive.getName();
+        File directory = new File(AppConfig.directory(AppConfig.Root.DECRYPTED), name);
+        KeyPair systemKeys = SystemKeys.loadOrGenerate();
+        long start = System.nanoTime();
+        List<EncryptedArchive.Entry> extracted = FileEncryptionUtil.extractArchive(archive, directory, names,
+            systemKeys.getPrivate(), options);
+        System.out.println("Extraidos " + extracted.size() + " archivos en " + directory.getAbsolutePath()
+            + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        printSyncStatistics(options);
+    }
+
+    /**
+     * Muestra los miembros de los archivos agrupados indicados.
+     * 
+     * @param args comando seguido de las rutas de los archivos .encar
+     * @throws Exception si no se encuentra la clave o el índice no es auténtico
+     */
+    private static void list(String[] args) throws Exception {
+        KeyPair systemKeys = SystemKeys.loadOrGenerate();
+        for (int i = 1; i < args.length; i++) {
+            List<EncryptedArchive.Entry> entries = FileEncryptionUtil.listArchive(new File(args[i]), systemKeys.getPrivate());
+            System.out.println(args[i] + ": " + entries.size() + " archivos");
+            for (EncryptedArchive.Entry entry : entries) {
+                System.out.println(entry);
+            }
+        }
+    }
+
+    /**
+     * Escribe el contenido descifrado de archivos públicos en la salida estándar.
+     * 
+     * El mensaje de la carga de claves y las estadísticas de la caché se
+     * escriben en la salida de errores para no mezclarse con el contenido.
+     * 
+     * @param args comando seguido de las rutas de los archivos cifrados
+     * @throws Exception si falta alguna clave o algún archivo no es auténtico
+     */
+    private static void cat(String[] args) throws Exception {
+        KeyPair systemKeys = SystemKeys.loadOrGenerate(System.err);
+        for (int i = 1; i < args.length; i++) {
+            System.out.write(FileEncryptionUtil.readFile(new File(args[i]), systemKeys.getPrivate()));
+        }
+        System.out.flush();
+        if (DecryptedFileCache.getInstance().isEnabled()) {
+            System.err.println(DecryptedFileCache.getInstance());
+        }
+    }
+
+    /**
+     * Separa las opciones de conservación y durabilidad de la lista de archivos.
+     * 
+     * Opciones reconocidas: {@code --keep} (conservar origen y clave),
+     * {@code --sparse} (omitir al cifrar las zonas vacías) y
+     * {@code --durability NONE|PER_FILE|PER_BATCH}.
+     * 
+     * @param args comando seguido de opciones y rutas
+     * @param files lista donde se añaden las rutas de los archivos
+     * @return opciones de la operación
+     */
+    private static FileOperationOptions parseOptions(String[] args, List<File> files) {
+        FileOperationOptions options = FileOperationOptions.defaults();
+        for (int i = 1; i < args.length; i++) {
+            if ("--keep".equals(args[i])) {
+                options = options.withKeepSource(true).withKeepKey(true);
+            } else if ("--sparse".equals(args[i])) {
+                options = options.withSparse(true);
+            } else if ("--durability".equals(args[i]) && i + 1 < args.length) {
+                options = options.withDurability(FileOperationOptions.Durability.valueOf(args[++i].toUpperCase()));
+            } else {
+                files.add(new File(args[i]));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Muestra el número de fsync realizados y el tiempo empleado en ellos.
+     * 
+     * @param options opciones usadas en la operación
+     */
+    private static void printSyncStatistics(FileOperationOptions options) {
+        System.out.println("Durabilidad " + options.getDurability() + ": " + AtomicFileWriter.getSyncCount()
+            + " fsync en " + AtomicFileWriter.getSyncMillis() + " ms");
+        printBufferStatistics();
+        for (AppConfig.RootStats stats : AppConfig.stats()) {
+            if (stats.bytesRead > 0 || stats.bytesWritten > 0) {
+                System.out.println(stats);
+            }
+        }
+    }
+
+    /**
+     * Muestra el archivo de configuración y el estado de cada directorio de datos.
+     */
+    private static void printConfiguration() {
+        System.out.println("Configuracion: " + (AppConfig.getConfigFile() != null ? AppConfig.getConfigFile() : "(ninguna, valores por defecto)"));
+        for (AppConfig.RootStats stats : AppConfig.stats()) {
+            System.out.println(stats);
+        }
+    }
+
+    /**
+     * Muestra la reutilización de búferes del pool compartido.
+     */
+    private static void printBufferStatistics() {
+        System.out.println("Buffers: " + BufferPool.getHits() + " reutilizados, " + BufferPool.getMisses()
+            + " nuevos, pico " + BufferPool.getPeakInUseBytes() / 1024 + " KiB en uso");
+    }
+
+    /**
+     * Restaura la carpeta pública, la carpeta privada de un usuario o todas.
+     * 
+     * @param args comando seguido de sus opciones
+     * @throws Exception si ocurre un error al recorrer las carpetas o al acceder a las claves
+     * @see BulkRestore
+     */
+    private static void restore(String[] args) throws Exception {
+        String username = null;
+        boolean all = false;
+        int concurrency = BulkRestore.defaultConcurrency();
+        FileOperationOptions options = FileOperationOptions.defaults();
+        for (int i = 1; i < args.length; i++) {
+            if ("--user".equals(args[i]) && i + 1 < args.length) {
+                username = args[++i];
+            } else if ("--all".equals(args[i])) {
+                all = true;
+            } else if ("--concurrency".equals(args[i]) && i + 1 < args.length) {
+                concurrency = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--durability".equals(args[i]) && i + 1 < args.length) {
+                options = options.withDurability(FileOperationOptions.Durability.valueOf(args[++i].toUpperCase()));
+            } else {
+                printUsage();
+                System.exit(2);
+            }
+        }
+
+        List<BulkRestore.Report> reports = new ArrayList<>();
+        if (all) {
+            reports.addAll(BulkRestore.restoreAll(SystemKeys.loadOrGenerate().getPrivate(), concurrency, options.isSync()));
+        } else if (username == null) {
+            reports.add(BulkRestore.restorePublic(AppConfig.directory(AppConfig.Root.PUBLIC), AppConfig.directory(AppConfig.Root.DECRYPTED),
+                SystemKeys.loadOrGenerate().getPrivate(), concurrency, options.isSync()));
+        } else {
+            String privateKeyBase64 = LocalStorage.getUserPrivateKey(username);
+            if (privateKeyBase64 == null) {
+                throw new IllegalArgumentException("El usuario " + username + " no tiene clave privada");
+            }
+            PrivateKey privateKey = KeyWrapping.base64ToPrivateKey(LocalStorage.getUserKeyAlgorithm(username), privateKeyBase64);
+            reports.add(BulkRestore.restorePrivate(username, AppConfig.userDirectory(AppConfig.Root.PRIVATE, username),
+                AppConfig.userDirectory(AppConfig.Root.DECRYPTED_PRIVATE, username), privateKey, concurrency, options.isSync()));
+        }
+
+        boolean complete = true;
+        for (BulkRestore.Report report : reports) {
+            report.print(System.out);
+            complete &= report.isComplete();
+        }
+        printSyncStatistics(options);
+        if (!complete) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Copia archivos cifrados al almacenamiento configurado o desde él.
+     * 
+     * Los archivos se guardan con su nombre como clave; al descargarlos se
+     * escriben en la carpeta pública con el último segmento de la clave como
+     * nombre.
+     * 
+     * @param args comando seguido de la operación y sus argumentos
+     * @throws Exception si ocurre un error de lectura, escritura o comunicación
+     * @see StorageBackend#fromConfiguration()
+     */
+    private static void store(String[] args) throws Exception {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(2);
+        }
+        StorageBackend storage = StorageBackend.fromConfiguration();
+        File publicDirectory = AppConfig.directory(AppConfig.Root.PUBLIC);
+        switch (args[1]) {
+            case "put":
+                for (int i = 2; i < args.length; i++) {
+                    File file = new File(args[i]);
+                    String key = file.getName();
+                    long start = System.nanoTime();
+                    storage.put(key, file.toPath());
+                    System.out.println("Guardado " + key + " en " + storage + " (" + file.length() + " bytes, "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms)");
+                }
+                break;
+            case "get":
+                for (int i = 2; i < args.length; i++) {
+                    File file = new File(publicDirectory, args[i].substring(args[i].lastIndexOf('/') + 1));
+                    long start = System.nanoTime();
+                    storage.get(args[i], file.toPath());
+                    System.out.println("Descargado " + file.getAbsolutePath() + " (" + file.length() + " bytes, "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms)");
+                }
+                break;
+            case "ls":
+                for (String key : storage.list(args.length > 2 ? args[2] : "")) {
+                    System.out.println(key);
+                }
+                break;
+            case "rm":
+                for (int i = 2; i < args.length; i++) {
+                    storage.delete(args[i]);
+                    System.out.println("Eliminado " + args[i]);
+                }
+                break;
+            default:
+                printUsage();
+                System.exit(2);
+        }
+    }
+
+    /**
+     * Verifica los archivos cifrados de la carpeta pública o de la carpeta
+     * privada de un usuario.
+     * 
+     * @param args comando seguido de sus opciones y, opcionalmente, el directorio
+     * @throws Exception si ocurre un error al acceder a las claves
+     * @see FileVerifier
+     */
+    private static void verify(String[] args) throws Exception {
+        String username = null;
+        String directory = null;
+        int concurrency = FileVerifier.defaultConcurrency();
+        for (int i = 1; i < args.length; i++) {
+            if ("--user".equals(args[i]) && i + 1 < args.length) {
+                username = args[++i];
+            } else if ("--concurrency".equals(args[i]) && i + 1 < args.length) {
+                concurrency = Math.max(1, Integer.parseInt(args[++i]));
+            } else {
+                directory = args[i];
+            }
+        }
+
+        FileVerifier.Report report;
+        if (username == null) {
+            File publicDirectory = directory != null ? new File(directory) : AppConfig.directory(AppConfig.Root.PUBLIC);
+            report = FileVerifier.verifyPublic(publicDirectory, SystemKeys.loadOrGenerate().getPrivate(), concurrency);
+        } else {
+            String privateKeyBase64 = LocalStorage.getUserPrivateKey(username);
+            if (privateKeyBase64 == null) {
+                throw new IllegalArgumentException("El usuario " + username + " no tiene clave privada");
+            }
+            PrivateKey privateKey = KeyWrapping.base64ToPrivateKey(LocalStorage.getUserKeyAlgorithm(username), privateKeyBase64);
+            File userDirectory = directory != null ? new File(directory) : AppConfig.userDirectory(AppConfig.Root.PRIVATE, username);
+            report = FileVerifier.verifyPrivate(userDirectory, username, privateKey, concurrency);
+        }
+        report.print(System.out);
+        printBufferStatistics();
+        if (!report.isClean()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Rota el par de claves del sistema o continúa una rotación interrumpida.
+     * 
+     * @param args comando seguido de sus opciones
+     * @throws Exception si ocurre un error al reescribir las claves
+     * @see KeyRotation
+     */
+    private static void rotate(String[] args) throws Exception {
+        int batchSize = KeyRotation.DEFAULT_BATCH_SIZE;
+        boolean rewrapAll = false;
+        for (int i = 1; i < args.length; i++) {
+            if ("--batch".equals(args[i]) && i + 1 < args.length) {
+                batchSize = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--all".equals(args[i])) {
+                rewrapAll = true;
+            } else {
+                printUsage();
+                System.exit(2);
+            }
+        }
+        KeyRotation.run(batchSize, rewrapAll, System.out);
+    }
+
+    /**
+     * Ejercita las rutas de cifrado y descifrado para cargar sus clases.
+     * 
+     * Con {@code --gui} y un entorno gráfico disponible también construye
+     * los componentes de Swing de la aplicación, para que queden incluidos
+     * en el archivo CDS generado durante el entrenamiento.
+     * 
+     * @param args comando y opciones
+     * @throws Exception si ocurre un error en el ciclo de prueba
+     */
+    private static void train(String[] args) throws Exception {
+        File workDir = Files.createTempDirectory("cs-train").toFile();
+        File inputFile = new File(workDir, "entrenamiento.txt");
+        Files.write(inputFile.toPath(), "Archivo de entrenamiento CDS".getBytes(StandardCharsets.UTF_8));
+
+        encrypt(new String[] {"encrypt", inputFile.getPath()});
+        File encrypted = new File(AppConfig.directory(AppConfig.Root.PUBLIC), inputFile.getName() + ".enc");
+        decrypt(new String[] {"decrypt", encrypted.getPath()});
+
+        boolean gui = args.length > 1 && "--gui".equals(args[1]);
+        if (gui && !java.awt.GraphicsEnvironment.isHeadless()) {
+            GuiWarmup.run();
+        }
+        System.out.println("Entrenamiento completado");
+    }
+
+    /**
+     * Muestra la ayuda de uso.
+     */
+    private static void printUsage() {
+        System.out.println("Uso: java EncryptionCli encrypt [--keep] [--sparse] [--durability <modo>] <archivo>...");
+        System.out.println("     java EncryptionCli decrypt [--keep] [--durability <modo>] <archivo.enc>...");
+        System.out.println("     java EncryptionCli update [--durability <modo>] <archivo>...");
+        System.out.println("     java EncryptionCli archive [--keep] [--durability <modo>] <directorio>...");
+        System.out.println("     java EncryptionCli extract [--keep] [--durability <modo>] <archivo.encar> [miembro...]");
+        System.out.println("     java EncryptionCli list <archivo.encar>...");
+        System.out.println("     java EncryptionCli cat <archivo.enc>...");
+        System.out.println("     java EncryptionCli restore [--user <usuario> | --all] [--concurrency <n>] [--durability <modo>]");
+        System.out.println("     java EncryptionCli store put <archivo.enc>... | get <clave>... | ls [prefijo] | rm <clave>...");
+        System.out.println("     java EncryptionCli verify [--user <usuario>] [--concurrency <n>] [directorio]");
+        System.out.println("     java EncryptionCli rotate [--batch <n>] [--all]");
+        System.out.println("     java EncryptionCli config");
+        System.out.println("     java EncryptionCli train [--gui]");
+    }
+
+    /**
+     * Construcción de los componentes Swing durante el entrenamiento.
+     * 
+     * Está en una clase aparte para que los comandos normales no carguen
+     * ninguna clase de Swing.
+     */
+    private static class GuiWarmup {
+        static void run() throws Exception {
+            javax.swing.SwingUtilities.invokeAndWait(() -> {
+                try {
+                    javax.swing.UIManager.setLookAndFeel(javax.swing.UIManager.getSystemLookAndFeelClassName());
+                } catch (Exception e) {
+                    // Usar look and feel por defecto
+                }
+                LoginDialog dialog = new LoginDialog(null);
+                dialog.dispose();
+                new javax.swing.JFileChooser().updateUI();
+            });
+        }
+    }
+}
@@ -3,6 +3,8 @@ import java.awt.*;
 import java.io.File;
 import java.security.Key;
 import java.security.KeyPair;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Aplicación principal del sistema de cifrado híbrido RSA+AES con interfaz gráfica.
@@ -16,7 +18,7 @@ import java.security.KeyPair;
  * - Interfaz gráfica moderna con diseño oscuro
  * - Cifrado/descifrado público (accesible por todos los usuarios)
  * - Cifrado/descifrado privado (específico por usuario)
- * - Gestión de usuarios con claves RSA individuales
+ * - Gestión de usuarios con claves RSA o X25519 individuales
  * - Sistema de autenticación mediante LoginDialog
  * - Visualización de claves almacenadas
  * 
@@ -29,37 +31,55 @@ import java.security.KeyPair;
  * @see LoginDialog
  */
 public class FileEncryptionApp {
-    /** Par de claves RSA del sistema para cifrado público */
-    private KeyPair rsaKeyPair;
+    /** Par de claves RSA del sistema para cifrado público, disponible cuando termina su carga */
+    private final CompletableFuture<KeyPair> rsaKeyPair;
 
     /**
      * Constructor de la aplicación de cifrado.
      * 
-     * Inicializa el par de claves RSA del sistema cargándolas desde el almacenamiento
-     * local si existen, o generando nuevas claves si es la primera ejecución.
+     * Lanza en segundo plano la carga del par de claves RSA del sistema desde el
+     * almacenamiento local, o su generación si es la primera ejecución, y vuelve
+     * inmediatamente para que la interfaz pueda mostrarse sin esperar. La primera
+     * operación que necesite las claves espera a que la carga termine.
      * Las claves del sistema se utilizan para el cifrado público.
      * 
-     * @see LocalStorage#systemKeysExist()
-     * @see RSAUtil#generateKeyPair()
-     * @see LocalStorage#saveSystemRSAKeys(String, String)
+     * @see #systemKeyPair()
+     * @see SystemKeys#loadOrGenerate()
      */
     public FileEncryptionApp() {
+        rsaKeyPair = CompletableFuture.supplyAsync(FileEncryptionApp::loadSystemKeyPair);
+    }
+
+    /**
+     * Carga el par de claves del sistema o lo genera si no existe.
+     * 
+     * @return par de claves RSA del sistema
+     * @throws CompletionException si hay error al leer, generar o guardar las claves
+     * @see SystemKeys#loadOrGenerate()
+     */
+    private static KeyPair loadSystemKeyPair() {
         try {
-            if (LocalStorage.systemKeysExist()) {
-                String publicKeyBase64 = LocalStorage.getSystemPublicKey();
-                String privateKeyBase64 = LocalStorage.getSystemPrivateKey();
-                rsaKeyPair = RSAUtil.base64ToKeyPair(publicKeyBase64, privateKeyBase64);
-                System.out.println("Claves del sistema cargadas desde almacenamiento local");
-            } else {
-                rsaKeyPair = RSAUtil.generateKeyPair();
-                String publicKeyBase64 = RSAUtil.publicKeyToBase64(rsaKeyPair.getPublic());
-                String privateKeyBase64 = RSAUtil.privateKeyToBase64(rsaKeyPair.getPrivate());
-                LocalStorage.saveSystemRSAKeys(publicKeyBase64, privateKeyBase64);
-                System.out.println("Nuevas claves del sistema generadas y guardadas");
-            }
+            KeyPair keyPair = SystemKeys.loadOrGenerate();
+            StartupTimer.mark("Claves del sistema listas");
+            return keyPair;
         } catch (Exception ex) {
             System.err.println("Error al manejar claves del sistema: " + ex.getMessage());
             ex.printStackTrace();
+            throw new CompletionException(ex);
+        }
+    }
+
+    /**
+     * Obtiene el par de claves del sistema, esperando a que termine su carga.
+     * 
+     * @return par de claves RSA del sistema
+     * @throws Exception si la carga o generación de las claves falló
+     */
+    private KeyPair systemKeyPair() throws Exception {
+        try {
+            return rsaKeyPair.join();
+        } catch (CompletionException e) {
+            throw new Exception("Claves del sistema no disponibles: " + e.getCause().getMessage(), e.getCause());
         }
     }
 
@@ -85,6 +105,12 @@ public class FileEncryptionApp {
             
             JFrame frame = new JFrame("Aplicacion de Cifrado de Archivos");
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.addWindowListener(new java.awt.event.WindowAdapter() {
+                public void windowClosing(java.awt.event.WindowEvent evt) {
+                    // Cerrar sesion: descartar la clave privada desbloqueada
+                    KeySessionAgent.getInstance().lock();
+                }
+            });
             frame.setSize(600, 500);
             frame.setLocationRelativeTo(null);
             frame.setResizable(false);
@@ -112,6 +138,7 @@ public class FileEncryptionApp {
             setupActionListeners(frame, statusLabel, encryptButton, decryptButton, createUserButton, viewKeysButton);
 
             frame.setVisible(true);
+            StartupTimer.mark("Ventana principal visible");
         });
     }
 
@@ -341,12 +368,13 @@ public class FileEncryptionApp {
 
         // ActionListener para crear usuario
         createUserButton.addActionListener(e -> {
-            JPanel panel = new JPanel(new GridLayout(3, 2, 10, 10));
+            JPanel panel = new JPanel(new GridLayout(4, 2, 10, 10));
             panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
             
             JTextField usernameField = new JTextField();
             JPasswordField passwordField = new JPasswordField();
             JTextField securityAnswerField = new JTextField("azul");
+            JComboBox<String> keyAlgorithmBox = new JComboBox<>(new String[] {KeyWrapping.RSA, KeyWrapping.X25519});
             
             panel.add(new JLabel("Nombre de usuario:"));
             panel.add(usernameField);
@@ -354,6 +382,8 @@ public class FileEncryptionApp {
             panel.add(passwordField);
             panel.add(new JLabel("Respuesta de seguridad:"));
             panel.add(securityAnswerField);
+            panel.add(new JLabel("Tipo de clave:"));
+            panel.add(keyAlgorithmBox);
 
             int result = JOptionPane.showConfirmDialog(frame, panel, 
                 "Crear Nuevo Usuario", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
@@ -373,13 +403,15 @@ public class FileEncryptionApp {
                         
                         // Registrar usuario usando LocalStorage directamente
                         try {
-                            // Generar claves RSA para el usuario
-                            KeyPair userKeyPair = RSAUtil.generateKeyPair();
-                            String publicKeyBase64 = RSAUtil.publicKeyToBase64(userKeyPair.getPublic());
-                            String privateKeyBase64 = RSAUtil.privateKeyToBase64(userKeyPair.getPrivate());
-                            String passwordHash = SimpleHash.hashPassword(password);
+                            // Generar claves del tipo elegido (RSA o X25519) para el usuario
+                            String keyAlgorithm = (String) keyAlgorithmBox.getSelectedItem();
+                            KeyPair userKeyPair = KeyWrapping.generateKeyPair(keyAlgorithm);
+                            String publicKeyBase64 = java.util.Base64.getEncoder().encodeToString(userKeyPair.getPublic().getEncoded());
+                            String privateKeyBase64 = java.util.Base64.getEncoder().encodeToString(userKeyPair.getPrivate().getEncoded());
+                            String passwordHash = PasswordHashing.hashPassword(password);
                             
-                            LocalStorage.saveUser(username, passwordHash, publicKeyBase64, privateKeyBase64);
+                            LocalStorage.saveUser(username, passwordHash, publicKeyBase64, privateKeyBase64, keyAlgorithm);
+                            AuthenticationService.getInstance().invalidate();
                         } catch (Exception ex) {
                             ex.printStackTrace();
                             statusLabel.setText("Error al crear usuario: " + ex.getMessage());
@@ -447,9 +479,7 @@ public class FileEncryptionApp {
      * 
      * @param parent Ventana padre para los diálogos
      * @param statusLabel Etiqueta de estado para mostrar el resultado de la operación
-     * @see FileEncryptionUtil#generateKey()
-     * @see FileEncryptionUtil#encryptFile(File, File, Key)
-     * @see FileEncryptionUtil#saveKey(String, Key, java.security.PublicKey)
+     * @see FileEncryptionUtil#encryptFilePublic(File, File, java.security.PublicKey, FileOperationOptions)
      */
     private void encryptFilePublic(JFrame parent, JLabel statusLabel) {
         JFileChooser fileChooser = new JFileChooser();
@@ -459,16 +489,17 @@ public class FileEncryptionApp {
         if (fileChooser.showOpenDialog(parent) == JFileChooser.APPROVE_OPTION) {
             File inputFile = fileChooser.getSelectedFile();
             
-            File publicDirectory = new File(System.getProperty("user.home") + "/Documents/cs/encriptado");
+            File publicDirectory = AppConfig.directory(AppConfig.Root.PUBLIC);
             if (!publicDirectory.exists()) {
                 publicDirectory.mkdirs();
             }
             File outputFile = new File(publicDirectory, inputFile.getName() + ".enc");
 
             try {
-                Key key = FileEncryptionUtil.generateKey();
-                FileEncryptionUtil.encryptFile(inputFile, outputFile, key);
-                FileEncryptionUtil.saveKey(inputFile.getName(), key, rsaKeyPair.getPublic());
+                // La clave se guarda antes de cifrar: el original solo se elimina
+                // cuando el archivo cifrado y su clave ya estan en disco
+                FileEncryptionUtil.encryptFilePublic(inputFile, outputFile, systemKeyPair().getPublic(),
+                    FileOperationOptions.defaults());
 
                 statusLabel.setText("Archivo '" + inputFile.getName() + "' cifrado publicamente con exito");
                 JOptionPane.showMessageDialog(parent,
@@ -499,7 +530,7 @@ public class FileEncryptionApp {
      * @param parent Ventana padre para los diálogos
      * @param statusLabel Etiqueta de estado para mostrar el resultado de la operación
      * @see LocalStorage#userExists(String)
-     * @see FileEncryptionUtil#savePrivateKey(String, String, Key, java.security.PublicKey)
+     * @see FileEncryptionUtil#encryptFileForUser(File, File, String, java.security.PublicKey, FileOperationOptions)
      */
     private void encryptFilePrivate(JFrame parent, JLabel statusLabel) {
         String username = JOptionPane.showInputDialog(parent, 
@@ -526,19 +557,19 @@ public class FileEncryptionApp {
                     File inputFile = fileChooser.getSelectedFile();
                     
                     // Crear directorio privado del usuario
-                    File userDirectory = new File(System.getProperty("user.home") + "/Documents/cs/encriptado_privado/" + username.trim());
+                    File userDirectory = AppConfig.userDirectory(AppConfig.Root.PRIVATE, username.trim());
                     if (!userDirectory.exists()) {
                         userDirectory.mkdirs();
                     }
                     File outputFile = new File(userDirectory, inputFile.getName() + ".enc");
 
-                    Key key = FileEncryptionUtil.generateKey();
-                    FileEncryptionUtil.encryptFile(inputFile, outputFile, key);
-                    
-                    // Guardar clave usando el sistema de claves privadas
+                    // Guardar clave usando el sistema de claves privadas antes de cifrar,
+                    // para que el original no se elimine sin que su clave este en disco
                     String publicKeyBase64 = LocalStorage.getUserPublicKey(username.trim());
-                    java.security.PublicKey userPublicKey = RSAUtil.base64ToPublicKey(publicKeyBase64);
-                    FileEncryptionUtil.savePrivateKey(username.trim(), inputFile.getName(), key, userPublicKey);
+                    String keyAlgorithm = LocalStorage.getUserKeyAlgorithm(username.trim());
+                    java.security.PublicKey userPublicKey = KeyWrapping.base64ToPublicKey(keyAlgorithm, publicKeyBase64);
+                    FileEncryptionUtil.encryptFileForUser(inputFile, outputFile, username.trim(), userPublicKey,
+                        FileOperationOptions.defaults());
 
                     statusLabel.setText("Archivo '" + inputFile.getName() + "' cifrado privadamente para " + username);
                     JOptionPane.showMessageDialog(parent,
@@ -574,7 +605,7 @@ public class FileEncryptionApp {
      * @see FileEncryptionUtil#decryptFile(File, File, Key)
      */
     private void decryptFilePublic(JFrame parent, JLabel statusLabel) {
-        File publicDirectory = new File(System.getProperty("user.home") + "/Documents/cs/encriptado");
+        File publicDirectory = AppConfig.directory(AppConfig.Root.PUBLIC);
         if (!publicDirectory.exists()) {
             JOptionPane.showMessageDialog(parent,
                 "No se encontro la carpeta de archivos publicos.\n\n" +
@@ -586,6 +617,9 @@ public class FileEncryptionApp {
         JFileChooser fileChooser = new JFileChooser(publicDirectory);
         fileChooser.setDialogTitle("Seleccionar archivo cifrado publico (.enc)");
         fileChooser.setApproveButtonText("Descifrar");
+        fileChooser.setMultiSelectionEnabled(true);
+        JCheckBox keepBox = createKeepCheckBox();
+        fileChooser.setAccessory(keepBox);
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
             public boolean accept(File f) {
                 return f.isDirectory() || f.getName().toLowerCase().endsWith(".enc");
@@ -596,12 +630,18 @@ public class FileEncryptionApp {
         });
         
         if (fileChooser.showOpenDialog(parent) == JFileChooser.APPROVE_OPTION) {
+            File[] selectedFiles = fileChooser.getSelectedFiles();
+            FileOperationOptions options = decryptOptions(keepBox);
+            if (selectedFiles.length > 1) {
+                decryptFilesBulk(parent, statusLabel, java.util.Arrays.asList(selectedFiles), null, options);
+                return;
+            }
             File inputFile = fileChooser.getSelectedFile();
             File outputFile = new File(inputFile.getPath().replace(".enc", ""));
 
             try {
-                Key key = FileEncryptionUtil.getKey(inputFile.getName(), rsaKeyPair.getPrivate());
-                FileEncryptionUtil.decryptFile(inputFile, outputFile, key);
+                Key key = FileEncryptionUtil.getKey(inputFile, systemKeyPair().getPrivate());
+                FileEncryptionUtil.decryptFile(inputFile, outputFile, key, options);
 
                 statusLabel.setText("Archivo '" + outputFile.getName() + "' descifrado publicamente con exito");
                 JOptionPane.showMessageDialog(parent,
@@ -609,7 +649,8 @@ public class FileEncryptionApp {
                     "Archivo cifrado: " + inputFile.getName() + "\n" +
                     "Archivo descifrado: " + outputFile.getName() + "\n" +
                     "Ubicacion: " + outputFile.getParent() + "\n\n" +
-                    "El archivo original ha sido recuperado.",
+                    (options.isKeepSource() ? "El archivo cifrado y su clave se han conservado."
+                                            : "El archivo original ha sido recuperado."),
                     "Descifrado Publico Completado", JOptionPane.INFORMATION_MESSAGE);
             } catch (Exception ex) {
                 statusLabel.setText("Error al descifrar: " + ex.getMessage());
@@ -629,19 +670,24 @@ public class FileEncryptionApp {
      * Este método solicita el nombre del usuario, verifica que exista, navega
      * a su carpeta privada de archivos cifrados, permite seleccionar un archivo
      * y lo descifra usando las claves privadas del usuario. Solo archivos cifrados
-     * específicamente para ese usuario pueden ser descifrados.
+     * específicamente para ese usuario pueden ser descifrados. Si el usuario es el
+     * de la sesión actual, la clave AES se obtiene del agente de sesión sin volver
+     * a cargar la clave privada desde disco.
      * 
      * @param parent Ventana padre para los diálogos
      * @param statusLabel Etiqueta de estado para mostrar el resultado de la operación
      * @see LocalStorage#userExists(String)
      * @see FileEncryptionUtil#getPrivateKey(String, String, java.security.PrivateKey)
+     * @see KeySessionAgent
      */
     private void decryptFilePrivate(JFrame parent, JLabel statusLabel) {
-        String username = JOptionPane.showInputDialog(parent, 
+        KeySessionAgent agent = KeySessionAgent.getInstance();
+        String username = (String) JOptionPane.showInputDialog(parent, 
             "Descifrado Privado\n\n" +
             "Introduzca su nombre de usuario para acceder\n" +
             "a sus archivos cifrados privados:",
-            "Autenticacion de Usuario", JOptionPane.QUESTION_MESSAGE);
+            "Autenticacion de Usuario", JOptionPane.QUESTION_MESSAGE,
+            null, null, agent.getUsername());
             
         if (username != null && !username.trim().isEmpty()) {
             try {
@@ -654,7 +700,7 @@ public class FileEncryptionApp {
                 }
 
                 // Navegar directamente a la carpeta privada del usuario
-                File userDirectory = new File(System.getProperty("user.home") + "/Documents/cs/encriptado_privado/" + username.trim());
+                File userDirectory = AppConfig.userDirectory(AppConfig.Root.PRIVATE, username.trim());
                 if (!userDirectory.exists() || userDirectory.listFiles().length == 0) {
                     JOptionPane.showMessageDialog(parent,
                         "No se encontraron archivos cifrados para el usuario '" + username + "'.\n\n" +
@@ -666,6 +712,9 @@ public class FileEncryptionApp {
                 JFileChooser fileChooser = new JFileChooser(userDirectory);
                 fileChooser.setDialogTitle("Seleccionar archivo cifrado privado de " + username + " (.enc)");
                 fileChooser.setApproveButtonText("Descifrar");
+                fileChooser.setMultiSelectionEnabled(agent.isUnlocked(username.trim()));
+                JCheckBox keepBox = createKeepCheckBox();
+                fileChooser.setAccessory(keepBox);
                 fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
                     public boolean accept(File f) {
                         return f.isDirectory() || f.getName().toLowerCase().endsWith(".enc");
@@ -676,13 +725,26 @@ public class FileEncryptionApp {
                 });
                 
                 if (fileChooser.showOpenDialog(parent) == JFileChooser.APPROVE_OPTION) {
+                    File[] selectedFiles = fileChooser.getSelectedFiles();
+                    FileOperationOptions options = decryptOptions(keepBox);
+                    if (selectedFiles.length > 1) {
+                        decryptFilesBulk(parent, statusLabel, java.util.Arrays.asList(selectedFiles), username.trim(), options);
+                        return;
+                    }
                     File inputFile = fileChooser.getSelectedFile();
                     File outputFile = new File(inputFile.getPath().replace(".enc", ""));
 
-                    String privateKeyBase64 = LocalStorage.getUserPrivateKey(username.trim());
-                    java.security.PrivateKey privateKey = RSAUtil.base64ToPrivateKey(privateKeyBase64);
-                    Key key = FileEncryptionUtil.getPrivateKey(username.trim(), inputFile.getName(), privateKey);
-                    FileEncryptionUtil.decryptFile(inputFile, outputFile, key);
+                    Key key;
+                    if (agent.isUnlocked(username.trim())) {
+                        // La clave privada ya esta desbloqueada en la sesion actual
+                        key = FileEncryptionUtil.getPrivateKey(username.trim(), inputFile);
+                    } else {
+                        String privateKeyBase64 = LocalStorage.getUserPrivateKey(username.trim());
+                        String keyAlgorithm = LocalStorage.getUserKeyAlgorithm(username.trim());
+                        java.security.PrivateKey privateKey = KeyWrapping.base64ToPrivateKey(keyAlgorithm, privateKeyBase64);
+                        key = FileEncryptionUtil.getPrivateKey(username.trim(), inputFile, privateKey);
+                    }
+                    FileEncryptionUtil.decryptFile(inputFile, outputFile, key, options);
 
                     statusLabel.setText("Archivo '" + outputFile.getName() + "' descifrado privadamente para " + username);
                     JOptionPane.showMessageDialog(parent,
@@ -706,29 +768,118 @@ public class FileEncryptionApp {
         }
     }
 
+    /**
+     * Descifra varios archivos seleccionados a la vez.
+     * 
+     * Utiliza las rutas de descifrado por lotes, que recuperan todas las claves
+     * con una sola lectura del almacenamiento y las descifran con RSA en paralelo.
+     * Para archivos privados requiere que la sesión de claves del usuario esté abierta.
+     * 
+     * @param parent Ventana padre para los diálogos
+     * @param statusLabel Etiqueta de estado para mostrar el resultado de la operación
+     * @param inputFiles Archivos cifrados seleccionados
+     * @param username Usuario propietario para descifrado privado, o null para descifrado público
+     * @param options Conservación de los archivos cifrados y sus claves
+     * @see FileEncryptionUtil#decryptFiles(java.util.List, java.security.PrivateKey, FileOperationOptions)
+     * @see FileEncryptionUtil#decryptFilesPrivate(java.util.List, String, FileOperationOptions)
+     */
+    private void decryptFilesBulk(JFrame parent, JLabel statusLabel, java.util.List<File> inputFiles, String username,
+                                  FileOperationOptions options) {
+        try {
+            int decrypted = username == null
+                ? FileEncryptionUtil.decryptFiles(inputFiles, systemKeyPair().getPrivate(), options)
+                : FileEncryptionUtil.decryptFilesPrivate(inputFiles, username, options);
+
+            statusLabel.setText(decrypted + " de " + inputFiles.size() + " archivos descifrados");
+            JOptionPane.showMessageDialog(parent,
+                "Descifrado por lotes completado!\n\n" +
+                "Archivos descifrados: " + decrypted + " de " + inputFiles.size() + "\n" +
+                (decrypted < inputFiles.size() ? "Los archivos con errores se han conservado cifrados." : ""),
+                "Descifrado Completado", JOptionPane.INFORMATION_MESSAGE);
+        } catch (Exception ex) {
+            statusLabel.setText("Error al descifrar: " + ex.getMessage());
+            JOptionPane.showMessageDialog(parent,
+                "Error durante el descifrado por lotes:\n\n" + ex.getMessage(),
+                "Error de Descifrado", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Crea la casilla de los selectores de descifrado para conservar el archivo cifrado.
+     * 
+     * @return casilla desmarcada por defecto
+     */
+    private JCheckBox createKeepCheckBox() {
+        JCheckBox keepBox = new JCheckBox("<html>Conservar archivo<br>cifrado y clave</html>");
+        keepBox.setToolTipText("Descifra una copia sin eliminar el archivo .enc ni su clave");
+        return keepBox;
+    }
+
+    /**
+     * Obtiene las opciones de descifrado según la casilla de conservación.
+     * 
+     * @param keepBox casilla del selector de archivos
+     * @return opciones que conservan el origen y la clave si la casilla está marcada
+     */
+    private FileOperationOptions decryptOptions(JCheckBox keepBox) {
+        return keepBox.isSelected() ? FileOperationOptions.keepAll() : FileOperationOptions.defaults();
+    }
+
     /**
      * Método principal que inicia la aplicación de cifrado.
      * 
-     * Este método realiza la configuración inicial creando el usuario por defecto
-     * si no existe, muestra el diálogo de login para autenticación y, si el login
-     * es exitoso, inicia la aplicación principal.
+     * Este método lanza en segundo plano la creación del usuario por defecto
+     * si no existe y la carga de las claves del sistema, muestra el diálogo de
+     * login sin esperarlas (el login solo espera al usuario por defecto si se
+     * envía antes de que exista) y, si el login
+     * es exitoso, desbloquea la clave privada del usuario en el agente de sesión
+     * e inicia la aplicación principal.
+     * 
+     * <p>Los hitos del arranque se registran con {@link StartupTimer}; con
+     * {@code -Dcs.startup.benchmark=true} la aplicación termina en cuanto el
+     * diálogo de login es visible y las claves del sistema están listas.</p>
      * 
      * @param args Argumentos de línea de comandos (no utilizados)
      * @see DefaultSetup#createDefaultUser()
      * @see LoginDialog
+     * @see KeySessionAgent#unlock(String)
      */
     public static void main(String[] args) {
+        StartupTimer.start();
         try {
-            DefaultSetup.createDefaultUser();
-        } catch (Exception e) {
-            System.err.println("Error en configuracion inicial: " + e.getMessage());
+            AppConfig.validate();
+        } catch (IllegalStateException e) {
+            JOptionPane.showMessageDialog(null, e.getMessage(), "Error de configuracion", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
         }
-        
-        LoginDialog loginDlg = new LoginDialog(null);
+        // El usuario por defecto (par RSA y hash PBKDF2 en la primera ejecucion)
+        // y las claves del sistema se preparan en segundo plano mientras el usuario hace login
+        CompletableFuture<Void> defaultUser = CompletableFuture.runAsync(() -> {
+            DefaultSetup.createDefaultUser();
+            StartupTimer.mark("Usuario por defecto listo");
+        });
+        FileEncryptionApp app = new FileEncryptionApp();
+
+        LoginDialog loginDlg = new LoginDialog(null, defaultUser);
+        loginDlg.addWindowListener(new java.awt.event.WindowAdapter() {
+            public void windowOpened(java.awt.event.WindowEvent evt) {
+                StartupTimer.mark("Dialogo de login visible");
+                if (StartupTimer.isBenchmark()) {
+                    app.rsaKeyPair.handle((keyPair, error) -> keyPair).join();
+                    defaultUser.join();
+                    System.exit(0);
+                }
+            }
+        });
         loginDlg.setVisible(true);
 
         if (loginDlg.isSucceeded()) {
-            FileEncryptionApp app = new FileEncryptionApp();
+            try {
+                KeySessionAgent.getInstance().unlock(loginDlg.getUsername());
+            } catch (Exception e) {
+                System.err.println("No se pudo abrir la sesion de claves: " + e.getMessage());
+            }
             app.startApp();
         }
     }
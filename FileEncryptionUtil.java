@@ -1,7 +1,9 @@
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -9,7 +11,14 @@ import java.security.Key;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Utilidad para el cifrado y descifrado de archivos usando cifrado híbrido RSA+AES.
@@ -33,6 +42,22 @@ import java.util.Base64;
  */
 public class FileEncryptionUtil {
 
+    /**
+     * Prefijo de las entradas del almacén indexadas por identificador de
+     * archivo. Un nombre de archivo nunca contiene '/', por lo que no pueden
+     * confundirse con las entradas indexadas por nombre.
+     */
+    private static final String ID_PREFIX = "id/";
+
+    /** Prefijo de las entradas del almacén con la clave maestra de un lote */
+    private static final String BATCH_PREFIX = "batch/";
+
+    /** Contexto HKDF de las claves de archivo derivadas de la clave maestra de un lote */
+    private static final byte[] BATCH_KEY_INFO = "cs-batch-file-key".getBytes(StandardCharsets.UTF_8);
+
+    /** Tamaño máximo de los archivos que se cifran por lotes */
+    private static final long SMALL_FILE_BYTES = Long.getLong("cs.batch.maxFileBytes", 16 * 1024);
+
     /**
      * Genera una clave AES aleatoria para el cifrado simétrico de archivos.
      * 
@@ -51,30 +76,77 @@ public class FileEncryptionUtil {
     }
 
     /**
-     * Guarda una clave AES cifrada en el almacenamiento local usando RSA.
+     * Guarda una clave AES cifrada en el almacenamiento local.
      * 
-     * Este método cifra la clave AES con la clave pública RSA proporcionada,
-     * la codifica en Base64 y la almacena usando el sistema de almacenamiento local.
-     * La clave cifrada queda asociada con el nombre del archivo especificado.
+     * La clave AES se envuelve con la clave de cifrado de claves (KEK) activa
+     * mediante AES Key Wrap; la KEK a su vez está protegida con la clave
+     * pública RSA proporcionada. La clave envuelta queda asociada con el
+     * nombre del archivo especificado.
      * 
      * @param filename Nombre del archivo al que se asociará la clave
      * @param key Clave AES a cifrar y almacenar
-     * @param publicKey Clave pública RSA para cifrar la clave AES
+     * @param publicKey Clave pública RSA del sistema que protege las KEK
      * @throws Exception Si ocurre un error durante el cifrado o almacenamiento
-     * @see RSAUtil#encryptWithPublicKey(byte[], PublicKey)
+     * @see KeyEncryptionKeys#wrap(Key, PublicKey)
      * @see LocalStorage#saveKey(String, String)
      */
     public static void saveKey(String filename, Key key, PublicKey publicKey) throws Exception {
-        byte[] encryptedKey = RSAUtil.encryptWithPublicKey(key.getEncoded(), publicKey);
-        String encryptedKeyBase64 = Base64.getEncoder().encodeToString(encryptedKey);
-        LocalStorage.saveKey(filename, encryptedKeyBase64);
+        LocalStorage.saveKey(filename, KeyEncryptionKeys.getInstance().wrap(key, publicKey));
+    }
+
+    /**
+     * Genera el identificador de un archivo que se va a cifrar.
+     * 
+     * El identificador se guarda en la cabecera del archivo cifrado y sirve
+     * para indexar su clave, de modo que dos archivos con el mismo nombre en
+     * carpetas distintas no comparten entrada en el almacén.
+     * 
+     * @return identificador aleatorio en hexadecimal
+     * @see #saveFileKey(String, Key, PublicKey)
+     * @see #encryptFile(File, File, Key, String, FileOperationOptions)
+     */
+    public static String generateFileId() {
+        return ContainerHeader.newFileId();
+    }
+
+    /**
+     * Guarda la clave AES de un archivo indexada por su identificador.
+     * 
+     * @param fileId identificador del archivo (ver {@link #generateFileId()})
+     * @param key Clave AES a cifrar y almacenar
+     * @param publicKey Clave pública RSA del sistema que protege las KEK
+     * @throws Exception Si ocurre un error durante el cifrado o almacenamiento
+     * @see #getKey(File, PrivateKey)
+     */
+    public static void saveFileKey(String fileId, Key key, PublicKey publicKey) throws Exception {
+        LocalStorage.saveKey(ID_PREFIX + fileId, KeyEncryptionKeys.getInstance().wrap(key, publicKey));
+    }
+
+    /**
+     * Recupera la clave AES de un archivo cifrado público.
+     * 
+     * La clave se busca por el identificador guardado en la cabecera del
+     * archivo y, para los archivos cifrados por versiones anteriores, por su
+     * nombre sin la extensión ".enc".
+     * 
+     * @param inputFile Archivo cifrado
+     * @param privateKey Clave privada RSA del sistema
+     * @return Clave AES del archivo
+     * @throws Exception Si ocurre un error al leer o descifrar la clave
+     * @throws IllegalArgumentException Si no se encuentra ninguna clave para el archivo
+     */
+    public static Key getKey(File inputFile, PrivateKey privateKey) throws Exception {
+        ResolvedKeys resolved = resolveKeys(Collections.singletonList(inputFile), null,
+            systemUnwrapper(privateKey), storeUnwrapper(privateKey));
+        return requireKey(resolved, inputFile, null);
     }
 
     /**
      * Recupera y descifra una clave AES desde el almacenamiento local.
      * 
      * Busca la clave AES cifrada asociada al archivo especificado, la descifra
-     * usando la clave privada RSA y devuelve la clave AES reconstruida. Si el
+     * con su KEK (o directamente con la clave privada RSA si se guardó con una
+     * versión anterior) y devuelve la clave AES reconstruida. Si el
      * nombre del archivo termina en ".enc", se elimina esta extensión para
      * buscar la clave original.
      * 
@@ -84,7 +156,7 @@ public class FileEncryptionUtil {
      * @throws Exception Si no se encuentra la clave o ocurre un error durante el descifrado
      * @throws IllegalArgumentException Si no se encuentra ninguna clave para el archivo
      * @see LocalStorage#getKey(String)
-     * @see RSAUtil#decryptWithPrivateKey(byte[], PrivateKey)
+     * @see KeyEncryptionKeys#unwrap(String, PrivateKey)
      */
     public static Key getKey(String filename, PrivateKey privateKey) throws Exception {
         String keyFilename = filename.endsWith(".enc") ? filename.substring(0, filename.length() - 4) : filename;
@@ -94,9 +166,7 @@ public class FileEncryptionUtil {
             System.out.println("Buscando clave para: " + keyFilename);
             System.out.println("Encrypted Key (Base64): " + encryptedKeyBase64);
 
-            byte[] encryptedKeyBytes = Base64.getDecoder().decode(encryptedKeyBase64);
-            byte[] decryptedKeyBytes = RSAUtil.decryptWithPrivateKey(encryptedKeyBytes, privateKey);
-            return new SecretKeySpec(decryptedKeyBytes, "AES");
+            return KeyEncryptionKeys.getInstance().unwrap(encryptedKeyBase64, privateKey);
         } else {
             System.out.println("No se encontro clave para: " + keyFilename);
             throw new IllegalArgumentException("No se encontro ninguna clave para el archivo: " + filename);
@@ -122,33 +192,388 @@ public class FileEncryptionUtil {
     /**
      * Cifra un archivo usando AES y lo guarda en la ubicación especificada.
      * 
-     * Este método lee completamente el archivo de entrada, lo cifra usando la clave AES
-     * proporcionada, y escribe el resultado cifrado al archivo de salida. El archivo
-     * original se elimina después del cifrado exitoso. Si el directorio de salida no
-     * existe, se crea automáticamente.
+     * Este método cifra el archivo de entrada en flujo, por bloques autenticados
+     * con AES-GCM (formato contenedor), y escribe el resultado cifrado al archivo
+     * de salida. El archivo original se elimina después del cifrado exitoso. Si el
+     * directorio de salida no existe, se crea automáticamente.
      * 
      * @param inputFile Archivo original a cifrar
      * @param outputFile Archivo de destino para guardar el contenido cifrado
      * @param key Clave AES para el cifrado
      * @throws Exception Si ocurre un error durante el cifrado, lectura o escritura
-     * @see Cipher
-     * @see Files#readAllBytes(Path)
-     * @see Files#write(Path, byte[])
+     * @see EncryptedContainer#encrypt(File, java.nio.channels.FileChannel, Key)
      */
     public static void encryptFile(File inputFile, File outputFile, Key key) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES");
-        cipher.init(Cipher.ENCRYPT_MODE, key);
+        encryptFile(inputFile, outputFile, key, FileOperationOptions.defaults());
+    }
 
-        byte[] inputBytes = Files.readAllBytes(inputFile.toPath());
-        byte[] outputBytes = cipher.doFinal(inputBytes);
+    /**
+     * Cifra un archivo con las opciones indicadas.
+     * 
+     * El resultado se escribe en un temporal, se fuerza a disco según la
+     * durabilidad elegida y se renombra de forma atómica sobre el destino; el
+     * archivo original solo se elimina (si no se pide conservarlo) cuando el
+     * archivo cifrado ya está publicado.
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputFile Archivo de destino para guardar el contenido cifrado
+     * @param key Clave AES para el cifrado
+     * @param options Conservación del origen y durabilidad
+     * @throws Exception Si ocurre un error durante el cifrado, lectura o escritura
+     * @see AtomicFileWriter#writeChannel(Path, AtomicFileWriter.ChannelContent, boolean)
+     */
+    public static void encryptFile(File inputFile, File outputFile, Key key, FileOperationOptions options) throws Exception {
+        encryptFile(inputFile, outputFile, key, null, options);
+    }
+
+    /**
+     * Cifra un archivo guardando su identificador en la cabecera.
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputFile Archivo de destino para guardar el contenido cifrado
+     * @param key Clave AES para el cifrado
+     * @param fileId Identificador con el que se guardó la clave (null si se guardó por nombre)
+     * @param options Conservación del origen y durabilidad
+     * @throws Exception Si ocurre un error durante el cifrado, lectura o escritura
+     * @see #generateFileId()
+     */
+    public static void encryptFile(File inputFile, File outputFile, Key key, String fileId, FileOperationOptions options) throws Exception {
+        encryptToPath(inputFile, outputFile.toPath(), key, fileId, options.isSync());
+        if (!options.isKeepSource()) {
+            Files.delete(inputFile.toPath());
+        }
+    }
+
+    /**
+     * Cifra un archivo público con una clave nueva, guardándola según la
+     * ubicación configurada en las opciones.
+     * 
+     * Con {@link FileOperationOptions.KeyPlacement#STORE} la clave se guarda en
+     * el almacén antes de cifrar. Con las ubicaciones que incluyen la cabecera,
+     * la clave cifrada con la clave pública RSA del sistema se guarda también
+     * en la cabecera del archivo, de modo que el archivo se descifra con una
+     * sola lectura secuencial, sin consultar el almacén. Con
+     * {@link FileOperationOptions#isSparse()} los bloques que solo contienen
+     * ceros no se cifran ({@link SparseContainer}).
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputFile Archivo de destino para guardar el contenido cifrado
+     * @param systemPublicKey Clave pública RSA del sistema
+     * @param options Ubicación de la clave, formato, conservación del origen y durabilidad
+     * @throws Exception Si ocurre un error al guardar la clave o durante el cifrado
+     * @see ContainerHeader#FIELD_WRAPPED_KEYS
+     */
+    public static void encryptFilePublic(File inputFile, File outputFile, PublicKey systemPublicKey,
+            FileOperationOptions options) throws Exception {
+        Key key = generateKey();
+        encryptFileWithHeader(inputFile, outputFile, key, newPublicHeader(key, systemPublicKey, options), options);
+    }
+
+    /**
+     * Crea la cabecera de un archivo público nuevo y guarda su clave según la
+     * ubicación configurada en las opciones.
+     * 
+     * La clave queda guardada en el almacén (si corresponde) al volver, antes
+     * de cifrar, de modo que nunca se publica un archivo cifrado sin su clave.
+     * 
+     * @param key Clave AES del archivo
+     * @param systemPublicKey Clave pública RSA del sistema
+     * @param options Ubicación de la clave y formato
+     * @return cabecera con el identificador del archivo y, si corresponde, la clave envuelta
+     * @throws Exception Si ocurre un error al guardar o cifrar la clave
+     * @see #encryptFileWithHeader(File, File, Key, ContainerHeader, FileOperationOptions)
+     */
+    public static ContainerHeader newPublicHeader(Key key, PublicKey systemPublicKey, FileOperationOptions options) throws Exception {
+        return systemHeader(options.isSparse() ? SparseContainer.newHeader()
+            : ContainerHeader.create(EncryptedContainer.DEFAULT_CHUNK_SIZE), key, systemPublicKey, options);
+    }
+
+    /**
+     * Cifra un archivo con una cabecera ya preparada.
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputFile Archivo de destino para guardar el contenido cifrado
+     * @param key Clave AES para el cifrado
+     * @param header Cabecera creada con {@link #newPublicHeader(Key, PublicKey, FileOperationOptions)}
+     * @param options Conservación del origen y durabilidad
+     * @throws Exception Si ocurre un error durante el cifrado, lectura o escritura
+     */
+    public static void encryptFileWithHeader(File inputFile, File outputFile, Key key, ContainerHeader header,
+            FileOperationOptions options) throws Exception {
+        encryptToPath(inputFile, outputFile.toPath(), key, header, options.isSync());
+        if (!options.isKeepSource()) {
+            Files.delete(inputFile.toPath());
+        }
+    }
+
+    /**
+     * Cifra públicamente varios archivos, usando para los pequeños una sola
+     * clave maestra por lote.
+     * 
+     * Para archivos de pocos KiB el coste está en proteger y guardar cada
+     * clave, no en cifrar. Los archivos de hasta {@code cs.batch.maxFileBytes}
+     * bytes (16 KiB por defecto) se cifran con claves derivadas con HKDF de
+     * una clave maestra aleatoria y del identificador de cada archivo, que
+     * se guarda en su cabecera junto al del lote
+     * ({@link ContainerHeader#FIELD_BATCH}). Solo la clave maestra se
+     * protege, una vez por lote: con una KEK y una sola escritura del almacén
+     * o con RSA en las cabeceras, según la ubicación de la clave. Los
+     * archivos mayores se cifran uno a uno con
+     * {@link #encryptFilePublic(File, File, PublicKey, FileOperationOptions)}.
+     * 
+     * <p>Con durabilidad {@link FileOperationOptions.Durability#PER_BATCH}
+     * los archivos cifrados se fuerzan a disco juntos al final. Un archivo
+     * que falla se informa y se conserva, y el resto continúa. El almacén
+     * registra qué archivos publicados dependen de la clave maestra, que se
+     * elimina al descifrar sin conservar la clave el último de ellos, o al
+     * terminar si no se publicó ninguno.</p>
+     * 
+     * @param inputFiles Archivos originales a cifrar
+     * @param directory Directorio de destino de los archivos .enc
+     * @param systemPublicKey Clave pública RSA del sistema
+     * @param options Ubicación de la clave, conservación del origen y durabilidad
+     * @return Archivos originales cifrados correctamente
+     * @throws Exception Si ocurre un error al guardar la clave maestra
+     * @see #getFileKeys(List, PrivateKey)
+     */
+    public static List<File> encryptFilesPublic(List<File> inputFiles, File directory, PublicKey systemPublicKey,
+            FileOperationOptions options) throws Exception {
+        List<File> small = new ArrayList<>();
+        List<File> encrypted = new ArrayList<>();
+        for (File inputFile : inputFiles) {
+            if (inputFile.length() <= SMALL_FILE_BYTES && inputFiles.size() > 1) {
+                small.add(inputFile);
+                continue;
+            }
+            try {
+                encryptFilePublic(inputFile, new File(directory, inputFile.getName() + ".enc"), systemPublicKey, options);
+                encrypted.add(inputFile);
+            } catch (Exception e) {
+                System.err.println("Error cifrando " + inputFile.getName() + ": " + e.getMessage());
+            }
+        }
+        if (small.isEmpty()) {
+            return encrypted;
+        }
+
+        Key master = generateKey();
+        byte[] batchId = new byte[ContainerHeader.FILE_ID_LENGTH];
+        new SecureRandom().nextBytes(batchId);
+        List<String> fileIds = new ArrayList<>(small.size());
+        for (int i = 0; i < small.size(); i++) {
+            fileIds.add(generateFileId());
+        }
+        if (options.isKeyInStore()) {
+            // Los archivos se registran antes de publicarse: el descifrado del último elimina la clave maestra
+            String batchReference = BATCH_PREFIX + ContainerHeader.toHex(batchId);
+            LocalStorage.saveKey(batchReference, KeyEncryptionKeys.getInstance().wrap(master, systemPublicKey));
+            LocalStorage.saveBatchReferences(batchReference, idReferences(fileIds));
+        }
+        byte[] wrappedMaster = options.isKeyInHeader() ? RSAUtil.encryptWithPublicKey(master.getEncoded(), systemPublicKey) : null;
+
+        boolean batch = options.getDurability() == FileOperationOptions.Durability.PER_BATCH;
+        boolean syncEach = options.isSync() && !batch;
+        List<File> pendingFiles = new ArrayList<>();
+        List<Path> pendingTemps = new ArrayList<>();
+        List<Path> pendingTargets = new ArrayList<>();
+        List<File> published = new ArrayList<>();
+        for (int i = 0; i < small.size(); i++) {
+            File inputFile = small.get(i);
+            try {
+                ContainerHeader header = ContainerHeader.create(EncryptedContainer.DEFAULT_CHUNK_SIZE);
+                header.setFileId(fileIds.get(i));
+                header.put(ContainerHeader.FIELD_BATCH, batchId);
+                if (wrappedMaster != null) {
+                    header.setWrappedKeys(Collections.singletonMap(ContainerHeader.SYSTEM_RECIPIENT, wrappedMaster));
+                }
+                Key key = deriveBatchKey(master, header);
+                Path target = Paths.get(directory.getPath(), inputFile.getName() + ".enc");
+                Path temp = AtomicFileWriter.writeTempChannel(target, out -> EncryptedContainer.encrypt(inputFile, out, key, header), syncEach);
+                if (batch) {
+                    pendingFiles.add(inputFile);
+                    pendingTemps.add(temp);
+                    pendingTargets.add(target);
+                } else {
+                    AtomicFileWriter.commit(temp, target, syncEach);
+                    published.add(inputFile);
+                }
+            } catch (Exception e) {
+                System.err.println("Error cifrando " + inputFile.getName() + ": " + e.getMessage());
+            }
+        }
+        if (!pendingTemps.isEmpty()) {
+            published.addAll(commitBatch(pendingFiles, pendingTemps, pendingTargets, directory));
+        }
+        if (options.isKeyInStore() && published.size() < small.size()) {
+            // Sin archivos publicados se elimina también la clave maestra
+            Set<File> publishedSet = new HashSet<>(published);
+            List<String> failed = new ArrayList<>();
+            for (int i = 0; i < small.size(); i++) {
+                if (!publishedSet.contains(small.get(i))) {
+                    failed.add(ID_PREFIX + fileIds.get(i));
+                }
+            }
+            LocalStorage.deleteKeys(failed);
+        }
+        deleteSources(published, options);
+        encrypted.addAll(published);
+        return encrypted;
+    }
+
+    /**
+     * Cifra un archivo público en formato incremental con una clave nueva.
+     * 
+     * El resultado se descifra igual que cualquier otro archivo .enc, pero
+     * admite {@link #updateFile(File, File, PrivateKey, FileOperationOptions)},
+     * que solo vuelve a cifrar los bloques cuyo contenido ha cambiado.
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputFile Archivo de destino para guardar el contenido cifrado
+     * @param systemPublicKey Clave pública RSA del sistema
+     * @param options Ubicación de la clave, conservación del origen y durabilidad
+     * @return Bloques escritos
+     * @throws Exception Si ocurre un error al guardar la clave o durante el cifrado
+     * @see IncrementalContainer
+     */
+    public static IncrementalContainer.Result encryptFileIncremental(File inputFile, File outputFile, PublicKey systemPublicKey,
+            FileOperationOptions options) throws Exception {
+        Key key = generateKey();
+        ContainerHeader header = systemHeader(IncrementalContainer.newHeader(), key, systemPublicKey, options);
+        IncrementalContainer.Result[] result = new IncrementalContainer.Result[1];
+        AtomicFileWriter.writeChannel(outputFile.toPath(),
+            out -> result[0] = IncrementalContainer.encrypt(inputFile, out, key, header), options.isSync());
+        if (!options.isKeepSource()) {
+            Files.delete(inputFile.toPath());
+        }
+        return result[0];
+    }
+
+    /**
+     * Actualiza un archivo público incremental con el contenido actual de su original.
+     * 
+     * Solo se cifran y añaden los bloques nuevos o modificados; la clave y el
+     * identificador del archivo no cambian. El original se conserva.
+     * 
+     * @param inputFile Archivo original modificado
+     * @param encryptedFile Archivo incremental a actualizar
+     * @param privateKey Clave privada RSA del sistema
+     * @param options Durabilidad de la actualización
+     * @return Bloques escritos y reutilizados
+     * @throws Exception Si no se encuentra la clave o el archivo no es auténtico
+     * @see IncrementalContainer#update(File, File, Key, boolean)
+     */
+    public static IncrementalContainer.Result updateFile(File inputFile, File encryptedFile, PrivateKey privateKey,
+            FileOperationOptions options) throws Exception {
+        return IncrementalContainer.update(inputFile, encryptedFile, getKey(encryptedFile, privateKey), options.isSync());
+    }
+
+    /**
+     * Agrupa y cifra un directorio completo en un único archivo con una clave nueva.
+     * 
+     * La clave se guarda una sola vez para todos los archivos del directorio,
+     * según la ubicación configurada en las opciones. Si no se pide conservar
+     * el origen, se eliminan los archivos agrupados y los directorios que
+     * queden vacíos.
+     * 
+     * @param directory Directorio a agrupar
+     * @param outputFile Archivo de destino (normalmente con extensión {@link EncryptedArchive#EXTENSION})
+     * @param systemPublicKey Clave pública RSA del sistema
+     * @param options Ubicación de la clave, conservación del origen y durabilidad
+     * @return Miembros agrupados
+     * @throws Exception Si ocurre un error al guardar la clave o durante el cifrado
+     * @see EncryptedArchive#create(File, java.nio.channels.FileChannel, Key, ContainerHeader, int)
+     */
+    public static List<EncryptedArchive.Entry> encryptDirectory(File directory, File outputFile, PublicKey systemPublicKey,
+            FileOperationOptions options) throws Exception {
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException("No es un directorio: " + directory);
+        }
+        Key key = generateKey();
+        ContainerHeader header = systemHeader(ContainerHeader.create(EncryptedContainer.DEFAULT_CHUNK_SIZE), key, systemPublicKey, options);
+        List<EncryptedArchive.Entry> entries = new ArrayList<>();
+        AtomicFileWriter.writeChannel(outputFile.toPath(), out -> entries.addAll(
+            EncryptedArchive.create(directory, out, key, header, EncryptedArchive.defaultConcurrency())), options.isSync());
+        if (!options.isKeepSource()) {
+            for (EncryptedArchive.Entry entry : entries) {
+                Files.deleteIfExists(directory.toPath().resolve(entry.name));
+            }
+            deleteEmptyDirectories(directory.toPath());
+        }
+        return entries;
+    }
 
-        File parentDirectory = outputFile.getParentFile();
-        if (parentDirectory != null && !parentDirectory.exists()) {
-            parentDirectory.mkdirs();
+    /**
+     * Extrae miembros de un archivo agrupado público en un directorio.
+     * 
+     * Al extraer el archivo completo, y si no se pide conservarlos, se
+     * eliminan después su clave y el propio archivo agrupado.
+     * 
+     * @param archive Archivo agrupado
+     * @param directory Directorio de destino
+     * @param names Miembros a extraer, o null para extraerlos todos
+     * @param privateKey Clave privada RSA del sistema
+     * @param options Conservación del origen y de la clave y durabilidad
+     * @return Miembros extraídos
+     * @throws Exception Si no se encuentra la clave o el archivo no es auténtico
+     * @see EncryptedArchive#extract(File, Key, File, java.util.Collection, int, boolean)
+     */
+    public static List<EncryptedArchive.Entry> extractArchive(File archive, File directory, List<String> names,
+            PrivateKey privateKey, FileOperationOptions options) throws Exception {
+        Key key = getKey(archive, privateKey);
+        List<EncryptedArchive.Entry> extracted = EncryptedArchive.extract(archive, key, directory, names,
+            EncryptedArchive.defaultConcurrency(), options.isSync());
+        if (names == null) {
+            if (!options.isKeepKey()) {
+                LocalStorage.deleteKeys(keyReferences(Collections.singletonList(archive)));
+            }
+            if (!options.isKeepSource()) {
+                Files.delete(archive.toPath());
+            }
         }
+        return extracted;
+    }
 
-        Files.write(outputFile.toPath(), outputBytes);
-        Files.delete(inputFile.toPath());
+    /**
+     * Lista los miembros de un archivo agrupado público sin extraerlos.
+     * 
+     * @param archive Archivo agrupado
+     * @param privateKey Clave privada RSA del sistema
+     * @return Miembros del archivo
+     * @throws Exception Si no se encuentra la clave o el índice no es auténtico
+     */
+    public static List<EncryptedArchive.Entry> listArchive(File archive, PrivateKey privateKey) throws Exception {
+        return EncryptedArchive.list(archive, getKey(archive, privateKey));
+    }
+
+    /**
+     * Cifra un archivo privado con una clave nueva, guardándola según la
+     * ubicación configurada en las opciones.
+     * 
+     * La clave se protege con la clave pública del usuario, igual que en el
+     * almacén, y con las ubicaciones que incluyen la cabecera se guarda en la
+     * cabecera del archivo para el destinatario {@code user:<usuario>}.
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputFile Archivo de destino para guardar el contenido cifrado
+     * @param username Nombre del usuario propietario del archivo cifrado
+     * @param userPublicKey Clave pública RSA o X25519 del usuario
+     * @param options Ubicación de la clave, conservación del origen y durabilidad
+     * @throws Exception Si ocurre un error al guardar la clave o durante el cifrado
+     * @see KeyWrapping#wrap(byte[], PublicKey)
+     */
+    public static void encryptFileForUser(File inputFile, File outputFile, String username, PublicKey userPublicKey,
+            FileOperationOptions options) throws Exception {
+        Key key = generateKey();
+        String fileId = generateFileId();
+        if (options.isKeyInStore()) {
+            savePrivateFileKey(username, fileId, key, userPublicKey);
+        }
+        byte[] wrapped = options.isKeyInHeader() ? KeyWrapping.wrap(key.getEncoded(), userPublicKey) : null;
+        encryptToPath(inputFile, outputFile.toPath(), key,
+            newHeader(fileId, ContainerHeader.userRecipient(username), wrapped, options.isSparse()), options.isSync());
+        if (!options.isKeepSource()) {
+            Files.delete(inputFile.toPath());
+        }
     }
 
     /**
@@ -167,23 +592,27 @@ public class FileEncryptionUtil {
      * @see #encryptFile(File, File, Key)
      */
     public static void encryptFilePrivate(File inputFile, File outputFile, Key key, String username) throws Exception {
-        File directory = new File(System.getProperty("user.home") + "/Documents/cs/encriptado_privado/" + username);
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
-        Cipher cipher = Cipher.getInstance("AES");
-        cipher.init(Cipher.ENCRYPT_MODE, key);
-
-        byte[] inputBytes = Files.readAllBytes(inputFile.toPath());
-        byte[] outputBytes = cipher.doFinal(inputBytes);
-
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
+        encryptFilePrivate(inputFile, outputFile, key, username, FileOperationOptions.defaults());
+    }
 
+    /**
+     * Cifra un archivo para un usuario específico con las opciones indicadas.
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputFile Archivo de destino (solo se usa su nombre)
+     * @param key Clave AES para el cifrado
+     * @param username Nombre del usuario propietario del archivo cifrado
+     * @param options Conservación del origen y durabilidad
+     * @throws Exception Si ocurre un error durante el cifrado, lectura o escritura
+     * @see #encryptFile(File, File, Key, FileOperationOptions)
+     */
+    public static void encryptFilePrivate(File inputFile, File outputFile, Key key, String username, FileOperationOptions options) throws Exception {
+        File directory = AppConfig.userDirectory(AppConfig.Root.PRIVATE, username);
         Path outputPath = Paths.get(directory.getPath(), outputFile.getName());
-        Files.write(outputPath, outputBytes);
-        Files.delete(inputFile.toPath());
+        encryptToPath(inputFile, outputPath, key, (String) null, options.isSync());
+        if (!options.isKeepSource()) {
+            Files.delete(inputFile.toPath());
+        }
     }
 
     /**
@@ -201,22 +630,117 @@ public class FileEncryptionUtil {
      * @see #deleteKey(String)
      */
     public static void decryptFile(File inputFile, File outputFile, Key key) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES");
-        cipher.init(Cipher.DECRYPT_MODE, key);
+        decryptFile(inputFile, outputFile, key, FileOperationOptions.defaults());
+    }
 
-        byte[] inputBytes = Files.readAllBytes(inputFile.toPath());
-        byte[] outputBytes = cipher.doFinal(inputBytes);
+    /**
+     * Descifra un archivo con las opciones indicadas.
+     * 
+     * El archivo descifrado se publica de forma atómica (temporal, fsync según
+     * la durabilidad elegida y renombrado) antes de eliminar la clave y el
+     * archivo cifrado, y cada eliminación puede desactivarse para descifrar
+     * un archivo sin sacarlo del archivo cifrado.
+     * 
+     * @param inputFile Archivo cifrado a descifrar
+     * @param outputFile Archivo de destino (solo se usa su nombre)
+     * @param key Clave AES para el descifrado
+     * @param options Conservación del origen y de la clave y durabilidad
+     * @throws Exception Si ocurre un error durante el descifrado, lectura o escritura
+     * @see FileOperationOptions#keepAll()
+     */
+    public static void decryptFile(File inputFile, File outputFile, Key key, FileOperationOptions options) throws Exception {
+        File directory = AppConfig.directory(AppConfig.Root.DECRYPTED);
+        decryptToDirectory(inputFile, directory, outputFile.getName(), key, options.isSync());
 
-        File directory = new File(System.getProperty("user.home") + "/Documents/cs/desencriptado");
-        if (!directory.exists()) {
-            directory.mkdirs();
+        if (!options.isKeepKey()) {
+            LocalStorage.deleteKeys(keyReferences(Collections.singletonList(inputFile)));
         }
+        if (!options.isKeepSource()) {
+            Files.delete(inputFile.toPath());
+        }
+    }
 
-        Path outputPath = Paths.get(directory.getPath(), outputFile.getName());
-        Files.write(outputPath, outputBytes);
+    /**
+     * Descifra un lote de archivos públicos recuperando todas sus claves de una vez.
+     * 
+     * Las claves AES se leen del almacenamiento con una sola lectura y se
+     * descifran en paralelo con {@link RSAUtil#decryptBatchWithPrivateKey(List, PrivateKey)},
+     * de modo que el coste RSA no se serializa archivo a archivo. Los archivos
+     * descifrados se guardan en la carpeta de descifrado público y sus claves se
+     * eliminan reescribiendo el almacén una sola vez. Los archivos sin clave o
+     * que fallan al descifrarse se conservan intactos.
+     * 
+     * @param inputFiles Archivos cifrados a descifrar
+     * @param privateKey Clave privada RSA del sistema
+     * @return Número de archivos descifrados correctamente
+     * @throws Exception Si ocurre un error al acceder al almacenamiento de claves
+     * @see #getKeys(List, PrivateKey)
+     */
+    public static int decryptFiles(List<File> inputFiles, PrivateKey privateKey) throws Exception {
+        return decryptFiles(inputFiles, privateKey, FileOperationOptions.defaults());
+    }
 
-        deleteKey(inputFile.getName());
-        Files.delete(inputFile.toPath());
+    /**
+     * Descifra un lote de archivos públicos con las opciones indicadas.
+     * 
+     * Con durabilidad {@link FileOperationOptions.Durability#PER_BATCH} todos
+     * los archivos descifrados se fuerzan a disco juntos al final del lote y
+     * el directorio se sincroniza una sola vez.
+     * 
+     * @param inputFiles Archivos cifrados a descifrar
+     * @param privateKey Clave privada RSA del sistema
+     * @param options Conservación de los orígenes y de las claves y durabilidad
+     * @return Número de archivos descifrados correctamente
+     * @throws Exception Si ocurre un error al acceder al almacenamiento de claves
+     * @see #decryptFiles(List, PrivateKey)
+     */
+    public static int decryptFiles(List<File> inputFiles, PrivateKey privateKey, FileOperationOptions options) throws Exception {
+        ResolvedKeys resolved = resolveKeys(inputFiles, null, systemUnwrapper(privateKey), storeUnwrapper(privateKey));
+        List<Key> keys = resolved.keys;
+        File directory = AppConfig.directory(AppConfig.Root.DECRYPTED);
+
+        List<File> decrypted = decryptAll(inputFiles, keys, directory, options);
+        if (!options.isKeepKey()) {
+            LocalStorage.deleteKeys(resolved.referencesOf(inputFiles, decrypted));
+        }
+        deleteSources(decrypted, options);
+        return decrypted.size();
+    }
+
+    /**
+     * Recupera y descifra las claves AES de varios archivos públicos.
+     * 
+     * Las claves envueltas con KEK solo necesitan una operación RSA por KEK
+     * distinta; las guardadas por versiones anteriores se descifran con RSA
+     * en paralelo.
+     * 
+     * @param filenames Nombres de los archivos (con o sin extensión ".enc")
+     * @param privateKey Clave privada RSA del sistema
+     * @return Claves AES en el mismo orden (null si no existe o no se pudo descifrar)
+     * @throws Exception Si ocurre un error al leer el almacenamiento
+     * @see LocalStorage#getKeys(List)
+     * @see KeyEncryptionKeys#unwrapAll(List, PrivateKey)
+     */
+    public static List<Key> getKeys(List<String> filenames, PrivateKey privateKey) throws Exception {
+        List<String> keyNames = new ArrayList<>();
+        for (String filename : filenames) {
+            keyNames.add(keyName(filename));
+        }
+        return KeyEncryptionKeys.getInstance().unwrapAll(LocalStorage.getKeys(keyNames), privateKey);
+    }
+
+    /**
+     * Recupera y descifra las claves AES de varios archivos cifrados públicos,
+     * buscándolas por identificador o, si no lo tienen, por nombre.
+     * 
+     * @param inputFiles Archivos cifrados
+     * @param privateKey Clave privada RSA del sistema
+     * @return Claves AES en el mismo orden (null si no existe o no se pudo descifrar)
+     * @throws Exception Si ocurre un error al leer el almacenamiento
+     * @see #getKey(File, PrivateKey)
+     */
+    public static List<Key> getFileKeys(List<File> inputFiles, PrivateKey privateKey) throws Exception {
+        return resolveKeys(inputFiles, null, systemUnwrapper(privateKey), storeUnwrapper(privateKey)).keys;
     }
 
     /**
@@ -232,28 +756,79 @@ public class FileEncryptionUtil {
      * @param privateKey Clave privada del usuario para descifrar la clave AES
      * @param username Nombre del usuario propietario del archivo
      * @throws Exception Si ocurre un error durante el descifrado o si no se encuentra la clave
-     * @see #getKey(String, PrivateKey)
-     * @see #deleteKey(String)
+     * @see #getPrivateKey(String, String, PrivateKey)
+     * @see LocalStorage#deletePrivateKeys(String, java.util.Collection)
      */
     public static void decryptFilePrivate(File inputFile, File outputFile, PrivateKey privateKey, String username) throws Exception {
-        Key aesKey = getKey(inputFile.getName(), privateKey);
+        decryptFilePrivate(inputFile, outputFile, privateKey, username, FileOperationOptions.defaults());
+    }
 
-        Cipher cipher = Cipher.getInstance("AES");
-        cipher.init(Cipher.DECRYPT_MODE, aesKey);
+    /**
+     * Descifra un archivo privado con las opciones indicadas.
+     * 
+     * La clave se busca y, si no se pide conservarla, se elimina del
+     * almacenamiento de claves privadas del usuario.
+     * 
+     * @param inputFile Archivo cifrado privado a descifrar
+     * @param outputFile Archivo de destino (solo se usa su nombre)
+     * @param privateKey Clave privada del usuario para descifrar la clave AES
+     * @param username Nombre del usuario propietario del archivo
+     * @param options Conservación del origen y de la clave y durabilidad
+     * @throws Exception Si ocurre un error durante el descifrado o si no se encuentra la clave
+     * @see #getPrivateKey(String, String, PrivateKey)
+     */
+    public static void decryptFilePrivate(File inputFile, File outputFile, PrivateKey privateKey, String username, FileOperationOptions options) throws Exception {
+        ResolvedKeys resolved = resolveKeys(Collections.singletonList(inputFile), username,
+            userUnwrapper(privateKey), base64(userUnwrapper(privateKey)));
+        Key aesKey = requireKey(resolved, inputFile, username);
 
-        byte[] inputBytes = Files.readAllBytes(inputFile.toPath());
-        byte[] outputBytes = cipher.doFinal(inputBytes);
+        File directory = AppConfig.userDirectory(AppConfig.Root.DECRYPTED_PRIVATE, username);
+        decryptToDirectory(inputFile, directory, outputFile.getName(), aesKey, options.isSync());
 
-        File directory = new File(System.getProperty("user.home") + "/Documents/cs/desencriptado_privado/" + username);
-        if (!directory.exists()) {
-            directory.mkdirs();
+        if (!options.isKeepKey()) {
+            LocalStorage.deletePrivateKeys(username, resolved.references);
+        }
+        if (!options.isKeepSource()) {
+            Files.delete(inputFile.toPath());
         }
+    }
 
-        Path outputPath = Paths.get(directory.getPath(), outputFile.getName());
-        Files.write(outputPath, outputBytes);
+    /**
+     * Lee el contenido descifrado de un archivo público sin escribirlo a disco.
+     * 
+     * Pensado para visualizar archivos pequeños repetidamente: con
+     * {@code cs.cache.maxBytes} mayor que 0 el contenido de los archivos
+     * pequeños se guarda en {@link DecryptedFileCache} y las lecturas
+     * siguientes no recuperan la clave ni vuelven a descifrar. El archivo
+     * cifrado y su clave se conservan. El contenido completo se carga en
+     * memoria, así que no debe usarse con archivos grandes.
+     * 
+     * @param inputFile Archivo cifrado público
+     * @param privateKey Clave privada RSA del sistema
+     * @return Contenido descifrado
+     * @throws Exception Si no se encuentra la clave o el archivo no es auténtico
+     * @see #getKey(File, PrivateKey)
+     */
+    public static byte[] readFile(File inputFile, PrivateKey privateKey) throws Exception {
+        return DecryptedFileCache.getInstance().read(inputFile, "", privateKey, () -> getKey(inputFile, privateKey));
+    }
 
-        deleteKey(inputFile.getName());
-        Files.delete(inputFile.toPath());
+    /**
+     * Lee el contenido descifrado de un archivo privado sin escribirlo a disco.
+     * 
+     * Igual que {@link #readFile(File, PrivateKey)}; las entradas de la
+     * caché solo se sirven a quien presenta la misma clave privada del usuario.
+     * 
+     * @param inputFile Archivo cifrado privado
+     * @param username Nombre del usuario propietario del archivo
+     * @param userPrivateKey Clave privada del usuario
+     * @return Contenido descifrado
+     * @throws Exception Si no se encuentra la clave o el archivo no es auténtico
+     * @see #getPrivateKey(String, File, PrivateKey)
+     */
+    public static byte[] readFilePrivate(File inputFile, String username, PrivateKey userPrivateKey) throws Exception {
+        return DecryptedFileCache.getInstance().read(inputFile, "user:" + username, userPrivateKey,
+            () -> getPrivateKey(username, inputFile, userPrivateKey));
     }
 
     /**
@@ -285,25 +860,71 @@ public class FileEncryptionUtil {
     /**
      * Guarda una clave AES cifrada para un usuario específico (cifrado privado).
      * 
-     * Este método cifra la clave AES proporcionada usando la clave pública RSA del usuario
-     * específico y almacena la clave cifrada en el sistema de almacenamiento local asociada
+     * Este método cifra la clave AES proporcionada usando la clave pública (RSA o X25519)
+     * del usuario específico y almacena la clave cifrada en el sistema de almacenamiento local asociada
      * al usuario y archivo correspondientes. Esto permite que solo el usuario propietario
      * pueda descifrar posteriormente el archivo.
      * 
      * @param username Nombre del usuario propietario del archivo
      * @param filename Nombre del archivo al que se asociará la clave
      * @param aesKey Clave AES a cifrar y almacenar
-     * @param userPublicKey Clave pública RSA del usuario para cifrar la clave AES
+     * @param userPublicKey Clave pública RSA o X25519 del usuario para cifrar la clave AES
      * @throws Exception Si ocurre un error durante el cifrado o almacenamiento
-     * @see RSAUtil#encryptWithPublicKey(byte[], PublicKey)
+     * @see KeyWrapping#wrap(byte[], PublicKey)
      * @see LocalStorage#savePrivateKey(String, String, String)
      */
     public static void savePrivateKey(String username, String filename, Key aesKey, PublicKey userPublicKey) throws Exception {
-        byte[] encryptedAESKey = RSAUtil.encryptWithPublicKey(aesKey.getEncoded(), userPublicKey);
+        byte[] encryptedAESKey = KeyWrapping.wrap(aesKey.getEncoded(), userPublicKey);
         String encryptedKeyBase64 = Base64.getEncoder().encodeToString(encryptedAESKey);
         LocalStorage.savePrivateKey(username, filename, encryptedKeyBase64);
     }
 
+    /**
+     * Guarda la clave AES de un archivo privado indexada por su identificador.
+     * 
+     * @param username Nombre del usuario propietario del archivo
+     * @param fileId Identificador del archivo (ver {@link #generateFileId()})
+     * @param aesKey Clave AES a cifrar y almacenar
+     * @param userPublicKey Clave pública RSA o X25519 del usuario
+     * @throws Exception Si ocurre un error durante el cifrado o almacenamiento
+     * @see #savePrivateKey(String, String, Key, PublicKey)
+     */
+    public static void savePrivateFileKey(String username, String fileId, Key aesKey, PublicKey userPublicKey) throws Exception {
+        savePrivateKey(username, ID_PREFIX + fileId, aesKey, userPublicKey);
+    }
+
+    /**
+     * Obtiene la clave AES de un archivo privado, buscándola por identificador
+     * o, si el archivo no lo tiene, por nombre.
+     * 
+     * @param username Nombre del usuario propietario del archivo
+     * @param inputFile Archivo cifrado
+     * @param userPrivateKey Clave privada RSA o X25519 del usuario
+     * @return Clave AES del archivo
+     * @throws Exception Si no se encuentra la clave o ocurre un error durante el descifrado
+     */
+    public static Key getPrivateKey(String username, File inputFile, PrivateKey userPrivateKey) throws Exception {
+        ResolvedKeys resolved = resolveKeys(Collections.singletonList(inputFile), username,
+            userUnwrapper(userPrivateKey), base64(userUnwrapper(userPrivateKey)));
+        return requireKey(resolved, inputFile, username);
+    }
+
+    /**
+     * Obtiene la clave AES de un archivo privado usando la sesión de claves abierta del usuario.
+     * 
+     * @param username Nombre del usuario propietario del archivo
+     * @param inputFile Archivo cifrado
+     * @return Clave AES del archivo
+     * @throws Exception Si no se encuentra la clave o ocurre un error durante el descifrado
+     * @throws IllegalStateException Si no hay sesión de claves abierta para el usuario
+     * @see KeySessionAgent#unwrap(String, byte[])
+     */
+    public static Key getPrivateKey(String username, File inputFile) throws Exception {
+        ResolvedKeys resolved = resolveKeys(Collections.singletonList(inputFile), username,
+            sessionUnwrapper(username), base64(sessionUnwrapper(username)));
+        return requireKey(resolved, inputFile, username);
+    }
+
     /**
      * Obtiene una clave AES descifrada para un usuario específico (cifrado privado).
      * 
@@ -314,27 +935,640 @@ public class FileEncryptionUtil {
      * 
      * @param username Nombre del usuario propietario del archivo
      * @param filename Nombre del archivo cuya clave se desea recuperar
-     * @param userPrivateKey Clave privada RSA del usuario para descifrar la clave AES
+     * @param userPrivateKey Clave privada RSA o X25519 del usuario para descifrar la clave AES
      * @return Clave AES descifrada y reconstruida
      * @throws Exception Si no se encuentra la clave o ocurre un error durante el descifrado
      * @throws IllegalArgumentException Si no se encuentra la clave privada para el usuario y archivo
      * @see LocalStorage#getPrivateKey(String, String)
-     * @see RSAUtil#decryptWithPrivateKey(byte[], PrivateKey)
+     * @see KeyWrapping#unwrap(byte[], PrivateKey)
      */
     public static Key getPrivateKey(String username, String filename, PrivateKey userPrivateKey) throws Exception {
+        byte[] encryptedKeyBytes = findPrivateKey(username, filename);
+        byte[] decryptedKeyBytes = KeyWrapping.unwrap(encryptedKeyBytes, userPrivateKey);
+        return new SecretKeySpec(decryptedKeyBytes, "AES");
+    }
+
+    /**
+     * Obtiene una clave AES descifrada usando la sesión de claves abierta del usuario.
+     * 
+     * Equivalente a {@link #getPrivateKey(String, String, PrivateKey)} pero sin
+     * leer ni reconstruir la clave privada del usuario: el descifrado lo realiza
+     * el agente de sesión con la clave desbloqueada tras el login.
+     * 
+     * @param username Nombre del usuario propietario del archivo
+     * @param filename Nombre del archivo cuya clave se desea recuperar
+     * @return Clave AES descifrada y reconstruida
+     * @throws Exception Si no se encuentra la clave o ocurre un error durante el descifrado
+     * @throws IllegalStateException Si no hay sesión de claves abierta para el usuario
+     * @see KeySessionAgent#unwrap(String, byte[])
+     */
+    public static Key getPrivateKey(String username, String filename) throws Exception {
+        byte[] encryptedKeyBytes = findPrivateKey(username, filename);
+        return KeySessionAgent.getInstance().unwrap(username, encryptedKeyBytes);
+    }
+
+    /**
+     * Recupera y descifra en paralelo las claves AES de varios archivos privados.
+     * 
+     * @param username Nombre del usuario propietario de los archivos
+     * @param filenames Nombres de los archivos (con o sin extensión ".enc")
+     * @param userPrivateKey Clave privada RSA o X25519 del usuario
+     * @return Claves AES en el mismo orden (null si no existe o no se pudo descifrar)
+     * @throws Exception Si ocurre un error al leer el almacenamiento
+     * @see LocalStorage#getPrivateKeys(String, List)
+     * @see KeyWrapping#unwrapBatch(List, PrivateKey)
+     */
+    public static List<Key> getPrivateKeys(String username, List<String> filenames, PrivateKey userPrivateKey) throws Exception {
+        List<String> keyNames = new ArrayList<>();
+        for (String filename : filenames) {
+            keyNames.add(keyName(filename));
+        }
+        List<byte[]> wrapped = decodeAll(LocalStorage.getPrivateKeys(username, keyNames));
+        return toAesKeys(KeyWrapping.unwrapBatch(wrapped, userPrivateKey));
+    }
+
+    /**
+     * Recupera y descifra en paralelo las claves AES de varios archivos
+     * privados, buscándolas por identificador o, si no lo tienen, por nombre.
+     * 
+     * @param username Nombre del usuario propietario de los archivos
+     * @param inputFiles Archivos cifrados
+     * @param userPrivateKey Clave privada RSA o X25519 del usuario
+     * @return Claves AES en el mismo orden (null si no existe o no se pudo descifrar)
+     * @throws Exception Si ocurre un error al leer el almacenamiento
+     */
+    public static List<Key> getPrivateFileKeys(String username, List<File> inputFiles, PrivateKey userPrivateKey) throws Exception {
+        return resolveKeys(inputFiles, username, userUnwrapper(userPrivateKey), base64(userUnwrapper(userPrivateKey))).keys;
+    }
+
+    /**
+     * Descifra un lote de archivos privados con la sesión de claves del usuario.
+     * 
+     * Las claves AES del usuario se leen con una sola lectura y se descifran en
+     * paralelo con la clave privada desbloqueada en {@link KeySessionAgent}. Los
+     * archivos descifrados se guardan en la carpeta de descifrado privado del
+     * usuario y sus claves se eliminan reescribiendo el almacén una sola vez.
+     * 
+     * @param inputFiles Archivos cifrados privados a descifrar
+     * @param username Nombre del usuario propietario (con sesión abierta)
+     * @return Número de archivos descifrados correctamente
+     * @throws Exception Si ocurre un error al acceder al almacenamiento de claves
+     * @throws IllegalStateException Si no hay sesión de claves abierta para el usuario
+     * @see KeySessionAgent#unwrapBatch(String, List)
+     */
+    public static int decryptFilesPrivate(List<File> inputFiles, String username) throws Exception {
+        return decryptFilesPrivate(inputFiles, username, FileOperationOptions.defaults());
+    }
+
+    /**
+     * Descifra un lote de archivos privados con las opciones indicadas.
+     * 
+     * @param inputFiles Archivos cifrados privados a descifrar
+     * @param username Nombre del usuario propietario (con sesión abierta)
+     * @param options Conservación de los orígenes y de las claves y durabilidad
+     * @return Número de archivos descifrados correctamente
+     * @throws Exception Si ocurre un error al acceder al almacenamiento de claves
+     * @throws IllegalStateException Si no hay sesión de claves abierta para el usuario
+     * @see #decryptFiles(List, PrivateKey, FileOperationOptions)
+     */
+    public static int decryptFilesPrivate(List<File> inputFiles, String username, FileOperationOptions options) throws Exception {
+        ResolvedKeys resolved = resolveKeys(inputFiles, username, sessionUnwrapper(username), base64(sessionUnwrapper(username)));
+        List<Key> keys = resolved.keys;
+        File directory = AppConfig.userDirectory(AppConfig.Root.DECRYPTED_PRIVATE, username);
+
+        List<File> decrypted = decryptAll(inputFiles, keys, directory, options);
+        if (!options.isKeepKey()) {
+            LocalStorage.deletePrivateKeys(username, resolved.referencesOf(inputFiles, decrypted));
+        }
+        deleteSources(decrypted, options);
+        return decrypted.size();
+    }
+
+    /**
+     * Cifra un archivo en formato contenedor y lo publica de forma atómica en la ruta indicada.
+     * 
+     * @param inputFile Archivo original a cifrar
+     * @param outputPath Ruta del archivo cifrado
+     * @param key Clave AES para el cifrado
+     * @param fileId Identificador del archivo para la cabecera (null para no incluirlo)
+     * @param sync true para forzar a disco el resultado antes de publicarlo
+     * @throws Exception Si ocurre un error durante el cifrado, lectura o escritura
+     */
+    private static void encryptToPath(File inputFile, Path outputPath, Key key, String fileId, boolean sync) throws Exception {
+        encryptToPath(inputFile, outputPath, key, newHeader(fileId, null, null, false), sync);
+    }
+
+    /**
+     * Cifra un archivo en formato contenedor con la cabecera indicada y lo
+     * publica de forma atómica en la ruta indicada. Con una cabecera de
+     * {@link SparseContainer} se omiten los bloques que solo contienen ceros.
+     */
+    private static void encryptToPath(File inputFile, Path outputPath, Key key, ContainerHeader header, boolean sync) throws Exception {
+        if (SparseContainer.isSparse(header)) {
+            AtomicFileWriter.writeChannel(outputPath, out -> SparseContainer.encrypt(inputFile, out, key, header), sync);
+        } else {
+            AtomicFileWriter.writeChannel(outputPath, out -> EncryptedContainer.encrypt(inputFile, out, key, header), sync);
+        }
+    }
+
+    /**
+     * Elimina los directorios vacíos de un árbol, incluida la raíz si queda vacía.
+     */
+    private static void deleteEmptyDirectories(Path root) throws IOException {
+        List<Path> directories;
+        try (java.util.stream.Stream<Path> walk = Files.walk(root)) {
+            directories = walk.filter(Files::isDirectory).sorted(Collections.reverseOrder()).collect(java.util.stream.Collectors.toList());
+        }
+        for (Path directory : directories) {
+            try {
+                Files.delete(directory);
+            } catch (java.nio.file.DirectoryNotEmptyException e) {
+                // Contiene archivos que no se agruparon
+            }
+        }
+    }
+
+    /**
+     * Crea la cabecera de un archivo nuevo.
+     * 
+     * @param fileId Identificador del archivo (null para no incluirlo)
+     * @param recipient Destinatario de la clave envuelta
+     * @param wrappedKey Clave envuelta para el destinatario (null para no incluirla)
+     * @param sparse true para un contenedor que omite las zonas vacías
+     * @return cabecera con el tamaño de bloque por defecto
+     */
+    private static ContainerHeader newHeader(String fileId, String recipient, byte[] wrappedKey, boolean sparse) {
+        ContainerHeader header = sparse ? SparseContainer.newHeader() : ContainerHeader.create(EncryptedContainer.DEFAULT_CHUNK_SIZE);
+        if (fileId != null) {
+            header.setFileId(fileId);
+        }
+        if (wrappedKey != null) {
+            header.setWrappedKeys(Collections.singletonMap(recipient, wrappedKey));
+        }
+        return header;
+    }
+
+    /**
+     * Completa la cabecera de un archivo público nuevo: le asigna un
+     * identificador y guarda la clave en el almacén, en la cabecera o en
+     * ambos según las opciones.
+     * 
+     * @param header Cabecera a completar
+     * @param key Clave AES del archivo
+     * @param systemPublicKey Clave pública RSA del sistema
+     * @param options Ubicación de la clave
+     * @return la misma cabecera
+     * @throws Exception Si ocurre un error al guardar o cifrar la clave
+     */
+    private static ContainerHeader systemHeader(ContainerHeader header, Key key, PublicKey systemPublicKey,
+            FileOperationOptions options) throws Exception {
+        String fileId = generateFileId();
+        if (options.isKeyInStore()) {
+            saveFileKey(fileId, key, systemPublicKey);
+        }
+        header.setFileId(fileId);
+        if (options.isKeyInHeader()) {
+            header.setWrappedKeys(Collections.singletonMap(ContainerHeader.SYSTEM_RECIPIENT,
+                RSAUtil.encryptWithPublicKey(key.getEncoded(), systemPublicKey)));
+        }
+        return header;
+    }
+
+    /**
+     * Descifra un archivo y publica el resultado de forma atómica en el directorio indicado.
+     * 
+     * Admite tanto el formato contenedor como el formato antiguo sin cabecera.
+     * Si el archivo no es auténtico el destino no se modifica.
+     * 
+     * @param inputFile Archivo cifrado a descifrar
+     * @param directory Directorio de destino (se crea si no existe)
+     * @param outputName Nombre del archivo descifrado
+     * @param key Clave AES para el descifrado
+     * @param sync true para forzar a disco el resultado antes de publicarlo
+     * @throws Exception Si ocurre un error durante el descifrado, lectura o escritura
+     * @see EncryptedContainer#decrypt(File, java.nio.channels.FileChannel, Key)
+     */
+    private static void decryptToDirectory(File inputFile, File directory, String outputName, Key key, boolean sync) throws Exception {
+        Path outputPath = Paths.get(directory.getPath(), outputName);
+        AtomicFileWriter.writeChannel(outputPath, out -> EncryptedContainer.decrypt(inputFile, out, key), sync);
+    }
+
+    /**
+     * Descifra cada archivo con su clave, sin eliminar claves ni archivos cifrados.
+     * 
+     * Cada resultado se escribe en un temporal y se publica con un renombrado
+     * atómico. Con durabilidad por lotes los temporales se fuerzan a disco en
+     * paralelo al final, se publican todos y el directorio se sincroniza una vez.
+     * 
+     * @param inputFiles Archivos cifrados
+     * @param keys Claves AES en el mismo orden (null si no está disponible)
+     * @param directory Directorio de destino
+     * @param options Durabilidad de los resultados
+     * @return Archivos cifrados cuyo resultado está publicado
+     */
+    private static List<File> decryptAll(List<File> inputFiles, List<Key> keys, File directory, FileOperationOptions options) {
+        boolean batch = options.getDurability() == FileOperationOptions.Durability.PER_BATCH;
+        boolean syncEach = options.isSync() && !batch;
+
+        List<File> decrypted = new ArrayList<>();
+        List<File> pendingFiles = new ArrayList<>();
+        List<Path> pendingTemps = new ArrayList<>();
+        List<Path> pendingTargets = new ArrayList<>();
+        for (int i = 0; i < inputFiles.size(); i++) {
+            File inputFile = inputFiles.get(i);
+            Key key = keys.get(i);
+            if (key == null) {
+                System.out.println("No se encontro clave para: " + inputFile.getName());
+                continue;
+            }
+            try {
+                Path target = Paths.get(directory.getPath(), keyName(inputFile.getName()));
+                Path temp = AtomicFileWriter.writeTempChannel(target, out -> EncryptedContainer.decrypt(inputFile, out, key), syncEach);
+                if (batch) {
+                    pendingFiles.add(inputFile);
+                    pendingTemps.add(temp);
+                    pendingTargets.add(target);
+                } else {
+                    AtomicFileWriter.commit(temp, target, syncEach);
+                    decrypted.add(inputFile);
+                }
+            } catch (Exception e) {
+                System.err.println("Error descifrando " + inputFile.getName() + ": " + e.getMessage());
+            }
+        }
+        if (!pendingTemps.isEmpty()) {
+            decrypted.addAll(commitBatch(pendingFiles, pendingTemps, pendingTargets, directory));
+        }
+        return decrypted;
+    }
+
+    /**
+     * Fuerza a disco en paralelo los temporales de un lote y los publica.
+     * 
+     * @param files Archivos cifrados de origen
+     * @param temps Temporales escritos sin sincronizar
+     * @param targets Destinos de cada temporal
+     * @param directory Directorio de destino, que se sincroniza una vez al final
+     * @return Archivos cifrados cuyo resultado se publicó
+     */
+    private static List<File> commitBatch(List<File> files, List<Path> temps, List<Path> targets, File directory) {
+        boolean[] synced = new boolean[temps.size()];
+        java.util.stream.IntStream.range(0, temps.size()).parallel().forEach(i -> {
+            try {
+                AtomicFileWriter.sync(temps.get(i));
+                synced[i] = true;
+            } catch (IOException e) {
+                System.err.println("Error sincronizando " + files.get(i).getName() + ": " + e.getMessage());
+            }
+        });
+
+        List<File> committed = new ArrayList<>();
+        for (int i = 0; i < temps.size(); i++) {
+            try {
+                if (!synced[i]) {
+                    throw new IOException("el resultado no se pudo forzar a disco");
+                }
+                AtomicFileWriter.commit(temps.get(i), targets.get(i), false);
+                committed.add(files.get(i));
+            } catch (IOException e) {
+                AtomicFileWriter.discard(temps.get(i));
+                System.err.println("Error publicando " + files.get(i).getName() + ": " + e.getMessage());
+            }
+        }
+        AtomicFileWriter.syncDirectory(directory.toPath());
+        return committed;
+    }
+
+    /**
+     * Elimina los archivos de origen salvo que las opciones pidan conservarlos.
+     * 
+     * @param files Archivos de origen ya procesados
+     * @param options Opciones de la operación
+     * @throws IOException Si no se puede eliminar algún archivo
+     */
+    private static void deleteSources(List<File> files, FileOperationOptions options) throws IOException {
+        if (options.isKeepSource()) {
+            return;
+        }
+        for (File file : files) {
+            Files.delete(file.toPath());
+        }
+    }
+
+    /**
+     * Obtiene el nombre con el que se indexa la clave de un archivo.
+     * 
+     * @param filename Nombre del archivo (con o sin extensión ".enc")
+     * @return Nombre del archivo original sin la extensión ".enc"
+     */
+    private static String keyName(String filename) {
+        return filename.endsWith(".enc") ? filename.substring(0, filename.length() - 4) : filename;
+    }
+
+    /**
+     * Decodifica una lista de valores Base64, conservando los null.
+     */
+    private static List<byte[]> decodeAll(List<String> values) {
+        List<byte[]> decoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            decoded.add(value != null ? Base64.getDecoder().decode(value) : null);
+        }
+        return decoded;
+    }
+
+    /**
+     * Convierte bytes de clave en claves AES, conservando los null.
+     */
+    private static List<Key> toAesKeys(List<byte[]> rawKeys) {
+        List<Key> keys = new ArrayList<>(rawKeys.size());
+        for (byte[] raw : rawKeys) {
+            keys.add(raw != null ? new SecretKeySpec(raw, "AES") : null);
+        }
+        return keys;
+    }
+
+    /**
+     * Busca la clave AES cifrada de un archivo privado en el almacenamiento local.
+     * 
+     * @param username Nombre del usuario propietario del archivo
+     * @param filename Nombre del archivo (con o sin extensión ".enc")
+     * @return Clave AES cifrada con RSA
+     * @throws Exception Si ocurre un error al leer el almacenamiento
+     * @throws IllegalArgumentException Si no se encuentra la clave privada para el usuario y archivo
+     */
+    private static byte[] findPrivateKey(String username, String filename) throws Exception {
         String keyFilename = filename.endsWith(".enc") ? filename.substring(0, filename.length() - 4) : filename;
 
         String encryptedKeyBase64 = LocalStorage.getPrivateKey(username, keyFilename);
         if (encryptedKeyBase64 != null) {
             System.out.println("Buscando clave privada para usuario " + username + ": " + keyFilename);
-
-            byte[] encryptedKeyBytes = Base64.getDecoder().decode(encryptedKeyBase64);
-            byte[] decryptedKeyBytes = RSAUtil.decryptWithPrivateKey(encryptedKeyBytes, userPrivateKey);
-            return new SecretKeySpec(decryptedKeyBytes, "AES");
+            return Base64.getDecoder().decode(encryptedKeyBase64);
         } else {
             System.out.println("No se encontro clave privada para usuario " + username + ": " + keyFilename);
             throw new IllegalArgumentException("No se encontro ninguna clave privada para el usuario " + username + " y archivo: " + filename);
         }
     }
-}
 
+    /**
+     * Obtiene la clave resuelta de un único archivo o lanza un error si no hay ninguna.
+     * 
+     * @param resolved Claves resueltas de un único archivo
+     * @param inputFile Archivo cifrado
+     * @param username Usuario propietario, o null para el cifrado público
+     * @return Clave AES del archivo
+     * @throws IllegalArgumentException Si no se encuentra o no se puede descifrar la clave
+     */
+    private static Key requireKey(ResolvedKeys resolved, File inputFile, String username) {
+        Key key = resolved.keys.get(0);
+        if (key != null) {
+            return key;
+        }
+        if (username == null) {
+            throw new IllegalArgumentException("No se encontro ninguna clave para el archivo: " + inputFile.getName());
+        }
+        throw new IllegalArgumentException("No se encontro ninguna clave privada para el usuario " + username + " y archivo: " + inputFile.getName());
+    }
+
+    /**
+     * Obtiene las claves AES de varios archivos cifrados.
+     * 
+     * Cada archivo se descifra primero con la clave envuelta en su cabecera
+     * para el destinatario, sin consultar el almacén. Solo los archivos que no
+     * la incluyen o cuya clave no se puede descifrar (por ejemplo, tras una
+     * rotación de claves) se buscan en el almacén con una sola lectura: por el
+     * identificador de la cabecera y, si no lo tienen o no hay clave con ese
+     * identificador, por su nombre.
+     * 
+     * @param files Archivos cifrados
+     * @param username Usuario propietario, o null para el cifrado público
+     * @param embeddedUnwrapper Descifrado de las claves incluidas en las cabeceras
+     * @param storeUnwrapper Descifrado de las claves del almacén
+     * @return Claves y entradas del almacén en el mismo orden
+     * @throws Exception Si ocurre un error al leer el almacenamiento o preparar el descifrado
+     */
+    private static ResolvedKeys resolveKeys(List<File> files, String username, Unwrapper<byte[]> embeddedUnwrapper,
+            Unwrapper<String> storeUnwrapper) throws Exception {
+        String recipient = username == null ? ContainerHeader.SYSTEM_RECIPIENT : ContainerHeader.userRecipient(username);
+        ResolvedKeys resolved = new ResolvedKeys(files.size());
+        List<ContainerHeader> batchHeaders = new ArrayList<>(files.size());
+        List<byte[]> embedded = new ArrayList<>(files.size());
+        boolean anyEmbedded = false;
+        for (File file : files) {
+            ContainerHeader header = EncryptedContainer.readHeader(file);
+            String fileId = header != null ? header.getFileId() : null;
+            resolved.references.add(fileId != null ? ID_PREFIX + fileId : keyName(file.getName()));
+            batchHeaders.add(header != null && header.has(ContainerHeader.FIELD_BATCH) ? header : null);
+            byte[] wrapped = null;
+            if (header != null) {
+                try {
+                    wrapped = header.getWrappedKeys().get(recipient);
+                } catch (IOException e) {
+                    System.err.println("Claves de cabecera ilegibles en " + file.getName() + ": " + e.getMessage());
+                }
+            }
+            embedded.add(wrapped);
+            anyEmbedded |= wrapped != null;
+        }
+        if (anyEmbedded) {
+            // Los archivos de un mismo lote comparten la clave maestra envuelta: se descifra una vez
+            Map<ByteBuffer, Integer> distinct = new HashMap<>();
+            List<byte[]> unique = new ArrayList<>();
+            int[] slot = new int[embedded.size()];
+            for (int i = 0; i < embedded.size(); i++) {
+                byte[] wrapped = embedded.get(i);
+                if (wrapped == null) {
+                    slot[i] = -1;
+                    continue;
+                }
+                Integer index = distinct.putIfAbsent(ByteBuffer.wrap(wrapped), unique.size());
+                if (index == null) {
+                    index = unique.size();
+                    unique.add(wrapped);
+                }
+                slot[i] = index;
+            }
+            List<Key> unwrapped = embeddedUnwrapper.unwrap(unique);
+            for (int i = 0; i < embedded.size(); i++) {
+                Key key = slot[i] >= 0 ? unwrapped.get(slot[i]) : null;
+                // Una clave de longitud no válida indica que se descifró con otra clave privada
+                int length = key != null ? key.getEncoded().length : 0;
+                resolved.keys.add(length == 16 || length == 24 || length == 32 ? key : null);
+            }
+        } else {
+            resolved.keys.addAll(Collections.nCopies(files.size(), (Key) null));
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (resolved.keys.get(i) == null) {
+                missing.add(i);
+                if (batchHeaders.get(i) != null) {
+                    String batchReference = BATCH_PREFIX + ContainerHeader.toHex(batchHeaders.get(i).get(ContainerHeader.FIELD_BATCH));
+                    candidates.add(batchReference);
+                    candidates.add(batchReference);
+                } else {
+                    candidates.add(resolved.references.get(i));
+                    candidates.add(keyName(files.get(i).getName()));
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return deriveBatchKeys(resolved, batchHeaders);
+        }
+        List<String> values = username == null
+            ? LocalStorage.getKeys(candidates)
+            : LocalStorage.getPrivateKeys(username, candidates);
+        List<String> stored = new ArrayList<>(missing.size());
+        for (int j = 0; j < missing.size(); j++) {
+            int found = values.get(2 * j) != null ? 2 * j : 2 * j + 1;
+            // La entrada de un archivo de lote es su identificador: al eliminarla se libera la clave maestra
+            if (batchHeaders.get(missing.get(j)) == null) {
+                resolved.references.set(missing.get(j), candidates.get(found));
+            }
+            stored.add(values.get(found));
+        }
+        List<Key> storeKeys = storeUnwrapper.unwrap(stored);
+        for (int j = 0; j < missing.size(); j++) {
+            resolved.keys.set(missing.get(j), storeKeys.get(j));
+        }
+        return deriveBatchKeys(resolved, batchHeaders);
+    }
+
+    /**
+     * Sustituye la clave maestra de los archivos cifrados por lotes por la clave derivada de cada archivo.
+     * 
+     * @param resolved Claves resueltas (la maestra del lote para esos archivos)
+     * @param batchHeaders Cabecera de cada archivo cifrado por lotes (null para los demás)
+     * @return Las mismas claves resueltas
+     */
+    private static ResolvedKeys deriveBatchKeys(ResolvedKeys resolved, List<ContainerHeader> batchHeaders) throws Exception {
+        for (int i = 0; i < batchHeaders.size(); i++) {
+            if (batchHeaders.get(i) != null && resolved.keys.get(i) != null) {
+                resolved.keys.set(i, deriveBatchKey(resolved.keys.get(i), batchHeaders.get(i)));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Deriva la clave de un archivo cifrado por lotes con HKDF, usando el
+     * identificador del lote como sal y el del archivo como contexto.
+     * 
+     * @param master Clave maestra del lote
+     * @param header Cabecera con {@link ContainerHeader#FIELD_BATCH} y el identificador del archivo
+     * @return Clave AES del archivo, de la misma longitud que la maestra
+     */
+    private static Key deriveBatchKey(Key master, ContainerHeader header) throws Exception {
+        byte[] fileId = header.get(ContainerHeader.FIELD_FILE_ID);
+        if (fileId == null) {
+            throw new IOException("Archivo de lote sin identificador");
+        }
+        byte[] info = new byte[BATCH_KEY_INFO.length + fileId.length];
+        System.arraycopy(BATCH_KEY_INFO, 0, info, 0, BATCH_KEY_INFO.length);
+        System.arraycopy(fileId, 0, info, BATCH_KEY_INFO.length, fileId.length);
+        byte[] encoded = master.getEncoded();
+        return new SecretKeySpec(Hkdf.derive(header.get(ContainerHeader.FIELD_BATCH), encoded, info, encoded.length), "AES");
+    }
+
+    /**
+     * Obtiene la entrada del almacén de cada archivo sin leer el almacén:
+     * la del identificador de su cabecera o, si no lo tiene, la de su nombre.
+     */
+    private static List<String> keyReferences(List<File> files) {
+        List<String> references = new ArrayList<>(files.size());
+        for (File file : files) {
+            String fileId = EncryptedContainer.readFileId(file);
+            references.add(fileId != null ? ID_PREFIX + fileId : keyName(file.getName()));
+        }
+        return references;
+    }
+
+    /**
+     * Obtiene las entradas del almacén de varios identificadores de archivo.
+     */
+    private static List<String> idReferences(List<String> fileIds) {
+        List<String> references = new ArrayList<>(fileIds.size());
+        for (String fileId : fileIds) {
+            references.add(ID_PREFIX + fileId);
+        }
+        return references;
+    }
+
+    /**
+     * Descifrado en lote de claves de archivo.
+     */
+    private interface Unwrapper<T> {
+        /**
+         * @param wrapped claves envueltas (los null se devuelven como null)
+         * @return claves AES en el mismo orden (null si no se pudieron descifrar)
+         */
+        List<Key> unwrap(List<T> wrapped) throws Exception;
+    }
+
+    /**
+     * Descifra claves envueltas directamente con la clave RSA del sistema.
+     */
+    private static Unwrapper<byte[]> systemUnwrapper(PrivateKey privateKey) {
+        return wrapped -> toAesKeys(RSAUtil.decryptBatchWithPrivateKey(wrapped, privateKey));
+    }
+
+    /**
+     * Descifra claves del almacén público (envueltas con KEK o con RSA).
+     */
+    private static Unwrapper<String> storeUnwrapper(PrivateKey privateKey) {
+        return values -> KeyEncryptionKeys.getInstance().unwrapAll(values, privateKey);
+    }
+
+    /**
+     * Descifra claves envueltas con la clave RSA o X25519 de un usuario.
+     */
+    private static Unwrapper<byte[]> userUnwrapper(PrivateKey userPrivateKey) {
+        return wrapped -> toAesKeys(KeyWrapping.unwrapBatch(wrapped, userPrivateKey));
+    }
+
+    /**
+     * Descifra claves envueltas para un usuario con su sesión de claves.
+     */
+    private static Unwrapper<byte[]> sessionUnwrapper(String username) {
+        return wrapped -> KeySessionAgent.getInstance().unwrapBatch(username, wrapped);
+    }
+
+    /**
+     * Adapta un descifrado de bytes a valores del almacén en Base64.
+     */
+    private static Unwrapper<String> base64(Unwrapper<byte[]> unwrapper) {
+        return values -> unwrapper.unwrap(decodeAll(values));
+    }
+
+    /**
+     * Claves de una lista de archivos y sus entradas en el almacén.
+     */
+    private static final class ResolvedKeys {
+        /** Entrada de cada archivo en el almacén (identificador o nombre) */
+        final List<String> references;
+
+        /** Clave AES de cada archivo (null si no existe o no se pudo descifrar) */
+        final List<Key> keys;
+
+        ResolvedKeys(int size) {
+            references = new ArrayList<>(size);
+            keys = new ArrayList<>(size);
+        }
+
+        /**
+         * Obtiene las entradas de un subconjunto de los archivos.
+         */
+        List<String> referencesOf(List<File> files, List<File> subset) {
+            Map<File, String> byFile = new HashMap<>();
+            for (int i = 0; i < files.size(); i++) {
+                byFile.put(files.get(i), references.get(i));
+            }
+            List<String> selected = new ArrayList<>(subset.size());
+            for (File file : subset) {
+                selected.add(byFile.get(file));
+            }
+            return selected;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * Opciones de las operaciones de cifrado y descifrado de archivos.
+ * 
+ * Controlan si se conservan el archivo de origen y su clave después de la
+ * operación y con qué frecuencia se fuerza la escritura a disco (fsync) de
+ * los archivos generados. Los valores por defecto mantienen el
+ * comportamiento habitual de la aplicación: el origen y la clave se eliminan
+ * una vez que el resultado está guardado de forma segura.
+ * 
+ * <p>La durabilidad por defecto se puede cambiar con la propiedad del sistema
+ * {@code cs.durability} ({@code NONE}, {@code PER_FILE} o {@code PER_BATCH}),
+ * y el lugar donde se guardan las claves de los archivos nuevos con
+ * {@code cs.keyPlacement} ({@code STORE}, {@code HEADER_AND_STORE} o {@code HEADER}).
+ * Con {@code cs.sparse=true} los archivos se cifran por defecto omitiendo
+ * sus zonas vacías ({@link SparseContainer}).</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionUtil
+ * @see AtomicFileWriter
+ */
+public class FileOperationOptions {
+
+    /**
+     * Momento en que se fuerza la escritura a disco de los archivos generados.
+     */
+    public enum Durability {
+        /** Sin fsync: el archivo se publica con un renombrado atómico pero puede perderse ante un corte de luz */
+        NONE,
+        /** Un fsync por archivo y por directorio antes de publicar cada resultado */
+        PER_FILE,
+        /** En operaciones por lotes, todos los fsync se agrupan al final del lote antes de publicar */
+        PER_BATCH
+    }
+
+    /**
+     * Lugar donde se guarda la clave de un archivo al cifrarlo.
+     */
+    public enum KeyPlacement {
+        /** Solo en el almacén de claves (keys.properties o el archivo de claves del usuario) */
+        STORE,
+        /** Envuelta en la cabecera del archivo y, como índice, también en el almacén */
+        HEADER_AND_STORE,
+        /** Solo en la cabecera: el archivo se descifra sin consultar el almacén */
+        HEADER
+    }
+
+    /** Conservar el archivo de origen tras la operación */
+    private final boolean keepSource;
+
+    /** Conservar la clave en el almacenamiento tras descifrar */
+    private final boolean keepKey;
+
+    /** Política de escritura a disco */
+    private final Durability durability;
+
+    /** Lugar donde se guardan las claves de los archivos cifrados */
+    private final KeyPlacement keyPlacement;
+
+    /** Omitir al cifrar los bloques que solo contienen ceros */
+    private final boolean sparse;
+
+    private FileOperationOptions(boolean keepSource, boolean keepKey, Durability durability, KeyPlacement keyPlacement,
+            boolean sparse) {
+        this.keepSource = keepSource;
+        this.keepKey = keepKey;
+        this.durability = durability;
+        this.keyPlacement = keyPlacement;
+        this.sparse = sparse;
+    }
+
+    /**
+     * Opciones por defecto: se eliminan el origen y la clave y se usa la
+     * durabilidad configurada en {@code cs.durability} (PER_FILE si no se indica).
+     * 
+     * @return opciones por defecto
+     */
+    public static FileOperationOptions defaults() {
+        return new FileOperationOptions(false, false, configuredDurability(), configuredKeyPlacement(), Boolean.getBoolean("cs.sparse"));
+    }
+
+    /**
+     * Opciones para descifrar sin modificar el archivo cifrado ni su clave.
+     * 
+     * @return opciones que conservan el origen y la clave
+     */
+    public static FileOperationOptions keepAll() {
+        return new FileOperationOptions(true, true, configuredDurability(), configuredKeyPlacement(), Boolean.getBoolean("cs.sparse"));
+    }
+
+    /**
+     * Devuelve una copia con otro valor para la conservación del origen.
+     * 
+     * @param keepSource true para no eliminar el archivo de origen
+     * @return nuevas opciones
+     */
+    public FileOperationOptions withKeepSource(boolean keepSource) {
+        return new FileOperationOptions(keepSource, keepKey, durability, keyPlacement, sparse);
+    }
+
+    /**
+     * Devuelve una copia con otro valor para la conservación de la clave.
+     * 
+     * @param keepKey true para no eliminar la clave del almacenamiento
+     * @return nuevas opciones
+     */
+    public FileOperationOptions withKeepKey(boolean keepKey) {
+        return new FileOperationOptions(keepSource, keepKey, durability, keyPlacement, sparse);
+    }
+
+    /**
+     * Devuelve una copia con otra política de escritura a disco.
+     * 
+     * @param durability nueva política
+     * @return nuevas opciones
+     */
+    public FileOperationOptions withDurability(Durability durability) {
+        return new FileOperationOptions(keepSource, keepKey, durability, keyPlacement, sparse);
+    }
+
+    /**
+     * Devuelve una copia con otro lugar para las claves de los archivos cifrados.
+     * 
+     * @param keyPlacement nuevo lugar de las claves
+     * @return nuevas opciones
+     */
+    public FileOperationOptions withKeyPlacement(KeyPlacement keyPlacement) {
+        return new FileOperationOptions(keepSource, keepKey, durability, keyPlacement, sparse);
+    }
+
+    /**
+     * Devuelve una copia que cifra o no omitiendo las zonas vacías.
+     * 
+     * @param sparse true para cifrar en formato {@link SparseContainer}
+     * @return nuevas opciones
+     */
+    public FileOperationOptions withSparse(boolean sparse) {
+        return new FileOperationOptions(keepSource, keepKey, durability, keyPlacement, sparse);
+    }
+
+    /**
+     * Indica si se conserva el archivo de origen.
+     * 
+     * @return true si el origen no se elimina
+     */
+    public boolean isKeepSource() {
+        return keepSource;
+    }
+
+    /**
+     * Indica si se conserva la clave en el almacenamiento tras descifrar.
+     * 
+     * @return true si la clave no se elimina
+     */
+    public boolean isKeepKey() {
+        return keepKey;
+    }
+
+    /**
+     * Obtiene la política de escritura a disco.
+     * 
+     * @return política de durabilidad
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Obtiene el lugar donde se guardan las claves de los archivos cifrados.
+     * 
+     * @return lugar de las claves
+     */
+    public KeyPlacement getKeyPlacement() {
+        return keyPlacement;
+    }
+
+    /**
+     * Indica si la clave se incluye en la cabecera del archivo cifrado.
+     * 
+     * @return true con {@link KeyPlacement#HEADER} y {@link KeyPlacement#HEADER_AND_STORE}
+     */
+    public boolean isKeyInHeader() {
+        return keyPlacement != KeyPlacement.STORE;
+    }
+
+    /**
+     * Indica si la clave se guarda en el almacén de claves.
+     * 
+     * @return true salvo con {@link KeyPlacement#HEADER}
+     */
+    public boolean isKeyInStore() {
+        return keyPlacement != KeyPlacement.HEADER;
+    }
+
+    /**
+     * Indica si al cifrar se omiten los bloques que solo contienen ceros.
+     * 
+     * @return true si se cifra en formato {@link SparseContainer}
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Indica si cada archivo debe forzarse a disco antes de publicarse.
+     * 
+     * Las operaciones de un solo archivo tratan PER_BATCH como PER_FILE.
+     * 
+     * @return true salvo con {@link Durability#NONE}
+     */
+    public boolean isSync() {
+        return durability != Durability.NONE;
+    }
+
+    /**
+     * Lee la política de durabilidad de la propiedad {@code cs.durability}.
+     * 
+     * @return política configurada, o PER_FILE si no se indica o no es válida
+     */
+    static Durability configuredDurability() {
+        String value = System.getProperty("cs.durability");
+        if (value == null) {
+            return Durability.PER_FILE;
+        }
+        try {
+            return Durability.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Valor de cs.durability no valido: " + value + " (se usa PER_FILE)");
+            return Durability.PER_FILE;
+        }
+    }
+
+    /**
+     * Lee el lugar de las claves de la propiedad {@code cs.keyPlacement}.
+     * 
+     * @return lugar configurado, o STORE si no se indica o no es válido
+     */
+    static KeyPlacement configuredKeyPlacement() {
+        String value = System.getProperty("cs.keyPlacement");
+        if (value == null) {
+            return KeyPlacement.STORE;
+        }
+        try {
+            return KeyPlacement.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Valor de cs.keyPlacement no valido: " + value + " (se usa STORE)");
+            return KeyPlacement.STORE;
+        }
+    }
+}
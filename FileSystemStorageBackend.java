@@ -0,0 +1,135 @@
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Almacenamiento en un directorio del sistema de archivos local.
+ * 
+ * Cada clave es una ruta relativa al directorio raíz. Las escrituras se
+ * publican con {@link AtomicFileWriter}, con la durabilidad configurada en
+ * {@code cs.durability}, y las copias usan {@link FileChannel#transferTo},
+ * que el sistema operativo puede resolver sin pasar por la memoria de la
+ * aplicación.
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see StorageBackend
+ */
+public class FileSystemStorageBackend implements StorageBackend {
+
+    /** Directorio raíz */
+    private final Path root;
+
+    /** Forzar a disco las escrituras antes de publicarlas */
+    private final boolean sync = FileOperationOptions.defaults().isSync();
+
+    /**
+     * Crea un almacenamiento sobre un directorio.
+     * 
+     * @param root directorio raíz (se crea al escribir el primer objeto)
+     */
+    public FileSystemStorageBackend(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path source) throws Exception {
+        AtomicFileWriter.writeChannel(resolve(key), out -> copy(source, out), sync);
+    }
+
+    @Override
+    public void get(String key, Path target) throws Exception {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(key);
+        }
+        AtomicFileWriter.writeChannel(target, out -> copy(path, out), sync);
+    }
+
+    @Override
+    public byte[] getRange(String key, long offset, int length) throws Exception {
+        try (FileChannel in = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, in.size() - offset)));
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            return buffer.position() == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+
+    @Override
+    public long size(String key) throws Exception {
+        Path path = resolve(key);
+        return Files.isRegularFile(path) ? Files.size(path) : -1;
+    }
+
+    @Override
+    public void delete(String key) throws Exception {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public List<String> list(String prefix) throws Exception {
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile)
+                .map(path -> root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/"))
+                .filter(key -> key.startsWith(prefix) && !isTemporary(key))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    /**
+     * Convierte una clave en una ruta dentro de la raíz.
+     * 
+     * @throws IllegalArgumentException si la clave sale de la raíz
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (key.isEmpty() || !path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Clave de almacenamiento invalida: " + key);
+        }
+        return path;
+    }
+
+    /**
+     * Copia un archivo completo en un canal.
+     */
+    private static void copy(Path source, FileChannel out) throws Exception {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    /**
+     * Indica si una clave corresponde a un temporal de {@link AtomicFileWriter}.
+     */
+    private static boolean isTemporary(String key) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        return name.startsWith(".") && name.endsWith(".tmp");
+    }
+}
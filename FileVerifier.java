@@ -0,0 +1,306 @@
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import java.io.EOFException;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verificación no destructiva de la integridad de archivos .enc.
+ * 
+ * Cada archivo se descifra hacia un destino nulo: no se escribe
+ * texto plano en disco y no se elimina el archivo cifrado ni su clave. Los
+ * archivos en formato contenedor se autentican bloque a bloque con AES-GCM;
+ * los del formato antiguo solo pueden comprobarse por su relleno y se
+ * informan como no autenticados.
+ * 
+ * <p>Los archivos se verifican en paralelo con un número configurable de
+ * lecturas simultáneas (propiedad {@code cs.verify.concurrency}, por defecto
+ * el número de procesadores) y se guardan estadísticas de rendimiento por archivo.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see EncryptedContainer#decrypt(File, WritableByteChannel, Key)
+ */
+public class FileVerifier {
+
+    /**
+     * Resultado de la verificación de un archivo.
+     */
+    public enum Status {
+        /** Contenedor íntegro y auténtico */
+        OK,
+        /** Formato antiguo con relleno válido (sin autenticación) */
+        UNAUTHENTICATED,
+        /** Archivo modificado, truncado o descifrado con una clave que no corresponde */
+        CORRUPT,
+        /** No hay clave en el almacenamiento para el archivo */
+        NO_KEY,
+        /** Error de lectura u otro error no relacionado con la integridad */
+        ERROR
+    }
+
+    /**
+     * Resultado y estadísticas de un archivo verificado.
+     */
+    public static class Result {
+        /** Archivo verificado */
+        public final File file;
+        /** Estado de la verificación */
+        public final Status status;
+        /** Bytes cifrados leídos */
+        public final long bytes;
+        /** Tiempo de verificación en nanosegundos */
+        public final long nanos;
+        /** Detalle del error (null si no hubo) */
+        public final String detail;
+
+        Result(File file, Status status, long bytes, long nanos, String detail) {
+            this.file = file;
+            this.status = status;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.detail = detail;
+        }
+
+        /**
+         * Calcula el rendimiento de la verificación de este archivo.
+         * 
+         * @return megabytes por segundo (0 si no se leyó nada)
+         */
+        public double megabytesPerSecond() {
+            return nanos > 0 ? (bytes / 1_000_000.0) / (nanos / 1_000_000_000.0) : 0;
+        }
+    }
+
+    /**
+     * Informe de la verificación de un conjunto de archivos.
+     */
+    public static class Report {
+        /** Resultados en el mismo orden que los archivos de entrada */
+        public final List<Result> results;
+        /** Tiempo total en nanosegundos */
+        public final long elapsedNanos;
+        /** Verificaciones simultáneas utilizadas */
+        public final int concurrency;
+
+        Report(List<Result> results, long elapsedNanos, int concurrency) {
+            this.results = Collections.unmodifiableList(results);
+            this.elapsedNanos = elapsedNanos;
+            this.concurrency = concurrency;
+        }
+
+        /**
+         * Cuenta los archivos con un estado.
+         * 
+         * @param status estado a contar
+         * @return número de archivos con ese estado
+         */
+        public int count(Status status) {
+            int count = 0;
+            for (Result result : results) {
+                if (result.status == status) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Indica si todos los archivos son auténticos o, si son antiguos, tienen relleno válido.
+         * 
+         * @return true si no hay archivos corruptos, sin clave ni con errores
+         */
+        public boolean isClean() {
+            return count(Status.OK) + count(Status.UNAUTHENTICATED) == results.size();
+        }
+
+        /**
+         * Suma los bytes cifrados leídos.
+         * 
+         * @return bytes totales
+         */
+        public long totalBytes() {
+            long total = 0;
+            for (Result result : results) {
+                total += result.bytes;
+            }
+            return total;
+        }
+
+        /**
+         * Calcula el rendimiento global de la verificación.
+         * 
+         * @return megabytes por segundo
+         */
+        public double megabytesPerSecond() {
+            return elapsedNanos > 0 ? (totalBytes() / 1_000_000.0) / (elapsedNanos / 1_000_000_000.0) : 0;
+        }
+
+        /**
+         * Muestra el resultado de cada archivo y un resumen con estadísticas.
+         * 
+         * @param out destino del informe
+         */
+        public void print(PrintStream out) {
+            double[] rates = new double[results.size()];
+            int rateCount = 0;
+            for (Result result : results) {
+                out.printf("%-15s %-40s %10d bytes %8.1f MB/s%s%n",
+                    result.status, result.file.getName(), result.bytes, result.megabytesPerSecond(),
+                    result.detail != null ? "  (" + result.detail + ")" : "");
+                if (result.status == Status.OK || result.status == Status.UNAUTHENTICATED) {
+                    rates[rateCount++] = result.megabytesPerSecond();
+                }
+            }
+            out.printf("Archivos: %d  OK: %d  sin autenticar: %d  corruptos: %d  sin clave: %d  errores: %d%n",
+                results.size(), count(Status.OK), count(Status.UNAUTHENTICATED), count(Status.CORRUPT),
+                count(Status.NO_KEY), count(Status.ERROR));
+            out.printf("Total: %d bytes en %d ms (%.1f MB/s, %d en paralelo)%n",
+                totalBytes(), elapsedNanos / 1_000_000, megabytesPerSecond(), concurrency);
+            if (rateCount > 0) {
+                Arrays.sort(rates, 0, rateCount);
+                out.printf("Por archivo: min %.1f MB/s, mediana %.1f MB/s, max %.1f MB/s%n",
+                    rates[0], rates[rateCount / 2], rates[rateCount - 1]);
+            }
+        }
+    }
+
+    /**
+     * Obtiene el número de verificaciones simultáneas configurado.
+     * 
+     * @return valor de {@code cs.verify.concurrency} o el número de procesadores
+     */
+    public static int defaultConcurrency() {
+        return Math.max(1, Integer.getInteger("cs.verify.concurrency", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Verifica un archivo .enc con su clave.
+     * 
+     * @param file archivo cifrado
+     * @param key clave AES del archivo (null si no se encontró)
+     * @return resultado de la verificación
+     */
+    public static Result verify(File file, Key key) {
+        long start = System.nanoTime();
+        if (key == null) {
+            return new Result(file, Status.NO_KEY, 0, 0, null);
+        }
+        try {
+            boolean container = EncryptedContainer.isContainer(file);
+            EncryptedContainer.decrypt(file, new DiscardChannel(), key);
+            return new Result(file, container ? Status.OK : Status.UNAUTHENTICATED, file.length(), System.nanoTime() - start, null);
+        } catch (BadPaddingException | IllegalBlockSizeException | StreamCorruptedException | EOFException e) {
+            return new Result(file, Status.CORRUPT, file.length(), System.nanoTime() - start, e.getMessage());
+        } catch (Exception e) {
+            return new Result(file, Status.ERROR, 0, System.nanoTime() - start, e.getMessage());
+        }
+    }
+
+    /**
+     * Verifica en paralelo un conjunto de archivos.
+     * 
+     * @param files archivos cifrados
+     * @param keys claves AES en el mismo orden (null si no existe)
+     * @param concurrency número máximo de archivos verificados a la vez
+     * @return informe de la verificación
+     * @throws Exception si la verificación se interrumpe
+     */
+    public static Report verify(List<File> files, List<Key> keys, int concurrency) throws Exception {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                Key key = keys.get(i);
+                futures.add(executor.submit(() -> verify(file, key)));
+            }
+            List<Result> results = new ArrayList<>(files.size());
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return new Report(results, System.nanoTime() - start, concurrency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifica los archivos cifrados públicamente de un directorio.
+     * 
+     * @param directory directorio con archivos .enc
+     * @param systemPrivateKey clave privada RSA del sistema
+     * @param concurrency número máximo de archivos verificados a la vez
+     * @return informe de la verificación
+     * @throws Exception si hay error al acceder al almacenamiento de claves
+     * @see FileEncryptionUtil#getFileKeys(List, PrivateKey)
+     */
+    public static Report verifyPublic(File directory, PrivateKey systemPrivateKey, int concurrency) throws Exception {
+        List<File> files = listEncrypted(directory);
+        return verify(files, FileEncryptionUtil.getFileKeys(files, systemPrivateKey), concurrency);
+    }
+
+    /**
+     * Verifica los archivos cifrados privadamente de un usuario.
+     * 
+     * @param directory directorio con archivos .enc del usuario
+     * @param username usuario propietario de los archivos
+     * @param userPrivateKey clave privada RSA o X25519 del usuario
+     * @param concurrency número máximo de archivos verificados a la vez
+     * @return informe de la verificación
+     * @throws Exception si hay error al acceder al almacenamiento de claves
+     * @see FileEncryptionUtil#getPrivateFileKeys(String, List, PrivateKey)
+     */
+    public static Report verifyPrivate(File directory, String username, PrivateKey userPrivateKey, int concurrency) throws Exception {
+        List<File> files = listEncrypted(directory);
+        return verify(files, FileEncryptionUtil.getPrivateFileKeys(username, files, userPrivateKey), concurrency);
+    }
+
+    /**
+     * Canal que descarta todo lo que se escribe en él sin copiarlo.
+     */
+    private static final class DiscardChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            src.position(src.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Lista los archivos .enc de un directorio ordenados por nombre.
+     */
+    private static List<File> listEncrypted(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".enc"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+}
@@ -0,0 +1,88 @@
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * Implementación de HKDF con HMAC-SHA256 (RFC 5869).
+ * 
+ * Deriva claves criptográficamente independientes a partir de un secreto
+ * compartido o una clave maestra, separando los distintos usos mediante el
+ * parámetro {@code info}.
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see Mac
+ * @see X25519Util
+ */
+public class Hkdf {
+    /** Algoritmo HMAC subyacente */
+    private static final String HMAC = "HmacSHA256";
+
+    /** Longitud de salida de HMAC-SHA256 en bytes */
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * Deriva una clave en un solo paso (extracción más expansión).
+     * 
+     * @param salt sal opcional (puede ser null o vacía)
+     * @param ikm material de clave de entrada
+     * @param info contexto de la derivación
+     * @param length longitud de la clave derivada en bytes (máximo 8160)
+     * @return clave derivada
+     * @throws GeneralSecurityException si HMAC-SHA256 no está disponible
+     */
+    public static byte[] derive(byte[] salt, byte[] ikm, byte[] info, int length) throws GeneralSecurityException {
+        return expand(extract(salt, ikm), info, length);
+    }
+
+    /**
+     * Paso de extracción: concentra la entropía del material de entrada.
+     * 
+     * @param salt sal opcional (puede ser null o vacía)
+     * @param ikm material de clave de entrada
+     * @return clave pseudoaleatoria (PRK) de 32 bytes
+     * @throws GeneralSecurityException si HMAC-SHA256 no está disponible
+     */
+    public static byte[] extract(byte[] salt, byte[] ikm) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC);
+        byte[] effectiveSalt = salt == null || salt.length == 0 ? new byte[HASH_LENGTH] : salt;
+        mac.init(new SecretKeySpec(effectiveSalt, HMAC));
+        return mac.doFinal(ikm);
+    }
+
+    /**
+     * Paso de expansión: genera la cantidad de material de clave solicitada.
+     * 
+     * @param prk clave pseudoaleatoria obtenida en la extracción
+     * @param info contexto de la derivación
+     * @param length longitud de la clave derivada en bytes (máximo 8160)
+     * @return clave derivada
+     * @throws GeneralSecurityException si HMAC-SHA256 no está disponible
+     * @throws IllegalArgumentException si la longitud solicitada es inválida
+     */
+    public static byte[] expand(byte[] prk, byte[] info, int length) throws GeneralSecurityException {
+        if (length <= 0 || length > 255 * HASH_LENGTH) {
+            throw new IllegalArgumentException("Longitud HKDF invalida: " + length);
+        }
+        Mac mac = Mac.getInstance(HMAC);
+        mac.init(new SecretKeySpec(prk, HMAC));
+
+        byte[] output = new byte[length];
+        byte[] block = new byte[0];
+        int offset = 0;
+        for (int counter = 1; offset < length; counter++) {
+            mac.update(block);
+            if (info != null) {
+                mac.update(info);
+            }
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            int chunk = Math.min(block.length, length - offset);
+            System.arraycopy(block, 0, output, offset, chunk);
+            offset += chunk;
+        }
+        return output;
+    }
+}
@@ -0,0 +1,715 @@
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Contenedor .enc que se puede actualizar volviendo a cifrar solo los bloques modificados.
+ * 
+ * El contenido se divide en bloques definidos por el contenido (entre 16 y
+ * 256 KiB, 64 KiB de media): los cortes se eligen con un hash rodante sobre
+ * los propios datos, de modo que insertar o borrar bytes solo cambia los
+ * bloques de alrededor y no desplaza todos los siguientes. Cada bloque se
+ * cifra con AES-GCM y un nonce aleatorio propio, y un manifiesto cifrado
+ * guarda, en orden, la posición, la longitud, el nonce y el resumen SHA-256
+ * del texto plano de cada bloque.
+ * 
+ * <p>Al actualizar el archivo se vuelve a dividir el texto plano y solo se
+ * cifran y añaden al final los bloques cuyo resumen no está en el
+ * manifiesto; después se añade el manifiesto nuevo y se publica en una de
+ * las dos ranuras fijas que siguen a la cabecera. Un lector usa la ranura
+ * de mayor generación cuyo manifiesto es auténtico, por lo que un corte
+ * durante la actualización deja el archivo en la versión anterior. Cuando
+ * los bloques sin uso superan a los útiles, el archivo se compacta copiando
+ * los bloques cifrados sin descifrarlos.</p>
+ * 
+ * <p>Formato tras la cabecera (con {@link ContainerHeader#FIELD_INCREMENTAL}):
+ * dos ranuras de 32 bytes (generación, posición y longitud del manifiesto)
+ * seguidas de los bloques y manifiestos cifrados. Las posiciones son
+ * relativas al final de la cabecera, que así se puede reescribir al rotar
+ * las claves envueltas. Los datos autenticados de cada bloque y de cada
+ * manifiesto incluyen el resumen de la cabecera; los del manifiesto,
+ * además, su generación.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see EncryptedContainer
+ */
+public class IncrementalContainer {
+
+    /** Tamaño mínimo de bloque */
+    static final int MIN_CHUNK_SIZE = 16 * 1024;
+
+    /** Tamaño máximo de bloque */
+    static final int MAX_CHUNK_SIZE = 256 * 1024;
+
+    /** Bits altos del hash rodante que deben ser cero para cortar (64 KiB de media tras el mínimo) */
+    private static final long CUT_MASK = 0xFFFFL << 48;
+
+    /** Versión del formato incremental */
+    private static final byte FORMAT_VERSION = 1;
+
+    /** Longitud de cada ranura del manifiesto */
+    private static final int SLOT_LENGTH = 32;
+
+    /** Longitud de la zona de ranuras */
+    private static final int SLOTS_LENGTH = 2 * SLOT_LENGTH;
+
+    /** Longitud de los nonces GCM */
+    private static final int NONCE_LENGTH = 12;
+
+    /** Longitud de la etiqueta GCM */
+    private static final int TAG_LENGTH = 16;
+
+    /** Longitud de cada entrada del manifiesto: posición, longitud, nonce y resumen */
+    private static final int ENTRY_LENGTH = 8 + 4 + NONCE_LENGTH + 32;
+
+    /** Longitud máxima del manifiesto cifrado */
+    private static final int MAX_MANIFEST_LENGTH = 64 * 1024 * 1024;
+
+    /** Bytes sin uso a partir de los cuales se considera compactar */
+    private static final long MIN_GARBAGE_TO_COMPACT = 1024 * 1024;
+
+    /** Tabla del hash rodante (fija: los cortes deben ser los mismos en cada ejecución) */
+    private static final long[] GEAR = new long[256];
+
+    /** Generador de nonces */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x4353454349434443L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Resultado de un cifrado o una actualización.
+     */
+    public static class Result {
+        /** Bloques del archivo */
+        public final int chunks;
+
+        /** Bloques reutilizados sin volver a cifrarlos */
+        public final int reused;
+
+        /** Bytes cifrados escritos (bloques nuevos y manifiesto) */
+        public final long writtenBytes;
+
+        /** Longitud del texto plano */
+        public final long plainLength;
+
+        /** El archivo se ha compactado */
+        public final boolean compacted;
+
+        Result(int chunks, int reused, long writtenBytes, long plainLength, boolean compacted) {
+            this.chunks = chunks;
+            this.reused = reused;
+            this.writtenBytes = writtenBytes;
+            this.plainLength = plainLength;
+            this.compacted = compacted;
+        }
+
+        @Override
+        public String toString() {
+            return chunks + " bloques, " + reused + " reutilizados, " + writtenBytes / 1024 + " KiB escritos"
+                + (compacted ? ", compactado" : "");
+        }
+    }
+
+    private IncrementalContainer() {
+    }
+
+    /**
+     * Crea la cabecera de un contenedor incremental.
+     * 
+     * @return cabecera a la que se pueden añadir más campos antes de escribirla
+     */
+    public static ContainerHeader newHeader() {
+        ContainerHeader header = ContainerHeader.create(MAX_CHUNK_SIZE);
+        header.put(ContainerHeader.FIELD_INCREMENTAL, new byte[] {FORMAT_VERSION});
+        return header;
+    }
+
+    /**
+     * Indica si una cabecera corresponde a un contenedor incremental.
+     * 
+     * @param header cabecera leída
+     * @return true si tiene el campo {@link ContainerHeader#FIELD_INCREMENTAL}
+     */
+    public static boolean isIncremental(ContainerHeader header) {
+        return header.has(ContainerHeader.FIELD_INCREMENTAL);
+    }
+
+    /**
+     * Indica si un archivo cifrado es un contenedor incremental.
+     * 
+     * @param file archivo cifrado
+     * @return true si su cabecera se puede leer y es incremental
+     */
+    public static boolean isIncremental(File file) {
+        ContainerHeader header = EncryptedContainer.readHeader(file);
+        return header != null && isIncremental(header);
+    }
+
+    /**
+     * Cifra un archivo completo en formato incremental.
+     * 
+     * @param inputFile archivo de texto plano
+     * @param out canal de destino vacío
+     * @param key clave AES del archivo
+     * @param header cabecera creada con {@link #newHeader()}
+     * @return bloques y bytes escritos
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     */
+    public static Result encrypt(File inputFile, FileChannel out, Key key, ContainerHeader header) throws Exception {
+        if (!isIncremental(header)) {
+            throw new IllegalArgumentException("La cabecera no es de un contenedor incremental");
+        }
+        byte[] encodedHeader = header.encode();
+        writeFully(out, ByteBuffer.wrap(encodedHeader), 0);
+        writeFully(out, ByteBuffer.allocate(SLOTS_LENGTH), encodedHeader.length);
+        Session session = new Session(out, encodedHeader.length, key, header, SLOTS_LENGTH);
+        Manifest manifest = session.write(inputFile, new Manifest(0), false);
+        manifest.generation = 1;
+        session.commit(manifest, 0);
+        return session.result(manifest, false);
+    }
+
+    /**
+     * Actualiza un contenedor incremental con el contenido actual de un archivo.
+     * 
+     * Solo se cifran y escriben los bloques que no existían en la versión
+     * anterior y el nuevo manifiesto. Si después quedan más bytes sin uso que
+     * útiles, el archivo se reescribe de forma atómica sin descifrar los bloques.
+     * 
+     * @param inputFile archivo de texto plano con el contenido nuevo
+     * @param encryptedFile contenedor incremental existente
+     * @param key clave AES del contenedor
+     * @param sync true para forzar a disco los bloques antes de publicar el manifiesto
+     * @return bloques reutilizados y bytes escritos
+     * @throws StreamCorruptedException si el archivo no es un contenedor incremental
+     * @throws Exception si el contenedor no es auténtico o hay error de lectura o escritura
+     */
+    public static Result update(File inputFile, File encryptedFile, Key key, boolean sync) throws Exception {
+        ContainerHeader header = readHeader(encryptedFile);
+        Manifest updated;
+        Session session;
+        try (FileChannel channel = FileChannel.open(encryptedFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long base = header.length();
+            Manifest current = readManifest(channel, base, key, header);
+            session = new Session(channel, base, key, header, channel.size() - base);
+            updated = session.write(inputFile, current, true);
+            if (updated.sameChunks(current)) {
+                // Sin cambios: se conserva el manifiesto publicado
+                return session.result(updated, false);
+            }
+            updated.generation = current.generation + 1;
+            if (sync) {
+                AtomicFileWriter.force(channel);
+            }
+            session.commit(updated, current.slot ^ 1);
+            if (sync) {
+                AtomicFileWriter.force(channel);
+            }
+        }
+        AppConfig.recordWrite(encryptedFile.toPath(), session.written);
+        long live = updated.liveBytes();
+        long garbage = session.end - SLOTS_LENGTH - live;
+        if (garbage > live && garbage > MIN_GARBAGE_TO_COMPACT) {
+            compact(encryptedFile, header, updated, key, sync);
+            return session.result(updated, true);
+        }
+        return session.result(updated, false);
+    }
+
+    /**
+     * Descifra un contenedor incremental completo hacia un canal.
+     * 
+     * @param inputFile contenedor incremental
+     * @param out destino del texto plano
+     * @param key clave AES del contenedor
+     * @return bytes de texto plano descifrados
+     * @throws AEADBadTagException si algún bloque o el manifiesto no son auténticos
+     * @throws Exception si hay error de lectura o escritura
+     */
+    public static long decrypt(File inputFile, WritableByteChannel out, Key key) throws Exception {
+        ContainerHeader header = readHeader(inputFile);
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            return decrypt(channel, header, out, key);
+        }
+    }
+
+    /**
+     * Descifra un contenedor incremental abierto cuya cabecera ya se ha leído.
+     * 
+     * @param channel contenedor incremental
+     * @param header cabecera leída del contenedor
+     * @param out destino del texto plano
+     * @param key clave AES del contenedor
+     * @return bytes de texto plano descifrados
+     * @throws Exception si el contenedor no es auténtico o hay error de lectura o escritura
+     * @see CryptoPipeline#decrypt(FileChannel, WritableByteChannel, Key)
+     */
+    static long decrypt(FileChannel channel, ContainerHeader header, WritableByteChannel out, Key key) throws Exception {
+        long base = header.length();
+        Manifest manifest = readManifest(channel, base, key, header);
+        ChunkCrypto crypto = new ChunkCrypto(key, header);
+        ByteBuffer record = BufferPool.acquire(MAX_CHUNK_SIZE + TAG_LENGTH);
+        ByteBuffer plain = BufferPool.acquire(MAX_CHUNK_SIZE);
+        try {
+            long total = 0;
+            for (Chunk chunk : manifest.chunks) {
+                record.clear().limit(chunk.length + TAG_LENGTH);
+                readFully(channel, record, base + chunk.position);
+                record.flip();
+                plain.clear();
+                crypto.open(chunk.nonce, record, plain);
+                plain.flip();
+                total += plain.remaining();
+                while (plain.hasRemaining()) {
+                    out.write(plain);
+                }
+            }
+            if (total != manifest.plainLength) {
+                throw new AEADBadTagException("Longitud descifrada distinta de la del manifiesto");
+            }
+            return total;
+        } finally {
+            BufferPool.release(record);
+            BufferPool.release(plain);
+        }
+    }
+
+    /**
+     * Reescribe el contenedor con solo los bloques del manifiesto, copiados
+     * cifrados y sin cambiar de nonce.
+     */
+    private static void compact(File encryptedFile, ContainerHeader header, Manifest manifest, Key key, boolean sync) throws Exception {
+        long base = header.length();
+        try (FileChannel in = FileChannel.open(encryptedFile.toPath(), StandardOpenOption.READ)) {
+            AtomicFileWriter.writeChannel(encryptedFile.toPath(), out -> {
+                writeFully(out, ByteBuffer.wrap(header.encode()), 0);
+                writeFully(out, ByteBuffer.allocate(SLOTS_LENGTH), base);
+                Manifest compacted = new Manifest(manifest.generation + 1);
+                compacted.plainLength = manifest.plainLength;
+                Map<Long, Long> moved = new HashMap<>();
+                long end = SLOTS_LENGTH;
+                for (Chunk chunk : manifest.chunks) {
+                    Long position = moved.get(chunk.position);
+                    if (position == null) {
+                        position = end;
+                        long length = chunk.length + TAG_LENGTH;
+                        long copied = 0;
+                        while (copied < length) {
+                            copied += in.transferTo(base + chunk.position + copied, length - copied,
+                                out.position(base + end + copied));
+                        }
+                        moved.put(chunk.position, position);
+                        end += length;
+                    }
+                    compacted.chunks.add(new Chunk(position, chunk.length, chunk.nonce, chunk.hash));
+                }
+                Session session = new Session(out, base, key, header, end);
+                session.commit(compacted, 0);
+            }, sync);
+        }
+    }
+
+    /**
+     * Lee la cabecera de un contenedor incremental.
+     */
+    private static ContainerHeader readHeader(File file) throws IOException {
+        ContainerHeader header;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 4096)) {
+            header = ContainerHeader.read(in);
+        }
+        if (!isIncremental(header)) {
+            throw new StreamCorruptedException("El archivo no es un contenedor incremental: " + file.getName());
+        }
+        return header;
+    }
+
+    /**
+     * Lee el manifiesto vigente: el de la ranura de mayor generación que sea auténtico.
+     */
+    private static Manifest readManifest(FileChannel channel, long base, Key key, ContainerHeader header) throws Exception {
+        ByteBuffer slots = ByteBuffer.allocate(SLOTS_LENGTH);
+        readFully(channel, slots, base);
+        long[] generations = {slots.getLong(0), slots.getLong(SLOT_LENGTH)};
+        int first = Long.compareUnsigned(generations[0], generations[1]) >= 0 ? 0 : 1;
+        ChunkCrypto crypto = new ChunkCrypto(key, header);
+        GeneralSecurityException failure = null;
+        for (int slot : new int[] {first, first ^ 1}) {
+            long generation = generations[slot];
+            long position = slots.getLong(slot * SLOT_LENGTH + 8);
+            int length = slots.getInt(slot * SLOT_LENGTH + 16);
+            if (generation == 0 || position < SLOTS_LENGTH || length < NONCE_LENGTH + TAG_LENGTH
+                    || length > MAX_MANIFEST_LENGTH || position + length > channel.size() - base) {
+                continue;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(channel, record, base + position);
+            try {
+                Manifest manifest = crypto.openManifest(record.array(), generation);
+                manifest.slot = slot;
+                return manifest;
+            } catch (GeneralSecurityException e) {
+                // Ranura escrita a medias o manifiesto dañado: se prueba la otra
+                failure = e;
+            }
+        }
+        AEADBadTagException corrupt = new AEADBadTagException("El contenedor incremental no tiene un manifiesto autentico");
+        if (failure != null) {
+            corrupt.initCause(failure);
+        }
+        throw corrupt;
+    }
+
+    /**
+     * Busca el siguiente corte definido por el contenido.
+     * 
+     * @return longitud del bloque que empieza en {@code offset}
+     */
+    static int cut(ByteBuffer data, int offset, int length) {
+        if (length <= MIN_CHUNK_SIZE) {
+            return length;
+        }
+        int limit = offset + Math.min(length, MAX_CHUNK_SIZE);
+        long hash = 0;
+        for (int i = offset + MIN_CHUNK_SIZE; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data.get(i) & 0xFF];
+            if ((hash & CUT_MASK) == 0) {
+                return i - offset + 1;
+            }
+        }
+        return limit - offset;
+    }
+
+    /**
+     * Escribe un búfer completo en una posición del canal.
+     */
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    /**
+     * Llena un búfer desde una posición del canal.
+     */
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                throw new StreamCorruptedException("Contenedor incremental truncado");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Bloque cifrado referenciado por el manifiesto.
+     */
+    private static final class Chunk {
+        /** Posición del bloque cifrado, relativa al final de la cabecera */
+        final long position;
+
+        /** Longitud del texto plano */
+        final int length;
+
+        /** Nonce GCM del bloque */
+        final byte[] nonce;
+
+        /** Resumen SHA-256 del texto plano */
+        final byte[] hash;
+
+        Chunk(long position, int length, byte[] nonce, byte[] hash) {
+            this.position = position;
+            this.length = length;
+            this.nonce = nonce;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Lista ordenada de bloques de una versión del contenido.
+     */
+    private static final class Manifest {
+        long generation;
+        long plainLength;
+        int slot;
+        final List<Chunk> chunks = new ArrayList<>();
+
+        Manifest(long generation) {
+            this.generation = generation;
+        }
+
+        /**
+         * Bytes cifrados que ocupan los bloques referenciados (sin contar repetidos).
+         */
+        long liveBytes() {
+            Map<Long, Integer> distinct = new HashMap<>();
+            for (Chunk chunk : chunks) {
+                distinct.put(chunk.position, chunk.length + TAG_LENGTH);
+            }
+            long live = 0;
+            for (int length : distinct.values()) {
+                live += length;
+            }
+            return live;
+        }
+
+        /**
+         * Indica si referencia los mismos bloques, en el mismo orden, que otro manifiesto.
+         */
+        boolean sameChunks(Manifest other) {
+            if (plainLength != other.plainLength || chunks.size() != other.chunks.size()) {
+                return false;
+            }
+            for (int i = 0; i < chunks.size(); i++) {
+                if (chunks.get(i).position != other.chunks.get(i).position) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(20 + chunks.size() * ENTRY_LENGTH);
+            DataOutputStream out = new DataOutputStream(raw);
+            out.writeLong(plainLength);
+            out.writeInt(chunks.size());
+            for (Chunk chunk : chunks) {
+                out.writeLong(chunk.position);
+                out.writeInt(chunk.length);
+                out.write(chunk.nonce);
+                out.write(chunk.hash);
+            }
+            out.flush();
+            return raw.toByteArray();
+        }
+
+        static Manifest decode(byte[] encoded, long generation) throws StreamCorruptedException {
+            ByteBuffer in = ByteBuffer.wrap(encoded);
+            try {
+                Manifest manifest = new Manifest(generation);
+                manifest.plainLength = in.getLong();
+                int count = in.getInt();
+                if (count < 0 || (long) count * ENTRY_LENGTH != in.remaining()) {
+                    throw new StreamCorruptedException("Manifiesto incremental corrupto");
+                }
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    long position = in.getLong();
+                    int length = in.getInt();
+                    byte[] nonce = new byte[NONCE_LENGTH];
+                    byte[] hash = new byte[32];
+                    in.get(nonce);
+                    in.get(hash);
+                    if (length <= 0 || length > MAX_CHUNK_SIZE || position < SLOTS_LENGTH) {
+                        throw new StreamCorruptedException("Manifiesto incremental corrupto");
+                    }
+                    manifest.chunks.add(new Chunk(position, length, nonce, hash));
+                    total += length;
+                }
+                if (total != manifest.plainLength) {
+                    throw new StreamCorruptedException("Manifiesto incremental corrupto");
+                }
+                return manifest;
+            } catch (RuntimeException e) {
+                StreamCorruptedException corrupt = new StreamCorruptedException("Manifiesto incremental corrupto");
+                corrupt.initCause(e);
+                throw corrupt;
+            }
+        }
+    }
+
+    /**
+     * Cifrado AES-GCM de bloques y manifiestos con nonces aleatorios.
+     */
+    private static final class ChunkCrypto {
+        private final Key key;
+        private final byte[] digest;
+        private final Cipher cipher;
+
+        ChunkCrypto(Key key, ContainerHeader header) throws GeneralSecurityException {
+            this.key = key;
+            this.digest = header.digest();
+            this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        }
+
+        /**
+         * Cifra un bloque con un nonce nuevo.
+         */
+        void seal(byte[] nonce, ByteBuffer plain, ByteBuffer sealed) throws GeneralSecurityException {
+            init(Cipher.ENCRYPT_MODE, nonce, 'C', 0);
+            cipher.doFinal(plain, sealed);
+        }
+
+        /**
+         * Descifra y autentica un bloque.
+         */
+        void open(byte[] nonce, ByteBuffer sealed, ByteBuffer plain) throws GeneralSecurityException {
+            init(Cipher.DECRYPT_MODE, nonce, 'C', 0);
+            cipher.doFinal(sealed, plain);
+        }
+
+        /**
+         * Cifra un manifiesto: nonce seguido del texto cifrado.
+         */
+        byte[] sealManifest(Manifest manifest) throws GeneralSecurityException, IOException {
+            byte[] nonce = newNonce();
+            init(Cipher.ENCRYPT_MODE, nonce, 'M', manifest.generation);
+            byte[] sealed = cipher.doFinal(manifest.encode());
+            byte[] record = Arrays.copyOf(nonce, NONCE_LENGTH + sealed.length);
+            System.arraycopy(sealed, 0, record, NONCE_LENGTH, sealed.length);
+            return record;
+        }
+
+        /**
+         * Descifra y autentica un manifiesto de la generación indicada.
+         */
+        Manifest openManifest(byte[] record, long generation) throws GeneralSecurityException, IOException {
+            init(Cipher.DECRYPT_MODE, Arrays.copyOf(record, NONCE_LENGTH), 'M', generation);
+            byte[] encoded = cipher.doFinal(record, NONCE_LENGTH, record.length - NONCE_LENGTH);
+            return Manifest.decode(encoded, generation);
+        }
+
+        private void init(int mode, byte[] nonce, char kind, long generation) throws GeneralSecurityException {
+            cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(ByteBuffer.allocate(digest.length + 9).put(digest).put((byte) kind).putLong(generation).array());
+        }
+
+        static byte[] newNonce() {
+            byte[] nonce = new byte[NONCE_LENGTH];
+            RANDOM.nextBytes(nonce);
+            return nonce;
+        }
+    }
+
+    /**
+     * Escritura de bloques nuevos al final de un contenedor abierto.
+     */
+    private static final class Session {
+        private final FileChannel channel;
+        private final long base;
+        private final ChunkCrypto crypto;
+        private final MessageDigest sha256;
+        private long end;
+        private long written;
+        private int reused;
+
+        Session(FileChannel channel, long base, Key key, ContainerHeader header, long end) throws GeneralSecurityException {
+            this.channel = channel;
+            this.base = base;
+            this.crypto = new ChunkCrypto(key, header);
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+            this.end = end;
+        }
+
+        /**
+         * Divide el archivo en bloques y escribe los que no están en el manifiesto anterior.
+         * 
+         * @param reuse true para reutilizar los bloques del manifiesto anterior con el mismo contenido
+         */
+        Manifest write(File inputFile, Manifest previous, boolean reuse) throws Exception {
+            // Bloques por resumen del texto plano, incluidos los repetidos dentro del propio archivo
+            Map<ByteBuffer, Chunk> known = new HashMap<>();
+            if (reuse) {
+                for (Chunk chunk : previous.chunks) {
+                    known.put(ByteBuffer.wrap(chunk.hash), chunk);
+                }
+            }
+            Manifest manifest = new Manifest(0);
+            // Texto plano pendiente entre position y limit; se rellena cuando queda menos de un bloque máximo
+            ByteBuffer buffer = BufferPool.acquire(2 * MAX_CHUNK_SIZE);
+            ByteBuffer sealed = BufferPool.acquire(MAX_CHUNK_SIZE + TAG_LENGTH);
+            try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+                buffer.flip();
+                boolean eof = false;
+                while (true) {
+                    if (!eof && buffer.remaining() < MAX_CHUNK_SIZE) {
+                        buffer.compact();
+                        while (buffer.hasRemaining() && !eof) {
+                            eof = in.read(buffer) < 0;
+                        }
+                        buffer.flip();
+                    }
+                    if (!buffer.hasRemaining()) {
+                        break;
+                    }
+                    int start = buffer.position();
+                    int available = buffer.limit();
+                    int length = cut(buffer, start, available - start);
+                    buffer.limit(start + length);
+                    sha256.update(buffer);
+                    byte[] hash = sha256.digest();
+                    Chunk chunk = known.get(ByteBuffer.wrap(hash));
+                    if (chunk != null && chunk.length == length) {
+                        reused++;
+                    } else {
+                        byte[] nonce = ChunkCrypto.newNonce();
+                        buffer.position(start);
+                        sealed.clear();
+                        crypto.seal(nonce, buffer, sealed);
+                        sealed.flip();
+                        chunk = new Chunk(end, length, nonce, hash);
+                        written += sealed.remaining();
+                        end += sealed.remaining();
+                        writeFully(channel, sealed, base + chunk.position);
+                        known.put(ByteBuffer.wrap(hash), chunk);
+                    }
+                    manifest.chunks.add(chunk);
+                    manifest.plainLength += length;
+                    buffer.limit(available).position(start + length);
+                }
+            } finally {
+                BufferPool.release(buffer);
+                BufferPool.release(sealed);
+            }
+            return manifest;
+        }
+
+        /**
+         * Añade el manifiesto cifrado al final y lo publica en la ranura indicada.
+         */
+        void commit(Manifest manifest, int slot) throws Exception {
+            byte[] record = crypto.sealManifest(manifest);
+            long position = end;
+            writeFully(channel, ByteBuffer.wrap(record), base + position);
+            end += record.length;
+            written += record.length;
+            ByteBuffer slotBytes = ByteBuffer.allocate(SLOT_LENGTH);
+            slotBytes.putLong(manifest.generation).putLong(position).putInt(record.length).clear();
+            writeFully(channel, slotBytes, base + (long) slot * SLOT_LENGTH);
+        }
+
+        Result result(Manifest manifest, boolean compacted) {
+            return new Result(manifest.chunks.size(), reused, written, manifest.plainLength, compacted);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jerarquía de claves del cifrado público: RSA protege las KEK y las KEK
+ * protegen las claves de archivo.
+ * 
+ * La clave RSA del sistema ya no cifra cada clave AES de archivo. En su
+ * lugar cifra un pequeño conjunto de claves de cifrado de claves (KEK,
+ * AES-256) guardadas en keks.properties, y cada clave de archivo se envuelve
+ * con la KEK activa mediante AES Key Wrap (RFC 3394). Las KEK descifradas se
+ * guardan en memoria, de modo que descifrar un lote de archivos cuesta una
+ * operación RSA por KEK en lugar de una por archivo.
+ * 
+ * <p>Las claves envueltas se guardan como {@code kek:<id>:<Base64>}. Las
+ * claves guardadas por versiones anteriores (Base64 cifrado con RSA) se
+ * siguen leyendo sin cambios. La KEK activa se renueva cuando supera la edad
+ * configurada en {@code cs.kek.maxAgeDays} (30 días por defecto); las
+ * anteriores se conservan para descifrar.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionUtil#saveKey(String, Key, PublicKey)
+ * @see LocalStorage#saveKek(String, String, boolean, String)
+ */
+public class KeyEncryptionKeys {
+    /** Prefijo de las claves envueltas con una KEK */
+    static final String PREFIX = "kek:";
+
+    /** Longitud de las KEK en bits */
+    private static final int KEK_BITS = 256;
+
+    /** Instancia compartida por la aplicación */
+    private static final KeyEncryptionKeys INSTANCE = new KeyEncryptionKeys();
+
+    /** Edad máxima de la KEK activa en milisegundos */
+    private final long maxAgeMillis = TimeUnit.DAYS.toMillis(Long.getLong("cs.kek.maxAgeDays", 30));
+
+    /** KEK descifradas por identificador */
+    private final Map<String, SecretKey> cache = new ConcurrentHashMap<>();
+
+    /** Generador aleatorio para los identificadores */
+    private final SecureRandom random = new SecureRandom();
+
+    /** Clave privada del sistema para reutilizar la KEK activa guardada (null si no se conoce) */
+    private volatile PrivateKey systemPrivateKey;
+
+    /** Identificador de la KEK activa en este proceso */
+    private String activeId;
+
+    /** Fecha de creación de la KEK activa en milisegundos */
+    private long activeCreated;
+
+    private KeyEncryptionKeys() {
+    }
+
+    /**
+     * Obtiene la instancia compartida.
+     * 
+     * @return jerarquía de claves de la aplicación
+     */
+    public static KeyEncryptionKeys getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registra la clave privada del sistema para poder reutilizar la KEK
+     * activa guardada en lugar de crear una nueva en cada ejecución.
+     * 
+     * @param privateKey clave privada RSA del sistema
+     * @see SystemKeys#loadOrGenerate()
+     */
+    public void unlock(PrivateKey privateKey) {
+        this.systemPrivateKey = privateKey;
+    }
+
+    /**
+     * Envuelve una clave de archivo con la KEK activa.
+     * 
+     * @param key clave AES del archivo
+     * @param systemPublicKey clave pública RSA del sistema (protege las KEK nuevas)
+     * @return clave envuelta en el formato {@code kek:<id>:<Base64>}
+     * @throws Exception si hay error al crear, guardar o usar la KEK
+     */
+    public String wrap(Key key, PublicKey systemPublicKey) throws Exception {
+        String id = activeKek(systemPublicKey);
+        Cipher cipher = Cipher.getInstance("AESWrap");
+        cipher.init(Cipher.WRAP_MODE, cache.get(id));
+        byte[] wrapped = cipher.wrap(new SecretKeySpec(key.getEncoded(), "AES"));
+        return PREFIX + id + ":" + Base64.getEncoder().encodeToString(wrapped);
+    }
+
+    /**
+     * Recupera una clave de archivo en cualquiera de los dos formatos.
+     * 
+     * @param stored valor guardado en el almacén de claves
+     * @param systemPrivateKey clave privada RSA del sistema
+     * @return clave AES del archivo
+     * @throws Exception si la KEK no existe o la clave no se puede descifrar
+     */
+    public Key unwrap(String stored, PrivateKey systemPrivateKey) throws Exception {
+        if (!isKekWrapped(stored)) {
+            byte[] encrypted = Base64.getDecoder().decode(stored);
+            return new SecretKeySpec(RSAUtil.decryptWithPrivateKey(encrypted, systemPrivateKey), "AES");
+        }
+        int separator = stored.indexOf(':', PREFIX.length());
+        if (separator < 0) {
+            throw new IllegalArgumentException("Clave envuelta con KEK mal formada");
+        }
+        SecretKey kek = kek(stored.substring(PREFIX.length(), separator), systemPrivateKey);
+        Cipher cipher = Cipher.getInstance("AESWrap");
+        cipher.init(Cipher.UNWRAP_MODE, kek);
+        return cipher.unwrap(Base64.getDecoder().decode(stored.substring(separator + 1)), "AES", Cipher.SECRET_KEY);
+    }
+
+    /**
+     * Recupera varias claves de archivo. Las del formato anterior se
+     * descifran con RSA en paralelo y las envueltas con KEK con AES.
+     * 
+     * @param stored valores guardados (los null se devuelven como null)
+     * @param systemPrivateKey clave privada RSA del sistema
+     * @return claves AES en el mismo orden (null si no existe o no se pudo descifrar)
+     * @throws Exception si no se puede crear el Cipher RSA
+     */
+    public List<Key> unwrapAll(List<String> stored, PrivateKey systemPrivateKey) throws Exception {
+        List<Key> keys = new ArrayList<>(stored.size());
+        List<byte[]> legacy = new ArrayList<>(stored.size());
+        boolean anyLegacy = false;
+        for (int i = 0; i < stored.size(); i++) {
+            String value = stored.get(i);
+            Key key = null;
+            byte[] encrypted = null;
+            if (value != null && isKekWrapped(value)) {
+                try {
+                    key = unwrap(value, systemPrivateKey);
+                } catch (Exception e) {
+                    System.err.println("Error descifrando clave " + i + " del lote: " + e.getMessage());
+                }
+            } else if (value != null) {
+                encrypted = Base64.getDecoder().decode(value);
+                anyLegacy = true;
+            }
+            keys.add(key);
+            legacy.add(encrypted);
+        }
+        if (anyLegacy) {
+            List<byte[]> decrypted = RSAUtil.decryptBatchWithPrivateKey(legacy, systemPrivateKey);
+            for (int i = 0; i < decrypted.size(); i++) {
+                if (decrypted.get(i) != null) {
+                    keys.set(i, new SecretKeySpec(decrypted.get(i), "AES"));
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Crea una KEK nueva y la activa, aunque la actual no haya caducado.
+     * 
+     * @param systemPublicKey clave pública RSA del sistema
+     * @return identificador de la nueva KEK
+     * @throws Exception si hay error al crear o guardar la KEK
+     * @see KeyRotation
+     */
+    public synchronized String rotate(PublicKey systemPublicKey) throws Exception {
+        activeId = null;
+        return createKek(systemPublicKey);
+    }
+
+    /**
+     * Indica si un valor del almacén de claves está envuelto con una KEK.
+     * 
+     * @param stored valor guardado
+     * @return true si tiene el prefijo {@code kek:} (Base64 nunca contiene ':')
+     */
+    public static boolean isKekWrapped(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+
+    /**
+     * Olvida las KEK descifradas y la clave privada registrada.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        activeId = null;
+        systemPrivateKey = null;
+    }
+
+    /**
+     * Obtiene la KEK activa: la de este proceso, la guardada si se puede
+     * descifrar y no ha caducado, o una nueva.
+     */
+    private synchronized String activeKek(PublicKey systemPublicKey) throws Exception {
+        long now = System.currentTimeMillis();
+        if (activeId != null && now - activeCreated < maxAgeMillis) {
+            return activeId;
+        }
+
+        String[] stored = LocalStorage.getActiveKek();
+        PrivateKey privateKey = systemPrivateKey;
+        if (stored != null && privateKey != null && now - Long.parseLong(stored[2]) < maxAgeMillis) {
+            try {
+                kek(stored[0], privateKey);
+                activeId = stored[0];
+                activeCreated = Long.parseLong(stored[2]);
+                return activeId;
+            } catch (Exception e) {
+                System.err.println("No se pudo reutilizar la KEK activa: " + e.getMessage());
+            }
+        }
+
+        return createKek(systemPublicKey);
+    }
+
+    /**
+     * Crea una KEK, la guarda protegida con RSA y la activa.
+     */
+    private String createKek(PublicKey systemPublicKey) throws Exception {
+        long now = System.currentTimeMillis();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(KEK_BITS, random);
+        SecretKey kek = generator.generateKey();
+        byte[] idBytes = new byte[6];
+        random.nextBytes(idBytes);
+        String id = String.format("%012x", new java.math.BigInteger(1, idBytes));
+
+        byte[] wrapped = RSAUtil.encryptWithPublicKey(kek.getEncoded(), systemPublicKey);
+        LocalStorage.saveKek(id, Base64.getEncoder().encodeToString(wrapped), true, RSAUtil.publicKeyToBase64(systemPublicKey));
+        cache.put(id, kek);
+        activeId = id;
+        activeCreated = now;
+        return id;
+    }
+
+    /**
+     * Obtiene una KEK descifrada, descifrándola con RSA la primera vez.
+     */
+    private SecretKey kek(String id, PrivateKey systemPrivateKey) throws Exception {
+        SecretKey kek = cache.get(id);
+        if (kek != null) {
+            return kek;
+        }
+        String wrapped = LocalStorage.getKek(id);
+        if (wrapped == null) {
+            throw new IllegalArgumentException("No existe la KEK " + id);
+        }
+        byte[] raw;
+        try {
+            raw = RSAUtil.decryptWithPrivateKey(Base64.getDecoder().decode(wrapped), systemPrivateKey);
+        } catch (GeneralSecurityException e) {
+            // Durante una rotación este proceso puede tener aún la clave RSA anterior
+            String previous = LocalStorage.getPreviousKek(id);
+            if (previous == null) {
+                throw e;
+            }
+            raw = RSAUtil.decryptWithPrivateKey(Base64.getDecoder().decode(previous), systemPrivateKey);
+        }
+        kek = new SecretKeySpec(raw, "AES");
+        SecretKey previous = cache.putIfAbsent(id, kek);
+        return previous != null ? previous : kek;
+    }
+}
@@ -0,0 +1,388 @@
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rotación del par de claves RSA del sistema sin volver a cifrar los archivos.
+ * 
+ * Los archivos cifrados no dependen de la clave RSA: cada uno tiene su
+ * clave AES, y solo la protección de esas claves depende de la clave del
+ * sistema. La rotación por tanto solo reescribe claves, nunca contenido:
+ * 
+ * <ol>
+ *   <li><strong>Claves de archivo</strong>: las claves guardadas con el
+ *       formato anterior (cifradas directamente con RSA) se envuelven con la
+ *       KEK activa, por lotes cuyo descifrado RSA se reparte entre todos los
+ *       núcleos. Con {@code rewrapAll} todas las claves pasan a una KEK nueva.</li>
+ *   <li><strong>Cambio</strong>: las KEK se cifran con la nueva clave RSA en
+ *       una sola escritura, conservando la versión anterior, y se guarda el
+ *       nuevo par del sistema.</li>
+ *   <li><strong>Limpieza</strong>: se vuelven a cifrar con la nueva clave las
+ *       claves incluidas en la cabecera de los archivos públicos, también en
+ *       subdirectorios (solo se reescribe la cabecera), se repasan las KEK y claves creadas por otros
+ *       procesos durante la rotación y se eliminan las versiones anteriores.</li>
+ * </ol>
+ * 
+ * <p>Cada lote se reemplaza solo si las claves no han cambiado desde que se
+ * leyeron, y todas las escrituras del almacén se hacen bajo su bloqueo, por
+ * lo que las claves y KEK que otros procesos guardan durante la rotación no
+ * se pierden. En todo momento cada clave se puede descifrar con el par que
+ * tenga cargado cualquier proceso, de modo que los descifrados continúan
+ * durante la rotación. El progreso se guarda en rotation.properties tras cada
+ * lote y cada fase; si la rotación se interrumpe, la siguiente ejecución
+ * continúa con el mismo par nuevo.</p>
+ * 
+ * <p>Los archivos con la clave solo en la cabecera no se pueden descifrar
+ * con el par nuevo desde el cambio hasta que la limpieza reescribe su
+ * cabecera; los que también la tienen en el almacén no se ven afectados.</p>
+ * 
+ * <p>Las claves de los cifrados privados están protegidas con la clave de
+ * cada usuario y no con la del sistema, por lo que no se ven afectadas.
+ * Las instancias de la aplicación abiertas durante la rotación deben
+ * reiniciarse al terminar; hasta entonces no pueden crear KEK nuevas.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see KeyEncryptionKeys
+ * @see LocalStorage#saveRotationState(Map)
+ */
+public class KeyRotation {
+
+    /** Tamaño de lote por defecto */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** Fase de reescritura de las claves de archivo */
+    private static final String PHASE_DATA_KEYS = "DATA_KEYS";
+
+    /** Fase de cambio de la clave del sistema */
+    private static final String PHASE_SWITCH = "SWITCH";
+
+    /** Fase de limpieza */
+    private static final String PHASE_CLEANUP = "CLEANUP";
+
+    /** Punto de control de la rotación */
+    private final Map<String, String> state;
+
+    /** Par de claves del sistema anterior */
+    private final KeyPair oldKeys;
+
+    /** Par de claves del sistema nuevo */
+    private final KeyPair newKeys;
+
+    /** Claves por lote */
+    private final int batchSize;
+
+    /** Destino de los mensajes de progreso */
+    private final PrintStream out;
+
+    /** Inicio de la ejecución actual en nanosegundos */
+    private final long startNanos = System.nanoTime();
+
+    /** Claves reescritas en la ejecución actual */
+    private long rewrapped;
+
+    private KeyRotation(Map<String, String> state, int batchSize, PrintStream out) throws Exception {
+        this.state = state;
+        this.oldKeys = RSAUtil.base64ToKeyPair(state.get("old.public_key"), state.get("old.private_key"));
+        this.newKeys = RSAUtil.base64ToKeyPair(state.get("new.public_key"), state.get("new.private_key"));
+        this.batchSize = batchSize;
+        this.out = out;
+    }
+
+    /**
+     * Rota las claves del sistema, o continúa la rotación interrumpida.
+     * 
+     * @param batchSize claves por lote
+     * @param rewrapAll true para pasar todas las claves de archivo a una KEK
+     *        nueva, y no solo las del formato anterior (se ignora al continuar)
+     * @param out destino de los mensajes de progreso
+     * @return par de claves del sistema nuevo
+     * @throws Exception si hay error al leer, descifrar o guardar claves
+     */
+    public static KeyPair run(int batchSize, boolean rewrapAll, PrintStream out) throws Exception {
+        Map<String, String> state = LocalStorage.getRotationState();
+        if (state != null) {
+            out.println("Continuando rotacion interrumpida en la fase " + state.get("phase"));
+        } else {
+            state = start(rewrapAll);
+            out.println("Rotacion de claves del sistema iniciada");
+        }
+        return new KeyRotation(state, Math.max(1, batchSize), out).resume();
+    }
+
+    /**
+     * Indica si hay una rotación sin terminar.
+     * 
+     * @return true si existe un punto de control
+     * @throws Exception si hay error al leer el punto de control
+     */
+    public static boolean isInProgress() throws Exception {
+        return LocalStorage.getRotationState() != null;
+    }
+
+    /**
+     * Genera el par nuevo y guarda el primer punto de control.
+     */
+    private static Map<String, String> start(boolean rewrapAll) throws Exception {
+        KeyPair current = SystemKeys.loadOrGenerate();
+        KeyPair next = RSAUtil.generateKeyPair();
+        Map<String, String> state = new HashMap<>();
+        state.put("phase", PHASE_DATA_KEYS);
+        state.put("started", String.valueOf(System.currentTimeMillis()));
+        state.put("old.public_key", RSAUtil.publicKeyToBase64(current.getPublic()));
+        state.put("old.private_key", RSAUtil.privateKeyToBase64(current.getPrivate()));
+        state.put("new.public_key", RSAUtil.publicKeyToBase64(next.getPublic()));
+        state.put("new.private_key", RSAUtil.privateKeyToBase64(next.getPrivate()));
+        if (rewrapAll) {
+            state.put("target_kek", KeyEncryptionKeys.getInstance().rotate(current.getPublic()));
+        }
+        LocalStorage.saveRotationState(state);
+        return state;
+    }
+
+    /**
+     * Ejecuta las fases pendientes.
+     */
+    private KeyPair resume() throws Exception {
+        KeyEncryptionKeys keks = KeyEncryptionKeys.getInstance();
+        if (PHASE_DATA_KEYS.equals(state.get("phase"))) {
+            keks.unlock(oldKeys.getPrivate());
+            rewrapDataKeys(oldKeys, state.get("last"));
+            advance(PHASE_SWITCH);
+        }
+        if (PHASE_SWITCH.equals(state.get("phase"))) {
+            rewrapKeks(true);
+            LocalStorage.saveSystemRSAKeys(state.get("new.public_key"), state.get("new.private_key"));
+            keks.clear();
+            keks.unlock(newKeys.getPrivate());
+            out.println("Clave del sistema cambiada; KEK protegidas con la nueva clave");
+            advance(PHASE_CLEANUP);
+        }
+        rewrapHeaders(AppConfig.directory(AppConfig.Root.PUBLIC));
+        // Claves y KEK que otros procesos hayan guardado con el par anterior mientras tanto
+        rewrapKeks(false);
+        rewrapDataKeys(newKeys, null);
+        LocalStorage.deletePreviousKeks();
+        LocalStorage.deleteRotationState();
+        out.println("Rotacion completada: " + rewrapped + " claves reescritas en "
+            + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+        return newKeys;
+    }
+
+    /**
+     * Envuelve con KEK las claves de archivo pendientes, por lotes.
+     * 
+     * @param systemKeys par con el que se protegen las KEK nuevas
+     * @param after último nombre procesado en una ejecución anterior (null para empezar)
+     */
+    private void rewrapDataKeys(KeyPair systemKeys, String after) throws Exception {
+        List<String> names = LocalStorage.getKeyNames();
+        int start = 0;
+        if (after != null) {
+            while (start < names.size() && names.get(start).compareTo(after) <= 0) {
+                start++;
+            }
+        }
+        int total = names.size();
+        for (int from = start; from < total; from += batchSize) {
+            List<String> batch = names.subList(from, Math.min(total, from + batchSize));
+            rewrapBatch(batch, systemKeys);
+            if (PHASE_DATA_KEYS.equals(state.get("phase"))) {
+                state.put("last", batch.get(batch.size() - 1));
+                LocalStorage.saveRotationState(state);
+            }
+            long done = from + batch.size();
+            long millis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+            out.println("Claves: " + done + "/" + total + " (" + done * 100 / total + "%), "
+                + rewrapped + " reescritas, " + rewrapped * 1000 / millis + " claves/s");
+        }
+    }
+
+    /**
+     * Reescribe las claves pendientes de un lote. Las que otra operación haya
+     * modificado o eliminado entre la lectura y la escritura se dejan como están.
+     */
+    private void rewrapBatch(List<String> batch, KeyPair systemKeys) throws Exception {
+        List<String> values = LocalStorage.getKeys(batch);
+        String target = state.get("target_kek");
+        List<String> pending = new ArrayList<>();
+        List<String> pendingValues = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            String value = values.get(i);
+            boolean legacy = value != null && !KeyEncryptionKeys.isKekWrapped(value);
+            boolean oldKek = value != null && target != null && !value.startsWith(KeyEncryptionKeys.PREFIX + target + ":");
+            if (legacy || oldKek) {
+                pending.add(batch.get(i));
+                pendingValues.add(value);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Las claves del formato anterior están cifradas con el par anterior
+        List<Key> keys = KeyEncryptionKeys.getInstance().unwrapAll(pendingValues, oldKeys.getPrivate());
+        Map<String, String> expected = new HashMap<>();
+        Map<String, String> replacement = new HashMap<>();
+        for (int i = 0; i < pending.size(); i++) {
+            if (keys.get(i) == null) {
+                System.err.println("No se pudo reescribir la clave de " + pending.get(i));
+                continue;
+            }
+            expected.put(pending.get(i), pendingValues.get(i));
+            replacement.put(pending.get(i), KeyEncryptionKeys.getInstance().wrap(keys.get(i), systemKeys.getPublic()));
+        }
+        rewrapped += LocalStorage.replaceKeys(expected, replacement);
+    }
+
+    /**
+     * Cifra con el par nuevo las claves incluidas en la cabecera de los
+     * archivos del directorio y sus subdirectorios que aún están cifradas
+     * con el par anterior.
+     * 
+     * Solo cambia el campo de claves envueltas, que no forma parte del resumen
+     * autenticado, por lo que el contenido cifrado se copia sin descifrarlo.
+     * Los archivos se recorren en orden de ruta relativa, y la última
+     * revisada se guarda en el punto de control cada {@link #batchSize}
+     * archivos para no repetirlos al continuar.
+     * 
+     * @param directory directorio de archivos cifrados públicos
+     */
+    private void rewrapHeaders(File directory) throws Exception {
+        if (!directory.isDirectory()) {
+            return;
+        }
+        Path root = directory.toPath();
+        List<String> paths;
+        try (Stream<Path> walk = Files.walk(root)) {
+            paths = walk.filter(Files::isRegularFile)
+                .filter(path -> path.toString().endsWith(".enc") || path.toString().endsWith(EncryptedArchive.EXTENSION))
+                .map(path -> root.relativize(path).toString().replace(File.separatorChar, '/'))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        String after = state.get("headers.last");
+        int headers = 0;
+        int checked = 0;
+        String done = null;
+        for (String path : paths) {
+            if (after != null && path.compareTo(after) <= 0) {
+                continue;
+            }
+            // Al empezar cada archivo los anteriores ya están revisados
+            if (done != null && checked % batchSize == 0) {
+                state.put("headers.last", done);
+                LocalStorage.saveRotationState(state);
+            }
+            checked++;
+            done = path;
+            File file = root.resolve(path).toFile();
+            ContainerHeader header = EncryptedContainer.readHeader(file);
+            if (header == null || !header.has(ContainerHeader.FIELD_WRAPPED_KEYS)) {
+                continue;
+            }
+            Map<String, byte[]> wrappedKeys = new LinkedHashMap<>(header.getWrappedKeys());
+            byte[] wrapped = wrappedKeys.get(ContainerHeader.SYSTEM_RECIPIENT);
+            if (wrapped == null || decryptKey(wrapped, newKeys.getPrivate()) != null) {
+                continue;
+            }
+            byte[] raw = decryptKey(wrapped, oldKeys.getPrivate());
+            if (raw == null) {
+                System.err.println("No se pudo descifrar la clave de la cabecera de " + path);
+                continue;
+            }
+            wrappedKeys.put(ContainerHeader.SYSTEM_RECIPIENT, RSAUtil.encryptWithPublicKey(raw, newKeys.getPublic()));
+            ContainerHeader rewrappedHeader = header.copy();
+            rewrappedHeader.setWrappedKeys(wrappedKeys);
+            if (!file.exists()) {
+                // Descifrado y eliminado por otro proceso mientras tanto
+                continue;
+            }
+            AtomicFileWriter.writeChannel(file.toPath(), out -> {
+                out.write(ByteBuffer.wrap(rewrappedHeader.encode()));
+                try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    long position = header.length();
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }, true);
+            headers++;
+        }
+        if (headers > 0) {
+            out.println("Cabeceras cifradas con la nueva clave: " + headers);
+        }
+        if (!paths.isEmpty()) {
+            state.put("headers.last", paths.get(paths.size() - 1));
+            LocalStorage.saveRotationState(state);
+        }
+    }
+
+    /**
+     * Cifra con el par nuevo las KEK que aún están cifradas con el anterior.
+     * 
+     * @param keepPrevious true para conservar la versión anterior de cada KEK
+     */
+    private void rewrapKeks(boolean keepPrevious) throws Exception {
+        Map<String, String> rewrappedKeks = new HashMap<>();
+        for (Map.Entry<String, String> entry : LocalStorage.getKeks().entrySet()) {
+            byte[] wrapped = Base64.getDecoder().decode(entry.getValue());
+            if (decryptKey(wrapped, newKeys.getPrivate()) != null) {
+                // Ya cifrada con el par nuevo en una ejecución anterior
+                continue;
+            }
+            byte[] raw = decryptKey(wrapped, oldKeys.getPrivate());
+            if (raw == null) {
+                System.err.println("No se pudo descifrar la KEK " + entry.getKey());
+                continue;
+            }
+            byte[] rewrappedKek = RSAUtil.encryptWithPublicKey(raw, newKeys.getPublic());
+            rewrappedKeks.put(entry.getKey(), Base64.getEncoder().encodeToString(rewrappedKek));
+        }
+        if (!rewrappedKeks.isEmpty()) {
+            LocalStorage.replaceKeks(rewrappedKeks, keepPrevious);
+            out.println("KEK cifradas con la nueva clave: " + rewrappedKeks.size());
+        }
+    }
+
+    /**
+     * Descifra una KEK o una clave de archivo con la clave indicada.
+     * 
+     * @return clave AES descifrada, o null si no está cifrada con esa clave
+     */
+    private static byte[] decryptKey(byte[] wrapped, PrivateKey privateKey) {
+        try {
+            byte[] raw = RSAUtil.decryptWithPrivateKey(wrapped, privateKey);
+            return raw.length == 16 || raw.length == 24 || raw.length == 32 ? raw : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Pasa a la fase indicada y guarda el punto de control.
+     */
+    private void advance(String phase) throws Exception {
+        state.put("phase", phase);
+        state.remove("last");
+        LocalStorage.saveRotationState(state);
+    }
+}
@@ -0,0 +1,197 @@
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.DestroyFailedException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agente de sesión que mantiene desbloqueada la clave privada del usuario.
+ *
+ * Tras un login correcto, la clave privada (RSA o X25519) del usuario se carga y se
+ * reconstruye una sola vez, y queda en memoria para atender las peticiones de
+ * descifrado de claves AES sin volver a leer users.properties ni usar
+ * KeyFactory. La clave nunca sale del agente: los llamantes solo reciben las
+ * claves AES ya descifradas.
+ *
+ * <p>La clave se descarta al cerrar la sesión o tras un periodo de
+ * inactividad configurable con {@code cs.session.idleMinutes} (15 por defecto).</p>
+ *
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ *
+ * @see FileEncryptionUtil#getPrivateKey(String, String)
+ * @see LoginDialog
+ */
+public class KeySessionAgent {
+    /** Instancia compartida por la aplicación */
+    private static final KeySessionAgent INSTANCE = new KeySessionAgent();
+
+    /** Tiempo máximo de inactividad antes de bloquear la sesión, en nanosegundos */
+    private final long idleTimeoutNanos;
+
+    /** Planificador que comprueba periódicamente la inactividad */
+    private final ScheduledExecutorService reaper;
+
+    /** Usuario dueño de la sesión actual, o null si no hay sesión */
+    private String username;
+
+    /** Clave privada desbloqueada del usuario, o null si no hay sesión */
+    private PrivateKey privateKey;
+
+    /** Instante del último uso de la clave en nanosegundos */
+    private long lastUse;
+
+    /**
+     * Crea el agente y arranca la comprobación de inactividad.
+     */
+    private KeySessionAgent() {
+        long idleMinutes = Long.getLong("cs.session.idleMinutes", 15);
+        this.idleTimeoutNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "key-session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, Math.min(30, TimeUnit.MINUTES.toSeconds(idleMinutes)));
+        reaper.scheduleAtFixedRate(this::lockIfIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Obtiene la instancia compartida del agente.
+     *
+     * @return agente de sesión de la aplicación
+     */
+    public static KeySessionAgent getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Desbloquea la clave privada de un usuario para la sesión actual.
+     *
+     * Lee y reconstruye la clave privada una sola vez. Si había otra sesión
+     * abierta se cierra antes.
+     *
+     * @param username usuario autenticado
+     * @throws Exception si el usuario no tiene clave privada o no se puede reconstruir
+     * @see LocalStorage#getUserPrivateKey(String)
+     * @see KeyWrapping#base64ToPrivateKey(String, String)
+     */
+    public void unlock(String username) throws Exception {
+        String privateKeyBase64 = LocalStorage.getUserPrivateKey(username);
+        if (privateKeyBase64 == null) {
+            throw new IllegalArgumentException("El usuario " + username + " no tiene clave privada");
+        }
+        PrivateKey key = KeyWrapping.base64ToPrivateKey(LocalStorage.getUserKeyAlgorithm(username), privateKeyBase64);
+        synchronized (this) {
+            lock();
+            this.username = username;
+            this.privateKey = key;
+            this.lastUse = System.nanoTime();
+        }
+        System.out.println("Sesion de claves abierta para: " + username);
+    }
+
+    /**
+     * Indica si la clave del usuario está desbloqueada y la sesión sigue activa.
+     *
+     * @param username usuario a comprobar
+     * @return true si el agente puede descifrar claves para ese usuario
+     */
+    public synchronized boolean isUnlocked(String username) {
+        lockIfIdle();
+        return privateKey != null && this.username.equals(username);
+    }
+
+    /**
+     * Obtiene el usuario de la sesión actual.
+     *
+     * @return nombre del usuario o null si no hay sesión activa
+     */
+    public synchronized String getUsername() {
+        lockIfIdle();
+        return username;
+    }
+
+    /**
+     * Recupera una clave AES envuelta con la clave pública del usuario de la sesión.
+     *
+     * @param username usuario propietario de la clave envuelta
+     * @param wrappedKey clave AES envuelta con RSA o X25519
+     * @return clave AES descifrada
+     * @throws IllegalStateException si no hay sesión abierta para ese usuario
+     * @throws Exception si hay error al recuperar la clave
+     * @see KeyWrapping#unwrap(byte[], PrivateKey)
+     */
+    public Key unwrap(String username, byte[] wrappedKey) throws Exception {
+        return new SecretKeySpec(KeyWrapping.unwrap(wrappedKey, sessionKey(username)), "AES");
+    }
+
+    /**
+     * Descifra en paralelo un lote de claves AES del usuario de la sesión.
+     *
+     * @param username usuario propietario de las claves envueltas
+     * @param wrappedKeys claves AES envueltas (null si no existen)
+     * @return claves AES en el mismo orden (null para las que no se pudieron descifrar)
+     * @throws IllegalStateException si no hay sesión abierta para ese usuario
+     * @throws Exception si hay error al preparar el descifrado
+     * @see KeyWrapping#unwrapBatch(List, PrivateKey)
+     */
+    public List<Key> unwrapBatch(String username, List<byte[]> wrappedKeys) throws Exception {
+        List<byte[]> raw = KeyWrapping.unwrapBatch(wrappedKeys, sessionKey(username));
+        List<Key> keys = new ArrayList<>(raw.size());
+        for (byte[] keyBytes : raw) {
+            keys.add(keyBytes != null ? new SecretKeySpec(keyBytes, "AES") : null);
+        }
+        return keys;
+    }
+
+    /**
+     * Cierra la sesión y descarta la clave privada.
+     *
+     * Intenta destruir la clave a través de la interfaz Destroyable; los
+     * proveedores que no lo soportan se limitan a perder la referencia.
+     */
+    public synchronized void lock() {
+        if (privateKey != null) {
+            try {
+                privateKey.destroy();
+            } catch (DestroyFailedException e) {
+                // El proveedor no permite destruir la clave, se descarta la referencia
+            }
+            System.out.println("Sesion de claves cerrada para: " + username);
+        }
+        privateKey = null;
+        username = null;
+    }
+
+    /**
+     * Obtiene la clave privada de la sesión y registra su uso.
+     *
+     * @param username usuario solicitante
+     * @return clave privada desbloqueada
+     * @throws IllegalStateException si no hay sesión abierta para ese usuario
+     */
+    synchronized PrivateKey sessionKey(String username) {
+        lockIfIdle();
+        if (privateKey == null || !this.username.equals(username)) {
+            throw new IllegalStateException("No hay sesion de claves abierta para el usuario " + username);
+        }
+        lastUse = System.nanoTime();
+        return privateKey;
+    }
+
+    /**
+     * Cierra la sesión si se ha superado el tiempo de inactividad.
+     */
+    private synchronized void lockIfIdle() {
+        if (privateKey != null && System.nanoTime() - lastUse > idleTimeoutNanos) {
+            System.out.println("Sesion de claves expirada por inactividad");
+            lock();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Punto de entrada común para envolver claves AES con la clave de un destinatario.
+ * 
+ * Cada usuario tiene un tipo de clave de destinatario (RSA o X25519) guardado
+ * en users.properties. Esta clase elige la implementación adecuada según el
+ * tipo de la clave recibida, de modo que el resto de la aplicación puede
+ * tratar igual a los usuarios existentes con RSA y a los nuevos con X25519.
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see RSAUtil
+ * @see X25519Util
+ * @see LocalStorage#getUserKeyAlgorithm(String)
+ */
+public class KeyWrapping {
+    /** Tipo de clave RSA-2048 (valor por defecto para usuarios existentes) */
+    public static final String RSA = "RSA";
+
+    /** Tipo de clave X25519 (ECDH + HKDF + AES Key Wrap) */
+    public static final String X25519 = "X25519";
+
+    /**
+     * Genera un par de claves de destinatario del tipo indicado.
+     * 
+     * @param algorithm {@link #RSA} o {@link #X25519}
+     * @return par de claves generado
+     * @throws Exception si el tipo no es válido o hay error en la generación
+     */
+    public static KeyPair generateKeyPair(String algorithm) throws Exception {
+        return isX25519(algorithm) ? X25519Util.generateKeyPair() : RSAUtil.generateKeyPair();
+    }
+
+    /**
+     * Envuelve una clave AES con la clave pública de un destinatario.
+     * 
+     * @param keyBytes clave AES a envolver
+     * @param publicKey clave pública RSA o X25519 del destinatario
+     * @return clave envuelta
+     * @throws Exception si hay error en la envoltura
+     */
+    public static byte[] wrap(byte[] keyBytes, PublicKey publicKey) throws Exception {
+        if (isX25519(publicKey)) {
+            return X25519Util.wrapKey(keyBytes, publicKey);
+        }
+        return RSAUtil.encryptWithPublicKey(keyBytes, publicKey);
+    }
+
+    /**
+     * Recupera una clave AES envuelta con {@link #wrap(byte[], PublicKey)}.
+     * 
+     * @param wrappedKey clave envuelta
+     * @param privateKey clave privada RSA o X25519 del destinatario
+     * @return bytes de la clave AES
+     * @throws Exception si los datos no son válidos o la clave no corresponde
+     */
+    public static byte[] unwrap(byte[] wrappedKey, PrivateKey privateKey) throws Exception {
+        if (isX25519(privateKey)) {
+            return X25519Util.unwrapKey(wrappedKey, privateKey);
+        }
+        return RSAUtil.decryptWithPrivateKey(wrappedKey, privateKey);
+    }
+
+    /**
+     * Recupera en paralelo un lote de claves AES envueltas.
+     * 
+     * @param wrappedKeys claves envueltas (los null se devuelven como null)
+     * @param privateKey clave privada RSA o X25519 del destinatario
+     * @return claves AES en el mismo orden (null para las que no se pudieron recuperar)
+     * @throws Exception si hay error al preparar el descifrado
+     * @see RSAUtil#decryptBatchWithPrivateKey(List, PrivateKey)
+     */
+    public static List<byte[]> unwrapBatch(List<byte[]> wrappedKeys, PrivateKey privateKey) throws Exception {
+        if (!isX25519(privateKey)) {
+            return RSAUtil.decryptBatchWithPrivateKey(wrappedKeys, privateKey);
+        }
+        byte[][] results = new byte[wrappedKeys.size()][];
+        java.util.stream.IntStream.range(0, results.length).parallel().forEach(i -> {
+            byte[] wrapped = wrappedKeys.get(i);
+            if (wrapped == null) {
+                return;
+            }
+            try {
+                results[i] = X25519Util.unwrapKey(wrapped, privateKey);
+            } catch (Exception e) {
+                System.err.println("Error descifrando elemento " + i + " del lote: " + e.getMessage());
+            }
+        });
+        List<byte[]> list = new ArrayList<>(results.length);
+        for (byte[] result : results) {
+            list.add(result);
+        }
+        return list;
+    }
+
+    /**
+     * Convierte una clave pública de destinatario desde Base64.
+     * 
+     * @param algorithm tipo de clave guardado para el usuario
+     * @param base64 representación Base64 de la clave pública
+     * @return clave pública reconstruida
+     * @throws Exception si hay error en la decodificación o formato inválido
+     */
+    public static PublicKey base64ToPublicKey(String algorithm, String base64) throws Exception {
+        return isX25519(algorithm) ? X25519Util.base64ToPublicKey(base64) : RSAUtil.base64ToPublicKey(base64);
+    }
+
+    /**
+     * Convierte una clave privada de destinatario desde Base64.
+     * 
+     * @param algorithm tipo de clave guardado para el usuario
+     * @param base64 representación Base64 de la clave privada
+     * @return clave privada reconstruida
+     * @throws Exception si hay error en la decodificación o formato inválido
+     */
+    public static PrivateKey base64ToPrivateKey(String algorithm, String base64) throws Exception {
+        return isX25519(algorithm) ? X25519Util.base64ToPrivateKey(base64) : RSAUtil.base64ToPrivateKey(base64);
+    }
+
+    /**
+     * Indica si un nombre de tipo corresponde a X25519.
+     */
+    private static boolean isX25519(String algorithm) {
+        return X25519.equalsIgnoreCase(algorithm);
+    }
+
+    /**
+     * Indica si una clave es de tipo X25519 (el JCA la identifica como "XDH" o "X25519").
+     */
+    private static boolean isX25519(Key key) {
+        String algorithm = key.getAlgorithm();
+        return "XDH".equalsIgnoreCase(algorithm) || X25519.equalsIgnoreCase(algorithm);
+    }
+}
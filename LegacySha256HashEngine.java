@@ -0,0 +1,39 @@
+/**
+ * Motor de hashing heredado basado en SHA-256 con sal fija.
+ *
+ * Solo se conserva para poder verificar las contraseñas almacenadas antes de
+ * la migración a PBKDF2. Todo hash reconocido por este motor se considera
+ * obsoleto y se regenera tras el siguiente login correcto.
+ *
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ *
+ * @see SimpleHash
+ * @see UserAuth#authenticate(String, String)
+ */
+public class LegacySha256HashEngine implements PasswordHashEngine {
+
+    @Override
+    public String hash(String password) {
+        return SimpleHash.hashPassword(password);
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        return SimpleHash.verifyPassword(password, storedHash);
+    }
+
+    /**
+     * Los hashes heredados son Base64 sin separadores de parámetros.
+     */
+    @Override
+    public boolean supports(String storedHash) {
+        return storedHash != null && storedHash.indexOf('$') < 0;
+    }
+
+    @Override
+    public boolean needsRehash(String storedHash) {
+        return true;
+    }
+}
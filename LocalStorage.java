@@ -1,8 +1,18 @@
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Clase para manejar el almacenamiento local de datos usando archivos Properties.
@@ -17,11 +27,23 @@ import java.util.Properties;
  *   <li><strong>admins.properties</strong> - Información de administradores del sistema</li>
  *   <li><strong>users.properties</strong> - Datos de usuarios y claves del sistema</li>
  *   <li><strong>keys.properties</strong> - Claves de cifrado público</li>
+ *   <li><strong>keks.properties</strong> - Claves de cifrado de claves (KEK) protegidas con RSA</li>
+ *   <li><strong>rotation.properties</strong> - Punto de control de una rotación de claves en curso</li>
  *   <li><strong>private_keys_[usuario].properties</strong> - Claves privadas por usuario</li>
  * </ul>
  * 
- * <p>Todas las contraseñas se almacenan como hashes SHA-256 y las claves RSA
- * se guardan en formato Base64 para facilitar su persistencia.</p>
+ * <p>Los archivos se guardan en el directorio {@link AppConfig.Root#KEYS}
+ * (por defecto ~/Documents/cs/data), que se puede colocar en un volumen
+ * distinto del de los archivos cifrados.</p>
+ * 
+ * <p>Todas las escrituras leen, modifican y reescriben el archivo bajo un
+ * cerrojo del proceso y un bloqueo del archivo {@code .lock} del directorio
+ * de datos, de modo que las operaciones concurrentes (de varios hilos o de
+ * varios procesos, como una rotación de claves en curso) no se pisan.</p>
+ * 
+ * <p>Las contraseñas se almacenan como hashes PBKDF2 con sal por usuario
+ * (los hashes SHA-256 heredados se migran en el siguiente login) y las claves
+ * RSA se guardan en formato Base64 para facilitar su persistencia.</p>
  * 
  * @author DenReanin
  * @version 1.0
@@ -29,11 +51,11 @@ import java.util.Properties;
  * 
  * @see Properties
  * @see Files
- * @see SimpleHash
+ * @see PasswordHashing
  */
 public class LocalStorage {
     /** Directorio base para almacenamiento de todos los datos de la aplicación */
-    private static final String DATA_DIR = System.getProperty("user.home") + "/Documents/cs/data";
+    private static final String DATA_DIR = AppConfig.directory(AppConfig.Root.KEYS).getPath();
     
     /** Archivo para información de administradores del sistema */
     private static final String ADMINS_FILE = DATA_DIR + "/admins.properties";
@@ -44,15 +66,58 @@ public class LocalStorage {
     /** Archivo para claves de cifrado público */
     private static final String KEYS_FILE = DATA_DIR + "/keys.properties";
 
-    static {
-        // Crear directorio de datos si no existe
-        try {
-            Path dataPath = Paths.get(DATA_DIR);
-            if (!Files.exists(dataPath)) {
-                Files.createDirectories(dataPath);
-            }
-        } catch (IOException e) {
-            System.err.println("Error creando directorio de datos: " + e.getMessage());
+    /** Archivo para las claves de cifrado de claves (KEK) del cifrado público */
+    private static final String KEKS_FILE = DATA_DIR + "/keks.properties";
+
+    /** Archivo con la clave maestra de lote de la que depende cada archivo cifrado por lotes */
+    private static final String BATCHES_FILE = DATA_DIR + "/batches.properties";
+
+    /** Archivo de punto de control de la rotación de claves del sistema */
+    private static final String ROTATION_FILE = DATA_DIR + "/rotation.properties";
+
+    /** Archivo de bloqueo compartido por las escrituras de todos los procesos */
+    private static final String LOCK_FILE = DATA_DIR + "/.lock";
+
+    /** Cerrojo de las escrituras de este proceso (FileLock no excluye hilos del mismo proceso) */
+    private static final Object WRITE_LOCK = new Object();
+
+    /** Indica si ya se ha comprobado la existencia del directorio de datos */
+    private static volatile boolean dataDirReady;
+
+    /** Índice en memoria de las claves de cifrado público (null si hay que releerlo) */
+    private static volatile KeyIndex keyIndex;
+
+    /**
+     * Modificación de un archivo Properties dentro de {@link #update(String, Update)}.
+     */
+    private interface Update {
+        /**
+         * Aplica los cambios sobre el contenido actual del archivo.
+         * 
+         * @param props contenido leído bajo el bloqueo
+         * @return true si hay que guardar el archivo
+         * @throws IOException si hay error al preparar los cambios
+         */
+        boolean apply(Properties props) throws IOException;
+    }
+
+    /**
+     * Copia en memoria de keys.properties junto con la versión del archivo
+     * de la que procede. Cada escritura atómica crea un archivo nuevo, por lo
+     * que un cambio de identidad, fecha o tamaño indica que otro proceso lo ha
+     * modificado.
+     */
+    private static final class KeyIndex {
+        final Object fileKey;
+        final long modified;
+        final long size;
+        final Properties keys;
+
+        KeyIndex(Object fileKey, long modified, long size, Properties keys) {
+            this.fileKey = fileKey;
+            this.modified = modified;
+            this.size = size;
+            this.keys = keys;
         }
     }
 
@@ -73,11 +138,12 @@ public class LocalStorage {
      */
     @Deprecated
     public static void saveAdmin(String username, String passwordHash, String publicKeyBase64, String encryptedPrivateKeyBase64) throws IOException {
-        Properties props = loadProperties(ADMINS_FILE);
-        props.setProperty(username + ".password_hash", passwordHash);
-        props.setProperty(username + ".public_key", publicKeyBase64);
-        props.setProperty(username + ".private_key_encrypted", encryptedPrivateKeyBase64);
-        saveProperties(props, ADMINS_FILE);
+        update(ADMINS_FILE, props -> {
+            props.setProperty(username + ".password_hash", passwordHash);
+            props.setProperty(username + ".public_key", publicKeyBase64);
+            props.setProperty(username + ".private_key_encrypted", encryptedPrivateKeyBase64);
+            return true;
+        });
     }
 
     /**
@@ -103,20 +169,52 @@ public class LocalStorage {
      * par de claves RSA.
      * 
      * @param username nombre único del usuario
-     * @param passwordHash hash SHA-256 de la contraseña del usuario
+     * @param passwordHash hash de la contraseña del usuario
      * @param publicKeyBase64 clave pública RSA del usuario en Base64
      * @param encryptedPrivateKeyBase64 clave privada RSA del usuario en Base64
      * @throws IOException si hay error al escribir en el archivo de usuarios
      * 
-     * @see SimpleHash#hashPassword(String)
+     * @see PasswordHashing#hashPassword(String)
      * @see RSAUtil#publicKeyToBase64(java.security.PublicKey)
      */
     public static void saveUser(String username, String passwordHash, String publicKeyBase64, String encryptedPrivateKeyBase64) throws IOException {
+        saveUser(username, passwordHash, publicKeyBase64, encryptedPrivateKeyBase64, KeyWrapping.RSA);
+    }
+
+    /**
+     * Guarda información completa de un usuario indicando el tipo de sus claves.
+     * 
+     * @param username nombre único del usuario
+     * @param passwordHash hash de la contraseña del usuario
+     * @param publicKeyBase64 clave pública del usuario en Base64
+     * @param encryptedPrivateKeyBase64 clave privada del usuario en Base64
+     * @param keyAlgorithm tipo de clave de destinatario ({@link KeyWrapping#RSA} o {@link KeyWrapping#X25519})
+     * @throws IOException si hay error al escribir en el archivo de usuarios
+     * 
+     * @see KeyWrapping#generateKeyPair(String)
+     */
+    public static void saveUser(String username, String passwordHash, String publicKeyBase64, String encryptedPrivateKeyBase64, String keyAlgorithm) throws IOException {
+        update(USERS_FILE, props -> {
+            props.setProperty(username + ".password_hash", passwordHash);
+            props.setProperty(username + ".public_key", publicKeyBase64);
+            props.setProperty(username + ".private_key_encrypted", encryptedPrivateKeyBase64);
+            props.setProperty(username + ".key_algorithm", keyAlgorithm);
+            return true;
+        });
+    }
+
+    /**
+     * Obtiene el tipo de clave de destinatario de un usuario.
+     * 
+     * Los usuarios creados antes de existir este campo usan RSA.
+     * 
+     * @param username nombre del usuario
+     * @return {@link KeyWrapping#RSA} o {@link KeyWrapping#X25519}
+     * @throws IOException si hay error al leer el archivo de usuarios
+     */
+    public static String getUserKeyAlgorithm(String username) throws IOException {
         Properties props = loadProperties(USERS_FILE);
-        props.setProperty(username + ".password_hash", passwordHash);
-        props.setProperty(username + ".public_key", publicKeyBase64);
-        props.setProperty(username + ".private_key_encrypted", encryptedPrivateKeyBase64);
-        saveProperties(props, USERS_FILE);
+        return props.getProperty(username + ".key_algorithm", KeyWrapping.RSA);
     }
 
     /**
@@ -126,7 +224,7 @@ public class LocalStorage {
      * verificar las credenciales del usuario durante el login.
      * 
      * @param username nombre del usuario
-     * @return hash SHA-256 de la contraseña o null si el usuario no existe
+     * @return hash de la contraseña o null si el usuario no existe
      * @throws IOException si hay error al leer el archivo de usuarios
      * 
      * @see UserAuth#authenticate(String, String)
@@ -136,6 +234,57 @@ public class LocalStorage {
         return props.getProperty(username + ".password_hash");
     }
 
+    /**
+     * Obtiene los hashes de contraseña de todos los usuarios en una sola lectura.
+     * 
+     * @return mapa de nombre de usuario a hash de contraseña
+     * @throws IOException si hay error al leer el archivo de usuarios
+     * 
+     * @see AuthenticationService
+     */
+    public static Map<String, String> getUserPasswordHashes() throws IOException {
+        Properties props = loadProperties(USERS_FILE);
+        Map<String, String> hashes = new HashMap<>();
+        String suffix = ".password_hash";
+        for (String key : props.stringPropertyNames()) {
+            if (key.endsWith(suffix)) {
+                hashes.put(key.substring(0, key.length() - suffix.length()), props.getProperty(key));
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Obtiene la fecha de última modificación del archivo de usuarios.
+     * 
+     * Permite a las cachés en memoria detectar cambios sin volver a leer
+     * y parsear el archivo completo.
+     * 
+     * @return milisegundos desde epoch, o 0 si el archivo no existe
+     */
+    public static long getUsersFileLastModified() {
+        return new File(USERS_FILE).lastModified();
+    }
+
+    /**
+     * Reemplaza el hash de contraseña almacenado para un usuario existente.
+     * 
+     * Se utiliza para migrar de forma transparente los hashes heredados
+     * al formato actual tras un login correcto.
+     * 
+     * @param username nombre del usuario
+     * @param passwordHash nuevo hash de la contraseña
+     * @throws IOException si hay error al leer o escribir el archivo de usuarios
+     * 
+     * @see UserAuth#authenticate(String, String)
+     */
+    public static void updateUserPasswordHash(String username, String passwordHash) throws IOException {
+        update(USERS_FILE, props -> {
+            props.setProperty(username + ".password_hash", passwordHash);
+            return true;
+        });
+    }
+
     /**
      * Obtiene la clave pública RSA de un usuario específico.
      * 
@@ -174,26 +323,315 @@ public class LocalStorage {
      * Guarda una clave de cifrado asociada a un archivo
      */
     public static void saveKey(String filename, String encryptedKeyBase64) throws IOException {
-        Properties props = loadProperties(KEYS_FILE);
-        props.setProperty(filename, encryptedKeyBase64);
-        saveProperties(props, KEYS_FILE);
+        update(KEYS_FILE, props -> {
+            props.setProperty(filename, encryptedKeyBase64);
+            return true;
+        });
     }
 
     /**
      * Obtiene una clave de cifrado asociada a un archivo
      */
     public static String getKey(String filename) throws IOException {
-        Properties props = loadProperties(KEYS_FILE);
-        return props.getProperty(filename);
+        return keyIndex().getProperty(filename);
     }
 
     /**
      * Elimina una clave de cifrado
      */
     public static void deleteKey(String filename) throws IOException {
-        Properties props = loadProperties(KEYS_FILE);
-        props.remove(filename);
-        saveProperties(props, KEYS_FILE);
+        deleteKeys(Collections.singletonList(filename));
+    }
+
+    /**
+     * Obtiene varias claves de cifrado con una sola lectura del archivo de claves.
+     * 
+     * @param filenames nombres de archivo cuyas claves se desean obtener
+     * @return claves cifradas en Base64 en el mismo orden (null si no existe)
+     * @throws IOException si hay error al leer el archivo de claves
+     */
+    public static List<String> getKeys(List<String> filenames) throws IOException {
+        Properties props = keyIndex();
+        List<String> keys = new ArrayList<>(filenames.size());
+        for (String filename : filenames) {
+            keys.add(props.getProperty(filename));
+        }
+        return keys;
+    }
+
+    /**
+     * Elimina varias claves de cifrado reescribiendo el archivo una sola vez
+     * (ninguna si no existe ninguna de ellas).
+     * 
+     * Las entradas registradas con {@link #saveBatchReferences(String, Collection)}
+     * dejan de depender de su clave maestra de lote, y la clave maestra se
+     * elimina en la misma escritura cuando ya no depende de ella ningún archivo.
+     * 
+     * @param filenames nombres de archivo cuyas claves se desean eliminar
+     * @throws IOException si hay error al leer o escribir el archivo de claves
+     */
+    public static void deleteKeys(Collection<String> filenames) throws IOException {
+        synchronized (WRITE_LOCK) {
+            FileChannel lock = lockStore();
+            try {
+                Properties keys = loadProperties(KEYS_FILE);
+                boolean removed = false;
+                for (String filename : filenames) {
+                    removed |= keys.remove(filename) != null;
+                }
+                Properties batches = loadProperties(BATCHES_FILE);
+                Set<Object> released = new HashSet<>();
+                for (String filename : filenames) {
+                    Object batch = batches.remove(filename);
+                    if (batch != null) {
+                        released.add(batch);
+                    }
+                }
+                boolean unlinked = !released.isEmpty();
+                released.removeAll(batches.values());
+                for (Object batch : released) {
+                    removed |= keys.remove(batch) != null;
+                }
+                // Primero las claves: si falla la segunda escritura solo quedan referencias sin clave
+                if (removed) {
+                    saveProperties(keys, KEYS_FILE);
+                }
+                if (unlinked) {
+                    saveProperties(batches, BATCHES_FILE);
+                }
+            } finally {
+                lock.close();
+            }
+        }
+    }
+
+    /**
+     * Registra que varias entradas dependen de una clave maestra de lote.
+     * 
+     * Cada archivo de un lote se descifra con una clave derivada de la
+     * maestra y no tiene clave propia en el almacén. Al eliminar con
+     * {@link #deleteKeys(Collection)} la entrada del último archivo
+     * registrado, se elimina también la clave maestra.
+     * 
+     * @param batchReference entrada de la clave maestra del lote
+     * @param references entradas de los archivos del lote
+     * @throws IOException si hay error al escribir el archivo de lotes
+     */
+    public static void saveBatchReferences(String batchReference, Collection<String> references) throws IOException {
+        update(BATCHES_FILE, props -> {
+            for (String reference : references) {
+                props.setProperty(reference, batchReference);
+            }
+            return !references.isEmpty();
+        });
+    }
+
+    /**
+     * Guarda una clave de cifrado de claves (KEK) protegida con la clave RSA del sistema.
+     * 
+     * La KEK solo se guarda si la clave pública con la que está cifrada sigue
+     * siendo la del sistema. La comprobación se hace bajo el mismo bloqueo
+     * que el cambio de clave de una rotación, de modo que un proceso que aún
+     * usa la clave anterior no puede guardar una KEK que la rotación ya no
+     * vaya a cifrar con la nueva.
+     * 
+     * @param id identificador de la KEK
+     * @param wrappedKekBase64 KEK cifrada con RSA en Base64
+     * @param active true para usarla a partir de ahora en los cifrados nuevos
+     * @param systemPublicKeyBase64 clave pública RSA con la que se cifró la KEK, en Base64
+     * @throws IOException si hay error al escribir el archivo de KEK o la
+     *         clave del sistema ha cambiado
+     * @see KeyEncryptionKeys
+     * @see KeyRotation
+     */
+    public static void saveKek(String id, String wrappedKekBase64, boolean active, String systemPublicKeyBase64) throws IOException {
+        update(KEKS_FILE, props -> {
+            String current = loadProperties(USERS_FILE).getProperty("system.public_key");
+            if (current != null && !current.equals(systemPublicKeyBase64)) {
+                throw new IOException("La clave del sistema ha sido rotada; reinicie la aplicacion");
+            }
+            props.setProperty("kek." + id, wrappedKekBase64);
+            props.setProperty("kek." + id + ".created", String.valueOf(System.currentTimeMillis()));
+            if (active) {
+                props.setProperty("active", id);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Obtiene una KEK protegida con RSA.
+     * 
+     * @param id identificador de la KEK
+     * @return KEK cifrada en Base64 o null si no existe
+     * @throws IOException si hay error al leer el archivo de KEK
+     */
+    public static String getKek(String id) throws IOException {
+        return loadProperties(KEKS_FILE).getProperty("kek." + id);
+    }
+
+    /**
+     * Obtiene la versión anterior de una KEK durante una rotación de claves del sistema.
+     * 
+     * @param id identificador de la KEK
+     * @return KEK cifrada con la clave RSA anterior en Base64, o null si no hay rotación en curso
+     * @throws IOException si hay error al leer el archivo de KEK
+     */
+    public static String getPreviousKek(String id) throws IOException {
+        return loadProperties(KEKS_FILE).getProperty("kek." + id + ".previous");
+    }
+
+    /**
+     * Obtiene todas las KEK protegidas con RSA.
+     * 
+     * @return KEK cifradas en Base64 por identificador
+     * @throws IOException si hay error al leer el archivo de KEK
+     */
+    public static Map<String, String> getKeks() throws IOException {
+        Properties props = loadProperties(KEKS_FILE);
+        Map<String, String> keks = new HashMap<>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("kek.") && name.indexOf('.', 4) < 0) {
+                keks.put(name.substring(4), props.getProperty(name));
+            }
+        }
+        return keks;
+    }
+
+    /**
+     * Reemplaza la protección RSA de varias KEK en una sola escritura.
+     * 
+     * @param rewrapped nuevas KEK cifradas en Base64 por identificador
+     * @param keepPrevious true para conservar la versión actual como anterior
+     *        (los procesos que aún usan la clave RSA anterior pueden seguir leyendo)
+     * @throws IOException si hay error al leer o escribir el archivo de KEK
+     * @see #getPreviousKek(String)
+     */
+    public static void replaceKeks(Map<String, String> rewrapped, boolean keepPrevious) throws IOException {
+        update(KEKS_FILE, props -> {
+            for (Map.Entry<String, String> entry : rewrapped.entrySet()) {
+                String current = props.getProperty("kek." + entry.getKey());
+                if (keepPrevious && current != null) {
+                    props.setProperty("kek." + entry.getKey() + ".previous", current);
+                }
+                props.setProperty("kek." + entry.getKey(), entry.getValue());
+            }
+            return !rewrapped.isEmpty();
+        });
+    }
+
+    /**
+     * Elimina las versiones anteriores de las KEK al terminar una rotación.
+     * 
+     * @throws IOException si hay error al leer o escribir el archivo de KEK
+     */
+    public static void deletePreviousKeks() throws IOException {
+        update(KEKS_FILE, props -> props.keySet().removeIf(name -> name.toString().endsWith(".previous")));
+    }
+
+    /**
+     * Obtiene la KEK activa con una sola lectura.
+     * 
+     * @return array con el identificador, la KEK cifrada en Base64 y su fecha
+     *         de creación en milisegundos, o null si no hay ninguna activa
+     * @throws IOException si hay error al leer el archivo de KEK
+     */
+    public static String[] getActiveKek() throws IOException {
+        Properties props = loadProperties(KEKS_FILE);
+        String id = props.getProperty("active");
+        String wrapped = id != null ? props.getProperty("kek." + id) : null;
+        if (wrapped == null) {
+            return null;
+        }
+        return new String[] {id, wrapped, props.getProperty("kek." + id + ".created", "0")};
+    }
+
+    /**
+     * Obtiene los nombres de todos los archivos con clave de cifrado público.
+     * 
+     * @return nombres de archivo ordenados
+     * @throws IOException si hay error al leer el archivo de claves
+     */
+    public static List<String> getKeyNames() throws IOException {
+        List<String> names = new ArrayList<>(loadProperties(KEYS_FILE).stringPropertyNames());
+        java.util.Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Reemplaza varias claves de cifrado solo si no han cambiado desde que se leyeron.
+     * 
+     * Las claves eliminadas o modificadas por otra operación mientras tanto
+     * no se tocan, de modo que un proceso de fondo puede reescribir claves
+     * sin pisar los descifrados que se hacen a la vez.
+     * 
+     * @param expected valores leídos por nombre de archivo
+     * @param replacement valores nuevos por nombre de archivo
+     * @return número de claves reemplazadas
+     * @throws IOException si hay error al leer o escribir el archivo de claves
+     */
+    public static int replaceKeys(Map<String, String> expected, Map<String, String> replacement) throws IOException {
+        int[] replaced = {0};
+        update(KEYS_FILE, props -> {
+            for (Map.Entry<String, String> entry : replacement.entrySet()) {
+                String current = props.getProperty(entry.getKey());
+                if (current != null && current.equals(expected.get(entry.getKey()))) {
+                    props.setProperty(entry.getKey(), entry.getValue());
+                    replaced[0]++;
+                }
+            }
+            return replaced[0] > 0;
+        });
+        return replaced[0];
+    }
+
+    /**
+     * Guarda el punto de control de una rotación de claves del sistema.
+     * 
+     * @param state estado de la rotación
+     * @throws IOException si hay error al escribir el archivo
+     * @see KeyRotation
+     */
+    public static void saveRotationState(Map<String, String> state) throws IOException {
+        update(ROTATION_FILE, props -> {
+            props.clear();
+            props.putAll(state);
+            return true;
+        });
+    }
+
+    /**
+     * Obtiene el punto de control de la rotación en curso.
+     * 
+     * @return estado de la rotación, o null si no hay ninguna en curso
+     * @throws IOException si hay error al leer el archivo
+     */
+    public static Map<String, String> getRotationState() throws IOException {
+        Properties props = loadProperties(ROTATION_FILE);
+        if (props.isEmpty()) {
+            return null;
+        }
+        Map<String, String> state = new HashMap<>();
+        for (String name : props.stringPropertyNames()) {
+            state.put(name, props.getProperty(name));
+        }
+        return state;
+    }
+
+    /**
+     * Elimina el punto de control al terminar una rotación.
+     * 
+     * @throws IOException si hay error al eliminar el archivo
+     */
+    public static void deleteRotationState() throws IOException {
+        synchronized (WRITE_LOCK) {
+            FileChannel lock = lockStore();
+            try {
+                Files.deleteIfExists(Paths.get(ROTATION_FILE));
+            } finally {
+                lock.close();
+            }
+        }
     }
 
     /**
@@ -214,6 +652,29 @@ public class LocalStorage {
 
     // Métodos auxiliares para manejo de archivos Properties
     
+    /**
+     * Obtiene el índice de claves de cifrado público, releyéndolo solo si el
+     * archivo ha cambiado desde la última lectura. Debe tratarse como solo lectura.
+     */
+    private static Properties keyIndex() throws IOException {
+        Path path = Paths.get(KEYS_FILE);
+        java.nio.file.attribute.BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, java.nio.file.attribute.BasicFileAttributes.class);
+        } catch (java.nio.file.NoSuchFileException e) {
+            return new Properties();
+        }
+        Object fileKey = attributes.fileKey();
+        long modified = attributes.lastModifiedTime().toMillis();
+        KeyIndex index = keyIndex;
+        if (index == null || fileKey == null || !fileKey.equals(index.fileKey)
+                || index.modified != modified || index.size != attributes.size()) {
+            index = new KeyIndex(fileKey, modified, attributes.size(), loadProperties(KEYS_FILE));
+            keyIndex = index;
+        }
+        return index.keys;
+    }
+
     /**
      * Carga un archivo Properties desde el sistema de archivos.
      * 
@@ -236,20 +697,100 @@ public class LocalStorage {
         return props;
     }
 
+    /**
+     * Lee, modifica y guarda un archivo Properties sin perder las escrituras
+     * concurrentes.
+     * 
+     * El archivo se lee después de obtener el cerrojo del proceso y el
+     * bloqueo de {@code .lock}, por lo que los cambios se aplican siempre
+     * sobre la última versión guardada por cualquier hilo o proceso.
+     * 
+     * @param filePath ruta absoluta al archivo .properties
+     * @param update cambios a aplicar; si devuelve false no se escribe nada
+     * @throws IOException si hay error al bloquear, leer o escribir el archivo
+     */
+    private static void update(String filePath, Update update) throws IOException {
+        synchronized (WRITE_LOCK) {
+            FileChannel lock = lockStore();
+            try {
+                Properties props = loadProperties(filePath);
+                if (update.apply(props)) {
+                    saveProperties(props, filePath);
+                }
+            } finally {
+                lock.close();
+            }
+        }
+    }
+
+    /**
+     * Bloquea el almacén frente a las escrituras de otros procesos.
+     * 
+     * Debe llamarse con {@link #WRITE_LOCK} tomado. El bloqueo se libera al
+     * cerrar el canal devuelto.
+     * 
+     * @return canal de {@code .lock} con un bloqueo exclusivo
+     * @throws IOException si no se puede crear o bloquear el archivo
+     */
+    private static FileChannel lockStore() throws IOException {
+        ensureDataDirectory();
+        FileChannel channel = FileChannel.open(Paths.get(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
     /**
      * Guarda un objeto Properties en el sistema de archivos.
      * 
      * Escribe todas las propiedades en el archivo especificado,
-     * creando el archivo si no existe. Utilizado internamente
-     * por todas las operaciones de escritura de datos.
+     * creando el archivo (y el directorio de datos) si no existe.
+     * Utilizado internamente por todas las operaciones de escritura de datos.
+     * 
+     * <p>El archivo se reemplaza de forma atómica (temporal y renombrado),
+     * de modo que un fallo durante la escritura nunca deja el almacén de
+     * claves a medias. Salvo con {@code cs.durability=NONE} se fuerza a disco
+     * antes de publicarlo.</p>
      * 
      * @param props objeto Properties con los datos a guardar
      * @param filePath ruta absoluta donde guardar el archivo
      * @throws IOException si hay error al escribir el archivo
+     * @see AtomicFileWriter
      */
     private static void saveProperties(Properties props, String filePath) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(filePath)) {
-            props.store(fos, "Auto-generated file for local storage");
+        ensureDataDirectory();
+        boolean sync = FileOperationOptions.configuredDurability() != FileOperationOptions.Durability.NONE;
+        try {
+            AtomicFileWriter.write(Paths.get(filePath), out -> props.store(out, "Auto-generated file for local storage"), sync);
+            if (filePath.equals(KEYS_FILE)) {
+                keyIndex = null;
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Crea el directorio de datos la primera vez que se necesita escribir.
+     * 
+     * Se hace bajo demanda en lugar de al cargar la clase para que el
+     * arranque de la aplicación no dependa de operaciones de disco.
+     * 
+     * @throws IOException si no se puede crear el directorio
+     */
+    private static void ensureDataDirectory() throws IOException {
+        if (!dataDirReady) {
+            Path dataPath = Paths.get(DATA_DIR);
+            if (!Files.exists(dataPath)) {
+                Files.createDirectories(dataPath);
+            }
+            dataDirReady = true;
         }
     }
 
@@ -267,10 +808,11 @@ public class LocalStorage {
      * @see FileEncryptionApp#FileEncryptionApp()
      */
     public static void saveSystemRSAKeys(String publicKeyBase64, String privateKeyBase64) throws IOException {
-        Properties props = loadProperties(USERS_FILE);
-        props.setProperty("system.public_key", publicKeyBase64);
-        props.setProperty("system.private_key", privateKeyBase64);
-        saveProperties(props, USERS_FILE);
+        update(USERS_FILE, props -> {
+            props.setProperty("system.public_key", publicKeyBase64);
+            props.setProperty("system.private_key", privateKeyBase64);
+            return true;
+        });
     }
 
     /**
@@ -299,6 +841,25 @@ public class LocalStorage {
         return props.getProperty("system.private_key");
     }
 
+    /**
+     * Obtiene ambas claves maestras del sistema con una sola lectura.
+     * 
+     * @return array con la clave pública y la clave privada en Base64,
+     *         o null si las claves del sistema aún no existen
+     * @throws IOException si hay error al leer el archivo de usuarios
+     * 
+     * @see FileEncryptionApp#FileEncryptionApp()
+     */
+    public static String[] getSystemKeys() throws IOException {
+        Properties props = loadProperties(USERS_FILE);
+        String publicKey = props.getProperty("system.public_key");
+        String privateKey = props.getProperty("system.private_key");
+        if (publicKey == null || privateKey == null) {
+            return null;
+        }
+        return new String[] {publicKey, privateKey};
+    }
+
     /**
      * Verifica si las claves maestras del sistema ya han sido generadas.
      * 
@@ -316,30 +877,108 @@ public class LocalStorage {
                props.getProperty("system.private_key") != null;
     }
 
+    /**
+     * Guarda el número de iteraciones PBKDF2 calibrado para esta máquina.
+     * 
+     * @param iterations iteraciones a usar para los hashes de contraseña nuevos
+     * @throws IOException si hay error al escribir el archivo de usuarios
+     * 
+     * @see PasswordHashing#calibrate(int)
+     */
+    public static void savePasswordHashIterations(int iterations) throws IOException {
+        update(USERS_FILE, props -> {
+            props.setProperty("system.pbkdf2_iterations", String.valueOf(iterations));
+            return true;
+        });
+    }
+
+    /**
+     * Obtiene el número de iteraciones PBKDF2 calibrado.
+     * 
+     * @return iteraciones calibradas o null si nunca se ha calibrado
+     * @throws IOException si hay error al leer el archivo de usuarios
+     */
+    public static Integer getPasswordHashIterations() throws IOException {
+        Properties props = loadProperties(USERS_FILE);
+        String value = props.getProperty("system.pbkdf2_iterations");
+        return value != null ? Integer.valueOf(value.trim()) : null;
+    }
+
+    /**
+     * Obtiene el archivo de claves privadas de un usuario dentro del directorio de datos.
+     * 
+     * Las versiones anteriores lo guardaban junto al directorio de datos
+     * (data/../dataprivate_keys_[usuario].properties); si solo existe esa
+     * ubicación se sigue usando.
+     * 
+     * @param username nombre del usuario
+     * @return ruta del archivo de claves privadas
+     */
+    private static String privateKeysFile(String username) {
+        String file = DATA_DIR + File.separator + "private_keys_" + username + ".properties";
+        String legacy = DATA_DIR + "private_keys_" + username + ".properties";
+        return !Files.exists(Paths.get(file)) && Files.exists(Paths.get(legacy)) ? legacy : file;
+    }
+
     /**
      * Guarda una clave AES cifrada para un usuario especifico (cifrado privado)
      */
     public static void savePrivateKey(String username, String filename, String encryptedKeyBase64) throws IOException {
-        String privateKeysFile = DATA_DIR + "private_keys_" + username + ".properties";
-        Properties props = loadProperties(privateKeysFile);
-        props.setProperty(filename, encryptedKeyBase64);
-        saveProperties(props, privateKeysFile);
+        update(privateKeysFile(username), props -> {
+            props.setProperty(filename, encryptedKeyBase64);
+            return true;
+        });
     }
 
     /**
      * Obtiene una clave AES cifrada para un usuario especifico (cifrado privado)
      */
     public static String getPrivateKey(String username, String filename) throws IOException {
-        String privateKeysFile = DATA_DIR + "private_keys_" + username + ".properties";
+        String privateKeysFile = privateKeysFile(username);
         Properties props = loadProperties(privateKeysFile);
         return props.getProperty(filename);
     }
 
+    /**
+     * Obtiene varias claves AES cifradas de un usuario con una sola lectura.
+     * 
+     * @param username nombre del usuario
+     * @param filenames nombres de archivo cuyas claves se desean obtener
+     * @return claves cifradas en Base64 en el mismo orden (null si no existe)
+     * @throws IOException si hay error al leer el archivo de claves del usuario
+     */
+    public static List<String> getPrivateKeys(String username, List<String> filenames) throws IOException {
+        String privateKeysFile = privateKeysFile(username);
+        Properties props = loadProperties(privateKeysFile);
+        List<String> keys = new ArrayList<>(filenames.size());
+        for (String filename : filenames) {
+            keys.add(props.getProperty(filename));
+        }
+        return keys;
+    }
+
+    /**
+     * Elimina varias claves AES de un usuario reescribiendo el archivo una sola vez.
+     * 
+     * @param username nombre del usuario
+     * @param filenames nombres de archivo cuyas claves se desean eliminar
+     * @throws IOException si hay error al leer o escribir el archivo de claves del usuario
+     */
+    public static void deletePrivateKeys(String username, Collection<String> filenames) throws IOException {
+        update(privateKeysFile(username), props -> {
+            boolean removed = false;
+            for (String filename : filenames) {
+                removed |= props.remove(filename) != null;
+            }
+            return removed;
+        });
+    }
+
     /**
      * Lista todas las claves privadas de un usuario (para depuracion)
      */
     public static void listPrivateKeys(String username) throws IOException {
-        String privateKeysFile = DATA_DIR + "private_keys_" + username + ".properties";
+        String privateKeysFile = privateKeysFile(username);
         Properties props = loadProperties(privateKeysFile);
         System.out.println("\n=== CLAVES PRIVADAS DE " + username.toUpperCase() + " ===");
         for (String key : props.stringPropertyNames()) {
@@ -1,5 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Diálogo modal de autenticación para la aplicación de cifrado.
@@ -13,6 +14,7 @@ import java.awt.*;
  * <ul>
  *   <li>Interfaz modal que bloquea acceso hasta autenticación exitosa</li>
  *   <li>Validación de usuario y contraseña contra almacenamiento local</li>
+ *   <li>Limitación de intentos mediante AuthenticationService</li>
  *   <li>Pregunta de seguridad fija para verificación adicional</li>
  *   <li>Limpieza automática de campos tras fallos de autenticación</li>
  * </ul>
@@ -21,7 +23,7 @@ import java.awt.*;
  * @version 1.0
  * @since 2025-07-25
  * 
- * @see UserAuth
+ * @see AuthenticationService
  * @see JDialog
  */
 public class LoginDialog extends JDialog {
@@ -37,6 +39,9 @@ public class LoginDialog extends JDialog {
     /** Indica si la autenticación fue exitosa */
     private boolean succeeded;
 
+    /** Preparación de los usuarios que debe terminar antes de autenticar */
+    private final CompletableFuture<?> usersReady;
+
     /**
      * Constructor que crea e inicializa el diálogo de login.
      * 
@@ -47,7 +52,24 @@ public class LoginDialog extends JDialog {
      * @param parent ventana padre que será bloqueada por este diálogo modal
      */
     public LoginDialog(Frame parent) {
+        this(parent, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Constructor que crea el diálogo de login mientras los usuarios se
+     * preparan en segundo plano.
+     * 
+     * El diálogo se muestra sin esperar; solo si el usuario pulsa
+     * "Iniciar Sesion" antes de que termine la preparación, la
+     * autenticación espera a que termine.
+     * 
+     * @param parent ventana padre que será bloqueada por este diálogo modal
+     * @param usersReady futuro que se completa cuando los usuarios están listos
+     * @see DefaultSetup#createDefaultUser()
+     */
+    public LoginDialog(Frame parent, CompletableFuture<?> usersReady) {
         super(parent, "Login - Aplicacion de Cifrado", true);
+        this.usersReady = usersReady;
 
         JPanel panel = new JPanel(new GridBagLayout());
         GridBagConstraints cs = new GridBagConstraints();
@@ -95,16 +117,18 @@ public class LoginDialog extends JDialog {
         JButton loginButton = new JButton("Iniciar Sesion");
 
         loginButton.addActionListener(e -> {
-            // Autenticacion simple con usuarios locales
-            if (UserAuth.authenticate(getUsername(), getPassword()) && checkSecurityAnswer()) {
-                succeeded = true;
-                dispose();
-            } else {
-                JOptionPane.showMessageDialog(LoginDialog.this, 
-                    "Usuario, contrasena o respuesta de seguridad incorrectos", 
-                    "Error de Login", JOptionPane.ERROR_MESSAGE);
-                resetLoginFields();
+            if (usersReady.isDone()) {
+                login();
+                return;
             }
+            // Primera ejecucion: esperar a que exista el usuario por defecto sin bloquear la interfaz
+            loginButton.setEnabled(false);
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            usersReady.whenComplete((value, error) -> SwingUtilities.invokeLater(() -> {
+                setCursor(Cursor.getDefaultCursor());
+                loginButton.setEnabled(true);
+                login();
+            }));
         });
 
         JPanel buttonPanel = new JPanel();
@@ -118,6 +142,30 @@ public class LoginDialog extends JDialog {
         setSize(new Dimension(500, 250));
     }
 
+    /**
+     * Autentica las credenciales introducidas y cierra el diálogo si son correctas.
+     * 
+     * Utiliza los usuarios locales con límite de intentos; tras un fallo
+     * muestra el motivo y limpia los campos.
+     */
+    private void login() {
+        AuthenticationService.Result result = AuthenticationService.getInstance().authenticate(getUsername(), getPassword());
+        if (result == AuthenticationService.Result.SUCCESS && checkSecurityAnswer()) {
+            succeeded = true;
+            dispose();
+        } else if (result == AuthenticationService.Result.THROTTLED) {
+            JOptionPane.showMessageDialog(LoginDialog.this, 
+                "Demasiados intentos de login. Espere unos segundos e intentelo de nuevo.", 
+                "Error de Login", JOptionPane.WARNING_MESSAGE);
+            resetLoginFields();
+        } else {
+            JOptionPane.showMessageDialog(LoginDialog.this, 
+                "Usuario, contrasena o respuesta de seguridad incorrectos", 
+                "Error de Login", JOptionPane.ERROR_MESSAGE);
+            resetLoginFields();
+        }
+    }
+
     /**
      * Limpia todos los campos de entrada del formulario de login.
      * 
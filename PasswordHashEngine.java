@@ -0,0 +1,51 @@
+/**
+ * Motor intercambiable de hashing de contraseñas.
+ *
+ * Cada implementación define su propio formato de cadena almacenada y es
+ * capaz de reconocerlo, de modo que varios motores pueden convivir en el
+ * mismo archivo de usuarios (por ejemplo, hashes SHA-256 heredados junto
+ * a hashes PBKDF2 nuevos).
+ *
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ *
+ * @see PasswordHashing
+ * @see Pbkdf2HashEngine
+ * @see LegacySha256HashEngine
+ */
+public interface PasswordHashEngine {
+
+    /**
+     * Genera el hash almacenable de una contraseña.
+     *
+     * @param password contraseña en texto plano
+     * @return cadena con el hash y los parámetros necesarios para verificarlo
+     */
+    String hash(String password);
+
+    /**
+     * Verifica una contraseña contra un hash producido por este motor.
+     *
+     * @param password contraseña en texto plano a verificar
+     * @param storedHash hash almacenado
+     * @return true si la contraseña coincide, false en caso contrario
+     */
+    boolean verify(String password, String storedHash);
+
+    /**
+     * Indica si este motor reconoce el formato del hash almacenado.
+     *
+     * @param storedHash hash almacenado
+     * @return true si el hash fue generado por este motor
+     */
+    boolean supports(String storedHash);
+
+    /**
+     * Indica si el hash almacenado debe regenerarse con los parámetros actuales.
+     *
+     * @param storedHash hash almacenado reconocido por este motor
+     * @return true si el hash usa un formato o coste obsoleto
+     */
+    boolean needsRehash(String storedHash);
+}
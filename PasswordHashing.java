@@ -0,0 +1,258 @@
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Punto de entrada para el hashing y la verificación de contraseñas.
+ *
+ * Selecciona el motor adecuado según el formato del hash almacenado, genera
+ * los hashes nuevos con PBKDF2 y mantiene una caché de verificaciones
+ * correctas para no repetir la derivación completa cuando se vuelve a
+ * comprobar la misma contraseña en la misma sesión.
+ *
+ * <p>El coste de PBKDF2 se resuelve en este orden:</p>
+ * <ul>
+ *   <li>Propiedad del sistema {@code cs.pbkdf2.iterations}</li>
+ *   <li>Valor calibrado guardado en users.properties</li>
+ *   <li>{@link #DEFAULT_ITERATIONS}</li>
+ * </ul>
+ *
+ * <p>Uso como comando de calibración:
+ * {@code java PasswordHashing calibrate [milisegundos]}</p>
+ *
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ *
+ * @see Pbkdf2HashEngine
+ * @see LegacySha256HashEngine
+ * @see UserAuth#authenticate(String, String)
+ */
+public class PasswordHashing {
+    /** Iteraciones por defecto si no hay calibración previa */
+    public static final int DEFAULT_ITERATIONS = 310000;
+
+    /** Iteraciones mínimas aceptadas por la calibración */
+    private static final int MIN_ITERATIONS = 100000;
+
+    /** Latencia objetivo por defecto de la calibración en milisegundos */
+    private static final int DEFAULT_TARGET_MILLIS = 250;
+
+    /** Número máximo de verificaciones recordadas en la caché */
+    private static final int CACHE_SIZE = 256;
+
+    /** Motor usado para generar hashes nuevos (se inicializa bajo demanda) */
+    private static volatile Pbkdf2HashEngine currentEngine;
+
+    /** Motor para hashes heredados SHA-256 */
+    private static final PasswordHashEngine LEGACY_ENGINE = new LegacySha256HashEngine();
+
+    /** Clave aleatoria del proceso para indexar la caché sin guardar contraseñas */
+    private static final byte[] CACHE_KEY = new byte[32];
+
+    /** Caché LRU de verificaciones correctas: huella de (hash, contraseña) a hash */
+    private static final Map<String, String> VERIFIED = new LinkedHashMap<String, String>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    static {
+        new SecureRandom().nextBytes(CACHE_KEY);
+    }
+
+    /**
+     * Genera un hash nuevo con el motor PBKDF2 y el coste actual.
+     *
+     * @param password contraseña en texto plano
+     * @return hash en formato PBKDF2 con sal aleatoria
+     */
+    public static String hashPassword(String password) {
+        return engine().hash(password);
+    }
+
+    /**
+     * Verifica una contraseña contra un hash almacenado de cualquier formato.
+     *
+     * Las verificaciones correctas se recuerdan durante la vida del proceso,
+     * de forma que una segunda comprobación idéntica solo cuesta un HMAC.
+     *
+     * @param password contraseña en texto plano
+     * @param storedHash hash almacenado
+     * @return true si la contraseña coincide con el hash
+     */
+    public static boolean verifyPassword(String password, String storedHash) {
+        if (password == null || storedHash == null) {
+            return false;
+        }
+        String fingerprint = fingerprint(password, storedHash);
+        synchronized (VERIFIED) {
+            if (storedHash.equals(VERIFIED.get(fingerprint))) {
+                return true;
+            }
+        }
+
+        boolean valid = engineFor(storedHash).verify(password, storedHash);
+        if (valid) {
+            synchronized (VERIFIED) {
+                VERIFIED.put(fingerprint, storedHash);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Indica si un hash almacenado debe regenerarse con el motor actual.
+     *
+     * @param storedHash hash almacenado
+     * @return true si es un hash heredado o con menos iteraciones de las configuradas
+     */
+    public static boolean needsRehash(String storedHash) {
+        return engineFor(storedHash).needsRehash(storedHash);
+    }
+
+    /**
+     * Obtiene el motor capaz de verificar el hash indicado.
+     *
+     * @param storedHash hash almacenado
+     * @return motor PBKDF2 o el motor heredado según el formato
+     */
+    static PasswordHashEngine engineFor(String storedHash) {
+        Pbkdf2HashEngine current = engine();
+        if (!current.supports(storedHash) && LEGACY_ENGINE.supports(storedHash)) {
+            return LEGACY_ENGINE;
+        }
+        return current;
+    }
+
+    /**
+     * Obtiene el motor PBKDF2 actual, resolviendo su coste la primera vez.
+     *
+     * @return motor PBKDF2 configurado
+     */
+    static Pbkdf2HashEngine engine() {
+        Pbkdf2HashEngine engine = currentEngine;
+        if (engine == null) {
+            synchronized (PasswordHashing.class) {
+                engine = currentEngine;
+                if (engine == null) {
+                    engine = new Pbkdf2HashEngine(resolveIterations());
+                    currentEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Determina el número de iteraciones a usar para los hashes nuevos.
+     *
+     * @return iteraciones configuradas, calibradas o por defecto
+     */
+    private static int resolveIterations() {
+        String property = System.getProperty("cs.pbkdf2.iterations");
+        if (property != null) {
+            try {
+                return Integer.parseInt(property.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Valor invalido para cs.pbkdf2.iterations: " + property);
+            }
+        }
+        try {
+            Integer calibrated = LocalStorage.getPasswordHashIterations();
+            if (calibrated != null) {
+                return calibrated;
+            }
+        } catch (Exception e) {
+            System.err.println("Error leyendo iteraciones calibradas: " + e.getMessage());
+        }
+        return DEFAULT_ITERATIONS;
+    }
+
+    /**
+     * Mide el coste de PBKDF2 en esta máquina y calcula las iteraciones
+     * necesarias para alcanzar la latencia objetivo.
+     *
+     * Realiza un calentamiento para que el JIT compile la derivación y
+     * después extrapola a partir de la mediana de varias mediciones.
+     *
+     * @param targetMillis latencia objetivo por verificación en milisegundos
+     * @return número de iteraciones recomendado (nunca inferior al mínimo)
+     */
+    public static int calibrate(int targetMillis) {
+        int sampleIterations = 20000;
+        byte[] salt = new byte[16];
+        for (int i = 0; i < 5; i++) {
+            Pbkdf2HashEngine.derive("calibracion", salt, sampleIterations);
+        }
+
+        long[] samples = new long[7];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            Pbkdf2HashEngine.derive("calibracion", salt, sampleIterations);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double nanosPerIteration = (double) samples[samples.length / 2] / sampleIterations;
+        long iterations = Math.round(targetMillis * 1_000_000L / nanosPerIteration);
+        // Redondear a millares para que el valor almacenado sea legible
+        iterations = Math.max(MIN_ITERATIONS, (iterations / 1000) * 1000);
+        return (int) Math.min(Integer.MAX_VALUE, iterations);
+    }
+
+    /**
+     * Calcula la huella HMAC usada como clave de la caché de verificaciones.
+     *
+     * @param password contraseña en texto plano
+     * @param storedHash hash almacenado
+     * @return huella en Base64
+     */
+    private static String fingerprint(String password, String storedHash) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(CACHE_KEY, "HmacSHA256"));
+            mac.update(storedHash.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Error hashing password", e);
+        }
+    }
+
+    /**
+     * Comando de calibración del coste de PBKDF2.
+     *
+     * Mide el rendimiento de la máquina, muestra las iteraciones elegidas y
+     * las guarda en el almacenamiento local para los hashes futuros. Los
+     * hashes existentes se actualizan en el siguiente login de cada usuario.
+     *
+     * @param args {@code calibrate [milisegundos]}
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || !"calibrate".equals(args[0])) {
+            System.out.println("Uso: java PasswordHashing calibrate [milisegundos]");
+            return;
+        }
+        int target = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TARGET_MILLIS;
+        int iterations = calibrate(target);
+
+        long start = System.nanoTime();
+        new Pbkdf2HashEngine(iterations).hash("calibracion");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("Objetivo: " + target + " ms");
+        System.out.println("Iteraciones elegidas: " + iterations + " (medido: " + elapsedMillis + " ms)");
+        try {
+            LocalStorage.savePasswordHashIterations(iterations);
+            System.out.println("Iteraciones guardadas en el almacenamiento local");
+        } catch (Exception e) {
+            System.err.println("Error guardando iteraciones: " + e.getMessage());
+        }
+    }
+}
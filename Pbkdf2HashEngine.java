@@ -0,0 +1,130 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Motor de hashing de contraseñas basado en PBKDF2WithHmacSHA256.
+ *
+ * Cada hash lleva su propia sal aleatoria y el número de iteraciones con el
+ * que fue generado, por lo que el coste puede ajustarse sin invalidar los
+ * hashes existentes.
+ *
+ * <p>Formato almacenado:
+ * {@code pbkdf2-sha256$<iteraciones>$<sal Base64>$<hash Base64>}</p>
+ *
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ *
+ * @see SecretKeyFactory
+ * @see PasswordHashing
+ */
+public class Pbkdf2HashEngine implements PasswordHashEngine {
+    /** Prefijo que identifica los hashes de este motor */
+    public static final String PREFIX = "pbkdf2-sha256";
+
+    /** Algoritmo de derivación usado por el JCA */
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    /** Longitud de la sal en bytes */
+    private static final int SALT_LENGTH = 16;
+
+    /** Longitud del hash derivado en bytes */
+    private static final int HASH_LENGTH = 32;
+
+    /** Generador aleatorio compartido para las sales */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Número de iteraciones usado para los hashes nuevos */
+    private final int iterations;
+
+    /**
+     * Crea un motor PBKDF2 con el coste indicado.
+     *
+     * @param iterations número de iteraciones para los hashes nuevos
+     * @throws IllegalArgumentException si el número de iteraciones no es positivo
+     */
+    public Pbkdf2HashEngine(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Numero de iteraciones invalido: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Obtiene el número de iteraciones configurado.
+     *
+     * @return iteraciones usadas para los hashes nuevos
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            byte[] computed = derive(password, salt, storedIterations);
+            return MessageDigest.isEqual(computed, expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean supports(String storedHash) {
+        return storedHash != null && storedHash.startsWith(PREFIX + "$");
+    }
+
+    /**
+     * Un hash necesita regenerarse si fue creado con menos iteraciones
+     * que las configuradas actualmente.
+     */
+    @Override
+    public boolean needsRehash(String storedHash) {
+        String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Deriva el hash PBKDF2 de una contraseña.
+     *
+     * @param password contraseña en texto plano
+     * @param salt sal del hash
+     * @param iterations número de iteraciones
+     * @return bytes derivados
+     * @throws RuntimeException si el algoritmo no está disponible
+     */
+    static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_LENGTH * 8);
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(ALGORITHM);
+            return factory.generateSecret(spec).getEncoded();
+        } catch (Exception e) {
+            throw new RuntimeException("Error hashing password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
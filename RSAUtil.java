@@ -2,7 +2,13 @@ import javax.crypto.Cipher;
 import java.security.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utilidad para operaciones criptográficas RSA.
@@ -84,6 +90,62 @@ public class RSAUtil {
         return cipher.doFinal(data);
     }
 
+    /**
+     * Descifra en paralelo con una clave privada un lote de datos cifrados con la clave pública correspondiente.
+     * 
+     * Reparte los elementos entre tantos hilos como núcleos disponibles. Cada
+     * hilo crea e inicializa un único Cipher que reutiliza para todos los
+     * elementos que procesa, de modo que el coste de inicialización no se paga
+     * por elemento. Los resultados se devuelven en el mismo orden que la entrada.
+     * 
+     * <p>Un elemento que no se puede descifrar no interrumpe el lote: su
+     * posición en el resultado queda a null y el error se registra.</p>
+     * 
+     * @param data lista de datos cifrados (los elementos null se devuelven como null)
+     * @param privateKey clave privada RSA para descifrado
+     * @return lista de datos descifrados en el orden de entrada
+     * @throws Exception si no se puede crear el Cipher RSA
+     * 
+     * @see #decryptWithPrivateKey(byte[], PrivateKey)
+     */
+    public static List<byte[]> decryptBatchWithPrivateKey(List<byte[]> data, PrivateKey privateKey) throws Exception {
+        byte[][] results = new byte[data.size()][];
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), data.size()));
+        AtomicInteger next = new AtomicInteger();
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[workers];
+        for (int w = 0; w < workers; w++) {
+            tasks[w] = CompletableFuture.runAsync(() -> {
+                Cipher cipher;
+                try {
+                    cipher = Cipher.getInstance(ALGORITHM);
+                    cipher.init(Cipher.DECRYPT_MODE, privateKey);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+                int i;
+                while ((i = next.getAndIncrement()) < results.length) {
+                    byte[] item = data.get(i);
+                    if (item == null) {
+                        continue;
+                    }
+                    try {
+                        results[i] = cipher.doFinal(item);
+                    } catch (GeneralSecurityException e) {
+                        System.err.println("Error descifrando elemento " + i + " del lote: " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            throw new Exception("Error en el descifrado RSA por lotes", e.getCause());
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
     /**
      * Convierte una clave pública RSA a formato Base64.
      * 
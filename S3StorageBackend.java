@@ -0,0 +1,470 @@
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Almacenamiento en un servicio compatible con el protocolo S3 (AWS S3,
+ * MinIO, Ceph, etc.).
+ * 
+ * Las peticiones se firman con AWS Signature Version 4 y usan direcciones
+ * de estilo ruta ({@code <endpoint>/<bucket>/<clave>}), que aceptan tanto
+ * AWS como los servicios locales. Los archivos mayores que una parte
+ * ({@code cs.storage.s3.partSize}, 8 MiB por defecto y 5 MiB como mínimo)
+ * se suben por partes con una subida multiparte, leyendo cada parte del
+ * archivo solo cuando se va a enviar; las descargas piden rangos de ese
+ * mismo tamaño en paralelo, condicionados con {@code If-Match} al ETag
+ * leído al empezar, y los escriben en su posición del archivo de destino.
+ * Si el objeto se reemplaza durante la descarga, esta falla en lugar de
+ * mezclar partes de dos versiones. Las partes simultáneas se limitan con
+ * {@code cs.storage.s3.concurrency} (4 por defecto), de modo que la memoria
+ * usada es como mucho ese número de partes.
+ * 
+ * <p>Si una subida multiparte falla se cancela para que el servicio libere
+ * las partes ya enviadas, y el objeto anterior no se modifica.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see StorageBackend
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    /** Tamaño mínimo de parte que admite S3 (salvo la última) */
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    /** Claves por página al listar (1000 como máximo en S3) */
+    private static final int LIST_PAGE_SIZE = Math.max(1, Integer.getInteger("cs.storage.s3.listPageSize", 1000));
+
+    /** Resumen SHA-256 del cuerpo vacío */
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    /** Cabeceras incluidas en la firma */
+    private static final String SIGNED_HEADERS = "host;x-amz-content-sha256;x-amz-date";
+
+    /** Formato de fecha de la firma */
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    /** Dirección del servicio sin barra final */
+    private final String endpoint;
+
+    /** Cabecera Host correspondiente a la dirección */
+    private final String host;
+
+    /** Región de la firma */
+    private final String region;
+
+    /** Bucket de los objetos */
+    private final String bucket;
+
+    /** Identificador de la clave de acceso */
+    private final String accessKey;
+
+    /** Clave secreta de acceso */
+    private final String secretKey;
+
+    /** Tamaño de cada parte en subidas y descargas */
+    private final int partSize;
+
+    /** Partes transferidas a la vez */
+    private final int concurrency;
+
+    /** Cliente HTTP compartido */
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+
+    /**
+     * Crea un almacenamiento S3 con el tamaño de parte y la concurrencia configurados.
+     * 
+     * @param endpoint dirección del servicio (por ejemplo {@code http://localhost:9000})
+     * @param region región de la firma
+     * @param bucket bucket de los objetos (debe existir)
+     * @param accessKey identificador de la clave de acceso
+     * @param secretKey clave secreta de acceso
+     */
+    public S3StorageBackend(URI endpoint, String region, String bucket, String accessKey, String secretKey) {
+        this(endpoint, region, bucket, accessKey, secretKey,
+            Integer.getInteger("cs.storage.s3.partSize", 8 * 1024 * 1024), Integer.getInteger("cs.storage.s3.concurrency", 4));
+    }
+
+    /**
+     * Crea un almacenamiento S3.
+     * 
+     * @param endpoint dirección del servicio (por ejemplo {@code http://localhost:9000})
+     * @param region región de la firma
+     * @param bucket bucket de los objetos (debe existir)
+     * @param accessKey identificador de la clave de acceso
+     * @param secretKey clave secreta de acceso
+     * @param partSize tamaño de cada parte (se eleva a {@link #MIN_PART_SIZE} si es menor)
+     * @param concurrency partes transferidas a la vez
+     */
+    public S3StorageBackend(URI endpoint, String region, String bucket, String accessKey, String secretKey,
+            int partSize, int concurrency) {
+        String base = endpoint.toString();
+        this.endpoint = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        this.host = endpoint.getPort() < 0 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    @Override
+    public void put(String key, Path source) throws Exception {
+        long size = Files.size(source);
+        if (size <= partSize) {
+            check(send("PUT", key, Collections.emptyMap(), Files.readAllBytes(source), Collections.emptyMap()), key, 200);
+            return;
+        }
+
+        byte[] created = check(send("POST", key, Collections.singletonMap("uploads", ""), new byte[0], Collections.emptyMap()), key, 200).body();
+        List<String> uploadIds = xmlValues(created, "UploadId");
+        if (uploadIds.isEmpty()) {
+            throw new IOException("Respuesta sin UploadId al iniciar la subida de " + key);
+        }
+        String uploadId = uploadIds.get(0);
+        int parts = (int) ((size + partSize - 1) / partSize);
+        String[] etags = new String[parts];
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, parts));
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<Future<?>> futures = new ArrayList<>(parts);
+            for (int i = 0; i < parts; i++) {
+                int part = i;
+                futures.add(executor.submit(() -> {
+                    long offset = (long) part * partSize;
+                    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(partSize, size - offset));
+                    while (buffer.hasRemaining()) {
+                        if (in.read(buffer, offset + buffer.position()) < 0) {
+                            throw new IOException("El archivo ha cambiado durante la subida: " + source);
+                        }
+                    }
+                    Map<String, String> query = new TreeMap<>();
+                    query.put("partNumber", Integer.toString(part + 1));
+                    query.put("uploadId", uploadId);
+                    HttpResponse<byte[]> response = check(send("PUT", key, query, buffer.array(), Collections.emptyMap()), key, 200);
+                    etags[part] = response.headers().firstValue("ETag")
+                        .orElseThrow(() -> new IOException("Parte " + (part + 1) + " sin ETag: " + key));
+                    return null;
+                }));
+            }
+            await(futures);
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < parts; i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(etags[i].replace("&", "&amp;").replace("\"", "&quot;")).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            HttpResponse<byte[]> response = check(send("POST", key, Collections.singletonMap("uploadId", uploadId),
+                complete.toString().getBytes(StandardCharsets.UTF_8), Collections.emptyMap()), key, 200);
+            // S3 puede responder 200 y un error en el cuerpo si la composición falla
+            if (!xmlValues(response.body(), "Code").isEmpty()) {
+                throw new IOException("Error S3 completando la subida de " + key + ": " + errorMessage(response.body()));
+            }
+        } catch (Exception e) {
+            try {
+                send("DELETE", key, Collections.singletonMap("uploadId", uploadId), new byte[0], Collections.emptyMap());
+            } catch (Exception abort) {
+                e.addSuppressed(abort);
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void get(String key, Path target) throws Exception {
+        HttpResponse<byte[]> head = head(key);
+        if (head == null) {
+            throw new NoSuchFileException(key);
+        }
+        long size = head.headers().firstValueAsLong("Content-Length").orElse(0);
+        // Todas las partes deben ser de la misma versión del objeto que el tamaño
+        String etag = head.headers().firstValue("ETag").orElse(null);
+        int parts = (int) Math.max(1, (size + partSize - 1) / partSize);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, parts));
+        try {
+            AtomicFileWriter.writeChannel(target, out -> {
+                List<Future<?>> futures = new ArrayList<>(parts);
+                for (int i = 0; i < parts; i++) {
+                    long offset = (long) i * partSize;
+                    int length = (int) Math.min(partSize, size - offset);
+                    futures.add(executor.submit(() -> {
+                        ByteBuffer buffer = ByteBuffer.wrap(range(key, offset, length, etag));
+                        if (buffer.remaining() != length) {
+                            throw new IOException("El objeto ha cambiado durante la descarga: " + key);
+                        }
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer, offset + buffer.position());
+                        }
+                        return null;
+                    }));
+                }
+                await(futures);
+            }, FileOperationOptions.defaults().isSync());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public byte[] getRange(String key, long offset, int length) throws Exception {
+        return range(key, offset, length, null);
+    }
+
+    @Override
+    public long size(String key) throws Exception {
+        HttpResponse<byte[]> response = head(key);
+        return response != null ? response.headers().firstValueAsLong("Content-Length").orElse(0) : -1;
+    }
+
+    @Override
+    public void delete(String key) throws Exception {
+        HttpResponse<byte[]> response = send("DELETE", key, Collections.emptyMap(), new byte[0], Collections.emptyMap());
+        if (response.statusCode() != 404) {
+            check(response, key, 204);
+        }
+    }
+
+    @Override
+    public List<String> list(String prefix) throws Exception {
+        List<String> keys = new ArrayList<>();
+        String token = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("max-keys", Integer.toString(LIST_PAGE_SIZE));
+            query.put("prefix", prefix);
+            if (token != null) {
+                query.put("continuation-token", token);
+            }
+            byte[] body = check(send("GET", null, query, new byte[0], Collections.emptyMap()), bucket, 200).body();
+            keys.addAll(xmlValues(body, "Key"));
+            List<String> next = xmlValues(body, "NextContinuationToken");
+            token = xmlValues(body, "IsTruncated").contains("true") && !next.isEmpty() ? next.get(0) : null;
+        } while (token != null);
+        Collections.sort(keys);
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + "/" + bucket;
+    }
+
+    /**
+     * Obtiene los metadatos de un objeto.
+     * 
+     * @return respuesta de HEAD, o null si el objeto no existe
+     */
+    private HttpResponse<byte[]> head(String key) throws Exception {
+        HttpResponse<byte[]> response = send("HEAD", key, Collections.emptyMap(), new byte[0], Collections.emptyMap());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        return check(response, key, 200);
+    }
+
+    /**
+     * Lee una parte de un objeto, opcionalmente solo si sigue siendo la versión indicada.
+     * 
+     * @param etag ETag que debe tener el objeto (cabecera If-Match), o null
+     * @throws IOException si el objeto ya no tiene ese ETag
+     */
+    private byte[] range(String key, long offset, int length, String etag) throws Exception {
+        if (length <= 0) {
+            return new byte[0];
+        }
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("Range", "bytes=" + offset + "-" + (offset + length - 1));
+        if (etag != null) {
+            headers.put("If-Match", etag);
+        }
+        HttpResponse<byte[]> response = send("GET", key, Collections.emptyMap(), new byte[0], headers);
+        if (response.statusCode() == 412) {
+            throw new IOException("El objeto ha cambiado durante la descarga: " + key);
+        }
+        if (response.statusCode() == 416) {
+            return new byte[0];
+        }
+        check(response, key, 206);
+        return response.body();
+    }
+
+    /**
+     * Envía una petición firmada con AWS Signature Version 4.
+     * 
+     * @param method método HTTP
+     * @param key clave del objeto, o null para peticiones sobre el bucket
+     * @param query parámetros de la consulta
+     * @param body cuerpo de la petición (vacío si no tiene)
+     * @param headers cabeceras adicionales sin firmar (Range, If-Match)
+     * @return respuesta con el cuerpo completo
+     */
+    private HttpResponse<byte[]> send(String method, String key, Map<String, String> query, byte[] body,
+            Map<String, String> headers) throws Exception {
+        String path = "/" + encode(bucket, false) + (key != null ? "/" + encode(key, true) : "");
+        StringBuilder canonicalQuery = new StringBuilder();
+        for (Map.Entry<String, String> parameter : new TreeMap<>(query).entrySet()) {
+            if (canonicalQuery.length() > 0) {
+                canonicalQuery.append('&');
+            }
+            canonicalQuery.append(encode(parameter.getKey(), false)).append('=').append(encode(parameter.getValue(), false));
+        }
+
+        String payloadHash = body.length == 0 ? EMPTY_SHA256 : ContainerHeader.toHex(MessageDigest.getInstance("SHA-256").digest(body));
+        String amzDate = AMZ_DATE.format(Instant.now());
+        String date = amzDate.substring(0, 8);
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+            + "host:" + host + "\n" + "x-amz-content-sha256:" + payloadHash + "\n" + "x-amz-date:" + amzDate + "\n\n"
+            + SIGNED_HEADERS + "\n" + payloadHash;
+        String scope = date + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+            + ContainerHeader.toHex(MessageDigest.getInstance("SHA-256").digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        byte[] signingKey = hmac(hmac(hmac(hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date), region), "s3"), "aws4_request");
+        String signature = ContainerHeader.toHex(hmac(signingKey, stringToSign));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(endpoint + path
+                + (canonicalQuery.length() > 0 ? "?" + canonicalQuery : "")))
+            .method(method, body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body))
+            .header("x-amz-date", amzDate)
+            .header("x-amz-content-sha256", payloadHash)
+            .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + SIGNED_HEADERS + ", Signature=" + signature);
+        headers.forEach(request::header);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Comprueba el estado de una respuesta.
+     * 
+     * @throws NoSuchFileException si el objeto no existe
+     * @throws IOException si el estado no es el esperado
+     */
+    private static HttpResponse<byte[]> check(HttpResponse<byte[]> response, String key, int expected) throws IOException {
+        int status = response.statusCode();
+        if (status == expected || (expected == 206 && status == 200) || (expected == 204 && status == 200)) {
+            return response;
+        }
+        if (status == 404 && !"HEAD".equals(response.request().method())
+                && xmlValues(response.body(), "Code").contains("NoSuchKey")) {
+            throw new NoSuchFileException(key);
+        }
+        throw new IOException("Error S3 " + status + " en " + response.request().method() + " " + key + ": "
+            + errorMessage(response.body()));
+    }
+
+    /**
+     * Espera a que terminen las transferencias de las partes.
+     */
+    private static void await(List<Future<?>> futures) throws Exception {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Codifica un texto según RFC 3986, como exige la firma.
+     * 
+     * @param path true para conservar las barras de una ruta
+     */
+    private static String encode(String value, boolean path) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (path && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xF, 16)))
+                    .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Calcula un HMAC-SHA256.
+     */
+    private static byte[] hmac(byte[] key, String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Obtiene el texto de todos los elementos XML con un nombre.
+     * 
+     * @return textos en orden (vacío si el cuerpo no es XML)
+     */
+    private static List<String> xmlValues(byte[] xml, String name) {
+        if (xml.length == 0) {
+            return new ArrayList<>();
+        }
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+            NodeList nodes = document.getElementsByTagName(name);
+            List<String> values = new ArrayList<>(nodes.getLength());
+            for (int i = 0; i < nodes.getLength(); i++) {
+                values.add(nodes.item(i).getTextContent());
+            }
+            return values;
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Extrae el código y el mensaje de una respuesta de error de S3.
+     */
+    private static String errorMessage(byte[] body) {
+        List<String> code = xmlValues(body, "Code");
+        List<String> message = xmlValues(body, "Message");
+        if (code.isEmpty()) {
+            return new String(Arrays.copyOf(body, Math.min(body.length, 200)), StandardCharsets.UTF_8);
+        }
+        return code.get(0) + (message.isEmpty() ? "" : " (" + message.get(0) + ")");
+    }
+}
@@ -1,3 +1,4 @@
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.Base64;
 
@@ -8,9 +9,9 @@ import java.util.Base64;
  * utilizando SHA-256 con sal (salt) fija. Es una implementación temporal
  * y simplificada para propósitos educativos.
  * 
- * <p><strong>IMPORTANTE:</strong> En un entorno de producción se debe usar
- * una biblioteca especializada como bcrypt, scrypt o Argon2 que incluya
- * sal aleatoria y múltiples iteraciones para mayor seguridad.</p>
+ * <p><strong>IMPORTANTE:</strong> Esta clase solo se mantiene para verificar
+ * hashes heredados. Los hashes nuevos se generan con {@link PasswordHashing},
+ * que usa PBKDF2 con sal aleatoria y coste configurable.</p>
  * 
  * @author DenReanin
  * @version 1.0
@@ -18,6 +19,7 @@ import java.util.Base64;
  * 
  * @see MessageDigest
  * @see Base64
+ * @see LegacySha256HashEngine
  */
 public class SimpleHash {
     /** Sal fija utilizada para el hashing (en producción debe ser aleatoria) */
@@ -51,16 +53,22 @@ public class SimpleHash {
      * Verifica si una contraseña coincide con un hash almacenado.
      * 
      * Hashea la contraseña proporcionada usando el mismo método que
-     * hashPassword() y compara el resultado con el hash almacenado.
+     * hashPassword() y compara el resultado con el hash almacenado en
+     * tiempo constante para no revelar cuántos bytes coinciden.
      * 
      * @param password contraseña en texto plano a verificar
      * @param hash hash almacenado con el que comparar
      * @return true si la contraseña coincide con el hash, false en caso contrario
      * 
      * @see #hashPassword(String)
+     * @see MessageDigest#isEqual(byte[], byte[])
      */
     public static boolean verifyPassword(String password, String hash) {
+        if (hash == null) {
+            return false;
+        }
         String computedHash = hashPassword(password);
-        return computedHash.equals(hash);
+        return MessageDigest.isEqual(computedHash.getBytes(StandardCharsets.US_ASCII),
+                                     hash.getBytes(StandardCharsets.US_ASCII));
     }
 }
@@ -0,0 +1,340 @@
+import javax.crypto.AEADBadTagException;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contenedor .enc que no cifra las zonas vacías de los archivos dispersos.
+ * 
+ * Las imágenes de discos virtuales y los archivos de bases de datos
+ * preasignados son en su mayor parte huecos o ceros. Al cifrarlos en este
+ * formato, cada bloque de la cabecera (64 KiB por defecto) que solo contiene
+ * ceros se omite: no se cifra ni se escribe, y solo se anota. Java no
+ * ofrece SEEK_DATA ni SEEK_HOLE, así que los huecos se detectan comparando
+ * cada bloque con ceros; leer un hueco no accede al disco. Al descifrar
+ * hacia un archivo, los huecos se recrean sin escribirlos, de modo que el
+ * resultado vuelve a ser disperso.
+ * 
+ * <p>Formato tras la cabecera (con {@link ContainerHeader#FIELD_SPARSE}):
+ * los bloques con datos cifrados con {@link ChunkCipher} en orden (índices
+ * 0 a n-1), seguidos del mapa de extensiones cifrado como bloque n y
+ * último, y de una cola de 8 bytes con n y la longitud del mapa cifrado. El
+ * mapa contiene la longitud del texto plano y, por cada extensión de
+ * bloques con datos, su primer bloque y su número de bloques. Como el mapa
+ * es el último bloque autenticado, no se puede truncar, reordenar ni
+ * convertir datos en huecos sin que falle el descifrado.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see EncryptedContainer
+ */
+public class SparseContainer {
+
+    /** Versión del formato disperso */
+    private static final byte FORMAT_VERSION = 1;
+
+    /** Longitud de la cola: número de bloques con datos y longitud del mapa cifrado */
+    private static final int TRAILER_LENGTH = 8;
+
+    /** Longitud de cada extensión del mapa: primer bloque y número de bloques */
+    private static final int EXTENT_LENGTH = 8 + 4;
+
+    /** Longitud máxima del mapa cifrado */
+    private static final int MAX_MAP_LENGTH = 64 * 1024 * 1024;
+
+    /** Ceros con los que se comparan los bloques leídos y se rellenan los huecos */
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(EncryptedContainer.DEFAULT_CHUNK_SIZE).asReadOnlyBuffer();
+
+    /**
+     * Resultado de un cifrado.
+     */
+    public static class Result {
+        /** Longitud del texto plano */
+        public final long plainLength;
+
+        /** Bytes de texto plano cifrados (los que no son huecos) */
+        public final long dataBytes;
+
+        /** Extensiones de bloques con datos */
+        public final int extents;
+
+        Result(long plainLength, long dataBytes, int extents) {
+            this.plainLength = plainLength;
+            this.dataBytes = dataBytes;
+            this.extents = extents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d KiB, %d KiB con datos en %d extensiones, %d KiB de huecos omitidos",
+                plainLength >> 10, dataBytes >> 10, extents, (plainLength - dataBytes) >> 10);
+        }
+    }
+
+    private SparseContainer() {
+    }
+
+    /**
+     * Crea la cabecera de un contenedor disperso con el tamaño de bloque por defecto.
+     * 
+     * @return cabecera a la que se pueden añadir más campos antes de escribirla
+     */
+    public static ContainerHeader newHeader() {
+        ContainerHeader header = ContainerHeader.create(EncryptedContainer.DEFAULT_CHUNK_SIZE);
+        header.put(ContainerHeader.FIELD_SPARSE, new byte[] {FORMAT_VERSION});
+        return header;
+    }
+
+    /**
+     * Indica si una cabecera corresponde a un contenedor disperso.
+     * 
+     * @param header cabecera leída
+     * @return true si tiene el campo {@link ContainerHeader#FIELD_SPARSE}
+     */
+    public static boolean isSparse(ContainerHeader header) {
+        return header.has(ContainerHeader.FIELD_SPARSE);
+    }
+
+    /**
+     * Cifra un archivo completo en formato disperso.
+     * 
+     * @param inputFile archivo de texto plano
+     * @param out canal de destino vacío
+     * @param key clave AES del archivo
+     * @param header cabecera creada con {@link #newHeader()}
+     * @return bytes con datos y huecos omitidos
+     * @throws Exception si hay error de lectura, escritura o cifrado
+     */
+    public static Result encrypt(File inputFile, FileChannel out, Key key, ContainerHeader header) throws Exception {
+        if (!isSparse(header)) {
+            throw new IllegalArgumentException("La cabecera no es de un contenedor disperso");
+        }
+        header.write(Channels.newOutputStream(out));
+        ChunkCipher chunkCipher = new ChunkCipher(key, header);
+        int chunkSize = header.getChunkSize();
+
+        List<long[]> extents = new ArrayList<>();
+        ByteBuffer plain = BufferPool.acquire(chunkSize);
+        ByteBuffer sealed = BufferPool.acquire(chunkSize + ChunkCipher.TAG_LENGTH);
+        long plainLength;
+        long dataBytes = 0;
+        int records = 0;
+        try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            plainLength = in.size();
+            long blocks = (plainLength + chunkSize - 1) / chunkSize;
+            for (long block = 0; block < blocks; block++) {
+                plain.clear().limit((int) Math.min(chunkSize, plainLength - block * chunkSize));
+                readFully(in, plain, block * chunkSize);
+                plain.flip();
+                if (isZero(plain)) {
+                    continue;
+                }
+                long[] extent = extents.isEmpty() ? null : extents.get(extents.size() - 1);
+                if (extent != null && extent[0] + extent[1] == block) {
+                    extent[1]++;
+                } else {
+                    extents.add(new long[] {block, 1});
+                }
+                dataBytes += plain.remaining();
+                sealed.clear();
+                chunkCipher.seal(records++, false, plain, sealed);
+                sealed.flip();
+                while (sealed.hasRemaining()) {
+                    out.write(sealed);
+                }
+            }
+        } finally {
+            BufferPool.release(plain);
+            BufferPool.release(sealed);
+        }
+
+        ByteBuffer map = ByteBuffer.allocate(8 + 4 + extents.size() * EXTENT_LENGTH);
+        map.putLong(plainLength).putInt(extents.size());
+        for (long[] extent : extents) {
+            map.putLong(extent[0]).putInt((int) extent[1]);
+        }
+        map.flip();
+        ByteBuffer sealedMap = ByteBuffer.allocate(map.remaining() + ChunkCipher.TAG_LENGTH + TRAILER_LENGTH);
+        int mapLength = chunkCipher.seal(records, true, map, sealedMap);
+        sealedMap.putInt(records).putInt(mapLength).flip();
+        while (sealedMap.hasRemaining()) {
+            out.write(sealedMap);
+        }
+        AppConfig.recordRead(inputFile.toPath(), dataBytes);
+        return new Result(plainLength, dataBytes, extents.size());
+    }
+
+    /**
+     * Descifra un contenedor disperso abierto cuya cabecera ya se ha leído.
+     * 
+     * Si el destino es un {@link FileChannel}, los bloques con datos se
+     * escriben en su posición y los huecos no se escriben, por lo que el
+     * resultado es un archivo disperso; en otro caso los huecos se escriben
+     * como ceros. En ese caso se escriben tantos bytes como la longitud del
+     * texto plano, que puede ser mucho mayor que el contenedor: quien reciba
+     * el flujo no debe reservar memoria según el tamaño del archivo cifrado.
+     * 
+     * @param channel contenedor disperso
+     * @param header cabecera leída del contenedor
+     * @param out destino del texto plano (vacío si es un archivo)
+     * @param key clave AES del contenedor
+     * @return bytes de texto plano descifrados, huecos incluidos
+     * @throws AEADBadTagException si algún bloque o el mapa no son auténticos
+     * @throws Exception si hay error de lectura o escritura
+     * @see CryptoPipeline#decrypt(FileChannel, WritableByteChannel, Key)
+     */
+    static long decrypt(FileChannel channel, ContainerHeader header, WritableByteChannel out, Key key) throws Exception {
+        long base = header.length();
+        long size = channel.size();
+        if (size - base < TRAILER_LENGTH) {
+            throw new StreamCorruptedException("Contenedor disperso truncado");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+        readFully(channel, trailer, size - TRAILER_LENGTH);
+        int records = trailer.getInt(0);
+        int mapLength = trailer.getInt(4);
+        long mapPosition = size - TRAILER_LENGTH - mapLength;
+        if (records < 0 || mapLength < ChunkCipher.TAG_LENGTH + 12 || mapLength > MAX_MAP_LENGTH || mapPosition < base) {
+            throw new StreamCorruptedException("Cola del contenedor disperso invalida");
+        }
+
+        ChunkCipher chunkCipher = new ChunkCipher(key, header);
+        ByteBuffer sealedMap = ByteBuffer.allocate(mapLength);
+        readFully(channel, sealedMap, mapPosition);
+        sealedMap.flip();
+        ByteBuffer map = ByteBuffer.allocate(mapLength - ChunkCipher.TAG_LENGTH);
+        chunkCipher.open(records, true, sealedMap, map);
+        map.flip();
+
+        int chunkSize = header.getChunkSize();
+        long plainLength = map.getLong();
+        int count = map.getInt();
+        if (plainLength < 0 || map.remaining() != (long) count * EXTENT_LENGTH) {
+            throw new AEADBadTagException("Mapa de extensiones invalido");
+        }
+        long blocks = (plainLength + chunkSize - 1) / chunkSize;
+        long[] firstBlocks = new long[count];
+        int[] blockCounts = new int[count];
+        long previousEnd = 0;
+        long dataBlocks = 0;
+        for (int i = 0; i < count; i++) {
+            firstBlocks[i] = map.getLong();
+            blockCounts[i] = map.getInt();
+            if (firstBlocks[i] < previousEnd || blockCounts[i] <= 0 || firstBlocks[i] + blockCounts[i] > blocks) {
+                throw new AEADBadTagException("Mapa de extensiones invalido");
+            }
+            previousEnd = firstBlocks[i] + blockCounts[i];
+            dataBlocks += blockCounts[i];
+        }
+        if (dataBlocks != records) {
+            throw new AEADBadTagException("El mapa no corresponde a los bloques del contenedor");
+        }
+
+        FileChannel file = out instanceof FileChannel ? (FileChannel) out : null;
+        ByteBuffer sealed = BufferPool.acquire(chunkSize + ChunkCipher.TAG_LENGTH);
+        ByteBuffer plain = BufferPool.acquire(chunkSize);
+        try {
+            long position = base;
+            long written = 0;
+            int index = 0;
+            for (int i = 0; i < count; i++) {
+                for (long block = firstBlocks[i]; block < firstBlocks[i] + blockCounts[i]; block++) {
+                    long offset = block * chunkSize;
+                    int length = (int) Math.min(chunkSize, plainLength - offset);
+                    sealed.clear().limit(length + ChunkCipher.TAG_LENGTH);
+                    if (position + sealed.limit() > mapPosition) {
+                        throw new AEADBadTagException("Contenedor disperso truncado en el bloque " + index);
+                    }
+                    readFully(channel, sealed, position);
+                    position += sealed.limit();
+                    sealed.flip();
+                    plain.clear();
+                    chunkCipher.open(index++, false, sealed, plain);
+                    plain.flip();
+                    if (file != null) {
+                        while (plain.hasRemaining()) {
+                            offset += file.write(plain, offset);
+                        }
+                    } else {
+                        writeZeros(out, offset - written);
+                        while (plain.hasRemaining()) {
+                            out.write(plain);
+                        }
+                    }
+                    written = block * chunkSize + length;
+                }
+            }
+            if (position != mapPosition) {
+                throw new AEADBadTagException("Datos sobrantes en el contenedor disperso");
+            }
+            if (file != null) {
+                // Un último byte fija la longitud si el archivo termina en un hueco
+                if (written < plainLength) {
+                    file.write(ByteBuffer.allocate(1), plainLength - 1);
+                }
+            } else {
+                writeZeros(out, plainLength - written);
+            }
+            return plainLength;
+        } finally {
+            BufferPool.release(sealed);
+            BufferPool.release(plain);
+        }
+    }
+
+    /**
+     * Indica si un búfer solo contiene ceros, sin cambiar su posición.
+     */
+    private static boolean isZero(ByteBuffer buffer) {
+        ByteBuffer rest = buffer.duplicate();
+        while (rest.hasRemaining()) {
+            int length = Math.min(rest.remaining(), ZEROS.capacity());
+            ByteBuffer slice = rest.slice();
+            slice.limit(length);
+            ByteBuffer zeros = ZEROS.duplicate();
+            zeros.limit(length);
+            if (slice.mismatch(zeros) >= 0) {
+                return false;
+            }
+            rest.position(rest.position() + length);
+        }
+        return true;
+    }
+
+    /**
+     * Escribe ceros en un canal secuencial.
+     */
+    private static void writeZeros(WritableByteChannel out, long length) throws IOException {
+        while (length > 0) {
+            ByteBuffer zeros = ZEROS.duplicate();
+            zeros.limit((int) Math.min(zeros.capacity(), length));
+            length -= zeros.remaining();
+            while (zeros.hasRemaining()) {
+                out.write(zeros);
+            }
+        }
+    }
+
+    /**
+     * Lee un búfer completo desde una posición del canal.
+     */
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                throw new StreamCorruptedException("Contenedor disperso truncado");
+            }
+            position += read;
+        }
+    }
+}
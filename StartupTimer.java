@@ -0,0 +1,71 @@
+import java.time.Instant;
+
+/**
+ * Medición de los tiempos de arranque de la aplicación.
+ * 
+ * Registra hitos del arranque (ventana visible, claves del sistema listas,
+ * primera operación de cifrado...) y muestra para cada uno el tiempo
+ * transcurrido desde el lanzamiento del proceso y desde la entrada en main.
+ * 
+ * <p>El instante de lanzamiento se toma de la propiedad
+ * {@code cs.launch.epochMillis} si el script que arranca la JVM la indica;
+ * en caso contrario se usa el inicio del proceso que informa el sistema
+ * operativo, cuya resolución puede ser de solo unos milisegundos a un segundo.</p>
+ * 
+ * <p>Con la propiedad del sistema {@code cs.startup.benchmark=true} la
+ * aplicación termina en cuanto muestra la primera ventana, lo que permite
+ * medir el arranque de forma repetible desde un script.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionApp#main(String[])
+ */
+public class StartupTimer {
+    /** Instante de entrada en main en nanosegundos */
+    private static volatile long mainStart = System.nanoTime();
+
+    /** Desfase entre el lanzamiento y la entrada en main en milisegundos (-1 si se desconoce) */
+    private static volatile long launchOffsetMillis = -1;
+
+    /**
+     * Marca la entrada en main como origen de las mediciones.
+     * 
+     * Debe llamarse como primera instrucción de main.
+     */
+    public static void start() {
+        mainStart = System.nanoTime();
+        long now = Instant.now().toEpochMilli();
+        Long launch = Long.getLong("cs.launch.epochMillis");
+        if (launch != null) {
+            launchOffsetMillis = now - launch;
+        } else {
+            launchOffsetMillis = ProcessHandle.current().info().startInstant()
+                .map(processStart -> now - processStart.toEpochMilli())
+                .orElse(-1L);
+        }
+    }
+
+    /**
+     * Registra un hito del arranque y lo muestra por consola.
+     * 
+     * @param event descripción del hito
+     * @return milisegundos transcurridos desde la entrada en main
+     */
+    public static long mark(String event) {
+        long sinceMain = (System.nanoTime() - mainStart) / 1_000_000;
+        String sinceLaunch = launchOffsetMillis >= 0 ? (sinceMain + launchOffsetMillis) + " ms" : "?";
+        System.out.println("[arranque] " + event + ": " + sinceMain + " ms desde main, " + sinceLaunch + " desde el lanzamiento");
+        return sinceMain;
+    }
+
+    /**
+     * Indica si la aplicación se ejecuta en modo de medición de arranque.
+     * 
+     * @return true si la propiedad {@code cs.startup.benchmark} está activada
+     */
+    public static boolean isBenchmark() {
+        return Boolean.getBoolean("cs.startup.benchmark");
+    }
+}
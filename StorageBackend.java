@@ -0,0 +1,125 @@
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Almacenamiento intercambiable de archivos cifrados.
+ * 
+ * Los objetos se identifican con claves relativas separadas por '/' (por
+ * ejemplo {@code informe.pdf.enc}). Solo se guarda texto cifrado: las
+ * claves de archivo siguen en el almacén local o en la cabecera de cada
+ * archivo, por lo que un almacén remoto nunca ve texto plano ni claves.
+ * 
+ * <p>Por ahora solo lo usa el comando {@code store} de {@link EncryptionCli}
+ * para copiar archivos .enc entre la carpeta pública y el almacenamiento.
+ * El cifrado, el descifrado, la restauración y la interfaz gráfica siguen
+ * trabajando sobre las carpetas locales de {@link AppConfig}.</p>
+ * 
+ * <p>{@link #fromConfiguration()} elige la implementación con la propiedad
+ * {@code cs.storage}: {@code file} (por defecto, un directorio local) o
+ * {@code s3} (cualquier servicio compatible con el protocolo S3).</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileSystemStorageBackend
+ * @see S3StorageBackend
+ */
+public interface StorageBackend {
+
+    /**
+     * Guarda un archivo local con la clave indicada, reemplazando el objeto anterior.
+     * 
+     * @param key clave del objeto
+     * @param source archivo local a guardar
+     * @throws Exception si hay error de lectura o de escritura; el objeto anterior no se modifica
+     */
+    void put(String key, Path source) throws Exception;
+
+    /**
+     * Descarga un objeto completo y lo publica de forma atómica en un archivo local.
+     * 
+     * @param key clave del objeto
+     * @param target archivo local de destino
+     * @throws java.nio.file.NoSuchFileException si el objeto no existe
+     * @throws Exception si hay error de lectura o de escritura; el destino no se modifica
+     */
+    void get(String key, Path target) throws Exception;
+
+    /**
+     * Lee una parte de un objeto sin descargarlo completo.
+     * 
+     * @param key clave del objeto
+     * @param offset posición del primer byte
+     * @param length número de bytes a leer
+     * @return bytes leídos (menos de {@code length} si el objeto termina antes)
+     * @throws java.nio.file.NoSuchFileException si el objeto no existe
+     * @throws Exception si hay error de lectura
+     */
+    byte[] getRange(String key, long offset, int length) throws Exception;
+
+    /**
+     * Obtiene el tamaño de un objeto.
+     * 
+     * @param key clave del objeto
+     * @return tamaño en bytes, o -1 si no existe
+     * @throws Exception si hay error de acceso
+     */
+    long size(String key) throws Exception;
+
+    /**
+     * Elimina un objeto. No es un error que no exista.
+     * 
+     * @param key clave del objeto
+     * @throws Exception si hay error de acceso
+     */
+    void delete(String key) throws Exception;
+
+    /**
+     * Lista las claves que empiezan por un prefijo.
+     * 
+     * @param prefix prefijo de las claves (vacío para todas)
+     * @return claves ordenadas
+     * @throws Exception si hay error de acceso
+     */
+    List<String> list(String prefix) throws Exception;
+
+    /**
+     * Crea el almacenamiento configurado con las propiedades del sistema.
+     * 
+     * <ul>
+     *   <li>{@code cs.storage.root}: directorio del almacenamiento {@code file}
+     *       (por defecto la carpeta pública, nunca el almacén de claves)</li>
+     *   <li>{@code cs.storage.s3.endpoint} y {@code cs.storage.s3.bucket}:
+     *       servicio y bucket del almacenamiento {@code s3}</li>
+     *   <li>{@code cs.storage.s3.region}: región de la firma (por defecto us-east-1)</li>
+     *   <li>credenciales en las variables de entorno {@code AWS_ACCESS_KEY_ID}
+     *       y {@code AWS_SECRET_ACCESS_KEY}</li>
+     * </ul>
+     * 
+     * @return almacenamiento configurado
+     * @throws IllegalArgumentException si el tipo es desconocido o falta algún parámetro
+     */
+    static StorageBackend fromConfiguration() {
+        String type = System.getProperty("cs.storage", "file");
+        if ("file".equalsIgnoreCase(type)) {
+            String root = System.getProperty("cs.storage.root");
+            return new FileSystemStorageBackend(root != null ? Paths.get(root) : AppConfig.directory(AppConfig.Root.PUBLIC).toPath());
+        }
+        if ("s3".equalsIgnoreCase(type)) {
+            String endpoint = System.getProperty("cs.storage.s3.endpoint");
+            String bucket = System.getProperty("cs.storage.s3.bucket");
+            String accessKey = System.getenv("AWS_ACCESS_KEY_ID");
+            String secretKey = System.getenv("AWS_SECRET_ACCESS_KEY");
+            if (endpoint == null || bucket == null || accessKey == null || secretKey == null) {
+                throw new IllegalArgumentException("El almacenamiento s3 necesita cs.storage.s3.endpoint, cs.storage.s3.bucket, "
+                    + "AWS_ACCESS_KEY_ID y AWS_SECRET_ACCESS_KEY");
+            }
+            return new S3StorageBackend(URI.create(endpoint), System.getProperty("cs.storage.s3.region", "us-east-1"),
+                bucket, accessKey, secretKey);
+        }
+        throw new IllegalArgumentException("Tipo de almacenamiento desconocido: " + type);
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.PrintStream;
+import java.security.KeyPair;
+
+/**
+ * Acceso al par de claves RSA del sistema usado para el cifrado público.
+ * 
+ * Centraliza la carga de las claves del sistema desde el almacenamiento local
+ * y su generación en la primera ejecución, de modo que la interfaz gráfica y
+ * la línea de comandos comparten exactamente el mismo comportamiento sin que
+ * la línea de comandos dependa de las clases de Swing.
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see FileEncryptionApp
+ * @see EncryptionCli
+ * @see KeyEncryptionKeys
+ */
+public class SystemKeys {
+
+    /**
+     * Carga el par de claves del sistema o lo genera y guarda si no existe.
+     * 
+     * @return par de claves RSA del sistema
+     * @throws Exception si hay error al leer, generar o guardar las claves
+     * 
+     * @see LocalStorage#getSystemKeys()
+     * @see LocalStorage#saveSystemRSAKeys(String, String)
+     */
+    public static KeyPair loadOrGenerate() throws Exception {
+        return loadOrGenerate(System.out);
+    }
+
+    /**
+     * Carga el par de claves del sistema o lo genera, informando en el destino indicado.
+     * 
+     * @param log destino del mensaje de carga o generación (por ejemplo la
+     *        salida de errores, cuando la salida estándar lleva datos)
+     * @return par de claves RSA del sistema
+     * @throws Exception si hay error al leer, generar o guardar las claves
+     */
+    public static KeyPair loadOrGenerate(PrintStream log) throws Exception {
+        String[] systemKeys = LocalStorage.getSystemKeys();
+        if (systemKeys != null) {
+            KeyPair keyPair = RSAUtil.base64ToKeyPair(systemKeys[0], systemKeys[1]);
+            KeyEncryptionKeys.getInstance().unlock(keyPair.getPrivate());
+            log.println("Claves del sistema cargadas desde almacenamiento local");
+            return keyPair;
+        }
+        KeyPair keyPair = RSAUtil.generateKeyPair();
+        String publicKeyBase64 = RSAUtil.publicKeyToBase64(keyPair.getPublic());
+        String privateKeyBase64 = RSAUtil.privateKeyToBase64(keyPair.getPrivate());
+        LocalStorage.saveSystemRSAKeys(publicKeyBase64, privateKeyBase64);
+        KeyEncryptionKeys.getInstance().unlock(keyPair.getPrivate());
+        log.println("Nuevas claves del sistema generadas y guardadas");
+        return keyPair;
+    }
+}
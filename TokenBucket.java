@@ -0,0 +1,76 @@
+/**
+ * Limitador de tasa de tipo token bucket.
+ *
+ * El cubo se rellena de forma continua a una tasa fija hasta su capacidad
+ * máxima, y cada operación consume un token. Cuando el cubo está vacío las
+ * operaciones se rechazan sin bloquear al llamante.
+ *
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ *
+ * @see AuthenticationService
+ */
+public class TokenBucket {
+    /** Número máximo de tokens acumulables (ráfaga permitida) */
+    private final double capacity;
+
+    /** Tokens repuestos por nanosegundo */
+    private final double refillPerNano;
+
+    /** Tokens disponibles en el último instante calculado */
+    private double tokens;
+
+    /** Instante del último relleno en nanosegundos */
+    private long lastRefill;
+
+    /**
+     * Crea un cubo lleno con la capacidad y tasa indicadas.
+     *
+     * @param capacity tamaño máximo de ráfaga
+     * @param refillPerSecond tokens repuestos por segundo
+     * @throws IllegalArgumentException si algún parámetro no es positivo
+     */
+    public TokenBucket(double capacity, double refillPerSecond) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacidad y tasa deben ser positivas");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Intenta consumir un token.
+     *
+     * @return true si había un token disponible, false si la operación debe rechazarse
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indica si el cubo está lleno, es decir, si no ha habido actividad reciente.
+     *
+     * @return true si el cubo tiene toda su capacidad disponible
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    /**
+     * Repone los tokens acumulados desde el último relleno.
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
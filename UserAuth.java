@@ -9,34 +9,27 @@
  * @version 1.0
  * @since 2025-07-25
  * 
- * @see SimpleHash
- * @see LocalStorage
+ * @see AuthenticationService
+ * @see PasswordHashing
  */
 public class UserAuth {
 
     /**
      * Autentica un usuario verificando su contraseña contra el hash almacenado.
      * 
-     * Este método busca el hash de contraseña almacenado para el usuario especificado
-     * y lo compara con la contraseña proporcionada utilizando el sistema de hash
-     * implementado en SimpleHash.
+     * Delega en {@link AuthenticationService}, que mantiene las credenciales en
+     * memoria, limita la tasa de intentos por usuario y global, y regenera de
+     * forma transparente los hashes heredados (SHA-256) o con menos iteraciones
+     * de las actuales tras un login correcto.
      * 
      * @param username nombre del usuario a autenticar
      * @param password contraseña en texto plano a verificar
-     * @return true si la autenticación es exitosa, false en caso contrario
+     * @return true si la autenticación es exitosa, false si las credenciales son
+     *         incorrectas o el intento fue descartado por exceso de intentos
      * 
-     * @see LocalStorage#getUserPasswordHash(String)
-     * @see SimpleHash#verifyPassword(String, String)
+     * @see AuthenticationService#authenticate(String, String)
      */
     public static boolean authenticate(String username, String password) {
-        try {
-            String storedHash = LocalStorage.getUserPasswordHash(username);
-            if (storedHash != null) {
-                return SimpleHash.verifyPassword(password, storedHash);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();  // Manejo adecuado de la excepcion
-        }
-        return false;
+        return AuthenticationService.getInstance().authenticate(username, password) == AuthenticationService.Result.SUCCESS;
     }
 }
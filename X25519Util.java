@@ -0,0 +1,177 @@
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.NamedParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Utilidad para envolver claves AES con X25519 (ECDH) + HKDF + AES Key Wrap.
+ * 
+ * Alternativa a {@link RSAUtil} para las claves de destinatario: la
+ * generación del par de claves y el desenvolvimiento son órdenes de magnitud
+ * más rápidos que con RSA-2048.
+ * 
+ * <p>Para envolver una clave se genera un par efímero X25519, se calcula el
+ * secreto compartido con la clave pública del destinatario, se deriva una
+ * clave de envoltura con HKDF-SHA256 y se cifra la clave AES con AES Key Wrap
+ * (RFC 3394). El resultado es la clave pública efímera (X.509, 44 bytes)
+ * seguida de la clave envuelta.</p>
+ * 
+ * @author DenReanin
+ * @version 1.0
+ * @since 2026-10-19
+ * 
+ * @see KeyAgreement
+ * @see Hkdf
+ * @see KeyWrapping
+ */
+public class X25519Util {
+    /** Nombre del algoritmo de claves en el JCA */
+    private static final String ALGORITHM = "XDH";
+
+    /** Longitud de una clave pública X25519 codificada en X.509 */
+    private static final int ENCODED_PUBLIC_KEY_LENGTH = 44;
+
+    /** Longitud de la clave de envoltura derivada en bytes */
+    private static final int KEK_LENGTH = 16;
+
+    /** Contexto HKDF para separar este uso de cualquier otra derivación */
+    private static final byte[] HKDF_INFO = "cs-x25519-aeskw-v1".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Genera un nuevo par de claves X25519.
+     * 
+     * @return par de claves X25519
+     * @throws Exception si X25519 no está disponible (requiere Java 11 o superior)
+     * 
+     * @see KeyPairGenerator#getInstance(String)
+     */
+    public static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(ALGORITHM);
+        generator.initialize(NamedParameterSpec.X25519);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Envuelve una clave AES para el destinatario indicado.
+     * 
+     * @param keyBytes clave AES a envolver (16, 24 o 32 bytes)
+     * @param recipientKey clave pública X25519 del destinatario
+     * @return clave pública efímera seguida de la clave envuelta
+     * @throws Exception si hay error en el acuerdo de claves o en la envoltura
+     */
+    public static byte[] wrapKey(byte[] keyBytes, PublicKey recipientKey) throws Exception {
+        KeyPair ephemeral = generateKeyPair();
+        byte[] ephemeralEncoded = ephemeral.getPublic().getEncoded();
+        SecretKey kek = deriveKek(ephemeral.getPrivate(), recipientKey, ephemeralEncoded);
+
+        Cipher cipher = Cipher.getInstance("AESWrap");
+        cipher.init(Cipher.WRAP_MODE, kek);
+        byte[] wrapped = cipher.wrap(new SecretKeySpec(keyBytes, "AES"));
+
+        byte[] result = Arrays.copyOf(ephemeralEncoded, ephemeralEncoded.length + wrapped.length);
+        System.arraycopy(wrapped, 0, result, ephemeralEncoded.length, wrapped.length);
+        return result;
+    }
+
+    /**
+     * Recupera una clave AES envuelta con {@link #wrapKey(byte[], PublicKey)}.
+     * 
+     * @param wrappedKey clave pública efímera seguida de la clave envuelta
+     * @param privateKey clave privada X25519 del destinatario
+     * @return bytes de la clave AES
+     * @throws Exception si los datos no son válidos o la clave no corresponde
+     */
+    public static byte[] unwrapKey(byte[] wrappedKey, PrivateKey privateKey) throws Exception {
+        if (wrappedKey.length <= ENCODED_PUBLIC_KEY_LENGTH) {
+            throw new IllegalArgumentException("Clave envuelta X25519 demasiado corta");
+        }
+        byte[] ephemeralEncoded = Arrays.copyOfRange(wrappedKey, 0, ENCODED_PUBLIC_KEY_LENGTH);
+        byte[] wrapped = Arrays.copyOfRange(wrappedKey, ENCODED_PUBLIC_KEY_LENGTH, wrappedKey.length);
+        PublicKey ephemeralKey = KeyFactory.getInstance(ALGORITHM).generatePublic(new X509EncodedKeySpec(ephemeralEncoded));
+        SecretKey kek = deriveKek(privateKey, ephemeralKey, ephemeralEncoded);
+
+        Cipher cipher = Cipher.getInstance("AESWrap");
+        cipher.init(Cipher.UNWRAP_MODE, kek);
+        return cipher.unwrap(wrapped, "AES", Cipher.SECRET_KEY).getEncoded();
+    }
+
+    /**
+     * Convierte una clave pública X25519 a formato Base64 (X.509).
+     * 
+     * @param publicKey clave pública X25519
+     * @return representación Base64 de la clave pública
+     */
+    public static String publicKeyToBase64(PublicKey publicKey) {
+        return Base64.getEncoder().encodeToString(publicKey.getEncoded());
+    }
+
+    /**
+     * Convierte una clave privada X25519 a formato Base64 (PKCS#8).
+     * 
+     * @param privateKey clave privada X25519
+     * @return representación Base64 de la clave privada
+     */
+    public static String privateKeyToBase64(PrivateKey privateKey) {
+        return Base64.getEncoder().encodeToString(privateKey.getEncoded());
+    }
+
+    /**
+     * Convierte una cadena Base64 a clave pública X25519.
+     * 
+     * @param base64 representación Base64 de la clave pública
+     * @return clave pública X25519 reconstruida
+     * @throws Exception si hay error en la decodificación o formato inválido
+     */
+    public static PublicKey base64ToPublicKey(String base64) throws Exception {
+        byte[] keyBytes = Base64.getDecoder().decode(base64);
+        return KeyFactory.getInstance(ALGORITHM).generatePublic(new X509EncodedKeySpec(keyBytes));
+    }
+
+    /**
+     * Convierte una cadena Base64 a clave privada X25519.
+     * 
+     * @param base64 representación Base64 de la clave privada
+     * @return clave privada X25519 reconstruida
+     * @throws Exception si hay error en la decodificación o formato inválido
+     */
+    public static PrivateKey base64ToPrivateKey(String base64) throws Exception {
+        byte[] keyBytes = Base64.getDecoder().decode(base64);
+        return KeyFactory.getInstance(ALGORITHM).generatePrivate(new PKCS8EncodedKeySpec(keyBytes));
+    }
+
+    /**
+     * Calcula el secreto compartido y deriva la clave de envoltura.
+     * 
+     * La clave pública efímera se usa como sal de HKDF para que cada
+     * envoltura derive una clave distinta aunque se repita el destinatario.
+     * 
+     * @param privateKey clave privada propia (efímera o del destinatario)
+     * @param peerKey clave pública de la otra parte
+     * @param ephemeralEncoded clave pública efímera codificada
+     * @return clave AES de envoltura
+     * @throws Exception si hay error en el acuerdo de claves
+     */
+    private static SecretKey deriveKek(PrivateKey privateKey, PublicKey peerKey, byte[] ephemeralEncoded) throws Exception {
+        KeyAgreement agreement = KeyAgreement.getInstance(ALGORITHM);
+        agreement.init(privateKey);
+        agreement.doPhase(peerKey, true);
+        byte[] shared = agreement.generateSecret();
+
+        try {
+            return new SecretKeySpec(Hkdf.derive(ephemeralEncoded, shared, HKDF_INFO, KEK_LENGTH), "AES");
+        } finally {
+            Arrays.fill(shared, (byte) 0);
+        }
+    }
+}
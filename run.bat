@@ -0,0 +1,29 @@
+@echo off
+rem Lanza la aplicacion con el perfil de arranque rapido.
+rem
+rem   run.bat              interfaz grafica
+rem   run.bat cli <args>   linea de comandos (EncryptionCli)
+rem
+rem Si existen build\encryption-app.jar y build\app.jsa (generados con
+rem scripts/build-cds.sh) se usan como classpath y archivo de clases
+rem compartidas; si no, se compila en build\classes.
+
+set APP_DIR=%~dp0
+set JAR=%APP_DIR%build\encryption-app.jar
+set ARCHIVE=%APP_DIR%build\app.jsa
+set JAVA_OPTS=-Xshare:auto
+
+if exist "%JAR%" (
+    set CP=%JAR%
+    if exist "%ARCHIVE%" set JAVA_OPTS=-Xshare:auto -XX:SharedArchiveFile="%ARCHIVE%"
+) else (
+    set CP=%APP_DIR%build\classes
+    if not exist "%APP_DIR%build\classes" mkdir "%APP_DIR%build\classes"
+    javac -encoding UTF-8 -d "%APP_DIR%build\classes" "%APP_DIR%*.java" || exit /b 1
+)
+
+if "%1"=="cli" (
+    java %JAVA_OPTS% -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -cp "%CP%" EncryptionCli %2 %3 %4 %5 %6 %7 %8 %9
+    exit /b %ERRORLEVEL%
+)
+java %JAVA_OPTS% -cp "%CP%" FileEncryptionApp
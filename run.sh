@@ -0,0 +1,28 @@
+#!/bin/sh
+# Lanza la aplicacion con el perfil de arranque rapido.
+#
+#   ./run.sh              interfaz grafica
+#   ./run.sh cli <args>   linea de comandos (EncryptionCli)
+#
+# Si existe build/app.jsa (ver scripts/build-cds.sh) se usa como archivo de
+# clases compartidas. La linea de comandos ademas limita el JIT a C1 y usa
+# SerialGC, que arrancan antes en procesos de corta duracion.
+
+APP_DIR=$(cd "$(dirname "$0")" && pwd)
+JAR="$APP_DIR/build/encryption-app.jar"
+ARCHIVE="$APP_DIR/build/app.jsa"
+
+if [ ! -f "$JAR" ]; then
+    "$APP_DIR/scripts/build-cds.sh" || exit 1
+fi
+
+JAVA_OPTS="-Xshare:auto"
+if [ -f "$ARCHIVE" ]; then
+    JAVA_OPTS="$JAVA_OPTS -XX:SharedArchiveFile=$ARCHIVE"
+fi
+
+if [ "$1" = "cli" ]; then
+    shift
+    exec java $JAVA_OPTS -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -cp "$JAR" EncryptionCli "$@"
+fi
+exec java $JAVA_OPTS -cp "$JAR" FileEncryptionApp
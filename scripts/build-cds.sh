@@ -0,0 +1,32 @@
+#!/bin/sh
+# Compila la aplicacion, genera build/encryption-app.jar y crea el archivo
+# de clases compartidas (AppCDS) build/app.jsa a partir de una ejecucion de
+# entrenamiento de las rutas de cifrado y descifrado.
+#
+# El archivo CDS dinamico requiere JDK 13 o superior. El entrenamiento usa un
+# user.home temporal para no tocar las claves ni los archivos reales.
+set -e
+
+APP_DIR=$(cd "$(dirname "$0")/.." && pwd)
+BUILD_DIR="$APP_DIR/build"
+JAR="$BUILD_DIR/encryption-app.jar"
+ARCHIVE="$BUILD_DIR/app.jsa"
+
+rm -rf "$BUILD_DIR/classes"
+mkdir -p "$BUILD_DIR/classes"
+javac -encoding UTF-8 -d "$BUILD_DIR/classes" "$APP_DIR"/*.java
+jar --create --file "$JAR" --main-class FileEncryptionApp -C "$BUILD_DIR/classes" .
+echo "JAR generado: $JAR"
+
+# Con entorno grafico tambien se cargan las clases de Swing de la aplicacion
+GUI_FLAG=""
+if [ -n "$DISPLAY" ]; then
+    GUI_FLAG="--gui"
+fi
+
+TRAIN_HOME=$(mktemp -d)
+rm -f "$ARCHIVE"
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -Duser.home="$TRAIN_HOME" \
+    -cp "$JAR" EncryptionCli train $GUI_FLAG
+rm -rf "$TRAIN_HOME"
+echo "Archivo CDS generado: $ARCHIVE"
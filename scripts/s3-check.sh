@@ -0,0 +1,71 @@
+#!/bin/sh
+# Comprueba el almacenamiento S3 contra un servicio compatible local (por
+# ejemplo MinIO: minio server /tmp/minio, con el bucket ya creado).
+#
+#   S3_ENDPOINT=http://localhost:9000 S3_BUCKET=cifrados \
+#   AWS_ACCESS_KEY_ID=... AWS_SECRET_ACCESS_KEY=... scripts/s3-check.sh
+#
+# Sube un archivo pequeno y otro de 12 MiB (subida multiparte con partes de
+# 5 MiB), los descarga por rangos en paralelo condicionados al ETag
+# (If-Match) y los compara con los originales, lista con paginas de 2
+# claves y elimina todo lo subido. Requiere haber ejecutado antes
+# scripts/build-cds.sh. Usa un user.home temporal y claves con un prefijo
+# propio, por lo que no toca otros objetos del bucket.
+set -e
+
+APP_DIR=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$APP_DIR/build/encryption-app.jar"
+S3_ENDPOINT=${S3_ENDPOINT:-http://localhost:9000}
+S3_BUCKET=${S3_BUCKET:-cifrados}
+
+if [ ! -f "$JAR" ]; then
+    echo "Ejecute primero scripts/build-cds.sh" >&2
+    exit 1
+fi
+if [ -z "$AWS_ACCESS_KEY_ID" ] || [ -z "$AWS_SECRET_ACCESS_KEY" ]; then
+    echo "Defina AWS_ACCESS_KEY_ID y AWS_SECRET_ACCESS_KEY" >&2
+    exit 1
+fi
+
+CHECK_HOME=$(mktemp -d)
+trap 'rm -rf "$CHECK_HOME"' EXIT
+PREFIX="s3-check-$$-"
+INPUT="$CHECK_HOME/entrada"
+mkdir -p "$INPUT"
+
+store() {
+    java -Duser.home="$CHECK_HOME" -Dcs.storage=s3 -Dcs.storage.s3.endpoint="$S3_ENDPOINT" \
+        -Dcs.storage.s3.bucket="$S3_BUCKET" -Dcs.storage.s3.partSize=5242880 \
+        -Dcs.storage.s3.listPageSize=2 -cp "$JAR" EncryptionCli store "$@"
+}
+
+fail() {
+    echo "FALLO: $1" >&2
+    exit 1
+}
+
+head -c 1024 /dev/urandom > "$INPUT/${PREFIX}pequeno.enc"
+head -c 12582912 /dev/urandom > "$INPUT/${PREFIX}grande.enc"
+for i in 1 2 3; do
+    head -c 100 /dev/urandom > "$INPUT/${PREFIX}lista$i.enc"
+done
+
+store put "$INPUT"/${PREFIX}*.enc
+echo "put: 5 objetos subidos (uno multiparte)"
+
+count=$(store ls "$PREFIX" | grep -c "^$PREFIX")
+[ "$count" -eq 5 ] || fail "ls con paginas de 2 claves devolvio $count de 5 objetos"
+echo "ls: 5 objetos en 3 paginas"
+
+store get "${PREFIX}pequeno.enc" "${PREFIX}grande.enc"
+cmp -s "$INPUT/${PREFIX}pequeno.enc" "$CHECK_HOME/Documents/cs/encriptado/${PREFIX}pequeno.enc" \
+    || fail "el archivo pequeno descargado no coincide"
+cmp -s "$INPUT/${PREFIX}grande.enc" "$CHECK_HOME/Documents/cs/encriptado/${PREFIX}grande.enc" \
+    || fail "el archivo multiparte descargado no coincide"
+echo "get: descargas identicas a los originales"
+
+store rm $(cd "$INPUT" && ls ${PREFIX}*.enc)
+count=$(store ls "$PREFIX" | grep -c "^$PREFIX" || true)
+[ "$count" -eq 0 ] || fail "quedan $count objetos tras rm"
+echo "rm: objetos eliminados"
+echo "Almacenamiento S3 correcto en $S3_ENDPOINT/$S3_BUCKET"
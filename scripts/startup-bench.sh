@@ -0,0 +1,53 @@
+#!/bin/sh
+# Mide el tiempo hasta el primer cifrado de la linea de comandos con y sin
+# el archivo CDS de clases compartidas.
+#
+#   scripts/startup-bench.sh [ejecuciones]
+#
+# Requiere haber ejecutado antes scripts/build-cds.sh. Cada ejecucion cifra
+# un archivo pequeno en un user.home temporal y se informa de la media del
+# tiempo hasta el primer cifrado (desde el lanzamiento del proceso) y del
+# tiempo total del proceso. Usa date +%s%N (GNU coreutils).
+set -e
+
+APP_DIR=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$APP_DIR/build/encryption-app.jar"
+ARCHIVE="$APP_DIR/build/app.jsa"
+RUNS=${1:-10}
+
+if [ ! -f "$JAR" ] || [ ! -f "$ARCHIVE" ]; then
+    echo "Ejecute primero scripts/build-cds.sh" >&2
+    exit 1
+fi
+
+BENCH_HOME=$(mktemp -d)
+trap 'rm -rf "$BENCH_HOME"' EXIT
+
+# Generar las claves del sistema antes de medir para que no cuenten en el tiempo
+java -Duser.home="$BENCH_HOME" -cp "$JAR" EncryptionCli train > /dev/null
+
+measure() {
+    label=$1
+    shift
+    first_total=0
+    wall_total=0
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        input="$BENCH_HOME/bench_${label}_$i.txt"
+        echo "contenido de prueba $i" > "$input"
+        start=$(date +%s%N)
+        output=$(java "$@" -Dcs.launch.epochMillis=$((start / 1000000)) -Duser.home="$BENCH_HOME" \
+            -cp "$JAR" EncryptionCli encrypt "$input")
+        end=$(date +%s%N)
+        first=$(echo "$output" | sed -n 's/.*Primer cifrado completado: [0-9]* ms desde main, \([0-9]*\) ms desde el lanzamiento.*/\1/p')
+        first_total=$((first_total + ${first:-0}))
+        wall_total=$((wall_total + (end - start) / 1000000))
+        i=$((i + 1))
+    done
+    echo "$label: primer cifrado $((first_total / RUNS)) ms, proceso completo $((wall_total / RUNS)) ms (media de $RUNS)"
+}
+
+measure "sin-cds" -Xshare:off
+measure "cds-jdk" -Xshare:auto
+measure "appcds" -XX:SharedArchiveFile="$ARCHIVE"
+measure "appcds-c1" -XX:SharedArchiveFile="$ARCHIVE" -XX:TieredStopAtLevel=1 -XX:+UseSerialGC